@@ -0,0 +1,81 @@
+package ed.inf.adbs.blazedb.kernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the SIMD kernels on one batch of random values.
+ *
+ * Run with: mvn -P jmh test-compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    private String kernels;
+
+    @Param({"1024", "8192"})
+    private int count;
+
+    private IntKernels implementation;
+    private int[] column;
+    private int[] other;
+    private int[] rows;
+
+    @Setup
+    public void setup() throws Exception {
+        implementation = kernels.equals("scalar")
+                ? new ScalarKernels()
+                : (IntKernels) Class.forName("ed.inf.adbs.blazedb.kernel.VectorKernels").getDeclaredConstructor().newInstance();
+        Random random = new Random(42);
+        column = new int[count];
+        other = new int[count];
+        rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            column[i] = random.nextInt(200);
+            other[i] = random.nextInt(10);
+        }
+    }
+
+    /**
+     * About half of the rows pass, the worst case for branch prediction in the scalar loop.
+     */
+    @Benchmark
+    public int selectGreaterThan() {
+        return implementation.selectCompare(Comparison.GT, column, 100, count, rows);
+    }
+
+    @Benchmark
+    public int selectEquals() {
+        return implementation.selectCompare(Comparison.EQ, column, 100, count, rows);
+    }
+
+    @Benchmark
+    public int sum() {
+        return implementation.sum(column, count);
+    }
+
+    @Benchmark
+    public int[] multiply() {
+        System.arraycopy(column, 0, rows, 0, count);
+        implementation.multiply(rows, other, count);
+        return rows;
+    }
+}
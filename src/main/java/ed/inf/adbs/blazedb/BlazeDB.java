@@ -5,6 +5,7 @@ import java.io.*;
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import ed.inf.adbs.blazedb.operator.Operator;
 import ed.inf.adbs.blazedb.query.*;
+import ed.inf.adbs.blazedb.storage.BufferPoolManager;
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import net.sf.jsqlparser.JSQLParserException;
 
@@ -54,6 +55,9 @@ public class BlazeDB {
 				System.out.println("Executing query plan..." + root);
 				execute(root, outputFile);
 				System.out.println("Query execution completed. Results written to: " + outputFile);
+				if (BufferPoolManager.ENABLED) {
+					System.out.println("[BUFFER POOL] " + BufferPoolManager.getInstance().getStatistics());
+				}
 			} else {
 				System.err.println("Error: Query plan did not return a valid root operator.");
 			}
@@ -63,8 +67,10 @@ public class BlazeDB {
 	}
 
 	/**
-	 * Executes the provided query plan by repeatedly calling `getNextTuple()`
+	 * Executes the provided query plan by repeatedly calling `getNextBatch()`
 	 * on the root object of the operator tree. Writes the result to `outputFile`.
+	 * Operators without a batch implementation fill the batches from `getNextTuple()`.
+	 * The operators are closed at the end.
 	 *
 	 * @param root The root operator of the operator tree (assumed to be non-null).
 	 * @param outputFile The name of the file where the result will be written.
@@ -73,18 +79,13 @@ public class BlazeDB {
 		try {
 			// Create a BufferedWriter for result output
 			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
-			// Retrieve the first tuple from the operator tree
-			Tuple tuple = root.getNextTuple();
-			//System.out.println("current tuple: " + tuple);
-
-			// Process all tuples produced by the root operator
-			while (tuple != null) {
-				//System.out.println("Result IN EXECUTE BLAZEDB: " + tuple);
-				writer.write(tuple.printValuesOnly()); // I HAVE CHANGED THIS
-				writer.newLine();
-
-				// Retrieve the next tuple
-				tuple = root.getNextTuple();
+			// Process all the batches produced by the root operator
+			TupleBatch batch;
+			while ((batch = root.getNextBatch()) != null) {
+				for (int i = 0; i < batch.selectedCount(); i++) {
+					writer.write(batch.printValuesOnly(batch.selectedRow(i)));
+					writer.newLine();
+				}
 			}
 			// Close the writer
 			writer.close();
@@ -92,6 +93,10 @@ public class BlazeDB {
 		catch (IOException e) {
 			e.printStackTrace();
 		}
+		finally {
+			// Release the pages and files the operators still hold
+			root.close();
+		}
 	}
 }
 
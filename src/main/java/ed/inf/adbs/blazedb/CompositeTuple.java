@@ -0,0 +1,43 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * A tuple produced by a join: a view over a left and a right tuple.
+ *
+ * The values are not copied, reading a slot reads through to the left tuple for the first
+ * slots and to the right tuple for the rest. In a left-deep plan the left tuple is itself
+ * usually a CompositeTuple, so every join only allocates this small object per output tuple.
+ */
+public class CompositeTuple extends Tuple {
+
+    private final Tuple left;
+    private final Tuple right;
+    private final int leftSize;
+
+    /**
+     * Creates a joined tuple.
+     *
+     * @param schema The schema of the join output, i.e. left.getSchema().concat(right.getSchema()),
+     *               computed once by the join operator.
+     * @param left  The left tuple.
+     * @param right The right tuple.
+     */
+    public CompositeTuple(TupleSchema schema, Tuple left, Tuple right) {
+        super(schema);
+        this.left = left;
+        this.right = right;
+        this.leftSize = left.size();
+    }
+
+    @Override
+    public int getValue(int slot) {
+        return slot < leftSize ? left.getValue(slot) : right.getValue(slot - leftSize);
+    }
+
+    public Tuple getLeft() {
+        return left;
+    }
+
+    public Tuple getRight() {
+        return right;
+    }
+}
@@ -0,0 +1,158 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * A batch of rows stored by column, used by Operator.getNextBatch().
+ *
+ * Each column is an int array indexed by row, so operators can filter and sum a column in a
+ * tight loop instead of calling getNextTuple() and allocating a Tuple per row. Rows filtered out
+ * are not removed: the selection vector lists the rows that are still valid, in order. Without a
+ * selection vector every row in [0, size) is selected.
+ *
+ * A batch belongs to the operator that returned it and is only valid until the next call to
+ * getNextBatch() or reset() on that operator, which may reuse the same arrays.
+ */
+public class TupleBatch {
+
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("blazedb.batchSize", 1024);
+
+    private final TupleSchema schema;
+    private final int[][] columns;  // columns[slot][row]
+    private int size;               // number of rows filled
+    private int[] selection;        // selected rows, null if all the rows are selected
+    private int selectedCount;
+
+    /**
+     * Creates an empty batch with its own column arrays.
+     * @param schema The schema of the rows.
+     * @param capacity The maximum number of rows.
+     */
+    public TupleBatch(TupleSchema schema, int capacity) {
+        this.schema = schema;
+        this.columns = new int[schema.size()][capacity];
+    }
+
+    /**
+     * Creates a batch over existing column arrays (e.g. a projection of another batch), nothing is copied.
+     * @param schema The schema of the rows.
+     * @param columns One array per slot of the schema.
+     * @param size The number of rows filled.
+     * @param selection The selected rows, or null if all the rows are selected.
+     * @param selectedCount The number of selected rows.
+     */
+    public TupleBatch(TupleSchema schema, int[][] columns, int size, int[] selection, int selectedCount) {
+        this.schema = schema;
+        this.columns = columns;
+        this.size = size;
+        this.selection = selection;
+        this.selectedCount = selection == null ? size : selectedCount;
+    }
+
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public int[] getColumn(int slot) {
+        return columns[slot];
+    }
+
+    public int capacity() {
+        return columns.length == 0 ? DEFAULT_CAPACITY : columns[0].length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size >= capacity();
+    }
+
+    /**
+     * Sets the number of rows filled, after writing directly in the column arrays. All of them are selected.
+     */
+    public void setSize(int size) {
+        this.size = size;
+        this.selection = null;
+        this.selectedCount = size;
+    }
+
+    /**
+     * Empties the batch so it can be filled again.
+     */
+    public void clear() {
+        setSize(0);
+    }
+
+    public int[] getSelection() {
+        return selection;
+    }
+
+    /**
+     * Keeps only the given rows.
+     * @param selection The selected rows, in increasing order.
+     * @param selectedCount The number of selected rows.
+     */
+    public void setSelection(int[] selection, int selectedCount) {
+        this.selection = selection;
+        this.selectedCount = selectedCount;
+    }
+
+    public int selectedCount() {
+        return selectedCount;
+    }
+
+    /**
+     * Returns the row of the i-th selected row.
+     */
+    public int selectedRow(int i) {
+        return selection == null ? i : selection[i];
+    }
+
+    /**
+     * Copies the selected rows into the given array, which must have room for selectedCount() rows.
+     * @return The array, so it can be used as a selection vector.
+     */
+    public int[] selectedRows(int[] rows) {
+        if (selection == null) {
+            for (int i = 0; i < selectedCount; i++) {
+                rows[i] = i;
+            }
+        } else {
+            System.arraycopy(selection, 0, rows, 0, selectedCount);
+        }
+        return rows;
+    }
+
+    /**
+     * Appends a tuple at the end of the batch. Only used while no selection vector is set.
+     */
+    public void addTuple(Tuple tuple) {
+        for (int slot = 0; slot < columns.length; slot++) {
+            columns[slot][size] = tuple.getValue(slot);
+        }
+        setSize(size + 1);
+    }
+
+    /**
+     * Copies a row of the batch into a Tuple.
+     */
+    public Tuple getTuple(int row) {
+        int[] values = new int[columns.length];
+        for (int slot = 0; slot < columns.length; slot++) {
+            values[slot] = columns[slot][row];
+        }
+        return new Tuple(schema, values);
+    }
+
+    /**
+     * Prints only the values of a row, like Tuple.printValuesOnly().
+     */
+    public String printValuesOnly(int row) {
+        StringBuilder sb = new StringBuilder();
+        for (int slot = 0; slot < columns.length; slot++) {
+            if (slot > 0) sb.append(", ");
+            sb.append(columns[slot][row]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package ed.inf.adbs.blazedb;
+
+import java.util.*;
+
+/**
+ * Describes the layout of the values of a Tuple: which column (Table.Column) is stored in which slot.
+ *
+ * A schema is immutable and shared by all the tuples an operator produces, so the
+ * column names are stored once per operator instead of once per value. Operators look up the
+ * slot of the columns they need once when they are created and then read the values by position.
+ */
+public final class TupleSchema {
+    private final String[] tables;   // table of each slot, null for computed columns such as SUM(..)
+    private final String[] columns;  // column name of each slot
+    private final Map<String, Integer> qualifiedIndex; // Table.Column -> slot
+    private final Map<String, Integer> columnIndex;    // Column -> first slot with that column name
+
+    private TupleSchema(String[] tables, String[] columns) {
+        this.tables = tables;
+        this.columns = columns;
+        this.qualifiedIndex = new HashMap<>();
+        this.columnIndex = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            qualifiedIndex.putIfAbsent(qualifiedName(tables[i], columns[i]), i);
+            columnIndex.putIfAbsent(columns[i], i);
+        }
+    }
+
+    /**
+     * Creates the schema of a base table.
+     * @param table The table name.
+     * @param columns The columns of the table, in file order.
+     */
+    public static TupleSchema forTable(String table, List<String> columns) {
+        String[] tables = new String[columns.size()];
+        Arrays.fill(tables, table);
+        return new TupleSchema(tables, columns.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the schema of this schema followed by the given columns that are not bound to a table,
+     * e.g. the results of SUM(..) functions.
+     */
+    public TupleSchema withComputedColumns(List<String> names) {
+        String[] newTables = Arrays.copyOf(tables, tables.length + names.size());
+        String[] newColumns = Arrays.copyOf(columns, columns.length + names.size());
+        for (int i = 0; i < names.size(); i++) {
+            newColumns[columns.length + i] = names.get(i);
+        }
+        return new TupleSchema(newTables, newColumns);
+    }
+
+    /**
+     * Returns the schema of the concatenation of a tuple of this schema and a tuple of the other one (joins).
+     */
+    public TupleSchema concat(TupleSchema other) {
+        String[] newTables = Arrays.copyOf(tables, tables.length + other.tables.length);
+        String[] newColumns = Arrays.copyOf(columns, columns.length + other.columns.length);
+        System.arraycopy(other.tables, 0, newTables, tables.length, other.tables.length);
+        System.arraycopy(other.columns, 0, newColumns, columns.length, other.columns.length);
+        return new TupleSchema(newTables, newColumns);
+    }
+
+    /**
+     * Returns the schema made of the given slots of this schema, in that order (projections).
+     */
+    public TupleSchema project(int[] slots) {
+        String[] newTables = new String[slots.length];
+        String[] newColumns = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            newTables[i] = tables[slots[i]];
+            newColumns[i] = columns[slots[i]];
+        }
+        return new TupleSchema(newTables, newColumns);
+    }
+
+    /**
+     * Returns the slot of a column.
+     * @param table The table name, or null to match on the column name only.
+     * @param column The column name.
+     * @return The slot, or -1 if the column is not in the schema.
+     */
+    public int indexOf(String table, String column) {
+        Integer slot = table == null ? columnIndex.get(column) : qualifiedIndex.get(qualifiedName(table, column));
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns the slot of a column given as Table.Column (or the name of a computed column).
+     * If there is no exact match, the column name alone is used (e.g. "Student.A" matches "A").
+     * @return The slot, or -1 if the column is not in the schema.
+     */
+    public int indexOf(String name) {
+        Integer slot = qualifiedIndex.get(name);
+        if (slot == null) {
+            slot = columnIndex.get(name.replaceAll(".*\\.", ""));
+        }
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Same as indexOf(name), but fails if the column is not in the schema.
+     * This is used when building the plan, so a wrong column is reported before any tuple is read.
+     */
+    public int requireIndexOf(String name) {
+        int slot = indexOf(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Column " + name + " not found in " + this);
+        }
+        return slot;
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    public String getTable(int slot) {
+        return tables[slot];
+    }
+
+    public String getColumn(int slot) {
+        return columns[slot];
+    }
+
+    /**
+     * Returns the name of a slot as Table.Column (or just the name for computed columns).
+     */
+    public String getQualifiedName(int slot) {
+        return qualifiedName(tables[slot], columns[slot]);
+    }
+
+    private static String qualifiedName(String table, String column) {
+        return table == null ? column : table + "." + column;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(getQualifiedName(i));
+        }
+        return sb.append("]").toString();
+    }
+}
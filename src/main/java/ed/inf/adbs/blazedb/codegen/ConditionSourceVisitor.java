@@ -0,0 +1,150 @@
+package ed.inf.adbs.blazedb.codegen;
+
+import ed.inf.adbs.blazedb.TupleSchema;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Multiplication;
+import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Translates a condition into a Java boolean expression over int variables, one per column.
+ *
+ * The variable of a column is named by the PipelineCompiler (e.g. c2 for the third column of the
+ * table). Only the expressions in SUPPORTED are translated, anything else makes the visitor throw
+ * and the query then keeps the interpreted operators.
+ */
+class ConditionSourceVisitor extends ExpressionVisitorAdapter {
+
+    // the expressions that can be translated, anything else (OR, NOT, functions...) is rejected
+    private static final Set<Class<?>> SUPPORTED = new HashSet<>(Arrays.asList(
+            AndExpression.class, Parenthesis.class, EqualsTo.class, NotEqualsTo.class,
+            GreaterThan.class, GreaterThanEquals.class, MinorThan.class, MinorThanEquals.class,
+            Addition.class, Subtraction.class, Multiplication.class, LongValue.class, Column.class));
+
+    private final TupleSchema schema;          // the schema the columns are resolved against
+    private final IntUnaryOperator tableSlot;  // slot in that schema -> column of the table file
+    private final StringBuilder source = new StringBuilder();
+    private final BitSet columns = new BitSet(); // the columns of the file the condition reads
+
+    ConditionSourceVisitor(TupleSchema schema, IntUnaryOperator tableSlot) {
+        this.schema = schema;
+        this.tableSlot = tableSlot;
+    }
+
+    /**
+     * @return The Java source of the condition.
+     */
+    String translate(Expression expression) {
+        source.setLength(0);
+        emit(expression);
+        return source.toString();
+    }
+
+    private void emit(Expression expression) {
+        if (!SUPPORTED.contains(expression.getClass())) {
+            throw new IllegalArgumentException("Cannot generate code for " + expression);
+        }
+        expression.accept(this);
+    }
+
+    /**
+     * @return The columns of the file read by the condition.
+     */
+    BitSet getColumns() {
+        return columns;
+    }
+
+    private void binary(BinaryExpression expression, String operator) {
+        source.append('(');
+        emit(expression.getLeftExpression());
+        source.append(' ').append(operator).append(' ');
+        emit(expression.getRightExpression());
+        source.append(')');
+    }
+
+    @Override
+    public void visit(AndExpression andExpression) {
+        binary(andExpression, "&&");
+    }
+
+    @Override
+    public void visit(Parenthesis parenthesis) {
+        emit(parenthesis.getExpression());
+    }
+
+    @Override
+    public void visit(EqualsTo equalsTo) {
+        binary(equalsTo, "==");
+    }
+
+    @Override
+    public void visit(NotEqualsTo notEqualsTo) {
+        binary(notEqualsTo, "!=");
+    }
+
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        binary(greaterThan, ">");
+    }
+
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        binary(greaterThanEquals, ">=");
+    }
+
+    @Override
+    public void visit(MinorThan minorThan) {
+        binary(minorThan, "<");
+    }
+
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        binary(minorThanEquals, "<=");
+    }
+
+    @Override
+    public void visit(Addition addition) {
+        binary(addition, "+");
+    }
+
+    @Override
+    public void visit(Subtraction subtraction) {
+        binary(subtraction, "-");
+    }
+
+    @Override
+    public void visit(Multiplication multiplication) {
+        binary(multiplication, "*");
+    }
+
+    @Override
+    public void visit(LongValue longValue) {
+        if (longValue.getValue() != (int) longValue.getValue()) {
+            // the interpreted evaluators fold the comparison instead
+            throw new IllegalArgumentException("Cannot generate code for " + longValue);
+        }
+        // the same int the interpreted evaluators use
+        source.append('(').append((int) longValue.getValue()).append(')');
+    }
+
+    @Override
+    public void visit(Column column) {
+        String tableName = column.getTable() != null ? column.getTable().getName() : null;
+        int slot = schema.indexOf(tableName, column.getColumnName());
+        if (slot < 0) {
+            throw new IllegalArgumentException("Column " + column + " not found in " + schema);
+        }
+        int fileColumn = tableSlot.applyAsInt(slot);
+        columns.set(fileColumn);
+        source.append('c').append(fileColumn);
+    }
+}
@@ -0,0 +1,249 @@
+package ed.inf.adbs.blazedb.codegen;
+
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.operator.CompiledScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ProjectOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+
+import javax.tools.*;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * PipelineCompiler generates one class per Scan -> Select -> Project pipeline of a query.
+ *
+ * The generated class reads the table file line by line, parses only the columns used by the
+ * condition or the projection (without splitting the line), evaluates the condition on the int
+ * variables and returns the projected values. Everything is in one loop the JIT can compile as a whole.
+ *
+ * The source is compiled in memory with the JDK compiler (javax.tools), so this needs a JDK at run time.
+ * If there is no compiler, or the pipeline uses something the generator does not support, the
+ * interpreted operators are used instead. Code generation is off by default and is enabled with the
+ * system property blazedb.codegen=true.
+ */
+public final class PipelineCompiler {
+
+    public static final boolean ENABLED = Boolean.getBoolean("blazedb.codegen");
+
+    private static final String PACKAGE = "ed.inf.adbs.blazedb.codegen.generated";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+    // generated source -> compiled pipeline class, so the same pipeline is compiled once per run
+    private static final Map<String, Class<?>> compiledClasses = new ConcurrentHashMap<>();
+
+    private PipelineCompiler() {
+    }
+
+    /**
+     * Replaces a pipeline of the form [Select] -> [Project] -> Scan (the scan of one table with its
+     * pushed down conditions and early projection) with a CompiledScanOperator.
+     *
+     * @param root The root of the pipeline.
+     * @return The compiled operator, or root itself if the pipeline cannot be compiled.
+     */
+    public static Operator tryCompile(Operator root) {
+        Operator operator = root;
+        SelectOperator select = null;
+        ProjectOperator project = null;
+        if (operator instanceof SelectOperator) {
+            select = (SelectOperator) operator;
+            operator = select.getChild();
+        }
+        if (operator instanceof ProjectOperator) {
+            project = (ProjectOperator) operator;
+            operator = project.getChild();
+        }
+        if (!(operator instanceof ScanOperator) || (select == null && project == null)) {
+            return root; // not a pipeline, or a plain scan that has nothing to fuse
+        }
+        ScanOperator scan = (ScanOperator) operator;
+
+        try {
+            // the columns of the table file that are returned, in output order
+            int[] outputColumns = project != null && project.getSlots() != null
+                    ? project.getSlots() : identity(scan.getSchema().size());
+
+            String condition = null;
+            BitSet conditionColumns = new BitSet();
+            if (select != null && select.getExpression() != null) {
+                // the condition is on the select's child, i.e. after the projection if there is one
+                int[] childColumns = project != null ? outputColumns : identity(scan.getSchema().size());
+                ConditionSourceVisitor visitor = new ConditionSourceVisitor(select.getChild().getSchema(), slot -> childColumns[slot]);
+                condition = visitor.translate(select.getExpression());
+                conditionColumns = visitor.getColumns();
+            }
+
+            String className = "Pipeline" + classCounter.incrementAndGet();
+            String body = generateBody(scan.getTableName(), outputColumns, condition, conditionColumns);
+            Class<?> pipelineClass = compiledClasses.get(body);
+            if (pipelineClass == null) {
+                pipelineClass = compile(className, "public final class " + className + body);
+                compiledClasses.put(body, pipelineClass);
+            }
+
+            @SuppressWarnings("unchecked")
+            Function<BufferedReader, int[]> pipeline =
+                    (Function<BufferedReader, int[]>) pipelineClass.getDeclaredConstructor().newInstance();
+            TupleSchema schema = root.getSchema();
+            String description = scan.getTableName() + (condition != null ? " where " + select.getExpression() : "")
+                    + " columns " + Arrays.toString(outputColumns);
+            System.out.println("[CODEGEN] compiled pipeline " + description);
+            return new CompiledScanOperator(scan, schema, pipeline, description);
+        } catch (Exception | LinkageError e) {
+            System.out.println("[CODEGEN] falling back to the interpreted pipeline: " + e.getMessage());
+            return root;
+        }
+    }
+
+    private static int[] identity(int size) {
+        int[] columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * Generates the class body (everything after the class name).
+     * The class implements Function<BufferedReader, int[]>, a JDK type, so the generated code does
+     * not need the classes of BlazeDB on the compiler's class path.
+     *
+     * @param table The table name, for error messages.
+     * @param outputColumns The columns of the file that are returned, in order.
+     * @param condition The Java source of the condition, or null.
+     * @param conditionColumns The columns read by the condition.
+     */
+    static String generateBody(String table, int[] outputColumns, String condition, BitSet conditionColumns) {
+        BitSet needed = (BitSet) conditionColumns.clone();
+        for (int column : outputColumns) {
+            needed.set(column);
+        }
+        int lastColumn = needed.length() - 1;
+        int lastConditionColumn = conditionColumns.length() - 1; // -1 if the condition reads no column
+
+        StringBuilder src = new StringBuilder();
+        src.append(" implements java.util.function.Function<java.io.BufferedReader, int[]> {\n");
+        src.append("  public int[] apply(java.io.BufferedReader reader) {\n");
+        src.append("    try {\n");
+        src.append("      String line;\n");
+        src.append("      while ((line = reader.readLine()) != null) {\n");
+        src.append("        final int len = line.length();\n");
+        src.append("        int pos = 0;\n");
+        if (condition != null && lastConditionColumn < 0) {
+            src.append("        if (!").append(condition).append(") continue;\n"); // no column, e.g. 1 = 1
+        }
+        for (int column = 0; column <= lastColumn; column++) {
+            src.append("        if (pos > len) throw mismatch(line);\n");
+            if (needed.get(column)) {
+                // parse the int in place: optional spaces and sign, then digits up to the next comma
+                src.append("        int c").append(column).append(";\n");
+                src.append("        {\n");
+                src.append("          int v = 0; boolean negative = false; int digits = 0;\n");
+                src.append("          while (pos < len && line.charAt(pos) == ' ') pos++;\n");
+                src.append("          if (pos < len && line.charAt(pos) == '-') { negative = true; pos++; }\n");
+                src.append("          for (; pos < len; pos++) {\n");
+                src.append("            char ch = line.charAt(pos);\n");
+                src.append("            if (ch == ',') break;\n");
+                src.append("            if (ch == ' ') continue;\n");
+                src.append("            if (ch < '0' || ch > '9') throw invalid(line, ").append(column).append(");\n");
+                src.append("            v = v * 10 + (ch - '0'); digits++;\n");
+                src.append("          }\n");
+                src.append("          if (digits == 0) throw invalid(line, ").append(column).append(");\n");
+                src.append("          c").append(column).append(" = negative ? -v : v;\n");
+                src.append("          pos++;\n");
+                src.append("        }\n");
+            } else {
+                src.append("        { int comma = line.indexOf(',', pos); pos = comma < 0 ? len + 1 : comma + 1; }\n");
+            }
+            if (condition != null && column == lastConditionColumn) {
+                // reject the row before parsing the columns only needed by the projection
+                src.append("        if (!").append(condition).append(") continue;\n");
+            }
+        }
+        src.append("        return new int[] {");
+        for (int i = 0; i < outputColumns.length; i++) {
+            src.append(i == 0 ? " c" : ", c").append(outputColumns[i]);
+        }
+        src.append(" };\n");
+        src.append("      }\n");
+        src.append("      return null;\n");
+        src.append("    } catch (java.io.IOException e) {\n");
+        src.append("      throw new java.io.UncheckedIOException(\"Error reading table ").append(table).append("\", e);\n");
+        src.append("    }\n");
+        src.append("  }\n");
+        src.append("  private static RuntimeException invalid(String line, int column) {\n");
+        src.append("    return new RuntimeException(\"Invalid integer value in table ").append(table)
+                .append(" at column \" + column + \": \" + line);\n");
+        src.append("  }\n");
+        src.append("  private static RuntimeException mismatch(String line) {\n");
+        src.append("    return new RuntimeException(\"Schema mismatch in table ").append(table).append(": \" + line);\n");
+        src.append("  }\n");
+        src.append("}\n");
+        return src.toString();
+    }
+
+    /**
+     * Compiles a class in memory and loads it in a new class loader.
+     */
+    private static Class<?> compile(String className, String classSource) throws ClassNotFoundException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("no Java compiler available (running on a JRE)");
+        }
+
+        String source = "package " + PACKAGE + ";\n" + classSource;
+        String qualifiedName = PACKAGE + "." + className;
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        Map<String, ByteArrayOutputStream> classBytes = new HashMap<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classBytes.put(name, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success = compiler.getTask(null, fileManager, diagnostics,
+                Arrays.asList("-proc:none", "-g:none"), null, Collections.singletonList(sourceFile)).call();
+        if (!success) {
+            throw new IllegalStateException("compilation failed: " + diagnostics.getDiagnostics());
+        }
+
+        ClassLoader loader = new ClassLoader(PipelineCompiler.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classBytes.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                byte[] b = bytes.toByteArray();
+                return defineClass(name, b, 0, b.length);
+            }
+        };
+        return loader.loadClass(qualifiedName);
+    }
+}
@@ -0,0 +1,244 @@
+package ed.inf.adbs.blazedb.dbcatalogue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * ColumnStatistics summarises the values of a column, collected by DBStatistics in one pass over the
+ * table: the exact minimum, maximum and number of rows, the number of distinct values estimated with a
+ * HyperLogLog sketch, and a uniform sample of the values (a reservoir of at most
+ * -Dblazedb.stats.sampleSize values).
+ *
+ * The sample gives the distribution of the values: an equi-depth Histogram, and the most common
+ * values (at most -Dblazedb.stats.mcvCount) with their frequencies, those seen in the sample clearly
+ * more often than the average value. The fraction of the rows of a comparison with a constant is
+ * estimated from them (see equalFraction() and rangeFraction()). With a sample size of 0 there is
+ * neither, and the values are assumed spread evenly between min and max.
+ */
+public final class ColumnStatistics {
+
+    /** The number of values kept in the sample of each column, 0 for no sample. */
+    public static final int SAMPLE_SIZE = Integer.getInteger("blazedb.stats.sampleSize", 10000);
+    /** The most common values kept per column. */
+    public static final int MCV_COUNT = Integer.getInteger("blazedb.stats.mcvCount", 10);
+
+    private final int min;
+    private final int max;
+    private final long distinctCount;
+    private final long rowCount;
+    private final int[] sample;
+    private final Histogram histogram;     // null without a sample
+    private final int[] commonValues;      // the most common values, in decreasing frequency
+    private final double[] commonFractions; // the fraction of the rows holding each of them
+    private final double commonFraction;   // of all of them
+
+    ColumnStatistics(int min, int max, long distinctCount, long rowCount, int[] sample) {
+        this.min = min;
+        this.max = max;
+        this.distinctCount = distinctCount;
+        this.rowCount = rowCount;
+        this.sample = sample;
+        this.histogram = sample.length == 0 ? null : Histogram.of(sample, min, max, Histogram.DEFAULT_BUCKETS);
+
+        // the values of the sample seen more often than the average value, and more than a few times
+        // if the sample is not the whole column: a few repeats happen by chance in a sample of a
+        // column of many distinct values
+        int minCount = sample.length == rowCount ? 2 : 5;
+        List<int[]> counts = new ArrayList<>();
+        for (int i = 0; i < sample.length; ) {
+            int j = i;
+            while (j < sample.length && sample[j] == sample[i]) {
+                j++;
+            }
+            if (j - i >= minCount && (j - i) * (double) distinctCount > 1.25 * sample.length) {
+                counts.add(new int[]{sample[i], j - i});
+            }
+            i = j;
+        }
+        counts.sort((a, b) -> b[1] - a[1]);
+        int common = Math.min(MCV_COUNT, counts.size());
+        this.commonValues = new int[common];
+        this.commonFractions = new double[common];
+        double total = 0;
+        for (int i = 0; i < common; i++) {
+            commonValues[i] = counts.get(i)[0];
+            commonFractions[i] = (double) counts.get(i)[1] / sample.length;
+            total += commonFractions[i];
+        }
+        this.commonFraction = total;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return The estimated number of distinct values, at least 1 and at most the number of rows
+     *         (and of values between min and max).
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The sampled values in increasing order, empty if no sample was kept.
+     */
+    public int[] getSample() {
+        return sample;
+    }
+
+    /**
+     * @return The histogram of the values, or null if no sample was kept.
+     */
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return The most common values, in decreasing frequency.
+     */
+    public int[] getCommonValues() {
+        return commonValues;
+    }
+
+    /**
+     * @return The estimated fraction of the rows where the column equals value: its frequency if it is
+     *         one of the most common values, else an even share of the rows of the other values.
+     */
+    public double equalFraction(long value) {
+        if (value < min || value > max) {
+            return 0;
+        }
+        for (int i = 0; i < commonValues.length; i++) {
+            if (commonValues[i] == value) {
+                return commonFractions[i];
+            }
+        }
+        long others = distinctCount - commonValues.length;
+        return others <= 0 ? 0 : (1 - commonFraction) / others;
+    }
+
+    /**
+     * @return The estimated fraction of the rows where low <= column <= high.
+     */
+    public double rangeFraction(long low, long high) {
+        low = Math.max(low, min);
+        high = Math.min(high, max);
+        if (low > high) {
+            return 0;
+        }
+        if (low == high) {
+            return equalFraction(low);
+        }
+        double fraction = histogram != null
+                ? histogram.fractionBelow(high + 1) - histogram.fractionBelow(low)
+                : (double) (high - low + 1) / ((long) max - min + 1);
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    /**
+     * Writes the statistics to the statistics file (see StatisticsStore). The histogram and the most
+     * common values are not written: they are built again from the sample.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(min);
+        out.writeInt(max);
+        out.writeLong(distinctCount);
+        out.writeLong(rowCount);
+        out.writeInt(sample.length);
+        for (int value : sample) {
+            out.writeInt(value);
+        }
+    }
+
+    static ColumnStatistics read(DataInputStream in) throws IOException {
+        int min = in.readInt();
+        int max = in.readInt();
+        long distinctCount = in.readLong();
+        long rowCount = in.readLong();
+        int[] sample = new int[in.readInt()];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = in.readInt();
+        }
+        return new ColumnStatistics(min, max, distinctCount, rowCount, sample);
+    }
+
+    /**
+     * @return The statistics as [min, max, distinctCount, nTuples], counts capped to Integer.MAX_VALUE.
+     */
+    public List<Integer> toList() {
+        return Arrays.asList(min, max, (int) Math.min(distinctCount, Integer.MAX_VALUE),
+                (int) Math.min(rowCount, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public String toString() {
+        return "[min=" + min + ", max=" + max + ", distinct=" + distinctCount + ", rows=" + rowCount
+                + (sample.length > 0 ? ", sample=" + sample.length : "")
+                + (commonValues.length > 0 ? ", common=" + Arrays.toString(commonValues) : "") + "]";
+    }
+
+    /**
+     * Collector receives the values of a column one by one and keeps only the state of the statistics,
+     * so the memory it needs does not depend on the number of rows.
+     */
+    static final class Collector {
+        private final HyperLogLog distinct;
+        private final int[] reservoir;
+        private final SplittableRandom random = new SplittableRandom(42); // the same sample for the same table
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        private long rowCount;
+
+        Collector(int precision, int sampleSize) {
+            this.distinct = new HyperLogLog(precision);
+            this.reservoir = new int[sampleSize];
+        }
+
+        void add(int value) {
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            distinct.add(value);
+            if (rowCount < reservoir.length) {
+                reservoir[(int) rowCount] = value;
+            } else if (reservoir.length > 0) {
+                // the value replaces a sampled one with probability size / (rows so far)
+                long slot = random.nextLong(rowCount + 1);
+                if (slot < reservoir.length) {
+                    reservoir[(int) slot] = value;
+                }
+            }
+            rowCount++;
+        }
+
+        /**
+         * @return The statistics of the values added, or null if there were none.
+         */
+        ColumnStatistics finish() {
+            if (rowCount == 0) {
+                return null;
+            }
+            int[] sample = Arrays.copyOf(reservoir, (int) Math.min(rowCount, reservoir.length));
+            Arrays.sort(sample);
+            long distinctCount = Math.max(1, Math.min(distinct.estimate(), Math.min(rowCount, (long) max - min + 1)));
+            return new ColumnStatistics(min, max, distinctCount, rowCount, sample);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package ed.inf.adbs.blazedb.dbcatalogue;
 
+import ed.inf.adbs.blazedb.TupleSchema;
+
 import java.io.*;
 import java.util.*;
 
@@ -7,6 +9,8 @@ public class DBCatalogue {
     private static DBCatalogue instance;
     private final String databaseDir;
     private final HashMap<String, List<String>> tables;
+    private final HashMap<String, TupleSchema> schemas; // shared schema of the tuples of each table
+    private final HashMap<String, List<IndexDefinition>> indexes;
 
     /**
      * Private constructor to enforce Singleton pattern for the DBCatalogue.
@@ -19,7 +23,10 @@ public class DBCatalogue {
     public DBCatalogue(String directory) {
         this.databaseDir = directory; // in our example this is "samples"
         this.tables = new HashMap<>();
+        this.schemas = new HashMap<>();
+        this.indexes = new HashMap<>();
         loadSchema();
+        loadIndexes();
     }
 
     /**
@@ -75,6 +82,101 @@ public class DBCatalogue {
         }
     }
 
+    /**
+     * Loads the indexes declared in the optional indexes.txt file next to schema.txt.
+     * Each line declares one index:
+     * table_name column_name clustered|unclustered
+     */
+    private void loadIndexes() {
+        File indexFile = new File(databaseDir + File.separator + "indexes.txt");
+        if (!indexFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(indexFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length != 3 || !getTableColumns(parts[0]).contains(parts[1])
+                        || !(parts[2].equals("clustered") || parts[2].equals("unclustered"))) {
+                    System.err.println("Invalid index line: " + line);
+                    continue;
+                }
+                boolean clustered = parts[2].equals("clustered");
+                List<IndexDefinition> tableIndexes = indexes.computeIfAbsent(parts[0], t -> new ArrayList<>());
+                if (clustered && tableIndexes.stream().anyMatch(IndexDefinition::isClustered)) {
+                    // the file can only be sorted on one column
+                    System.err.println("Second clustered index on " + parts[0] + ": " + line);
+                    continue;
+                }
+                tableIndexes.add(new IndexDefinition(parts[0], parts[1], clustered));
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading indexes from: " + indexFile);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the indexes declared on a table, or an empty list.
+     * @param table The name of the table.
+     */
+    public List<IndexDefinition> getIndexes(String table) {
+        return indexes.getOrDefault(table, Collections.emptyList());
+    }
+
+    /**
+     * Returns the path of the B+-tree of an index, db/data/table_name.column_name.idx.
+     * @param index The index.
+     */
+    public String getIndexPath(IndexDefinition index) {
+        return databaseDir + File.separator +
+                "data" + File.separator + index.getTable() + "." + index.getColumn() + ".idx";
+    }
+
+    /**
+     * Returns the path of the statistics of the tables, db/statistics.dat (see StatisticsStore).
+     */
+    public String getStatisticsPath() {
+        return databaseDir + File.separator + "statistics.dat";
+    }
+
+    /**
+     * Estimates the number of rows of a table from the size of its file and the length of its first
+     * lines, without reading the whole file.
+     * @param table The name of the table.
+     * @return The estimate, 0 if the file is empty or missing.
+     */
+    public long estimateRowCount(String table) {
+        File file = new File(databaseDir + File.separator + "data" + File.separator + table + ".csv");
+        long size = file.length();
+        if (size == 0) {
+            return 0;
+        }
+        byte[] head = new byte[(int) Math.min(size, 64 * 1024)];
+        int read = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while (read < head.length && (n = in.read(head, read, head.length - read)) > 0) {
+                read += n;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        int lines = 0;
+        for (int i = 0; i < read; i++) {
+            if (head[i] == '\n') {
+                lines++;
+            }
+        }
+        if (read == size) {
+            return read > 0 && head[read - 1] != '\n' ? lines + 1 : lines;
+        }
+        return lines == 0 ? 1 : size * lines / read;
+    }
+
     /**
      * Returns the directory of the table data file if needed.
      * The data file should be located in the db directory under the name table_name.csv.
@@ -87,6 +189,29 @@ public class DBCatalogue {
                 "data" + File.separator + table + ".csv";
     }
 
+    /**
+     * Returns the path of the columnar copy of a table, db/data/table_name.col (see ColumnarConverter).
+     * @param table The name of the table.
+     */
+    public String getColumnarPath(String table) {
+        return databaseDir + File.separator +
+                "data" + File.separator + table + ".col";
+    }
+
+    /**
+     * Returns the columnar file of a table if it should be scanned instead of the CSV file,
+     * i.e. if it exists and is newer than the CSV file. Otherwise returns null.
+     * @param table The name of the table.
+     */
+    public String getColumnarFile(String table) {
+        File columnar = new File(getColumnarPath(table));
+        File csv = new File(databaseDir + File.separator + "data" + File.separator + table + ".csv");
+        if (columnar.isFile() && (!csv.exists() || columnar.lastModified() > csv.lastModified())) {
+            return columnar.getPath();
+        }
+        return null;
+    }
+
     /**
      * Retrieves all columns for a given table.
      * This will be helpful if we need to get the columns of a table (e.g. for Early projections)
@@ -96,6 +221,15 @@ public class DBCatalogue {
         return tables.getOrDefault(table, Collections.emptyList());
     }
 
+    /**
+     * Returns the tuple schema of a table, i.e. its columns as Table.Column in file order.
+     * The same (immutable) schema is shared by all the scans of the table.
+     * @param table The name of the table.
+     */
+    public TupleSchema getTableSchema(String table) {
+        return schemas.computeIfAbsent(table, t -> TupleSchema.forTable(t, getTableColumns(t)));
+    }
+
     /**
      * Checks if a table exists in the schema, i.e., if the table is loaded and exists
      * in the DBCatalogue. This is important to check before executing a query on a table.
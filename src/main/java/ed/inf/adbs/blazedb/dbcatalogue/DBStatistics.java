@@ -1,80 +1,178 @@
 package ed.inf.adbs.blazedb.dbcatalogue;
 
-import ed.inf.adbs.blazedb.operator.ScanOperator;
-import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.storage.MappedCsvFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.FromItem;
-import ed.inf.adbs.blazedb.Tuple;
-import java.util.stream.Collectors;
 
 /**
  * This class is used to store statistics about the database.
- * It can be initiated once with a ScanOperator for each of the tables.
+ *
+ * The statistics of a table are collected in one pass over its file, and only the state of the
+ * statistics of each column is kept (see ColumnStatistics), so a table of any size can be
+ * summarised. -Dblazedb.stats.hllPrecision sets the precision of the distinct counts and
+ * -Dblazedb.stats.sampleSize the size of the sample kept of each column. The file is read with its
+ * own mapping rather than through the buffer pool, so collecting statistics neither evicts the pages
+ * of the queries nor shares the pool with them.
+ *
+ * The statistics are kept in db/statistics.dat (see StatisticsStore), with the size and modification
+ * time of each table file, and read when this class is created. A query never waits for statistics:
+ * when those of a table are missing or its file has changed, they are computed again on a background
+ * thread, and until then the query uses the statistics it has (those of the old file, or none and the
+ * default selectivities). The background thread is not a daemon, so a process that ends its query
+ * first still stores the statistics for the next one. -Dblazedb.stats.refresh=false turns the
+ * background refresh off.
  */
 public class DBStatistics {
+    static final boolean REFRESH = Boolean.parseBoolean(System.getProperty("blazedb.stats.refresh", "true"));
+
+    // one thread for all the refreshes, which stops when there is none left
+    private static final ThreadPoolExecutor REFRESHER = new ThreadPoolExecutor(0, 1, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, "blazedb-statistics"));
+    private static final AtomicInteger PENDING = new AtomicInteger(); // refreshes queued or running
+
     private final DBCatalogue dbCatalogue;
-    private ScanOperator scanOperator;
-    private final Map<String, Map<String, List<Integer>>> tableStatistics; // Table -> Column -> [min, max, distinctCount, ntuples]
+    private final int precision;
+    private final int sampleSize;
+    private final Path storePath;
+    private final Map<String, TableStatistics> tableStatistics = new ConcurrentHashMap<>(); // Table -> statistics
+    private final Set<String> checkedTables = ConcurrentHashMap.newKeySet(); // known current, or being refreshed
 
     public DBStatistics(DBCatalogue dbCatalogue) {
+        this(dbCatalogue, HyperLogLog.DEFAULT_PRECISION, ColumnStatistics.SAMPLE_SIZE);
+    }
+
+    /**
+     * @param precision The precision of the HyperLogLog sketches of the distinct counts.
+     * @param sampleSize The number of values sampled of each column, 0 for none.
+     */
+    public DBStatistics(DBCatalogue dbCatalogue, int precision, int sampleSize) {
         this.dbCatalogue = dbCatalogue;
-        this.tableStatistics = new HashMap<>();
+        this.precision = precision;
+        this.sampleSize = sampleSize;
+        this.storePath = Paths.get(dbCatalogue.getStatisticsPath());
+        this.tableStatistics.putAll(StatisticsStore.read(storePath));
     }
 
     /**
-     * Computes statistics (min, max, distinct count) per column for a table.
+     * Computes statistics (min, max, distinct count, row count) per column for a table, and stores them.
      */
     public void computeStatistics(FromItem table) {
-        scanOperator = new ScanOperator(table, dbCatalogue);
-        List<Tuple> tuples = new ArrayList<>();
-
-        // Collect all tuples from the ScanOperator
-        Tuple tuple;
-        while ((tuple = scanOperator.getNextTuple()) != null) {
-            tuples.add(tuple);
+        String tableName = table.toString();
+        File csv = new File(dbCatalogue.getDirectory(tableName));
+        // taken before reading, so a change made during the pass leaves the statistics stale
+        long size = csv.length();
+        long modified = csv.lastModified();
+        List<String> columnNames = dbCatalogue.getTableColumns(tableName);
+
+        ColumnStatistics.Collector[] collectors = new ColumnStatistics.Collector[columnNames.size()];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = new ColumnStatistics.Collector(precision, sampleSize);
         }
-
-        if (tuples.isEmpty()) {
-            return; // No statistics to compute for an empty table.
+        try (MappedCsvFile file = new MappedCsvFile(csv.toPath())) {
+            int[] row = new int[collectors.length];
+            while (file.readRow(row)) {
+                for (int i = 0; i < collectors.length; i++) {
+                    collectors[i].add(row[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading table: " + tableName, e);
         }
 
+        Map<String, ColumnStatistics> columnStats = new LinkedHashMap<>();
+        for (int i = 0; i < collectors.length; i++) {
+            ColumnStatistics statistics = collectors[i].finish();
+            if (statistics == null) {
+                break; // No statistics to compute for an empty table.
+            }
+            columnStats.put(columnNames.get(i), statistics);
+        }
 
-        // Get column names from the table
-        List<String> columnNames = dbCatalogue.getTableColumns(table.toString());
-        System.out.println("columnnames"+ columnNames);
-
-        // Map to store per-column statistics
-        Map<String, List<Integer>> columnStats = new HashMap<>();
-
-        for (String column : columnNames) {
-            // Extract column values and ensure they are integers
-            List<Integer> columnValues = tuples.stream()
-                    .map(t -> (Integer) t.returnValue(column,table.toString()))  // Ensure correct method call for fetching values
-                    .collect(Collectors.toList());
+        TableStatistics statistics = new TableStatistics(size, modified, columnStats);
+        tableStatistics.put(tableName, statistics);
+        try {
+            StatisticsStore.write(storePath, tableName, statistics);
+        } catch (IOException e) {
+            System.err.println("Could not store the statistics of " + tableName + ": " + e.getMessage());
+        }
+    }
 
-            if (columnValues.isEmpty()) {
-                continue; // Skip empty columns
-            }
+    /**
+     * Retrieves statistics for a specific table and column, as [min, max, distinctCount, nTuples].
+     */
+    public List<Integer> getColumnStatistics(String tableName, String columnName) {
+        ColumnStatistics statistics = getStatistics(tableName, columnName);
+        return statistics == null ? null : statistics.toList();
+    }
 
-            // Compute min, max, and distinct count using Java Collections API
-            int minValue = Collections.min(columnValues);
-            int maxValue = Collections.max(columnValues);
-            int distinctCount = (int) columnValues.stream().distinct().count();
-            int nTuples = columnValues.size();
+    /**
+     * Returns the last known statistics of a column, and starts computing them again in the
+     * background if they are missing or out of date.
+     * @return The statistics, or null if there are none yet (or the table is empty).
+     */
+    public ColumnStatistics getStatistics(String tableName, String columnName) {
+        TableStatistics statistics = lastKnown(tableName);
+        return statistics == null ? null : statistics.columns.get(columnName);
+    }
 
-            // Store computed statistics as a list [min, max, distinctCount, nTuples]
-            columnStats.put(column, Arrays.asList(minValue, maxValue, distinctCount, nTuples));
+    /**
+     * @return The number of rows of a table: exact if its statistics are known, else estimated from
+     *         the size of its file.
+     */
+    public long getRowCount(String tableName) {
+        TableStatistics statistics = lastKnown(tableName);
+        if (statistics != null && !statistics.columns.isEmpty()) {
+            return statistics.columns.values().iterator().next().getRowCount();
         }
+        return dbCatalogue.estimateRowCount(tableName);
+    }
 
-        // Store table statistics
-        tableStatistics.put(table.toString(), columnStats);
+    /**
+     * Waits until the background refreshes queued so far are done, e.g. in a test.
+     */
+    public static void awaitRefresh() throws InterruptedException {
+        while (PENDING.get() > 0) {
+            Thread.sleep(10);
+        }
     }
 
     /**
-     * Retrieves statistics for a specific table and column.
+     * Checks, the first time a table is asked for, whether its statistics are current, and queues
+     * their computation if not.
+     * @return The last known statistics of the table, current or not.
      */
-    public List<Integer> getColumnStatistics(String tableName, String columnName) {
-        return tableStatistics.getOrDefault(tableName, Collections.emptyMap()).get(columnName);
+    private TableStatistics lastKnown(String tableName) {
+        TableStatistics statistics = tableStatistics.get(tableName);
+        if (REFRESH && dbCatalogue.tableExists(tableName) && checkedTables.add(tableName)) {
+            File csv = new File(dbCatalogue.getDirectory(tableName));
+            if (statistics == null || !statistics.isCurrent(csv)) {
+                System.out.println("[STATISTICS] " + (statistics == null ? "computing" : "refreshing")
+                        + " the statistics of " + tableName + " in the background");
+                PENDING.incrementAndGet();
+                REFRESHER.execute(() -> refresh(tableName));
+            }
+        }
+        return statistics;
+    }
+
+    private void refresh(String tableName) {
+        try {
+            computeStatistics(new Table(tableName));
+        } catch (RuntimeException e) {
+            System.err.println("Could not compute the statistics of " + tableName + ": " + e.getMessage());
+        } finally {
+            PENDING.decrementAndGet();
+        }
     }
 
 }
@@ -0,0 +1,74 @@
+package ed.inf.adbs.blazedb.dbcatalogue;
+
+import java.util.Arrays;
+
+/**
+ * Histogram is an equi-depth histogram of the values of a column: the values are split in buckets
+ * holding the same number of rows each, so the buckets are narrow where the values are dense and wide
+ * where they are sparse. It is built from the sorted sample of the column (see ColumnStatistics).
+ *
+ * The fraction of the rows below a value is the number of whole buckets below it, plus the part of the
+ * bucket it falls in assuming the values of a bucket are spread evenly. A value that fills several
+ * buckets is the lower bound of all of them, so the rows equal to it are counted in full by the first
+ * value above it.
+ */
+public final class Histogram {
+
+    /** The number of buckets, -Dblazedb.stats.buckets. */
+    public static final int DEFAULT_BUCKETS = Integer.getInteger("blazedb.stats.buckets", 100);
+
+    private final long[] bounds; // bucket i holds bounds[i] <= value < bounds[i + 1]
+
+    private Histogram(long[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Builds the histogram of a column from a sorted sample of its values.
+     * @param min The smallest value of the column, the lower bound of the first bucket.
+     * @param max The largest value of the column, the last bucket ends after it.
+     */
+    static Histogram of(int[] sortedSample, int min, int max, int buckets) {
+        int count = Math.max(1, Math.min(buckets, sortedSample.length));
+        long[] bounds = new long[count + 1];
+        bounds[0] = min;
+        for (int i = 1; i < count; i++) {
+            bounds[i] = Math.max(bounds[i - 1], sortedSample[(int) ((long) i * sortedSample.length / count)]);
+        }
+        bounds[count] = (long) max + 1;
+        return new Histogram(bounds);
+    }
+
+    /**
+     * @return The estimated fraction of the rows whose value is smaller than value.
+     */
+    public double fractionBelow(long value) {
+        int buckets = bounds.length - 1;
+        if (value <= bounds[0]) {
+            return 0;
+        }
+        if (value >= bounds[buckets]) {
+            return 1;
+        }
+        // the last bucket starting below value
+        int i = Arrays.binarySearch(bounds, value);
+        if (i < 0) {
+            i = -i - 2;
+        } else {
+            while (i > 0 && bounds[i] >= value) {
+                i--;
+            }
+        }
+        double within = (double) (value - bounds[i]) / (bounds[i + 1] - bounds[i]);
+        return (i + Math.min(1.0, within)) / buckets;
+    }
+
+    public int getBucketCount() {
+        return bounds.length - 1;
+    }
+
+    @Override
+    public String toString() {
+        return getBucketCount() + " buckets " + Arrays.toString(bounds);
+    }
+}
@@ -0,0 +1,34 @@
+package ed.inf.adbs.blazedb.dbcatalogue;
+
+/**
+ * An index declared in the indexes.txt file of the database: the table and column it is built on, and
+ * whether it is clustered (IndexBuilder sorts the table file on the column) or unclustered.
+ */
+public class IndexDefinition {
+    private final String table;
+    private final String column;
+    private final boolean clustered;
+
+    public IndexDefinition(String table, String column, boolean clustered) {
+        this.table = table;
+        this.column = column;
+        this.clustered = clustered;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    @Override
+    public String toString() {
+        return table + "." + column + (clustered ? " (clustered)" : " (unclustered)");
+    }
+}
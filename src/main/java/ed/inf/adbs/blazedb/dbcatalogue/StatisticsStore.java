@@ -0,0 +1,93 @@
+package ed.inf.adbs.blazedb.dbcatalogue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * StatisticsStore reads and writes the statistics of the tables of a database, kept in
+ * db/statistics.dat so a new process does not scan the tables again to plan its queries:
+ * <pre>
+ *   header   int magic, int table count
+ *   tables   for each table: UTF name, long size of the CSV file, long modification time of the CSV
+ *            file, int column count, then for each column: UTF name, its statistics
+ *            (see ColumnStatistics.write())
+ * </pre>
+ * A file that cannot be read is ignored: the statistics are then computed again. The file is written
+ * under a temporary name that is then renamed, so a reader never sees half of it.
+ */
+final class StatisticsStore {
+
+    static final int MAGIC = 0x425A5331; // "BZS1"
+
+    private StatisticsStore() {
+    }
+
+    /**
+     * @return The statistics stored by table, empty if there is no (readable) file.
+     */
+    static synchronized Map<String, TableStatistics> read(Path path) {
+        Map<String, TableStatistics> tables = new HashMap<>();
+        if (!Files.exists(path)) {
+            return tables;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a statistics file");
+            }
+            int tableCount = in.readInt();
+            for (int t = 0; t < tableCount; t++) {
+                String table = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                int columnCount = in.readInt();
+                Map<String, ColumnStatistics> columns = new LinkedHashMap<>();
+                for (int c = 0; c < columnCount; c++) {
+                    String column = in.readUTF();
+                    columns.put(column, ColumnStatistics.read(in));
+                }
+                tables.put(table, new TableStatistics(size, modified, columns));
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring the statistics in " + path + ": " + e.getMessage());
+            tables.clear();
+        }
+        return tables;
+    }
+
+    /**
+     * Stores the statistics of a table, keeping those of the other tables already in the file.
+     */
+    static synchronized void write(Path path, String table, TableStatistics statistics) throws IOException {
+        Map<String, TableStatistics> tables = read(path);
+        tables.put(table, statistics);
+        Path temporary = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp"); // one per writer
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(tables.size());
+            for (Map.Entry<String, TableStatistics> entry : tables.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().modified);
+                out.writeInt(entry.getValue().columns.size());
+                for (Map.Entry<String, ColumnStatistics> column : entry.getValue().columns.entrySet()) {
+                    out.writeUTF(column.getKey());
+                    column.getValue().write(out);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
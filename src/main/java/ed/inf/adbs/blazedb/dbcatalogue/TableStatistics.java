@@ -0,0 +1,29 @@
+package ed.inf.adbs.blazedb.dbcatalogue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * TableStatistics holds the statistics of the columns of a table, with the size and modification time
+ * of its CSV file when they were computed, which tell whether they are still current.
+ */
+final class TableStatistics {
+
+    final long size;
+    final long modified;
+    final Map<String, ColumnStatistics> columns; // empty for an empty table
+
+    TableStatistics(long size, long modified, Map<String, ColumnStatistics> columns) {
+        this.size = size;
+        this.modified = modified;
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    /**
+     * @return True if the CSV file has not changed since the statistics were computed.
+     */
+    boolean isCurrent(File csv) {
+        return csv.length() == size && csv.lastModified() == modified;
+    }
+}
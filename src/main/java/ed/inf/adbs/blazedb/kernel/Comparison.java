@@ -0,0 +1,47 @@
+package ed.inf.adbs.blazedb.kernel;
+
+/**
+ * The comparison operators of the conditions (=, !=, >, >=, <, <=).
+ */
+public enum Comparison {
+    EQ, NE, GT, GE, LT, LE;
+
+    /**
+     * The comparison with the operands swapped (3 < A is A > 3).
+     */
+    public Comparison flip() {
+        switch (this) {
+            case GT: return LT;
+            case GE: return LE;
+            case LT: return GT;
+            case LE: return GE;
+            default: return this;
+        }
+    }
+
+    /**
+     * The operator as written in SQL.
+     */
+    @Override
+    public String toString() {
+        switch (this) {
+            case EQ: return "=";
+            case NE: return "!=";
+            case GT: return ">";
+            case GE: return ">=";
+            case LT: return "<";
+            default: return "<=";
+        }
+    }
+
+    public boolean test(int left, int right) {
+        switch (this) {
+            case EQ: return left == right;
+            case NE: return left != right;
+            case GT: return left > right;
+            case GE: return left >= right;
+            case LT: return left < right;
+            default: return left <= right;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ed.inf.adbs.blazedb.kernel;
+
+/**
+ * The loops over int columns that batch filtering and SUM spend their time in.
+ * Kernels.get() returns the SIMD implementation when it is available, otherwise the scalar one.
+ */
+public interface IntKernels {
+
+    /**
+     * Finds the rows of a column that satisfy column OP constant.
+     * @param op The comparison.
+     * @param column The column, rows 0 to count - 1 are checked.
+     * @param constant The constant.
+     * @param count The number of rows.
+     * @param rows Receives the rows that satisfy the condition, in order.
+     * @return The number of rows written to rows.
+     */
+    int selectCompare(Comparison op, int[] column, int constant, int count, int[] rows);
+
+    /**
+     * @return The sum of values[0..count), with int overflow like the scalar loop.
+     */
+    int sum(int[] values, int count);
+
+    /**
+     * Multiplies values[i] by other[i] for i in [0, count).
+     */
+    void multiply(int[] values, int[] other, int count);
+}
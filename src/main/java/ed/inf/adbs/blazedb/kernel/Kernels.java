@@ -0,0 +1,37 @@
+package ed.inf.adbs.blazedb.kernel;
+
+/**
+ * Chooses the IntKernels implementation once per run.
+ *
+ * VectorKernels uses jdk.incubator.vector. It is only compiled when building with JDK 17 or newer
+ * (see the simd profile in pom.xml) and only loads if the JVM was started with
+ * --add-modules jdk.incubator.vector. In every other case, or with -Dblazedb.simd=false,
+ * the scalar loops are used.
+ */
+public final class Kernels {
+
+    private static final IntKernels INSTANCE = load();
+
+    private Kernels() {
+    }
+
+    public static IntKernels get() {
+        return INSTANCE;
+    }
+
+    public static boolean isVectorized() {
+        return !(INSTANCE instanceof ScalarKernels);
+    }
+
+    private static IntKernels load() {
+        if (Boolean.parseBoolean(System.getProperty("blazedb.simd", "true"))) {
+            try {
+                Class<?> vectorKernels = Class.forName("ed.inf.adbs.blazedb.kernel.VectorKernels");
+                return (IntKernels) vectorKernels.getDeclaredConstructor().newInstance();
+            } catch (Exception | LinkageError e) {
+                // not compiled, running on an older JDK or without the incubator module
+            }
+        }
+        return new ScalarKernels();
+    }
+}
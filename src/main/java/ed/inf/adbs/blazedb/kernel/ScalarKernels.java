@@ -0,0 +1,37 @@
+package ed.inf.adbs.blazedb.kernel;
+
+/**
+ * Plain Java loops, used when the Vector API is not available.
+ */
+public class ScalarKernels implements IntKernels {
+
+    @Override
+    public int selectCompare(Comparison op, int[] column, int constant, int count, int[] rows) {
+        int kept = 0;
+        switch (op) {
+            case EQ: for (int i = 0; i < count; i++) if (column[i] == constant) rows[kept++] = i; break;
+            case NE: for (int i = 0; i < count; i++) if (column[i] != constant) rows[kept++] = i; break;
+            case GT: for (int i = 0; i < count; i++) if (column[i] > constant) rows[kept++] = i; break;
+            case GE: for (int i = 0; i < count; i++) if (column[i] >= constant) rows[kept++] = i; break;
+            case LT: for (int i = 0; i < count; i++) if (column[i] < constant) rows[kept++] = i; break;
+            default: for (int i = 0; i < count; i++) if (column[i] <= constant) rows[kept++] = i; break;
+        }
+        return kept;
+    }
+
+    @Override
+    public int sum(int[] values, int count) {
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void multiply(int[] values, int[] other, int count) {
+        for (int i = 0; i < count; i++) {
+            values[i] *= other[i];
+        }
+    }
+}
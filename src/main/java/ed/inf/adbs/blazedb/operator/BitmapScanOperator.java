@@ -0,0 +1,360 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.kernel.Comparison;
+import ed.inf.adbs.blazedb.storage.BitmapIndex;
+import ed.inf.adbs.blazedb.storage.BufferPoolManager;
+import ed.inf.adbs.blazedb.storage.CrackerCache;
+import ed.inf.adbs.blazedb.storage.CrackerColumn;
+import ed.inf.adbs.blazedb.storage.MappedCsvFile;
+import ed.inf.adbs.blazedb.storage.Page;
+import ed.inf.adbs.blazedb.storage.PagedCsvFile;
+import ed.inf.adbs.blazedb.storage.RoaringBitmap;
+import ed.inf.adbs.blazedb.storage.RowGroups;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * BitmapScanOperator reads only the rows of a table in a bitmap of row numbers, the result of the
+ * bitmap index (see BitmapIndex) for the comparisons of a selection with constants, or of the cracked
+ * column of a range selection (see CrackerColumn).
+ *
+ * When the bitmap keeps fewer than one row in RowGroups.GROUP_ROWS, each row is read on its own: the
+ * file is moved to the first row of its group and the rows before it in the group are skipped without
+ * being parsed. Otherwise the rows are read from the pages of the buffer pool: a page without any row
+ * of the bitmap is not fetched at all, and the batch of a page is its columns with the rows of the
+ * bitmap as selection.
+ *
+ * Only the comparisons on indexed columns are answered by the bitmap, the rest of the selection stays
+ * in a SelectOperator above.
+ */
+public class BitmapScanOperator extends Operator {
+
+    private final DBCatalogue dbCatalogue;
+    private final String tableName;
+    private final TupleSchema schema;
+    private final RowGroups index;    // the offsets of the rows of the table
+    private final RoaringBitmap rows;
+    private final boolean sparse;   // true to read the rows one by one instead of by page
+
+    private MappedCsvFile file;     // the table, when the rows are read one by one
+    private int fileRow = -1;       // number of the row at the position of file, -1 if not known
+    private PagedCsvFile pagedFile; // the table in the buffer pool
+    private PrimitiveIterator.OfInt nextRows;
+    private int pendingRow = -1;    // next row of the bitmap, read from nextRows but not returned yet
+    private Page page;              // pinned page of the rows being returned
+
+    /**
+     * @param dbCatalogue The catalogue of the table.
+     * @param tableName The table.
+     * @param index The offsets of the groups of rows of the table, e.g. its bitmap index.
+     * @param rows The numbers of the rows to read, counted from 0 in the order of the table file.
+     */
+    public BitmapScanOperator(DBCatalogue dbCatalogue, String tableName, RowGroups index, RoaringBitmap rows) {
+        if (!dbCatalogue.tableExists(tableName)) {
+            throw new IllegalArgumentException("Table '" + tableName + "' does not exist in the database.");
+        }
+        this.dbCatalogue = dbCatalogue;
+        this.tableName = tableName;
+        this.schema = dbCatalogue.getTableSchema(tableName);
+        this.index = index;
+        this.rows = rows;
+        this.sparse = rows.getCardinality() * RowGroups.GROUP_ROWS < index.getRowCount();
+    }
+
+    /**
+     * Evaluates the comparisons of indexed columns with constants among the conjuncts of a condition
+     * as an AND of their bitmaps, building the bitmap index of the table if needed.
+     * @return The scan of the rows that satisfy them, or null if the condition has no such comparison
+     *         (or bitmap indexes are disabled).
+     */
+    public static BitmapScanOperator forCondition(DBCatalogue dbCatalogue, String tableName, Expression condition) {
+        if (!BitmapIndex.ENABLED || !BufferPoolManager.ENABLED) {
+            return null;
+        }
+        TupleSchema schema = dbCatalogue.getTableSchema(tableName);
+        List<ConstantComparison> comparisons = new ArrayList<>();
+        List<Expression> conjuncts = new ArrayList<>();
+        ConstantComparison.addConjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            ConstantComparison comparison = ConstantComparison.of(conjunct, schema);
+            if (comparison != null) {
+                comparisons.add(comparison);
+            }
+        }
+        if (comparisons.isEmpty()) {
+            return null;
+        }
+
+        BitmapIndex index;
+        try {
+            index = BitmapIndex.open(Paths.get(dbCatalogue.getDirectory(tableName)), schema.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening the bitmap index of table: " + tableName, e);
+        }
+        // the comparisons that read the fewest bitmaps first, the others only read the chunks still in the result
+        comparisons.removeIf(comparison -> !index.isIndexed(comparison.slot));
+        comparisons.sort(Comparator.comparingInt(comparison -> index.countValues(comparison.slot, comparison.op, comparison.constant)));
+        RoaringBitmap rows = null;
+        for (ConstantComparison comparison : comparisons) {
+            RoaringBitmap matching = index.rows(comparison.slot, comparison.op, comparison.constant, rows);
+            rows = rows == null ? matching : rows.and(matching);
+        }
+        return rows == null ? null : new BitmapScanOperator(dbCatalogue, tableName, index, rows);
+    }
+
+    /**
+     * Cracks a column of the table restricted to a range by the comparisons with constants among the
+     * conjuncts of a condition (see CrackerColumn), and returns the scan of the rows in the range. The
+     * column is one already cracked by an earlier query if there is one, else the first restricted.
+     * @return The scan, or null if the condition has no range on a column (or cracking is disabled, or
+     *         the column does not fit in the CrackerCache).
+     */
+    public static BitmapScanOperator forCrackedColumn(DBCatalogue dbCatalogue, String tableName, Expression condition) {
+        if (!CrackerCache.ENABLED || !BufferPoolManager.ENABLED) {
+            return null;
+        }
+        TupleSchema schema = dbCatalogue.getTableSchema(tableName);
+        Path csv = Paths.get(dbCatalogue.getDirectory(tableName));
+        CrackerCache cache = CrackerCache.getInstance();
+        int slot = -1;
+        List<Expression> conjuncts = new ArrayList<>();
+        ConstantComparison.addConjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            ConstantComparison comparison = ConstantComparison.of(conjunct, schema);
+            if (comparison == null || comparison.op == Comparison.NE) {
+                continue;
+            }
+            if (slot < 0 || cache.contains(csv, comparison.slot)) {
+                slot = comparison.slot;
+            }
+            if (cache.contains(csv, slot)) {
+                break;
+            }
+        }
+        if (slot < 0) {
+            return null;
+        }
+        long[] range = ConstantComparison.rangeOf(condition, schema, slot);
+        CrackerColumn column;
+        try {
+            column = cache.get(csv, schema.size(), slot);
+        } catch (IOException e) {
+            throw new RuntimeException("Error copying column " + schema.getColumn(slot) + " of table: " + tableName, e);
+        }
+        if (column == null) {
+            return null;
+        }
+        RoaringBitmap rows = column.select(range[0], range[1]);
+        System.out.println("[CRACKING] " + schema.getColumn(slot) + " in " + column.getPieceCount() + " pieces");
+        return new BitmapScanOperator(dbCatalogue, tableName, column, rows);
+    }
+
+    /**
+     * @return The fraction of the rows of the table that are read.
+     */
+    public double getSelectivity() {
+        return index.getRowCount() == 0 ? 0 : (double) rows.getCardinality() / index.getRowCount();
+    }
+
+    /**
+     * @return True if the rows are read one by one, false if they are read by page.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * @return The fraction of the pages of the table that are parsed when the rows are read by page:
+     *         the pages that hold a row of the bitmap, or if the zone map of the table is not built
+     *         (so the offsets of the pages are not known), every page up to the last of those.
+     */
+    public double getPageFraction() {
+        int rowsPerPage = pagedFile().getRowsPerPage();
+        boolean offsetsKnown = pagedFile.getZoneMap() != null;
+        long pages = (index.getRowCount() + rowsPerPage - 1) / rowsPerPage;
+        long touched = 0;
+        int lastPage = -1;
+        for (PrimitiveIterator.OfInt it = rows.iterator(); it.hasNext(); ) {
+            int page = it.nextInt() / rowsPerPage;
+            if (page != lastPage) {
+                touched++;
+                lastPage = page;
+            }
+        }
+        if (!offsetsKnown) {
+            touched = lastPage + 1;
+        }
+        return pages == 0 ? 0 : (double) touched / pages;
+    }
+
+    private PagedCsvFile pagedFile() {
+        if (pagedFile == null) {
+            pagedFile = BufferPoolManager.getInstance().openCsv(Paths.get(dbCatalogue.getDirectory(tableName)), schema.size());
+            pagedFile.getZoneMap(); // gives the offsets of all the pages, if it was built
+        }
+        return pagedFile;
+    }
+
+    public RoaringBitmap getRows() {
+        return rows;
+    }
+
+    /**
+     * Fetches the page of the next row of the bitmap (unpinning the previous page if it is another one).
+     * @return False once every row of the bitmap was returned.
+     */
+    private boolean nextRow() {
+        if (nextRows == null) {
+            nextRows = rows.iterator();
+            pagedFile();
+        }
+        if (pendingRow < 0) {
+            if (!nextRows.hasNext()) {
+                releasePage();
+                return false;
+            }
+            pendingRow = nextRows.nextInt();
+        }
+        int pageNumber = pendingRow / pagedFile.getRowsPerPage();
+        if (page == null || page.getPageNumber() != pageNumber) {
+            releasePage();
+            try {
+                page = BufferPoolManager.getInstance().fetchPage(pagedFile, pageNumber);
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading next page from table: " + tableName, e);
+            }
+            if (page == null) {
+                throw new IllegalStateException("Row " + pendingRow + " is past the end of table: " + tableName);
+            }
+        }
+        return true;
+    }
+
+    private void releasePage() {
+        if (page != null) {
+            BufferPoolManager.getInstance().unpinPage(page);
+            page = null;
+        }
+    }
+
+    /**
+     * Reads the next row of the bitmap from the file, skipping the rows in between if it is in the same
+     * group as the last one read and moving to its group otherwise.
+     */
+    private Tuple readNextRow() {
+        if (nextRows == null) {
+            nextRows = rows.iterator();
+        }
+        if (!nextRows.hasNext()) {
+            return null;
+        }
+        int row = nextRows.nextInt();
+        try {
+            if (file == null) {
+                file = new MappedCsvFile(Paths.get(dbCatalogue.getDirectory(tableName)));
+            }
+            int group = row / RowGroups.GROUP_ROWS;
+            if (fileRow < 0 || fileRow > row || fileRow / RowGroups.GROUP_ROWS != group) {
+                file.seek(index.getGroupOffset(group));
+                fileRow = group * RowGroups.GROUP_ROWS;
+            }
+            for (; fileRow < row; fileRow++) {
+                file.skipRow();
+            }
+            int[] values = new int[schema.size()];
+            if (!file.readRow(values)) {
+                throw new IllegalStateException("Row " + row + " is past the end of table: " + tableName);
+            }
+            fileRow++;
+            return new Tuple(schema, values);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading next tuple from table: " + tableName, e);
+        }
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        if (sparse) {
+            return readNextRow();
+        }
+        if (!nextRow()) {
+            return null;
+        }
+        int row = pendingRow % pagedFile.getRowsPerPage();
+        pendingRow = -1;
+        int[][] columns = page.getColumns();
+        int[] values = new int[columns.length];
+        for (int slot = 0; slot < values.length; slot++) {
+            values[slot] = columns[slot][row];
+        }
+        return new Tuple(schema, values);
+    }
+
+    /**
+     * Returns the rows of the bitmap in the next page that has any, as a selection on the columns of the
+     * page (or, for a sparse bitmap, a batch of the next rows read one by one).
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (sparse) {
+            return super.getNextBatch();
+        }
+        if (!nextRow()) {
+            return null;
+        }
+        int rowsPerPage = pagedFile.getRowsPerPage();
+        int first = page.getPageNumber() * rowsPerPage;
+        int[] selection = new int[page.getRowCount()];
+        int count = 0;
+        while (pendingRow >= 0 && pendingRow < first + page.getRowCount()) {
+            selection[count++] = pendingRow - first;
+            pendingRow = nextRows.hasNext() ? nextRows.nextInt() : -1;
+        }
+        return new TupleBatch(schema, page.getColumns(), page.getRowCount(), selection, count);
+    }
+
+    @Override
+    public void reset() {
+        releasePage();
+        nextRows = null;
+        pendingRow = -1;
+    }
+
+    @Override
+    public void close() {
+        releasePage();
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error closing table: " + tableName, e);
+            }
+            file = null;
+        }
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String toString() {
+        return "BitmapScan[" + tableName + ", " + rows.getCardinality() + " of " + index.getRowCount() + " rows"
+                + (sparse ? ", read one by one]" : "]");
+    }
+}
@@ -0,0 +1,271 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.kernel.Comparison;
+import ed.inf.adbs.blazedb.storage.ColumnarFile;
+import ed.inf.adbs.blazedb.storage.EncodedColumn;
+import ed.inf.adbs.blazedb.visitor.BatchExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.BatchPredicate;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.FromItem;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ColumnarScanOperator scans a table from its columnar file (see ColumnarFile) instead of the CSV file.
+ *
+ * Only the columns the query references are read, and its tuples only have those columns (in the
+ * order of schema.txt), so the rest of the plan resolves them by name as usual. The columns of a
+ * segment are read together and then handed out as batches or tuples.
+ *
+ * A selection on the table can be pushed into the scan (pushCondition). Comparisons of a column with
+ * a constant are then checked on the encoded column before anything is decoded, and a segment where
+ * no row matches is skipped without decoding its other columns. The rest of the condition is checked
+ * on the decoded columns of the rows left.
+ */
+public class ColumnarScanOperator extends Operator {
+
+    private final String tableName;
+    private final String path;
+    private final TupleSchema schema;
+    private final int[] fileColumns;   // column of the file read into each slot
+    private ColumnarFile file;         // opened on the first row read
+    private int[][] segmentColumns;    // [slot][row] of the current segment
+    private int segment = -1;
+    private int segmentRows;
+    private int[] rows;                // rows of the segment that satisfy the condition
+    private int selectedCount;
+    private int position;              // next of the selected rows
+    private TupleBatch batch;          // reused by getNextBatch()
+
+    // pushed down condition: column OP constant checked on the encoded columns, and the rest
+    private final List<Integer> filterSlots = new ArrayList<>();
+    private final List<Comparison> filterOps = new ArrayList<>();
+    private final List<Integer> filterConstants = new ArrayList<>();
+    private final List<Expression> residualConditions = new ArrayList<>();
+    private BatchPredicate residual;
+
+    /**
+     * @param fromItem The table to scan.
+     * @param dbCatalogue The catalogue, which must have a columnar file for the table.
+     * @param columns The columns to read, or null to read all of them.
+     */
+    public ColumnarScanOperator(FromItem fromItem, DBCatalogue dbCatalogue, Set<String> columns) {
+        if (!(fromItem instanceof Table)) {
+            throw new IllegalArgumentException("Invalid FromItem: Expected a table, but received " + fromItem);
+        }
+        this.tableName = ((Table) fromItem).getName();
+        if (!dbCatalogue.tableExists(tableName)) {
+            throw new IllegalArgumentException("Table '" + tableName + "' does not exist in the database.");
+        }
+        this.path = dbCatalogue.getColumnarFile(tableName);
+        if (path == null) {
+            throw new IllegalArgumentException("Table '" + tableName + "' has no up to date columnar file.");
+        }
+
+        List<String> tableColumns = dbCatalogue.getTableColumns(tableName);
+        List<Integer> read = new ArrayList<>();
+        for (int i = 0; i < tableColumns.size(); i++) {
+            if (columns == null || columns.contains(tableColumns.get(i))) {
+                read.add(i);
+            }
+        }
+        if (read.isEmpty()) {
+            read.add(0); // the rows still have to be counted, e.g. in a cross join
+        }
+        this.fileColumns = read.stream().mapToInt(Integer::intValue).toArray();
+        this.schema = dbCatalogue.getTableSchema(tableName).project(fileColumns);
+    }
+
+    /**
+     * Adds a condition on this table to check while scanning, instead of in a SelectOperator above.
+     */
+    public void pushCondition(Expression condition) {
+        addConjuncts(condition);
+        residual = residualConditions.isEmpty() ? null
+                : BatchExpressionVisitor.compilePredicate(and(residualConditions), schema);
+    }
+
+    private void addConjuncts(Expression condition) {
+        List<Expression> conjuncts = new ArrayList<>();
+        ConstantComparison.addConjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            // a comparison of a column with a constant is checked on the encoded column
+            ConstantComparison filter = ConstantComparison.of(conjunct, schema);
+            if (filter != null) {
+                filterSlots.add(filter.slot);
+                filterOps.add(filter.op);
+                filterConstants.add(filter.constant);
+            } else {
+                residualConditions.add(conjunct);
+            }
+        }
+    }
+
+    private static Expression and(List<Expression> conditions) {
+        Expression result = conditions.get(0);
+        for (int i = 1; i < conditions.size(); i++) {
+            result = new AndExpression(result, conditions.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Makes sure there is a selected row left in the current segment, reading the next segments if needed.
+     * @return false at the end of the table.
+     */
+    private boolean nextRow() {
+        try {
+            if (file == null) {
+                file = new ColumnarFile(Paths.get(path));
+                if (file.getColumnCount() <= fileColumns[fileColumns.length - 1]) {
+                    throw new IOException("Columnar file has " + file.getColumnCount() + " columns: " + path);
+                }
+                segmentColumns = new int[fileColumns.length][file.getRowsPerSegment()];
+                rows = new int[file.getRowsPerSegment()];
+            }
+            while (position >= selectedCount) {
+                if (segment + 1 >= file.getSegmentCount()) {
+                    return false;
+                }
+                segment++;
+                readSegment();
+            }
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading columnar file of table: " + tableName, e);
+        }
+    }
+
+    /**
+     * Selects the rows of the current segment that satisfy the condition and decodes the columns if any row is left.
+     */
+    private void readSegment() throws IOException {
+        segmentRows = file.getSegmentRows(segment);
+        position = 0;
+        selectedCount = segmentRows;
+        for (int i = 0; i < segmentRows; i++) {
+            rows[i] = i;
+        }
+        EncodedColumn[] encoded = new EncodedColumn[fileColumns.length];
+        for (int f = 0; f < filterSlots.size() && selectedCount > 0; f++) {
+            int slot = filterSlots.get(f);
+            if (encoded[slot] == null) {
+                encoded[slot] = file.readEncoded(segment, fileColumns[slot]);
+            }
+            selectedCount = encoded[slot].filter(filterOps.get(f), filterConstants.get(f), rows, selectedCount);
+        }
+        if (selectedCount == 0) {
+            return; // nothing else of the segment is read
+        }
+        for (int slot = 0; slot < fileColumns.length; slot++) {
+            if (encoded[slot] != null) {
+                encoded[slot].decode(segmentColumns[slot]);
+            } else {
+                file.readColumn(segment, fileColumns[slot], segmentColumns[slot]);
+            }
+        }
+        if (residual != null) {
+            TupleBatch view = new TupleBatch(schema, segmentColumns, segmentRows, rows, selectedCount);
+            selectedCount = residual.filter(view, rows, selectedCount);
+        }
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        if (!nextRow()) {
+            return null;
+        }
+        int row = rows[position++];
+        int[] values = new int[fileColumns.length];
+        for (int slot = 0; slot < values.length; slot++) {
+            values[slot] = segmentColumns[slot][row];
+        }
+        return new Tuple(schema, values);
+    }
+
+    /**
+     * Copies the next selected rows of the segment into the columns of a batch. A batch never spans two segments.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (!nextRow()) {
+            return null;
+        }
+        if (batch == null) {
+            batch = new TupleBatch(schema, TupleBatch.DEFAULT_CAPACITY);
+        }
+        int count = Math.min(batch.capacity(), selectedCount - position);
+        boolean contiguous = rows[position + count - 1] - rows[position] == count - 1;
+        for (int slot = 0; slot < fileColumns.length; slot++) {
+            int[] values = segmentColumns[slot];
+            int[] column = batch.getColumn(slot);
+            if (contiguous) {
+                System.arraycopy(values, rows[position], column, 0, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    column[i] = values[rows[position + i]];
+                }
+            }
+        }
+        position += count;
+        batch.setSize(count);
+        return batch;
+    }
+
+    /**
+     * Goes back to the first segment, the file stays open.
+     */
+    @Override
+    public void reset() {
+        segment = -1;
+        segmentRows = 0;
+        selectedCount = 0;
+        position = 0;
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error closing columnar file of table: " + tableName, e);
+            }
+            file = null;
+        }
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String toString() {
+        return "ColumnarScan[" + schema + (filterSlots.isEmpty() && residual == null ? "" : ", " + filtersToString()) + "]";
+    }
+
+    private String filtersToString() {
+        List<String> conditions = new ArrayList<>();
+        for (int f = 0; f < filterSlots.size(); f++) {
+            conditions.add(schema.getQualifiedName(filterSlots.get(f)) + " " + filterOps.get(f) + " " + filterConstants.get(f));
+        }
+        for (Expression condition : residualConditions) {
+            conditions.add(condition.toString());
+        }
+        return String.join(" AND ", conditions);
+    }
+}
@@ -0,0 +1,63 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
+
+import java.io.BufferedReader;
+import java.util.function.Function;
+
+/**
+ * CompiledScanOperator replaces a Scan, Select and Project pipeline on one table with a class
+ * generated for the query by the PipelineCompiler.
+ *
+ * The generated pipeline reads the lines of the table file, parses only the columns it needs,
+ * evaluates the pushed down conditions and returns the projected values of the next row that
+ * satisfies them. So there is one call per output row, instead of one getNextTuple() per operator
+ * and a tuple per row read. The file itself is still owned by the ScanOperator, which is what reset() rewinds.
+ */
+public class CompiledScanOperator extends Operator {
+
+    private final ScanOperator scan;
+    private final TupleSchema schema;
+    private final Function<BufferedReader, int[]> pipeline; // next projected row from the reader, null at the end
+    private final String description;
+
+    /**
+     * @param scan The scan of the table, which provides the reader.
+     * @param schema The schema of the rows returned by the pipeline.
+     * @param pipeline The generated pipeline.
+     * @param description The pipeline that was compiled, for toString().
+     */
+    public CompiledScanOperator(ScanOperator scan, TupleSchema schema,
+                                Function<BufferedReader, int[]> pipeline, String description) {
+        this.scan = scan;
+        this.schema = schema;
+        this.pipeline = pipeline;
+        this.description = description;
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        int[] values = pipeline.apply(scan.getReader());
+        return values == null ? null : new Tuple(schema, values);
+    }
+
+    @Override
+    public void reset() {
+        scan.reset();
+    }
+
+    @Override
+    public void close() {
+        scan.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String toString() {
+        return "CompiledScan[" + description + "]";
+    }
+}
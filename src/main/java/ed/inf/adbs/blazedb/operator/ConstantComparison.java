@@ -0,0 +1,127 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.kernel.Comparison;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A comparison of a column of a schema with a constant, e.g. Student.A > 5 (or 5 < Student.A), which
+ * a scan can check against what it knows of a block of rows before reading them.
+ *
+ * A constant outside the int range is clamped to it, with the operator changed to keep the meaning
+ * (A < 3000000000 is A <= 2147483647, A = 3000000000 is A > 2147483647).
+ */
+final class ConstantComparison {
+
+    final int slot;
+    final Comparison op;
+    final int constant;
+
+    private ConstantComparison(int slot, Comparison op, int constant) {
+        this.slot = slot;
+        this.op = op;
+        this.constant = constant;
+    }
+
+    /**
+     * @return The comparison, with the column on the left, or null if the condition is something else
+     *         or its column is not in the schema.
+     */
+    static ConstantComparison of(Expression condition, TupleSchema schema) {
+        Comparison op = comparisonOf(condition);
+        if (op == null) {
+            return null;
+        }
+        Expression left = ((BinaryExpression) condition).getLeftExpression();
+        Expression right = ((BinaryExpression) condition).getRightExpression();
+        if (left instanceof LongValue && right instanceof Column) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            op = op.flip();
+        }
+        if (!(left instanceof Column) || !(right instanceof LongValue)) {
+            return null;
+        }
+        Column column = (Column) left;
+        int slot = schema.indexOf(column.getTable() == null ? null : column.getTable().getName(), column.getColumnName());
+        if (slot < 0) {
+            return null;
+        }
+        long constant = ((LongValue) right).getValue();
+        if (constant > Integer.MAX_VALUE) {
+            // above every value: A < c and A != c always hold, A = c and A > c never do
+            return new ConstantComparison(slot, op == Comparison.LT || op == Comparison.LE || op == Comparison.NE
+                    ? Comparison.LE : Comparison.GT, Integer.MAX_VALUE);
+        }
+        if (constant < Integer.MIN_VALUE) {
+            return new ConstantComparison(slot, op == Comparison.GT || op == Comparison.GE || op == Comparison.NE
+                    ? Comparison.GE : Comparison.LT, Integer.MIN_VALUE);
+        }
+        return new ConstantComparison(slot, op, (int) constant);
+    }
+
+    /**
+     * Adds the conditions of a conjunction (AND, in any parentheses) to the list.
+     */
+    static void addConjuncts(Expression condition, List<Expression> conjuncts) {
+        if (condition instanceof AndExpression) {
+            addConjuncts(((AndExpression) condition).getLeftExpression(), conjuncts);
+            addConjuncts(((AndExpression) condition).getRightExpression(), conjuncts);
+        } else if (condition instanceof Parenthesis) {
+            addConjuncts(((Parenthesis) condition).getExpression(), conjuncts);
+        } else {
+            conjuncts.add(condition);
+        }
+    }
+
+    /**
+     * Intersects the ranges that the comparisons of a column with constants among the conjuncts of a
+     * condition allow (!= does not make a range).
+     * @return {low, high}, both included, with low > high if no value is allowed, or null if the
+     *         condition does not restrict the column.
+     */
+    static long[] rangeOf(Expression condition, TupleSchema schema, int slot) {
+        long low = Integer.MIN_VALUE;
+        long high = Integer.MAX_VALUE;
+        boolean restricted = false;
+        List<Expression> conjuncts = new ArrayList<>();
+        addConjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            ConstantComparison comparison = of(conjunct, schema);
+            if (comparison == null || comparison.slot != slot) {
+                continue;
+            }
+            long constant = comparison.constant;
+            switch (comparison.op) {
+                case EQ: low = Math.max(low, constant); high = Math.min(high, constant); break;
+                case GT: low = Math.max(low, constant + 1); break;
+                case GE: low = Math.max(low, constant); break;
+                case LT: high = Math.min(high, constant - 1); break;
+                case LE: high = Math.min(high, constant); break;
+                default: continue;
+            }
+            restricted = true;
+        }
+        return restricted ? new long[]{low, high} : null;
+    }
+
+    private static Comparison comparisonOf(Expression condition) {
+        if (condition instanceof EqualsTo) return Comparison.EQ;
+        if (condition instanceof NotEqualsTo) return Comparison.NE;
+        if (condition instanceof GreaterThan) return Comparison.GT;
+        if (condition instanceof GreaterThanEquals) return Comparison.GE;
+        if (condition instanceof MinorThan) return Comparison.LT;
+        if (condition instanceof MinorThanEquals) return Comparison.LE;
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
 
 import java.util.*;
 
@@ -8,6 +9,7 @@ import java.util.*;
 public class DuplicateEliminationOperator extends Operator {
     private final Operator child;
     private final String uniqueColumn;
+    private final int uniqueSlot; // slot of the unique column in the child's tuples
     private List<Tuple> sortedTuples;
     private int currentIndex = 0;
 
@@ -22,6 +24,7 @@ public class DuplicateEliminationOperator extends Operator {
     public DuplicateEliminationOperator(Operator child, String uniqueColumn) {
         this.child = child;
         this.uniqueColumn = uniqueColumn;
+        this.uniqueSlot = child.getSchema().requireIndexOf(uniqueColumn);
         this.sortedTuples = new ArrayList<>();
 
         // Load all tuples from child operator, sort them and remove duplicates
@@ -45,27 +48,7 @@ public class DuplicateEliminationOperator extends Operator {
      */
     private void sortTupleList() {
         // for each pair of tuples, compare the unique column values
-        sortedTuples.sort((t1, t2) -> {
-            String[] parts = uniqueColumn.split("\\.");
-            if (parts.length != 2) {
-                System.err.println("Error: Malformed column name " + uniqueColumn);
-                return 0;
-            }
-
-            // Extract the table name and column name
-            String tableName = parts[0];
-            String columnName = parts[1];
-
-            Integer value1 = t1.returnValue(columnName, tableName); // Get the value of the column
-            Integer value2 = t2.returnValue(columnName, tableName); // Get the value of the column
-
-            if (value1 == null || value2 == null) {
-                return 0; // Don't reorder if values are missing
-            }
-
-            // Perform Integer comparison
-            return Integer.compare(value1, value2);
-        });
+        sortedTuples.sort((t1, t2) -> Integer.compare(t1.getValue(uniqueSlot), t2.getValue(uniqueSlot)));
     }
 
     /** Remove duplicates from the sortedTuples list based on the unique column.
@@ -80,19 +63,10 @@ public class DuplicateEliminationOperator extends Operator {
         List<Tuple> uniqueTuples = new ArrayList<>();
         Set<Integer> seenValues = new HashSet<>();
 
-        // Extract the table name and column name
-        String[] parts = uniqueColumn.split("\\.");
-        if (parts.length != 2) {
-            System.err.println("Error: Malformed column name " + uniqueColumn);
-            return;
-        }
-        String tableName = parts[0];
-        String columnName = parts[1];
-
         // iterate through the sorted tuples and add the unique ones to the uniqueTuples list
         for (Tuple tuple : sortedTuples) {
-            Integer columnValue = tuple.returnValue(columnName, tableName);
-            if (columnValue != null && !seenValues.contains(columnValue)) {
+            int columnValue = tuple.getValue(uniqueSlot);
+            if (!seenValues.contains(columnValue)) {
                 uniqueTuples.add(tuple);
                 seenValues.add(columnValue);
             }
@@ -121,6 +95,16 @@ public class DuplicateEliminationOperator extends Operator {
         currentIndex = 0; // Reset iterator by setting index to 0.
     }
 
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return child.getSchema();
+    }
+
     /**
      * Get the operator
      * @return The operator.
@@ -0,0 +1,224 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.CompositeTuple;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.PredicateEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.*;
+
+/**
+ * HashJoinOperator joins two inputs on one or more equality conditions of the form
+ * left.column = right.column.
+ *
+ * An in-memory hash table is built on the join key of the smaller input and the
+ * other input is streamed through it. Since we don't know the size of the inputs up front,
+ * both children are read alternately until one of them is exhausted: that one is the smaller
+ * input and becomes the build side, while the tuples already read from the other one are
+ * probed first before continuing with the rest of that child.
+ *
+ * A join on one column is hashed on the int value itself (see IntKeyTable), a join on several
+ * columns on a JoinKey of their values.
+ *
+ * Any join condition that is not an equality on the keys (e.g. Student.C < Course.E) is passed
+ * as the residual expression and evaluated only on the pairs that match on the keys.
+ */
+public class HashJoinOperator extends Operator {
+
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final List<Column> leftKeys;
+    private final List<Column> rightKeys;
+    private final Expression residual;
+    private final TupleSchema schema;               // left columns followed by right columns
+    private final int[] leftKeySlots;               // slots of the keys in the left tuples
+    private final int[] rightKeySlots;              // slots of the keys in the right tuples
+    private final PredicateEvaluator residualPredicate;
+
+    private IntKeyTable intTable;              // the hash table of a join on one column
+    private Map<JoinKey, List<Tuple>> hashTable; // the hash table of a join on several columns
+    private boolean buildOnLeft;
+    private Iterator<Tuple> probeBuffer; // probe tuples already read while choosing the build side
+    private Operator probeChild;         // remaining probe tuples
+    private JoinKey probeKey;            // set again for each probe tuple on several columns
+
+    private Tuple currentProbeTuple;
+    private List<Tuple> currentMatches;
+    private int matchIndex;
+
+    /**
+     * Create a new HashJoinOperator.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param leftKeys The join key columns of the left input.
+     * @param rightKeys The join key columns of the right input, in the same order as leftKeys.
+     * @param residual The rest of the join condition, or null if there is none.
+     */
+    public HashJoinOperator(Operator leftChild, Operator rightChild,
+                            List<Column> leftKeys, List<Column> rightKeys, Expression residual) {
+        if (leftKeys.isEmpty() || leftKeys.size() != rightKeys.size()) {
+            throw new IllegalArgumentException("Hash join needs the same (non-zero) number of keys on both sides.");
+        }
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.residual = residual;
+        this.schema = this.leftChild.getSchema().concat(this.rightChild.getSchema());
+        this.leftKeySlots = resolveSlots(leftKeys, this.leftChild.getSchema());
+        this.rightKeySlots = resolveSlots(rightKeys, this.rightChild.getSchema());
+        this.residualPredicate = residual == null ? null
+                : ExpressionVisitor.compilePredicate(residual, this.leftChild.getSchema(), this.rightChild.getSchema());
+    }
+
+    /**
+     * Finds the slots of the key columns in the schema of one of the inputs.
+     */
+    private static int[] resolveSlots(List<Column> keys, TupleSchema inputSchema) {
+        int[] slots = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            slots[i] = inputSchema.requireIndexOf(keys.get(i).getFullyQualifiedName());
+        }
+        return slots;
+    }
+
+    /**
+     * Reads both children alternately until one of them is exhausted and builds the
+     * hash table on that one. This is a blocking step, done on the first call to getNextTuple().
+     */
+    private void build() {
+        List<Tuple> leftTuples = new ArrayList<>();
+        List<Tuple> rightTuples = new ArrayList<>();
+
+        boolean leftDone = false;
+        boolean rightDone = false;
+        while (!leftDone && !rightDone) {
+            Tuple left = leftChild.getNextTuple();
+            if (left == null) {
+                leftDone = true;
+            } else {
+                leftTuples.add(left);
+            }
+
+            Tuple right = rightChild.getNextTuple();
+            if (right == null) {
+                rightDone = true;
+            } else {
+                rightTuples.add(right);
+            }
+        }
+
+        // in case of a tie build on the right, which is usually a single (filtered) table
+        buildOnLeft = leftDone && !rightDone;
+
+        List<Tuple> buildTuples = buildOnLeft ? leftTuples : rightTuples;
+        int[] buildKeys = buildOnLeft ? leftKeySlots : rightKeySlots;
+
+        if (buildKeys.length == 1) {
+            intTable = new IntKeyTable();
+            for (Tuple tuple : buildTuples) {
+                intTable.add(tuple.getValue(buildKeys[0]), tuple);
+            }
+        } else {
+            hashTable = new HashMap<>();
+            for (Tuple tuple : buildTuples) {
+                hashTable.computeIfAbsent(JoinKey.of(tuple, buildKeys), k -> new ArrayList<>()).add(tuple);
+            }
+            probeKey = new JoinKey(buildKeys.length);
+        }
+
+        probeBuffer = (buildOnLeft ? rightTuples : leftTuples).iterator();
+        // if both sides are done there is nothing left to read from the probe child
+        probeChild = (leftDone && rightDone) ? null : (buildOnLeft ? rightChild : leftChild);
+        System.out.println("[HASH JOIN] built on " + (buildOnLeft ? "left" : "right")
+                + " input with " + buildTuples.size() + " tuples");
+    }
+
+    /**
+     * Finds the build tuples with the same key as a probe tuple.
+     */
+    private List<Tuple> matchesOf(Tuple probeTuple) {
+        int[] keySlots = buildOnLeft ? rightKeySlots : leftKeySlots;
+        if (keySlots.length == 1) {
+            return intTable.get(probeTuple.getValue(keySlots[0]));
+        }
+        return hashTable.get(probeKey.set(probeTuple, keySlots));
+    }
+
+    /**
+     * Returns the next probe tuple, first from the buffer then from the child.
+     */
+    private Tuple nextProbeTuple() {
+        if (probeBuffer.hasNext()) {
+            return probeBuffer.next();
+        }
+        return probeChild == null ? null : probeChild.getNextTuple();
+    }
+
+    /**
+     * Get the next tuple that satisfies the join condition.
+     * The output always has the left attributes first, whichever side the table was built on.
+     * @return The next joined tuple or null if there are no more.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (probeBuffer == null) {
+            build();
+        }
+
+        while (true) {
+            // move to the next probe tuple that has at least one match
+            while (currentMatches == null || matchIndex >= currentMatches.size()) {
+                currentProbeTuple = nextProbeTuple();
+                if (currentProbeTuple == null) {
+                    return null;
+                }
+                currentMatches = matchesOf(currentProbeTuple);
+                matchIndex = 0;
+            }
+
+            Tuple match = currentMatches.get(matchIndex++);
+            Tuple left = buildOnLeft ? match : currentProbeTuple;
+            Tuple right = buildOnLeft ? currentProbeTuple : match;
+
+            // the residual is evaluated on the pair, the joined tuple is only created for a match
+            if (residualPredicate == null || residualPredicate.test(left, right)) {
+                return new CompositeTuple(schema, left, right);
+            }
+        }
+    }
+
+    /**
+     * Reset the join operator. The hash table is rebuilt on the next call to getNextTuple().
+     */
+    @Override
+    public void reset() {
+        leftChild.reset();
+        rightChild.reset();
+        intTable = null;
+        hashTable = null;
+        probeBuffer = null;
+        probeChild = null;
+        currentProbeTuple = null;
+        currentMatches = null;
+        matchIndex = 0;
+    }
+
+    @Override
+    public void close() {
+        leftChild.close();
+        rightChild.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String toString() {
+        return "HashJoin[" + leftChild + ", " + rightChild + " on " + leftKeys + " = " + rightKeys + "]";
+    }
+}
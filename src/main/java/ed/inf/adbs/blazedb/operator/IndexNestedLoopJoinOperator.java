@@ -0,0 +1,119 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.CompositeTuple;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.PredicateEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.List;
+
+/**
+ * IndexNestedLoopJoinOperator joins its left input with a table that has an index on the join column,
+ * for a condition left.column = table.column.
+ *
+ * Instead of reading the whole table for every left tuple (JoinOperator) or once into a hash table
+ * (HashJoinOperator), the index is probed with the key of each left tuple and only the rows of the
+ * table with that key are read. This pays off when the left input is small and the table is large.
+ *
+ * The selection pushed down on the table is checked on the rows found, and the rest of the join
+ * condition on the joined pairs.
+ */
+public class IndexNestedLoopJoinOperator extends Operator {
+
+    private final Operator leftChild;
+    private final IndexScanOperator rightIndex;
+    private final Column leftKey;
+    private final Expression rightCondition;
+    private final Expression residual;
+    private final TupleSchema schema;       // left columns followed by the table's columns
+    private final int leftKeySlot;
+    private final PredicateEvaluator rightPredicate;
+    private final PredicateEvaluator residualPredicate;
+
+    private Tuple currentLeftTuple;
+
+    /**
+     * @param leftChild The outer input.
+     * @param rightIndex The index scan of the inner table, on the join column.
+     * @param leftKey The join column of the outer input.
+     * @param rightCondition The selection on the inner table, or null if there is none.
+     * @param residual The rest of the join condition, or null if there is none.
+     */
+    public IndexNestedLoopJoinOperator(Operator leftChild, IndexScanOperator rightIndex, Column leftKey,
+                                       Expression rightCondition, Expression residual) {
+        this.leftChild = leftChild;
+        this.rightIndex = rightIndex;
+        this.leftKey = leftKey;
+        this.rightCondition = rightCondition;
+        this.residual = residual;
+        this.schema = leftChild.getSchema().concat(rightIndex.getSchema());
+        this.leftKeySlot = leftChild.getSchema().requireIndexOf(leftKey.getFullyQualifiedName());
+        this.rightPredicate = rightCondition == null ? null
+                : ExpressionVisitor.compilePredicate(rightCondition, rightIndex.getSchema());
+        this.residualPredicate = residual == null ? null
+                : ExpressionVisitor.compilePredicate(residual, leftChild.getSchema(), rightIndex.getSchema());
+    }
+
+    /**
+     * Get the next tuple that satisfies the join condition.
+     * @return The next joined tuple or null if there are no more.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (true) {
+            if (currentLeftTuple == null) {
+                currentLeftTuple = leftChild.getNextTuple();
+                if (currentLeftTuple == null) {
+                    return null;
+                }
+                int key = currentLeftTuple.getValue(leftKeySlot);
+                rightIndex.setRange(key, key);
+            }
+
+            Tuple right = rightIndex.getNextTuple();
+            if (right == null) {
+                currentLeftTuple = null; // no more rows with this key
+                continue;
+            }
+            if ((rightPredicate == null || rightPredicate.test(right))
+                    && (residualPredicate == null || residualPredicate.test(currentLeftTuple, right))) {
+                return new CompositeTuple(schema, currentLeftTuple, right);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        leftChild.reset();
+        currentLeftTuple = null;
+    }
+
+    @Override
+    public void close() {
+        leftChild.close();
+        rightIndex.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * The output keeps the order of the left input.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return leftChild.getSortOrder();
+    }
+
+    public String toString() {
+        return "IndexNestedLoopJoin[" + leftChild + ", " + rightIndex.getIndex() + " on " + leftKey + " = "
+                + rightIndex.getTableName() + "." + rightIndex.getIndex().getColumn()
+                + (rightCondition == null ? "" : ", " + rightCondition)
+                + (residual == null ? "" : ", residual: " + residual) + "]";
+    }
+}
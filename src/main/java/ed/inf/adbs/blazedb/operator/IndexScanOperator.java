@@ -0,0 +1,227 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.IndexDefinition;
+import ed.inf.adbs.blazedb.storage.BPlusTree;
+import ed.inf.adbs.blazedb.storage.MappedCsvFile;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * IndexScanOperator reads the rows of a table whose indexed column is in a range [low, high], using
+ * the B+-tree of the index (see BPlusTree) instead of reading the whole table file.
+ *
+ * With a clustered index whose table file is sorted on the column (by IndexBuilder), the tree only
+ * gives the first row of the range and the rows are then read one after the other until the key passes
+ * high. With an unclustered index, or a clustered one on a file that is not sorted, each entry of the
+ * range points to its row, which is read on its own. Either way the rows come out sorted on the
+ * indexed column.
+ *
+ * Only the range is checked here, the rest of the selection stays in a SelectOperator above.
+ */
+public class IndexScanOperator extends Operator {
+
+    private final DBCatalogue dbCatalogue;
+    private final IndexDefinition index;
+    private final String tableName;
+    private final TupleSchema schema;
+    private final int keySlot;
+    private int low;
+    private int high;
+
+    private BPlusTree tree;       // opened (or built) on first use
+    private MappedCsvFile file;
+    private long rank = -1;       // next entry of the tree, -1 before the first row
+    private boolean done;
+
+    /**
+     * @param dbCatalogue The catalogue of the table.
+     * @param index The index, on one of the columns of the table.
+     * @param low The smallest key to return.
+     * @param high The largest key to return.
+     */
+    public IndexScanOperator(DBCatalogue dbCatalogue, IndexDefinition index, int low, int high) {
+        this.dbCatalogue = dbCatalogue;
+        this.index = index;
+        this.tableName = index.getTable();
+        if (!dbCatalogue.tableExists(tableName)) {
+            throw new IllegalArgumentException("Table '" + tableName + "' does not exist in the database.");
+        }
+        this.schema = dbCatalogue.getTableSchema(tableName);
+        this.keySlot = dbCatalogue.getTableColumns(tableName).indexOf(index.getColumn());
+        if (keySlot < 0) {
+            throw new IllegalArgumentException("Column '" + index.getColumn() + "' does not exist in table '" + tableName + "'.");
+        }
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Creates the index scan for the range of the indexed column that a condition on the table allows,
+     * from the comparisons of the column with constants among its conjuncts.
+     * @return The scan, or null if the condition does not restrict the indexed column.
+     */
+    public static IndexScanOperator forCondition(DBCatalogue dbCatalogue, IndexDefinition index, Expression condition) {
+        TupleSchema schema = dbCatalogue.getTableSchema(index.getTable());
+        long[] range = ConstantComparison.rangeOf(condition, schema, schema.indexOf(index.getTable(), index.getColumn()));
+        if (range == null) {
+            return null;
+        }
+        if (range[0] > range[1]) {
+            // nothing can match, e.g. A > 5 AND A < 3
+            return new IndexScanOperator(dbCatalogue, index, 1, 0);
+        }
+        return new IndexScanOperator(dbCatalogue, index, (int) range[0], (int) range[1]);
+    }
+
+    /**
+     * Opens the tree and the table file, building the index if it is missing or out of date.
+     */
+    private BPlusTree tree() {
+        if (tree == null) {
+            try {
+                tree = BPlusTree.open(Paths.get(dbCatalogue.getDirectory(tableName)), Paths.get(dbCatalogue.getIndexPath(index)),
+                        schema.size(), keySlot);
+                file = new MappedCsvFile(Paths.get(dbCatalogue.getDirectory(tableName)));
+            } catch (IOException e) {
+                throw new RuntimeException("Error opening index " + index, e);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * @return True if the index is clustered and the table file is sorted on its column, so the rows of
+     *         the range are read one after the other.
+     */
+    public boolean isClustered() {
+        return index.isClustered() && tree().isSorted();
+    }
+
+    /**
+     * @return The fraction of the rows of the table in the range, counted in the tree.
+     */
+    public double getSelectivity() {
+        BPlusTree tree = tree();
+        return tree.getEntryCount() == 0 ? 0 : (double) tree.count(low, high) / tree.getEntryCount();
+    }
+
+    /**
+     * @return The number of rows of the table.
+     */
+    public long getTableRows() {
+        return tree().getEntryCount();
+    }
+
+    /**
+     * @return The average number of rows with the same key, i.e. the rows read by a lookup of one key.
+     */
+    public double getRowsPerKey() {
+        BPlusTree tree = tree();
+        return tree.getDistinctKeys() == 0 ? 0 : (double) tree.getEntryCount() / tree.getDistinctKeys();
+    }
+
+    @Override
+    public Tuple getNextTuple() {
+        if (done || low > high) {
+            return null;
+        }
+        BPlusTree tree = tree();
+        try {
+            int[] values = new int[schema.size()];
+            if (rank < 0) {
+                rank = tree.rank(low);
+                if (rank >= tree.getEntryCount()) {
+                    done = true; // every key is smaller than low
+                    return null;
+                }
+                if (isClustered()) {
+                    file.seek(tree.offsetAt(rank));
+                }
+            }
+            if (isClustered()) {
+                // the rows of the range follow each other in the file
+                if (file.readRow(values) && values[keySlot] <= high) {
+                    return new Tuple(schema, values);
+                }
+            } else if (rank < tree.getEntryCount() && tree.keyAt(rank) <= high) {
+                file.seek(tree.offsetAt(rank++));
+                if (file.readRow(values)) {
+                    return new Tuple(schema, values);
+                }
+            }
+            done = true;
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading next tuple from table: " + tableName, e);
+        }
+    }
+
+    /**
+     * Changes the key range and goes back to its first row. Used by IndexNestedLoopJoinOperator to
+     * look up the rows of each key.
+     */
+    public void setRange(int low, int high) {
+        this.low = low;
+        this.high = high;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        rank = -1;
+        done = false;
+    }
+
+    /**
+     * Closes the tree and the table file, if they were opened.
+     */
+    @Override
+    public void close() {
+        try {
+            if (tree != null) {
+                tree.close();
+                tree = null;
+            }
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing index " + index, e);
+        }
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * The rows come in the order of the index.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return Collections.singletonList(tableName + "." + index.getColumn());
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public IndexDefinition getIndex() {
+        return index;
+    }
+
+    public String toString() {
+        return "IndexScan[" + index + ", " + tableName + "." + index.getColumn() + " in ["
+                + (low == Integer.MIN_VALUE ? "MIN" : String.valueOf(low)) + ", "
+                + (high == Integer.MAX_VALUE ? "MAX" : String.valueOf(high)) + "]]";
+    }
+}
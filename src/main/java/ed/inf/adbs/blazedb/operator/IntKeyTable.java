@@ -0,0 +1,72 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash table from an int key to the tuples with that key, for a hash join on one column.
+ *
+ * The keys are kept in an int[] with open addressing (linear probing), so neither adding a tuple
+ * nor looking a key up boxes it. The table is at most half full.
+ */
+final class IntKeyTable {
+
+    private int[] keys = new int[16];
+    private Object[] tuples = new Object[16]; // the List<Tuple> of the key in the same slot, null if free
+    private int size;
+
+    void add(int key, Tuple tuple) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int slot = slotOf(key);
+        if (tuples[slot] == null) {
+            keys[slot] = key;
+            tuples[slot] = new ArrayList<Tuple>(2);
+            size++;
+        }
+        tuplesAt(slot).add(tuple);
+    }
+
+    /**
+     * @return The tuples with the key, or null if there are none.
+     */
+    List<Tuple> get(int key) {
+        int slot = slotOf(key);
+        return tuples[slot] == null ? null : tuplesAt(slot);
+    }
+
+    /**
+     * @return The slot of the key, or the free slot where it would go.
+     */
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9; // spreads consecutive keys over the table
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (tuples[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldTuples = tuples;
+        keys = new int[oldKeys.length * 2];
+        tuples = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldTuples[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                tuples[slot] = oldTuples[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Tuple> tuplesAt(int slot) {
+        return (List<Tuple>) tuples[slot];
+    }
+}
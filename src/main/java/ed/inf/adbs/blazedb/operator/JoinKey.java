@@ -0,0 +1,52 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.util.Arrays;
+
+/**
+ * The values of the key columns of a tuple, for a hash join on more than one column. The values are
+ * kept in an int[] and the hash is computed once, when the key is set.
+ *
+ * A key used to probe the hash table can be set again for each tuple, instead of creating a new one.
+ */
+final class JoinKey {
+
+    private final int[] values;
+    private int hash;
+
+    JoinKey(int size) {
+        this.values = new int[size];
+    }
+
+    /**
+     * @return A new key holding the values of the key columns of the tuple.
+     */
+    static JoinKey of(Tuple tuple, int[] keySlots) {
+        return new JoinKey(keySlots.length).set(tuple, keySlots);
+    }
+
+    /**
+     * Replaces the values with those of the key columns of the tuple.
+     * @return This key.
+     */
+    JoinKey set(Tuple tuple, int[] keySlots) {
+        int h = 1;
+        for (int i = 0; i < keySlots.length; i++) {
+            values[i] = tuple.getValue(keySlots[i]);
+            h = 31 * h + values[i];
+        }
+        hash = h;
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof JoinKey && hash == ((JoinKey) other).hash && Arrays.equals(values, ((JoinKey) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
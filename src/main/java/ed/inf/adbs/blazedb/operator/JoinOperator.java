@@ -1,28 +1,117 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.CompositeTuple;
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.visitor.BatchExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.BatchPredicate;
 import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.PredicateEvaluator;
 import net.sf.jsqlparser.expression.Expression;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JoinOperator is a block nested loop join, used for theta and cross joins.
+ *
+ * A block of outer (left) tuples is read into memory and the inner (right) input is
+ * scanned once per block instead of once per outer tuple. During the first pass the inner
+ * tuples are also kept in memory, so if the inner input fits in the buffer the next passes
+ * read it from there and the inner child is never reset (a ScanOperator would reopen and
+ * re-parse its file). With a block size of 1 this is the tuple nested loop join.
+ *
+ * The output tuples are CompositeTuples over the outer and inner tuple, and the condition is
+ * evaluated on the pair directly, so nothing is copied for the pairs that don't match.
+ *
+ * getNextBatch() runs the same loops on columns: the candidate pairs of a batch are written as
+ * (outer row, inner row) indexes, only the columns used by the condition are copied before the
+ * condition filters the whole batch, and the other columns are copied for the matching pairs only.
+ *
+ * The block size and the inner buffer size can be set with the system properties
+ * blazedb.join.blockSize and blazedb.join.innerBufferSize (both in tuples).
+ */
 public class JoinOperator extends Operator {
 
+    public static final int DEFAULT_BLOCK_SIZE = Integer.getInteger("blazedb.join.blockSize", 1000);
+    public static final int DEFAULT_INNER_BUFFER_SIZE = Integer.getInteger("blazedb.join.innerBufferSize", 100000);
+
     private final Operator leftChild;
     private final Operator rightChild;
     private final Expression expression;
-    private Tuple currentLeftTuple;
+    private final int blockSize;
+    private final int innerBufferSize;
+    private final TupleSchema schema;                   // left columns followed by right columns
+    private final PredicateEvaluator predicate;         // null for a cross join
+
+    private final List<Tuple> outerBlock;  // current block of outer tuples
+    private int blockIndex;                 // next outer tuple of the block to compare
+    private Tuple currentRightTuple;        // the inner tuple compared with the block
+
+    private List<Tuple> innerBuffer;        // inner tuples kept in memory, null if they don't fit
+    private boolean innerBuffered;          // true once the whole inner input is in innerBuffer
+    private int innerIndex;
+
+    // state of getNextBatch()
+    private final BatchPredicate batchPredicate;   // null for a cross join
+    private final BitSet conditionSlots;           // slots of the output read by the condition
+    private int[][] outerColumns;                  // current block of outer rows, by column
+    private int outerCount;
+    private int outerCapacity;
+    private TupleBatch pendingOuterBatch;          // outer batch the block is being filled from
+    private int pendingOuterIndex;
+    private int[][] innerColumns;                  // the whole inner input, by column
+    private int innerCount;
+    private int innerCapacity;
+    private boolean innerLoaded;
+    private boolean innerTooLarge;                 // the inner input does not fit, use the tuple loops
+    private int outerPos;                          // next outer row of the block to pair
+    private int innerPos;                          // inner row paired with the block
+    private TupleBatch outputBatch;
+    private int[] outerRows;                       // candidate pairs of the output batch
+    private int[] innerRows;
+    private int[] selection;
 
     /**
-     * Create a new JoinOperator with the given left and right children and join condition.
+     * Create a new JoinOperator with the given left and right children and join condition,
+     * using the default block and inner buffer sizes.
      * @param leftChild The left child operator.
      * @param rightChild The right child operator.
      * @param expression The join condition.
      */
-
     public JoinOperator(Operator leftChild, Operator rightChild, Expression expression) {
+        this(leftChild, rightChild, expression, DEFAULT_BLOCK_SIZE, DEFAULT_INNER_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new JoinOperator with the given left and right children and join condition.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param expression The join condition.
+     * @param blockSize The number of outer tuples read per block.
+     * @param innerBufferSize The maximum number of inner tuples kept in memory.
+     */
+    public JoinOperator(Operator leftChild, Operator rightChild, Expression expression,
+                        int blockSize, int innerBufferSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1, got " + blockSize);
+        }
         this.leftChild = leftChild;
         this.rightChild = rightChild;
         this.expression = expression;
-        this.currentLeftTuple = null; // since we are building a left-deep tree
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = expression == null ? null
+                : ExpressionVisitor.compilePredicate(expression, leftChild.getSchema(), rightChild.getSchema());
+        this.blockSize = blockSize;
+        this.innerBufferSize = innerBufferSize;
+        this.outerBlock = new ArrayList<>(Math.min(blockSize, 1024));
+        this.innerBuffer = new ArrayList<>();
+        this.batchPredicate = expression == null ? null : BatchExpressionVisitor.compilePredicate(expression, schema);
+        this.conditionSlots = expression == null ? new BitSet() : BatchExpressionVisitor.referencedSlots(expression, schema);
     }
 
     /**
@@ -30,7 +119,7 @@ public class JoinOperator extends Operator {
      * @param leftTuple The left tuple.
      * @param rightTuple The right tuple.
      * @return True if the join condition is satisfied, false otherwise.
-     * This uses the ExpressionVisitor to evaluate the expression.
+     * This uses the compiled condition to evaluate the expression on the pair, without merging them.
      */
 
     public boolean evaluateExpression(Tuple leftTuple, Tuple rightTuple) {
@@ -39,76 +128,294 @@ public class JoinOperator extends Operator {
             return true;
         }
 
-        // Merge tuples before passing to ExpressionVisitor
-        // The expression visitor expects a single tuple with all attributes. So we merge the tuples.
-        Tuple mergedTuple = Tuple.merge(leftTuple, rightTuple);
-        ExpressionVisitor expressionVisitor = new ExpressionVisitor(mergedTuple);
-        this.expression.accept(expressionVisitor);
+        return predicate.test(leftTuple, rightTuple);
+    }
 
-        //System.out.println("Debugging : Evaluating: " + leftTuple + " ⨝ " + rightTuple + " -> " + expressionVisitor.getResult());
-        return expressionVisitor.getResult();
+    /**
+     * Reads the next block of outer tuples.
+     * @return False if the outer input is exhausted.
+     */
+    private boolean readOuterBlock() {
+        outerBlock.clear();
+        Tuple tuple;
+        while (outerBlock.size() < blockSize && (tuple = leftChild.getNextTuple()) != null) {
+            outerBlock.add(tuple);
+        }
+        blockIndex = 0;
+        currentRightTuple = null;
+        innerIndex = 0;
+        return !outerBlock.isEmpty();
     }
 
+    /**
+     * Returns the next inner tuple of the current pass, from the buffer if the whole inner
+     * input is in memory, otherwise from the inner child (buffering it while it still fits).
+     * @return The next inner tuple or null at the end of the pass.
+     */
+    private Tuple nextInnerTuple() {
+        if (innerBuffered) {
+            return innerIndex < innerBuffer.size() ? innerBuffer.get(innerIndex++) : null;
+        }
+
+        Tuple tuple = rightChild.getNextTuple();
+        if (tuple == null) {
+            if (innerBuffer != null) {
+                innerBuffered = true; // first pass done and everything fit in memory
+            } else {
+                rightChild.reset(); // the next pass has to read the inner child again
+            }
+            return null;
+        }
+
+        if (innerBuffer != null) {
+            if (innerBuffer.size() < innerBufferSize) {
+                innerBuffer.add(tuple);
+            } else {
+                innerBuffer = null; // too large, keep rescanning the inner child
+            }
+        }
+        return tuple;
+    }
 
     /**
      * Get the next tuple that satisfies the join condition.
      * @return The next tuple that satisfies the join condition.
-     * Important here is that we are evaluating the condition by making the left tuple
-     * fixed as the outer tuple and the right tuple the inner tuple which we are iterating over.
+     * For every inner tuple of a pass we iterate over the outer tuples of the block,
+     * and when the pass is over the next block is read. This is an iterative loop.
      */
-
-    // Note: currently this is a nested loop join, which can be improved.
-    // If the values were sorted first, we can have a two pointer approach, but for the
-    // purporse of this assignment, this is fine.
     @Override
     public Tuple getNextTuple() {
+        while (true) {
+            // Start with the first block, or move to the next block when the pass is over
+            if (outerBlock.isEmpty() && !readOuterBlock()) {
+                return null; // no more outer tuples : end of join!
+            }
 
-        // If currentLeftTuple is null, get the next left tuple
-        if (this.currentLeftTuple == null) {
-            this.currentLeftTuple = this.leftChild.getNextTuple();
+            // Move to the next inner tuple once it has been compared with the whole block
+            if (currentRightTuple == null || blockIndex >= outerBlock.size()) {
+                currentRightTuple = nextInnerTuple();
+                blockIndex = 0;
+                if (currentRightTuple == null) {
+                    outerBlock.clear(); // pass over the inner input is done for this block
+                    continue;
+                }
+            }
+
+            Tuple leftTuple = outerBlock.get(blockIndex++);
+            if (evaluateExpression(leftTuple, currentRightTuple)) {
+                return new CompositeTuple(schema, leftTuple, currentRightTuple);
+            }
         }
+    }
 
-        // If no more left tuples, return null : end of join!
-        if (this.currentLeftTuple == null) {
-            return null;
+    /**
+     * Get the next batch of joined rows.
+     * The inner input is loaded into columns on the first call. If it is larger than the inner buffer,
+     * the batch is filled from getNextTuple() instead.
+     * @return The next batch with at least one joined row, or null at the end of the join.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (!innerLoaded) {
+            loadInnerColumns();
+        }
+        if (innerTooLarge) {
+            return super.getNextBatch();
+        }
+        if (outputBatch == null) {
+            outputBatch = new TupleBatch(schema, TupleBatch.DEFAULT_CAPACITY);
+            outerRows = new int[outputBatch.capacity()];
+            innerRows = new int[outputBatch.capacity()];
+            selection = new int[outputBatch.capacity()];
         }
 
-        // If the left tuple is not null, get the next right tuple to compare for the join condition
-        Tuple rightTuple = rightChild.getNextTuple();
+        while (true) {
+            // 1. the candidate pairs, in the same order as the tuple loops: inner row by inner row over the block.
+            // A batch never spans two blocks, since reading the next block overwrites the outer columns.
+            int pairs = 0;
+            while (pairs < outputBatch.capacity()) {
+                if (innerPos >= innerCount) {
+                    if (pairs > 0 || innerCount == 0 || !readOuterColumns()) {
+                        break; // end of the block, or no more outer rows (or no inner rows at all) : end of join!
+                    }
+                }
+                outerRows[pairs] = outerPos;
+                innerRows[pairs] = innerPos;
+                pairs++;
+                if (++outerPos == outerCount) {
+                    outerPos = 0;
+                    innerPos++;
+                }
+            }
+            if (pairs == 0) {
+                return null;
+            }
 
-        if (rightTuple == null) {
-            // Right side is exhausted, reset and move to next left tuple
-            rightChild.reset();
-            this.currentLeftTuple = this.leftChild.getNextTuple();
+            // 2. copy the columns of the condition and filter the pairs
+            int count = pairs;
+            for (int i = 0; i < pairs; i++) {
+                selection[i] = i;
+            }
+            if (batchPredicate != null) {
+                for (int slot = conditionSlots.nextSetBit(0); slot >= 0; slot = conditionSlots.nextSetBit(slot + 1)) {
+                    copyColumn(slot, selection, pairs);
+                }
+                outputBatch.setSize(pairs);
+                count = batchPredicate.filter(outputBatch, selection, pairs);
+                if (count == 0) {
+                    continue;
+                }
+            }
 
-            // If no more left tuples, return null
-            if (this.currentLeftTuple == null) {
-                return null;
+            // 3. copy the other columns for the pairs that matched
+            for (int slot = 0; slot < schema.size(); slot++) {
+                if (batchPredicate == null || !conditionSlots.get(slot)) {
+                    copyColumn(slot, selection, count);
+                }
             }
+            outputBatch.setSize(pairs);
+            outputBatch.setSelection(selection, count);
+            return outputBatch;
+        }
+    }
 
-            // Recursively call getNextTuple() to get a new valid pair
-            return this.getNextTuple();
+    /**
+     * Copies a column of the output from the outer block or the inner columns, for the given pairs.
+     */
+    private void copyColumn(int slot, int[] pairs, int count) {
+        int[] out = outputBatch.getColumn(slot);
+        if (slot < outerColumns.length) {
+            int[] from = outerColumns[slot];
+            for (int i = 0; i < count; i++) {
+                int pair = pairs[i];
+                out[pair] = from[outerRows[pair]];
+            }
+        } else {
+            int[] from = innerColumns[slot - outerColumns.length];
+            for (int i = 0; i < count; i++) {
+                int pair = pairs[i];
+                out[pair] = from[innerRows[pair]];
+            }
+        }
+    }
+
+    /**
+     * Reads the next block of outer rows into columns.
+     * @return False if the outer input is exhausted.
+     */
+    private boolean readOuterColumns() {
+        outerCount = 0;
+        while (outerCount < blockSize) {
+            if (pendingOuterBatch == null || pendingOuterIndex >= pendingOuterBatch.selectedCount()) {
+                pendingOuterBatch = leftChild.getNextBatch();
+                pendingOuterIndex = 0;
+                if (pendingOuterBatch == null) {
+                    break;
+                }
+                continue;
+            }
+            if (outerCount == outerCapacity) {
+                outerCapacity = Math.min(blockSize, outerCapacity * 2);
+                outerColumns = grow(outerColumns, outerCapacity);
+            }
+            int row = pendingOuterBatch.selectedRow(pendingOuterIndex++);
+            for (int slot = 0; slot < outerColumns.length; slot++) {
+                outerColumns[slot][outerCount] = pendingOuterBatch.getColumn(slot)[row];
+            }
+            outerCount++;
+        }
+        if (outerCount == 0) {
+            return false;
         }
+        outerPos = 0;
+        innerPos = 0;
+        return true;
+    }
+
+    /**
+     * Loads the whole inner input into columns, unless it has more than innerBufferSize rows.
+     */
+    private void loadInnerColumns() {
+        innerLoaded = true;
+        int outerWidth = leftChild.getSchema().size();
+        outerCapacity = Math.min(blockSize, 1024);
+        outerColumns = new int[outerWidth][outerCapacity];
+        innerCapacity = TupleBatch.DEFAULT_CAPACITY;
+        innerColumns = new int[rightChild.getSchema().size()][innerCapacity];
+        innerCount = 0;
 
-        // Evaluate join condition before merging
-        if (evaluateExpression(this.currentLeftTuple, rightTuple)) {
-            return Tuple.merge(this.currentLeftTuple, rightTuple);
+        TupleBatch batch;
+        while ((batch = rightChild.getNextBatch()) != null) {
+            if (innerCount + batch.selectedCount() > innerBufferSize) {
+                innerTooLarge = true;
+                innerColumns = null;
+                rightChild.reset(); // read again by getNextTuple()
+                return;
+            }
+            if (innerCount + batch.selectedCount() > innerCapacity) {
+                innerCapacity = Math.max(innerCapacity * 2, innerCount + batch.selectedCount());
+                innerColumns = grow(innerColumns, innerCapacity);
+            }
+            for (int i = 0; i < batch.selectedCount(); i++) {
+                int row = batch.selectedRow(i);
+                for (int slot = 0; slot < innerColumns.length; slot++) {
+                    innerColumns[slot][innerCount] = batch.getColumn(slot)[row];
+                }
+                innerCount++;
+            }
         }
+        innerPos = innerCount; // no block read yet
+    }
 
-        // Recursively call getNextTuple() to continue searching for valid pairs
-        return this.getNextTuple();
+    private static int[][] grow(int[][] columns, int capacity) {
+        int[][] grown = new int[columns.length][];
+        for (int slot = 0; slot < columns.length; slot++) {
+            grown[slot] = Arrays.copyOf(columns[slot], capacity);
+        }
+        return grown;
     }
 
     /**
      * Reset the join operator.
-     * This resets the left and right children and sets the current left tuple to null.
+     * This resets the left child and the current block. The right child is only reset
+     * if it is not buffered in memory.
      */
 
     @Override
     public void reset() {
         this.leftChild.reset();
-        this.rightChild.reset();
-        this.currentLeftTuple = null;
+        if (!innerBuffered) {
+            this.rightChild.reset();
+            this.innerBuffer = new ArrayList<>();
+        }
+        this.outerBlock.clear();
+        this.blockIndex = 0;
+        this.currentRightTuple = null;
+        this.innerIndex = 0;
+        // the inner columns are kept, the batches start again from the first outer block
+        this.pendingOuterBatch = null;
+        this.outerCount = 0;
+        this.outerPos = 0;
+        this.innerPos = innerCount;
+    }
+
+    @Override
+    public void close() {
+        this.leftChild.close();
+        this.rightChild.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * With blocks of one tuple the nested loop keeps the order of the outer (left) input.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return blockSize == 1 ? leftChild.getSortOrder() : Collections.<String>emptyList();
     }
 
     public String toString() {
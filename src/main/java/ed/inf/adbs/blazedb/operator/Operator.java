@@ -1,22 +1,74 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The abstract Operator class for the iterator model.
  *
  * Feel free to modify this class, but must keep getNextTuple() and reset()
+ *
+ * Operators can also be read a batch of rows at a time with getNextBatch(). By default the batch is
+ * filled by calling getNextTuple(), operators that work on columns (Scan, Select, Project, Join, Sum)
+ * override it. A consumer reads an operator with one of the two methods until the next reset().
  */
 public abstract class Operator {
 
+    private TupleBatch adapterBatch; // filled by the default getNextBatch()
+
     /**
      * Retrieves the next tuple from the iterator.
      * @return A Tuple object representing the row of data, or NULL if EOF reached.
      */
     public abstract Tuple getNextTuple();
 
+    /**
+     * Retrieves the next batch of rows.
+     * The default implementation collects up to TupleBatch.DEFAULT_CAPACITY tuples from getNextTuple().
+     * @return A batch with at least one selected row, or NULL if EOF reached. The batch is only
+     * valid until the next call.
+     */
+    public TupleBatch getNextBatch() {
+        if (adapterBatch == null) {
+            adapterBatch = new TupleBatch(getSchema(), TupleBatch.DEFAULT_CAPACITY);
+        }
+        adapterBatch.clear();
+        Tuple tuple;
+        while (!adapterBatch.isFull() && (tuple = getNextTuple()) != null) {
+            adapterBatch.addTuple(tuple);
+        }
+        return adapterBatch.size() == 0 ? null : adapterBatch;
+    }
+
     /**
      * Resets the iterator to the start.
      */
     public abstract void reset();
+
+    /**
+     * Releases what the operator holds for reading (pinned pages, open files) once the query is done
+     * with it, including when it stops before the end of its input, and closes its children.
+     * By default there is nothing to release.
+     */
+    public void close() {
+    }
+
+    /**
+     * Returns the schema of the tuples produced by this operator. It is known when the operator is
+     * created, so parent operators can resolve the slots of the columns they need once.
+     */
+    public abstract TupleSchema getSchema();
+
+    /**
+     * Returns the columns (as Table.Column) the output of this operator is sorted on, in ascending order
+     * and priority order. This lets the query planner skip sorts that are not needed.
+     * @return The sort order, or an empty list if the output order is not known.
+     */
+    public List<String> getSortOrder() {
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -1,18 +1,22 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
-import ed.inf.adbs.blazedb.Tuple.TupleElement;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.SelectItem;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ProjectOperator extends Operator {
 
     private final Operator child;
     private final List<SelectItem<?>> selectColumns;
+    private final int[] slots;          // slots of the selected columns in the child's tuples, null for SELECT *
+    private final TupleSchema schema;
 
     /**
      * Constructs a ProjectOperator with the specified child operator and selected columns.
@@ -23,66 +27,72 @@ public class ProjectOperator extends Operator {
     public ProjectOperator(Operator child, List<SelectItem<?>> selectColumns) {
         this.child = child;
         this.selectColumns = selectColumns;
+
+        // If SELECT * is used (i.e., all columns are selected), the tuples are returned as they are
+        if (selectColumns.isEmpty() || selectColumns.get(0).toString().equals("*")) {
+            this.slots = null;
+            this.schema = child.getSchema();
+        } else {
+            this.slots = resolveSlots(child.getSchema());
+            this.schema = child.getSchema().project(slots);
+        }
     }
 
     /**
-     * Processes a tuple by selecting only the required columns.
+     * Finds the slot of every selected column in the child's schema, once for the whole operator.
+     * We have to handle two cases:
+     * 1. Standard column selection (e.g., "Student.C") -> class Column
+     * 2. Aggregation functions (e.g., "SUM(Student.C)") -> class Function, computed by the SumOperator
      *
-     * @param initialTuple The input tuple from the child operator.
-     * @return A new tuple with only the selected columns.
+     * @param childSchema The schema of the child's tuples.
+     * @return The slots of the columns that were found.
      */
-    private Tuple processTuple(Tuple initialTuple) {
-        Tuple outputTuple = new Tuple();
-
-        // If SELECT * is used (i.e., all columns are selected), return the full tuple
-        if (selectColumns.isEmpty() || selectColumns.get(0).toString().equals("*")) {
-            return initialTuple;
-        }
-        // Iterate over the selected columns, we have to handle two cases:
-        // 1. Standard column selection (e.g., "Student.C") -> class Column
-        // 2. Aggregation functions (e.g., "SUM(Student.C)") -> class Function
+    private int[] resolveSlots(TupleSchema childSchema) {
+        List<Integer> found = new ArrayList<>();
         for (SelectItem<?> selectItem : selectColumns) {
             Expression expr = selectItem.getExpression();
-
-            boolean found = false;  // keep track if the column or function was found in the tuple
+            int slot = -1;
 
             // Case 1: Column projection (Standard column selection)
             if (expr instanceof Column) {
-                String columnName = ((Column) expr).getColumnName();
-
-                // make a new output tuple with the selected column
-                for (TupleElement element : initialTuple.getElements()) {
-                    if (element.column.equals(columnName)) {
-                        outputTuple.add(element.column, element.table, element.value);
-                        found = true; // mark the column as found
-                        break; // no need to continue searching
-                    }
-                }
+                Column column = (Column) expr;
+                String tableName = column.getTable() != null ? column.getTable().getName() : null;
+                slot = childSchema.indexOf(tableName, column.getColumnName());
             }
-            // Aggregation functions (SUM)
-            else if (expr instanceof Function) {
-                // since we only expect SUM, we can directly check for the function name
-                String functionName = ((Function) expr).getName().toUpperCase();
-                if (functionName.equals("SUM")) {
-                    // Retrieve the correct SUM column name
-                    String sumColumnName = expr.toString();  // Example: "SUM(Student.C)" or "SUM(1)"
-
-                    for (TupleElement element : initialTuple.getElements()) {
-                        if (element.column.equals(sumColumnName)) {
-                            outputTuple.add(sumColumnName, element.table, element.value); // add the SUM column
-                            found = true; // mark the function as found
-                            break; // no need to continue searching
-                        }
-                    }
-                }
+            // Aggregation functions (SUM): the SumOperator names the column after the function, e.g. "SUM(Student.C)"
+            else if (expr instanceof Function && ((Function) expr).getName().equalsIgnoreCase("SUM")) {
+                slot = childSchema.indexOf(null, expr.toString());
             }
 
-            if (!found) {
+            if (slot < 0) {
                 System.err.println("Projection Error: Column or function `" + expr + "` not found in tuple.");
+            } else {
+                found.add(slot);
             }
         }
 
-        return outputTuple;
+        int[] slots = new int[found.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = found.get(i);
+        }
+        return slots;
+    }
+
+    /**
+     * Processes a tuple by selecting only the required columns.
+     *
+     * @param initialTuple The input tuple from the child operator.
+     * @return A new tuple with only the selected columns.
+     */
+    private Tuple processTuple(Tuple initialTuple) {
+        if (slots == null) {
+            return initialTuple;
+        }
+        int[] values = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = initialTuple.getValue(slots[i]);
+        }
+        return new Tuple(schema, values);
     }
 
     /**
@@ -96,6 +106,23 @@ public class ProjectOperator extends Operator {
         return (nextTuple != null) ? processTuple(nextTuple) : null;
     }
 
+    /**
+     * Retrieves the next batch, with only the selected columns.
+     * The projected batch shares the column arrays and the selection vector of the child's batch.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch = child.getNextBatch();
+        if (batch == null || slots == null) {
+            return batch;
+        }
+        int[][] columns = new int[slots.length][];
+        for (int i = 0; i < slots.length; i++) {
+            columns[i] = batch.getColumn(slots[i]);
+        }
+        return new TupleBatch(schema, columns, batch.size(), batch.getSelection(), batch.selectedCount());
+    }
+
     /**
      * Resets the operator to the initial state.
      */
@@ -104,6 +131,35 @@ public class ProjectOperator extends Operator {
         child.reset();
     }
 
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    public Operator getChild() {
+        return child;
+    }
+
+    /**
+     * Returns the slots of the projected columns in the child's tuples, or null for SELECT *.
+     */
+    public int[] getSlots() {
+        return slots;
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Projection keeps the order of the child.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return child.getSortOrder();
+    }
+
     public String toString() {
         return "ProjectOperator(columns=" + selectColumns + ")";
     }
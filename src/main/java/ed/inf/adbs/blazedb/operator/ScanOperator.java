@@ -5,22 +5,52 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.storage.BufferPoolManager;
+import ed.inf.adbs.blazedb.storage.MappedCsvFile;
+import ed.inf.adbs.blazedb.storage.Page;
+import ed.inf.adbs.blazedb.storage.PagedCsvFile;
+import ed.inf.adbs.blazedb.storage.ZoneMap;
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.statement.select.FromItem;
 import net.sf.jsqlparser.schema.Table;
 
 /**
  * ScanOperator performs a table scan by reading tuples from a file.
  * It validates the input table and ensures the file exists before processing.
+ *
+ * By default the pages of the table are read through the shared BufferPoolManager, so a scan that is
+ * reset or a table read again finds its pages in memory. With -Dblazedb.bufferPool=false the file is
+ * memory-mapped and the ints are parsed from its bytes (see MappedCsvFile), and with also
+ * -Dblazedb.scan.mmap=false it is read line by line with a BufferedReader.
+ *
+ * With the buffer pool, the pages whose zone map shows that no row can satisfy the selection given
+ * to pruneBlocks() are skipped without being read.
  */
 public class ScanOperator extends Operator {
+    static final boolean PAGED = BufferPoolManager.ENABLED;
+    static final boolean MAPPED = !PAGED && Boolean.parseBoolean(System.getProperty("blazedb.scan.mmap", "true"));
+
     private final DBCatalogue dbCatalogue;
     private final String tableName;
-    private BufferedReader reader;
+    private final TupleSchema schema;
+    private BufferedReader reader;  // opened when the file is not mapped, or for a CompiledScanOperator
+    private MappedCsvFile file;     // mapped on the first row read
+    private int[] row;              // reused by getNextBatch() on the mapped file
+    private PagedCsvFile pagedFile; // the table in the buffer pool
+    private Page page;              // pinned page being read
+    private int pageNumber;
+    private int rowInPage;
+    private final List<ConstantComparison> blockFilters = new ArrayList<>();
+    private int skippedBlocks;
+    private TupleBatch batch; // reused by getNextBatch()
 
     /**
      * Constructs a ScanOperator for reading a table's data.
@@ -44,15 +74,143 @@ public class ScanOperator extends Operator {
         if (!dbCatalogue.tableExists(tableName)) {
             throw new IllegalArgumentException("Table '" + tableName + "' does not exist in the database.");
         }
+        // The schema (columns of the table) is looked up once, not for every row
+        this.schema = dbCatalogue.getTableSchema(tableName);
 
         // Open the file reader for the table file
+        if (!MAPPED && !PAGED) {
+            this.reader = openReader();
+        }
+    }
+
+    private BufferedReader openReader() {
         try {
-            this.reader = openFileReader(tableName);
+            return openFileReader(tableName);
         } catch (IOException e) {
             throw new RuntimeException("Error opening file for table: " + tableName, e);
         }
     }
 
+    /**
+     * Skips the blocks of the table where the zone map shows that no row satisfies the comparisons of
+     * columns with constants in the condition. The scan still returns the other rows of the blocks it
+     * reads, so the condition has to be checked above it as well (SelectOperator).
+     */
+    public void pruneBlocks(Expression condition) {
+        List<Expression> conjuncts = new ArrayList<>();
+        ConstantComparison.addConjuncts(condition, conjuncts);
+        for (Expression conjunct : conjuncts) {
+            ConstantComparison filter = ConstantComparison.of(conjunct, schema);
+            if (filter != null) {
+                blockFilters.add(filter);
+            }
+        }
+    }
+
+    /**
+     * @return The number of blocks skipped with the zone map so far.
+     */
+    public int getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    /**
+     * @return The fraction of the pages of the table the scan reads: those the zone map does not rule
+     *         out with the comparisons given to pruneBlocks(), or 1 if the zone map is not built.
+     */
+    public double getPageFraction() {
+        if (!PAGED || blockFilters.isEmpty()) {
+            return 1.0;
+        }
+        if (pagedFile == null) {
+            pagedFile = BufferPoolManager.getInstance().openCsv(Paths.get(dbCatalogue.getDirectory(tableName)), schema.size());
+        }
+        ZoneMap zoneMap = pagedFile.getZoneMap();
+        if (zoneMap == null || zoneMap.getBlockCount() == 0) {
+            return 1.0;
+        }
+        int read = 0;
+        for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+            read += mayMatch(zoneMap, block) ? 1 : 0;
+        }
+        return (double) read / zoneMap.getBlockCount();
+    }
+
+    /**
+     * Moves pageNumber past the pages that cannot satisfy the pushed down comparisons, if the zone map is built.
+     */
+    private void skipBlocks() {
+        ZoneMap zoneMap = pagedFile.getZoneMap();
+        if (zoneMap == null) {
+            return;
+        }
+        while (pageNumber < zoneMap.getBlockCount() && !mayMatch(zoneMap, pageNumber)) {
+            pageNumber++;
+            skippedBlocks++;
+        }
+    }
+
+    private boolean mayMatch(ZoneMap zoneMap, int block) {
+        for (ConstantComparison filter : blockFilters) {
+            if (!zoneMap.mayMatch(block, filter.slot, filter.op, filter.constant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure the current page has a row left, fetching the next page from the buffer pool if needed.
+     * The previous page is unpinned.
+     * @return false at the end of the table.
+     */
+    private boolean nextPagedRow() {
+        if (page != null && rowInPage < page.getRowCount()) {
+            return true;
+        }
+        BufferPoolManager bufferPool = BufferPoolManager.getInstance();
+        if (page != null) {
+            bufferPool.unpinPage(page);
+            page = null;
+            pageNumber++;
+        }
+        try {
+            if (pagedFile == null) {
+                String path = dbCatalogue.getDirectory(tableName);
+                if (path == null) {
+                    throw new IOException("Table not found in schema: " + tableName);
+                }
+                pagedFile = bufferPool.openCsv(Paths.get(path), schema.size());
+            }
+            if (!blockFilters.isEmpty()) {
+                skipBlocks();
+            }
+            page = bufferPool.fetchPage(pagedFile, pageNumber);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading next page from table: " + tableName, e);
+        }
+        rowInPage = 0;
+        return page != null;
+    }
+
+    /**
+     * Maps the table file, the first time a row is read.
+     */
+    private MappedCsvFile mappedFile() {
+        if (file == null) {
+            try {
+                String path = dbCatalogue.getDirectory(tableName);
+                if (path == null) {
+                    throw new IOException("Table not found in schema: " + tableName);
+                }
+                file = new MappedCsvFile(Paths.get(path));
+            } catch (IOException e) {
+                throw new RuntimeException("Error opening file for table: " + tableName, e);
+            }
+        }
+        return file;
+    }
+
     /**
      * Opens a BufferedReader for reading a table file.
      *
@@ -72,6 +230,26 @@ public class ScanOperator extends Operator {
 
 @Override
     public Tuple getNextTuple() {
+        if (PAGED) {
+            if (!nextPagedRow()) {
+                return null;
+            }
+            int[][] columns = page.getColumns();
+            int[] values = new int[columns.length];
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = columns[slot][rowInPage];
+            }
+            rowInPage++;
+            return new Tuple(schema, values);
+        }
+        if (MAPPED) {
+            try {
+                int[] values = new int[schema.size()];
+                return mappedFile().readRow(values) ? new Tuple(schema, values) : null;
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading next tuple from table: " + tableName, e);
+            }
+        }
         //will read line by line and get the comma separated values and store them in a list
         try {
             String line = reader.readLine();
@@ -80,44 +258,182 @@ public class ScanOperator extends Operator {
             }
 
             String[] parts = line.split(",");
-            //make them integers
-            for (int i = 0; i < parts.length; i++) {
-                parts[i] = parts[i].trim(); //trim the whitespaces
-            }
-            //need to get all the columns from the db catalogue
-            List<String> columns = dbCatalogue.getTableColumns(tableName);
-            if (columns.size() != parts.length) {
-                throw new RuntimeException("Schema mismatch: expected " + columns.size() + " columns but found " + parts.length);
+            if (schema.size() != parts.length) {
+                throw new RuntimeException("Schema mismatch: expected " + schema.size() + " columns but found " + parts.length);
             }
 
-            // Create a new tuple instance by adding col, table, value
-            Tuple tuple = new Tuple();
-            for (int i = 0; i < columns.size(); i++) {
+            // Create a new tuple with the values in the order of the schema
+            int[] values = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
                 try {
-                    int value = Integer.parseInt(parts[i]);
-                    tuple.add(columns.get(i), tableName, value);
+                    values[i] = Integer.parseInt(parts[i].trim()); //trim the whitespaces
                 } catch (NumberFormatException e) {
-                    throw new RuntimeException("Invalid integer value in table " + tableName + " at column " + columns.get(i) + ": " + parts[i], e);
+                    throw new RuntimeException("Invalid integer value in table " + tableName + " at column " + schema.getColumn(i) + ": " + parts[i], e);
                 }
             }
             //System.out.println("Debugging: Returning tuple [SCAN]: " + tuple);
-            return tuple;
+            return new Tuple(schema, values);
 
         } catch (IOException e) {
             throw new RuntimeException("Error reading next tuple from table: " + tableName, e);
         }
     }
     /**
-     * Closes the file reader when the operator is closed.
+     * Reads the next lines of the file straight into the columns of a batch, without creating tuples.
+     * With the buffer pool, the batch is the rest of the current page, whose columns are used as they are.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (PAGED) {
+            if (!nextPagedRow()) {
+                return null;
+            }
+            int rows = page.getRowCount();
+            int[] selection = null;
+            if (rowInPage > 0) {
+                // part of the page was already read with getNextTuple()
+                selection = new int[rows - rowInPage];
+                for (int i = 0; i < selection.length; i++) {
+                    selection[i] = rowInPage + i;
+                }
+            }
+            rowInPage = rows;
+            return new TupleBatch(schema, page.getColumns(), rows, selection, selection == null ? rows : selection.length);
+        }
+        if (batch == null) {
+            batch = new TupleBatch(schema, TupleBatch.DEFAULT_CAPACITY);
+        }
+        try {
+            int rows = 0;
+            if (MAPPED) {
+                MappedCsvFile file = mappedFile();
+                if (row == null) {
+                    row = new int[schema.size()];
+                }
+                while (rows < batch.capacity() && file.readRow(row)) {
+                    for (int slot = 0; slot < row.length; slot++) {
+                        batch.getColumn(slot)[rows] = row[slot];
+                    }
+                    rows++;
+                }
+                batch.setSize(rows);
+                return rows == 0 ? null : batch;
+            }
+            String line;
+            while (rows < batch.capacity() && (line = reader.readLine()) != null) {
+                parseLine(line, batch, rows++);
+            }
+            batch.setSize(rows);
+            return rows == 0 ? null : batch;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading next batch from table: " + tableName, e);
+        }
+    }
+
+    /**
+     * Parses the comma separated ints of a line into a row of the batch, with the same checks as getNextTuple().
+     */
+    private void parseLine(String line, TupleBatch batch, int row) {
+        int length = line.length();
+        int pos = 0;
+        for (int slot = 0; slot < schema.size(); slot++) {
+            if (pos > length) {
+                throw new RuntimeException("Schema mismatch: expected " + schema.size() + " columns but found " + slot);
+            }
+            int value = 0;
+            int digits = 0;
+            boolean negative = false;
+            while (pos < length && line.charAt(pos) == ' ') pos++; //trim the whitespaces
+            if (pos < length && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+                negative = line.charAt(pos) == '-';
+                pos++;
+            }
+            for (; pos < length && line.charAt(pos) != ','; pos++) {
+                char ch = line.charAt(pos);
+                if (ch >= '0' && ch <= '9' && (digits == 0 || line.charAt(pos - 1) != ' ')) {
+                    value = value * 10 + (ch - '0');
+                    digits++;
+                } else if (ch != ' ') {
+                    digits = -1; // not a number, reported below
+                    break;
+                }
+            }
+            if (digits <= 0) {
+                throw new RuntimeException("Invalid integer value in table " + tableName + " at column " + schema.getColumn(slot) + ": " + line);
+            }
+            batch.getColumn(slot)[row] = negative ? -value : value;
+            pos++; // skip the comma
+        }
+        if (pos <= length) {
+            throw new RuntimeException("Schema mismatch: expected " + schema.size() + " columns in line: " + line);
+        }
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Returns the reader positioned on the next line of the table file, opening it if the file is mapped.
+     * Used by CompiledScanOperator, which parses the lines itself.
+     */
+    BufferedReader getReader() {
+        if (reader == null) {
+            reader = openReader();
+        }
+        return reader;
+    }
+
+    /**
+     * Unpins the current page, if the scan stopped before the end of the table, and closes the mapped
+     * file or the reader.
      */
+    @Override
+    public void close() {
+        if (page != null) {
+            BufferPoolManager.getInstance().unpinPage(page);
+            page = null;
+        }
+        try {
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close ScanOperator for table: " + tableName, e);
+        }
+    }
 
+    /**
+     * Goes back to the first page (unpinning the current one), rewinds the mapped file, or closes the
+     * current reader and opens a new one.
+     */
     @Override
     public void reset() {
-        // close the current reader and open a new one
+        if (page != null) {
+            BufferPoolManager.getInstance().unpinPage(page);
+            page = null;
+        }
+        pageNumber = 0;
+        rowInPage = 0;
         try {
-            reader.close();
-            // Reopen the file reader
-            reader = openFileReader(tableName);
+            if (file != null) {
+                file.rewind();
+            }
+            if (reader != null) {
+                // close the current reader and open a new one
+                reader.close();
+                reader = openFileReader(tableName);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to reset ScanOperator for table: " + tableName, e);
         }
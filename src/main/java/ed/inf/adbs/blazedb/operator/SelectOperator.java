@@ -1,8 +1,15 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
 import net.sf.jsqlparser.expression.Expression;
+import ed.inf.adbs.blazedb.visitor.BatchExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.BatchPredicate;
 import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.PredicateEvaluator;
+
+import java.util.List;
 
 /**
  * SelectOperator filters tuples based on a given condition.
@@ -11,6 +18,9 @@ import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
 public class SelectOperator extends Operator {
     private Operator child;
     private Expression expression;
+    private PredicateEvaluator predicate;
+    private BatchPredicate batchPredicate;
+    private int[] selection = new int[0]; // selection vector set on the child's batches
 
     /**
      * Constructs a SelectOperator with the specified child operator and condition.
@@ -22,6 +32,9 @@ public class SelectOperator extends Operator {
     public SelectOperator(Operator child, Expression expression) {
         this.child = child;
         this.expression = expression; // The condition to filter tuples
+        // Compile the condition once: the columns are resolved against the child's schema
+        this.predicate = expression == null ? null : ExpressionVisitor.compilePredicate(expression, child.getSchema());
+        this.batchPredicate = expression == null ? null : BatchExpressionVisitor.compilePredicate(expression, child.getSchema());
     }
 
     /**
@@ -44,17 +57,36 @@ public class SelectOperator extends Operator {
                 return nextTuple; // No condition to check : return the tuple as is. Good practice.
             }
 
-            // Create a visitor to evaluate the expression. The visitor will return a boolean result.
-            ExpressionVisitor expressionVisitor = new ExpressionVisitor(nextTuple);
-            expression.accept(expressionVisitor);
-
-            // Check if the tuple satisfies the condition and if so, return it.
-            if (expressionVisitor.getResult()) {
+            // Evaluate the compiled condition and if the tuple satisfies it, return it.
+            if (predicate.test(nextTuple)) {
                 return nextTuple;
             }
         }
     }
 
+    /**
+     * Retrieves the next batch with at least one row that satisfies the condition.
+     * The condition narrows the selection vector of the child's batch, no row is copied.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        while (true) {
+            TupleBatch batch = child.getNextBatch();
+            if (batch == null || expression == null) {
+                return batch;
+            }
+
+            if (selection.length < batch.selectedCount()) {
+                selection = new int[Math.max(batch.capacity(), batch.selectedCount())];
+            }
+            int count = batchPredicate.filter(batch, batch.selectedRows(selection), batch.selectedCount());
+            if (count > 0) {
+                batch.setSelection(selection, count);
+                return batch;
+            }
+        }
+    }
+
     /**
      * Resets the child operator.
      */
@@ -63,4 +95,30 @@ public class SelectOperator extends Operator {
         this.child.reset();
     }
 
+    @Override
+    public void close() {
+        this.child.close();
+    }
+
+    public Operator getChild() {
+        return child;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return child.getSchema();
+    }
+
+    /**
+     * Filtering keeps the order of the child.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return child.getSortOrder();
+    }
+
 }
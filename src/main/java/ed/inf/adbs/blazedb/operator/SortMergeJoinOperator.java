@@ -0,0 +1,214 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.CompositeTuple;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.visitor.ExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.PredicateEvaluator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SortMergeJoinOperator joins two inputs on one or more equality conditions of the form
+ * left.column = right.column.
+ *
+ * Both inputs are sorted on their join keys, unless the child already reports that order
+ * through getSortOrder(), and then merged with two pointers. Right tuples with the same key
+ * (a run) are buffered so they can be joined with every left tuple that has that key.
+ * The output is sorted on the join keys, so a following ORDER BY on them does not need a sort.
+ */
+public class SortMergeJoinOperator extends Operator {
+
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final List<Column> leftKeys;
+    private final List<Column> rightKeys;
+    private final Expression residual;
+    private final TupleSchema schema;               // left columns followed by right columns
+    private final int[] leftKeySlots;               // slots of the keys in the left tuples
+    private final int[] rightKeySlots;              // slots of the keys in the right tuples
+    private final PredicateEvaluator residualPredicate;
+
+    private Tuple currentLeftTuple;
+    private Tuple nextRightTuple;
+    private List<Tuple> rightRun;        // right tuples with the same key as the current left tuple
+    private Tuple rightRunKey;           // the first tuple of the run, whose key columns are the run's key
+    private int runIndex;
+    private boolean started;
+
+    /**
+     * Create a new SortMergeJoinOperator.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param leftKeys The join key columns of the left input.
+     * @param rightKeys The join key columns of the right input, in the same order as leftKeys.
+     * @param residual The rest of the join condition, or null if there is none.
+     */
+    public SortMergeJoinOperator(Operator leftChild, Operator rightChild,
+                                 List<Column> leftKeys, List<Column> rightKeys, Expression residual) {
+        if (leftKeys.isEmpty() || leftKeys.size() != rightKeys.size()) {
+            throw new IllegalArgumentException("Sort-merge join needs the same (non-zero) number of keys on both sides.");
+        }
+        this.leftChild = sortIfNeeded(leftChild, leftKeys);
+        this.rightChild = sortIfNeeded(rightChild, rightKeys);
+        this.leftKeys = leftKeys;
+        this.rightKeys = rightKeys;
+        this.residual = residual;
+        this.schema = this.leftChild.getSchema().concat(this.rightChild.getSchema());
+        this.leftKeySlots = resolveSlots(leftKeys, this.leftChild.getSchema());
+        this.rightKeySlots = resolveSlots(rightKeys, this.rightChild.getSchema());
+        this.residualPredicate = residual == null ? null
+                : ExpressionVisitor.compilePredicate(residual, this.leftChild.getSchema(), this.rightChild.getSchema());
+    }
+
+    /**
+     * Finds the slots of the key columns in the schema of one of the inputs.
+     */
+    private static int[] resolveSlots(List<Column> keys, TupleSchema inputSchema) {
+        int[] slots = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            slots[i] = inputSchema.requireIndexOf(keys.get(i).getFullyQualifiedName());
+        }
+        return slots;
+    }
+
+    /**
+     * Wraps the child in a SortOperator on the given keys, unless it is already sorted on them.
+     */
+    private static Operator sortIfNeeded(Operator child, List<Column> keys) {
+        List<String> keyNames = columnNames(keys);
+        List<String> childOrder = child.getSortOrder();
+        if (childOrder.size() >= keyNames.size() && childOrder.subList(0, keyNames.size()).equals(keyNames)) {
+            System.out.println("[SORT MERGE JOIN] input already sorted on " + keyNames);
+            return child;
+        }
+
+        List<OrderByElement> orderByElements = new ArrayList<>();
+        for (Column key : keys) {
+            OrderByElement orderByElement = new OrderByElement();
+            orderByElement.setExpression(key);
+            orderByElements.add(orderByElement);
+        }
+        return new SortOperator(child, orderByElements);
+    }
+
+    private static List<String> columnNames(List<Column> columns) {
+        List<String> names = new ArrayList<>();
+        for (Column column : columns) {
+            names.add(column.getTable().getName() + "." + column.getColumnName());
+        }
+        return names;
+    }
+
+    /**
+     * Compares the keys of two tuples column by column, read in place from the tuples.
+     */
+    private static int compareKeys(Tuple tuple1, int[] keySlots1, Tuple tuple2, int[] keySlots2) {
+        for (int i = 0; i < keySlots1.length; i++) {
+            int comparison = Integer.compare(tuple1.getValue(keySlots1[i]), tuple2.getValue(keySlots2[i]));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the next tuple that satisfies the join condition.
+     * @return The next joined tuple or null if there are no more.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!started) {
+            currentLeftTuple = leftChild.getNextTuple();
+            nextRightTuple = rightChild.getNextTuple();
+            started = true;
+        }
+
+        while (currentLeftTuple != null) {
+            // 1. the current left tuple matches the buffered run: join it with every tuple of the run
+            if (rightRunKey != null && compareKeys(currentLeftTuple, leftKeySlots, rightRunKey, rightKeySlots) == 0) {
+                while (runIndex < rightRun.size()) {
+                    Tuple rightTuple = rightRun.get(runIndex++);
+                    if (satisfiesResidual(currentLeftTuple, rightTuple)) {
+                        return new CompositeTuple(schema, currentLeftTuple, rightTuple);
+                    }
+                }
+                // run done for this left tuple, the next left tuple may have the same key
+                currentLeftTuple = leftChild.getNextTuple();
+                runIndex = 0;
+                continue;
+            }
+
+            // 2. advance the right side until its key is not smaller than the left key
+            if (nextRightTuple == null) {
+                return null; // no more right tuples and the left key is past the last run
+            }
+            int comparison = compareKeys(currentLeftTuple, leftKeySlots, nextRightTuple, rightKeySlots);
+            if (comparison > 0) {
+                nextRightTuple = rightChild.getNextTuple();
+            } else if (comparison < 0) {
+                currentLeftTuple = leftChild.getNextTuple();
+            } else {
+                // 3. equal keys: buffer the whole run of right tuples with this key
+                rightRun = new ArrayList<>();
+                rightRunKey = nextRightTuple;
+                runIndex = 0;
+                while (nextRightTuple != null) {
+                    if (compareKeys(nextRightTuple, rightKeySlots, rightRunKey, rightKeySlots) != 0) {
+                        break;
+                    }
+                    rightRun.add(nextRightTuple);
+                    nextRightTuple = rightChild.getNextTuple();
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean satisfiesResidual(Tuple leftTuple, Tuple rightTuple) {
+        return residualPredicate == null || residualPredicate.test(leftTuple, rightTuple);
+    }
+
+    /**
+     * Reset the join operator. The sorted inputs are kept, we only start merging again.
+     */
+    @Override
+    public void reset() {
+        leftChild.reset();
+        rightChild.reset();
+        currentLeftTuple = null;
+        nextRightTuple = null;
+        rightRun = null;
+        rightRunKey = null;
+        runIndex = 0;
+        started = false;
+    }
+
+    @Override
+    public void close() {
+        leftChild.close();
+        rightChild.close();
+    }
+
+    /**
+     * The output is sorted on the left join keys (which are equal to the right ones).
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return columnNames(leftKeys);
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    public String toString() {
+        return "SortMergeJoin[" + leftChild + ", " + rightChild + " on " + leftKeys + " = " + rightKeys + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleSchema;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.OrderByElement;
@@ -17,6 +18,7 @@ public class SortOperator extends Operator {
     private Operator child;
     private List<Tuple> tuples;
     private final List<String> columnList;
+    private final int[] sortSlots; // slots of the sorting columns in the child's tuples
     private int currentTupleIndex = 0;
 
     /**
@@ -28,6 +30,10 @@ public class SortOperator extends Operator {
     public SortOperator(Operator child, List<OrderByElement> orderByElements) {
         this.child = child;
         this.columnList = extractColumnNames(orderByElements);
+        this.sortSlots = new int[columnList.size()];
+        for (int i = 0; i < columnList.size(); i++) {
+            sortSlots[i] = child.getSchema().requireIndexOf(columnList.get(i));
+        }
         this.tuples = new ArrayList<>();
 
         // we are assuming that we will do everything in memory
@@ -61,41 +67,38 @@ public class SortOperator extends Operator {
         currentTupleIndex = 0;
     }
 
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    @Override
+    public TupleSchema getSchema() {
+        return child.getSchema();
+    }
+
+    /**
+     * The output is sorted on the ORDER BY columns.
+     * @return the list of sorting columns
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return columnList;
+    }
+
     /**
      * Sorts the tuple list based on the order defined in columnList.
      * This comparator iterates through multiple columns in priority order
      * and sorts tuples accordingly.
      *
-     * - Uses Integer.compare() to compare values of the columns.
+     * - Uses Integer.compare() to compare values of the columns, read by slot.
      */
 
     private void sortTupleList() {
         tuples.sort((t1, t2) -> {
-            for (String fullColumn : columnList) {  // Iterate through all sorting columns
-                // Extract table name and column name
-                String[] parts = fullColumn.split("\\.");
-                if (parts.length != 2) {
-                    System.err.println("Error: Malformed column name " + fullColumn);
-                    continue;
-                }
-
-                String tableName = parts[0];  // Extract table name
-                String columnName = parts[1]; // Extract column name
-
-                // Retrieve values correctly from the tuples
-                Integer value1 = t1.returnValue(columnName, tableName);
-                Integer value2 = t2.returnValue(columnName, tableName);
-
-                //System.out.println("Debugging :Sorting by: " + fullColumn + " -> " + value1 + " vs " + value2);
-
-                // avoid null pointer exception
-                if (value1 == null || value2 == null) {
-                    System.err.println("Error: Missing value for column " + fullColumn);
-                    continue;
-                }
-
+            for (int slot : sortSlots) {  // Iterate through all sorting columns
                 // Compare the values
-                int comparison = Integer.compare(value1, value2); // this returns -1, 0, 1
+                int comparison = Integer.compare(t1.getValue(slot), t2.getValue(slot)); // this returns -1, 0, 1
                 if (comparison != 0) {
                     return comparison; // Stop at the first nonzero comparison
                 }
@@ -1,11 +1,13 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
-import net.sf.jsqlparser.expression.BinaryExpression;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.kernel.Kernels;
+import ed.inf.adbs.blazedb.visitor.BatchExpressionVisitor;
+import ed.inf.adbs.blazedb.visitor.BatchValue;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
-import net.sf.jsqlparser.expression.LongValue;
-import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.GroupByElement;
 
@@ -14,206 +16,253 @@ import java.util.*;
 
 /**
  * SumOperator performs SUM aggregation, with or without GROUP BY.
+ * Each output tuple is a representative tuple of its group followed by one column per SUM
+ * function, named after the function (e.g. "SUM(Enrolled.H)").
+ *
+ * The child is read a batch at a time: the SUM arguments are evaluated on whole columns and only
+ * the running sums and the representative row of every group are kept, not the tuples of the groups.
+ *
+ * The groups are found with a hash table, or, if the child is sorted on the GROUP BY columns, as the
+ * runs of rows with the same values (sort aggregation): the output is then in the order of the child.
  */
 public class SumOperator extends Operator {
 
     private final Operator child;
     private final List<Tuple> tuples;
-    private Map<List<Object>, List<Tuple>> groups; // Group key -> List of tuples
-    private List<Tuple> outputTuples;
+    private Map<List<Object>, int[]> groups; // Group key -> representative row followed by the sums
     private final List<Function> sumFunctions;
+    private final TupleSchema schema;
+    private final List<BatchValue> sumArguments; // compiled argument of every SUM function
+    private final boolean sortedInput;
+    private final List<int[]> runs; // the groups of a sort aggregation, in order
+    private int currentIndex = 0;
 
     public SumOperator(Operator child, GroupByElement groupByElement, List<Function> sumFunctions) {
+        this(child, groupByElement, sumFunctions, false);
+    }
+
+    /**
+     * @param sortedInput True if the child is sorted on the GROUP BY columns, so the rows of a group
+     *                    follow each other.
+     */
+    public SumOperator(Operator child, GroupByElement groupByElement, List<Function> sumFunctions, boolean sortedInput) {
         this.child = child;
+        this.sortedInput = sortedInput && groupByElement != null;
         this.tuples = new ArrayList<>();
         this.groups = new HashMap<>();
+        this.runs = new ArrayList<>();
         this.sumFunctions = sumFunctions;
-        this.outputTuples = new ArrayList<>();
+
+        // the output has the columns of the child followed by the sums
+        List<String> sumColumnNames = new ArrayList<>();
+        for (Function sumFunction : sumFunctions) {
+            sumColumnNames.add(sumFunction.toString());
+        }
+        this.schema = child.getSchema().withComputedColumns(sumColumnNames);
+        this.sumArguments = compileSumArguments(child.getSchema());
 
         // first we will group by the columns with a unique identifier
-        // if there is no grouping we will assign the same to perform then the sum
+        // if there is no grouping all the rows go to the same group, then we perform the sums
         if (groupByElement == null) {
-            groupingWithoutGroupBy();
+            aggregate(new int[0]);
+        } else if (this.sortedInput) {
+            aggregateRuns(groupBySlots(groupByElement));
         } else {
-            groupingWithGroupBy(groupByElement);
+            aggregate(groupBySlots(groupByElement));
         }
 
-
-        // now will we perform the sum
-        if (!sumFunctions.isEmpty() ) {
-            computeSum();
-        } else {
-            noSum();
+        // one output tuple per group
+        TupleSchema outputSchema = getSchema();
+        for (int[] row : this.sortedInput ? this.runs : this.groups.values()) {
+            this.tuples.add(new Tuple(outputSchema, row));
         }
 
         System.out.println("SumOperator final: " + this.tuples);
     }
 
     /**
-     * Returns the next tuple in the result set.
-     * If there are no more tuples, returns null.
+     * Compiles the argument of every SUM function (a constant, a column or arithmetic on them),
+     * once for the whole operator.
      */
-    @Override
-    public Tuple getNextTuple() {
-        if (this.tuples.isEmpty()) {
-            return null;
+    private List<BatchValue> compileSumArguments(TupleSchema childSchema) {
+        List<BatchValue> arguments = new ArrayList<>();
+        for (Function sumFunction : sumFunctions) {
+            Expression argument = (Expression) sumFunction.getParameters().getExpressions().get(0); // Example: Enrolled.H
+            arguments.add(BatchExpressionVisitor.compileValue(argument, childSchema));
         }
-        return this.tuples.remove(0);
-    }
-
-    /**
-     * Resets the operator to the beginning of the result set.
-     */
-    @Override
-    public void reset() {
-        this.tuples.clear();
-        this.groups.clear();
-        this.child.reset();
+        return arguments;
     }
 
     /**
-     * Groups all tuples into a single group when there is no GROUP BY clause.
-     * It stores the group under an arbitrary key (empty list).
-     * We still need to store the tuples in this map to be able to compute the sum.
+     * Finds the slots of the GROUP BY columns once, not for every tuple.
      */
+    private int[] groupBySlots(GroupByElement groupByElement) {
+        child.reset();
+        List<Column> groupByColumns = groupByElement.getGroupByExpressionList();
+        System.out.println("GroupBy Columns: " + groupByColumns);
 
-    public void groupingWithoutGroupBy() {
-        List<Tuple> grouping = new ArrayList<>();
-        Tuple tuple = child.getNextTuple();
-
-        // Collect all tuples
-        while (tuple != null) {
-            grouping.add(tuple);
-            tuple = child.getNextTuple();
+        int[] slots = new int[groupByColumns.size()];
+        for (int i = 0; i < groupByColumns.size(); i++) {
+            slots[i] = child.getSchema().requireIndexOf(groupByColumns.get(i).toString());
         }
-
-        // Store the single group under an arbitrary key (empty list as key)
-        this.groups.put(Collections.emptyList(), grouping);
+        return slots;
     }
 
-
     /**
-     * Groups the tuples by the columns specified in the GROUP BY clause.
-     * It stores the groups under the corresponding group keys.
+     * Reads the child batch by batch and adds every row to its group.
+     * The first row of a group is copied as its representative, and the SUM arguments are evaluated
+     * for the whole batch (e.g. Student.C * Student.D on two columns) before being added to the sums.
+     * We have three cases: sum(constant), sum(column), sum(column * column), with or without group by.
+     *
+     * @param groupBySlots The slots of the GROUP BY columns, empty if there is no GROUP BY.
      */
+    private void aggregate(int[] groupBySlots) {
+        int childSize = child.getSchema().size();
+        int rowSize = sumFunctions.isEmpty() ? childSize : schema.size();
+        int[] rows = new int[0];
+        int[][] argumentValues = new int[sumArguments.size()][0];
+
+        TupleBatch batch;
+        while ((batch = child.getNextBatch()) != null) {
+            int count = batch.selectedCount();
+            if (rows.length < count) {
+                rows = new int[Math.max(count, batch.capacity())];
+                argumentValues = new int[sumArguments.size()][rows.length];
+            }
+            batch.selectedRows(rows);
+            for (int s = 0; s < sumArguments.size(); s++) {
+                sumArguments.get(s).evaluate(batch, rows, count, argumentValues[s]);
+            }
 
-    public void groupingWithGroupBy(GroupByElement groupByElement) {
-        child.reset();
-        List<Column> groupByColumns = groupByElement.getGroupByExpressionList();
-        System.out.println("GroupBy Columns: " + groupByColumns);
-        Tuple tuple = this.child.getNextTuple();
-
-        while (tuple != null) {
-            List<Object> groupKey = new ArrayList<>();
-
-            System.out.println("Processing tuple: " + tuple);
-
-            for (Column column : groupByColumns) {
-                System.out.println("Processing column type: " + column.getClass());
-                String columnName = column.toString();
-                Object groupValue = tuple.getColumnValue(columnName);
-
-                if (groupValue != null) {
-                    groupKey.add(groupValue);
-                } else {
-                    System.err.println("ERROR: GroupBy column `" + columnName + "` not found in tuple!");
-                    System.err.println("Tuple contents: " + tuple);
+            if (groupBySlots.length == 0) {
+                // a single group (stored under an empty key): sum the whole batch at once
+                int[] group = groups.get(Collections.emptyList());
+                if (group == null) {
+                    group = copyRow(batch, rows[0], rowSize);
+                    groups.put(Collections.emptyList(), group);
                 }
+                for (int s = 0; s < sumArguments.size(); s++) {
+                    group[childSize + s] += Kernels.get().sum(argumentValues[s], count);
+                }
+                continue;
             }
 
-            if (!groupKey.isEmpty()) {
-                this.groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(tuple);
-                System.out.println("Extracted Group Key: " + groupKey);
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                List<Object> groupKey = new ArrayList<>(groupBySlots.length);
+                for (int slot : groupBySlots) {
+                    groupKey.add(batch.getColumn(slot)[row]);
+                }
+                int[] group = groups.get(groupKey);
+                if (group == null) {
+                    group = copyRow(batch, row, rowSize);
+                    groups.put(groupKey, group);
+                }
+                for (int s = 0; s < sumArguments.size(); s++) {
+                    group[childSize + s] += argumentValues[s][i];
+                }
             }
-
-            tuple = this.child.getNextTuple();
         }
     }
 
-
     /**
-     * Computes the sum of the column specified in the SUM function.
-     * We have three cases sum(constant), sum(column), sum(column * column) with group by
+     * Reads the child, sorted on the GROUP BY columns, and sums the runs of rows with the same values:
+     * a row starts a new group when it differs from the representative row of the current one, so no
+     * group is looked up. The groups are kept in the order they were found.
      */
-
-    /**
-     * Computes the sum of the column specified in the SUM function.
-     * We have three cases: sum(constant), sum(column), sum(column * column) with group by.
-     */
-    public void computeSum() {
-        for (Function sumFunction : this.sumFunctions) {
-            Expression argument = (Expression) sumFunction.getParameters().getExpressions().get(0);
-            String sumColumnName = sumFunction.toString();  // Example: "SUM(Enrolled.H)"
-
-            Map<List<Object>, Tuple> sumResults = new HashMap<>();
-
-            for (List<Object> key : this.groups.keySet()) {
-                int sum = 0;
-                Tuple representativeTuple = null;  // A reference to an existing tuple to preserve all columns
-
-                for (Tuple tuple : this.groups.get(key)) {
-                    sum += extractValueFromExpression(argument, tuple);
-                    if (representativeTuple == null) {
-                        representativeTuple = tuple;  // Store the first tuple in the group
-                    }
+    private void aggregateRuns(int[] groupBySlots) {
+        int childSize = child.getSchema().size();
+        int rowSize = sumFunctions.isEmpty() ? childSize : schema.size();
+        int[] rows = new int[0];
+        int[][] argumentValues = new int[sumArguments.size()][0];
+        int[] group = null;
+
+        TupleBatch batch;
+        while ((batch = child.getNextBatch()) != null) {
+            int count = batch.selectedCount();
+            if (rows.length < count) {
+                rows = new int[Math.max(count, batch.capacity())];
+                argumentValues = new int[sumArguments.size()][rows.length];
+            }
+            batch.selectedRows(rows);
+            for (int s = 0; s < sumArguments.size(); s++) {
+                sumArguments.get(s).evaluate(batch, rows, count, argumentValues[s]);
+            }
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                if (group == null || !isSameGroup(group, batch, row, groupBySlots)) {
+                    group = copyRow(batch, row, rowSize);
+                    runs.add(group);
                 }
-
-                if (representativeTuple != null) {
-                    // Create a new tuple
-                    Tuple newTuple = new Tuple();
-
-                    // Copy the columns from the representative tuple
-                    for (Tuple.TupleElement element : representativeTuple.getElements()) {
-                        newTuple.add(element.column, element.table, element.value);
-                    }
-
-                    // Add the computed sum as a new column
-                    newTuple.add(sumColumnName, "SUM_RESULT", sum);
-                    sumResults.put(key, newTuple);
+                for (int s = 0; s < sumArguments.size(); s++) {
+                    group[childSize + s] += argumentValues[s][i];
                 }
             }
-
-            this.tuples.addAll(sumResults.values());
         }
     }
 
+    private static boolean isSameGroup(int[] group, TupleBatch batch, int row, int[] groupBySlots) {
+        for (int slot : groupBySlots) {
+            if (group[slot] != batch.getColumn(slot)[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
-     * Computes the sum of the column specified in the SUM function.
-     * We still need to find a representative tuple to preserve the information.
+     * Copies a row of the batch, followed by room for the sums (starting at 0).
      */
-    public void noSum() {
-        for (List<Object> key : this.groups.keySet()) {
-            List<Tuple> tuples = this.groups.get(key);
-            if (!tuples.isEmpty()) {  // Avoids accessing an empty list
-                this.tuples.add(tuples.get(0)); // Adds the first tuple from each group
-            }
+    private static int[] copyRow(TupleBatch batch, int row, int rowSize) {
+        int[] values = new int[rowSize];
+        for (int slot = 0; slot < batch.getSchema().size(); slot++) {
+            values[slot] = batch.getColumn(slot)[row];
         }
+        return values;
     }
 
     /**
-     * Helper function to extract values from different types of expressions.
-     * We have three cases: sum(constant), sum(column), sum(column * column) with group by.
+     * Returns the next tuple in the result set.
+     * If there are no more tuples, returns null.
      */
-    private int extractValueFromExpression(Expression argument, Tuple tuple) {
-        if (argument instanceof LongValue) {
-            return (int) ((LongValue) argument).getValue();  // Case 1: sum(constant)
-        } else if (argument instanceof Column) {
-            String columnName = ((Column) argument).getColumnName();  // Case 2: sum(column)
-            return tuple.getColumnValue(columnName); // Retrieve value from tuple
-        } else if (argument instanceof BinaryExpression) {
-            BinaryExpression binaryExpr = (BinaryExpression) argument;
-            int leftValue = extractValueFromExpression(binaryExpr.getLeftExpression(), tuple);
-            int rightValue = extractValueFromExpression(binaryExpr.getRightExpression(), tuple);
-            return leftValue * rightValue;  // Case 3: sum(column * column)
+    @Override
+    public Tuple getNextTuple() {
+        if (currentIndex >= this.tuples.size()) {
+            return null;
         }
-        throw new IllegalArgumentException("Unsupported SUM expression: " + argument);
+        return this.tuples.get(currentIndex++);
     }
 
-}
-
-
+    /**
+     * Resets the operator to the beginning of the result set.
+     * The groups are computed once, so this only rewinds the output.
+     */
+    @Override
+    public void reset() {
+        currentIndex = 0;
+    }
 
+    @Override
+    public void close() {
+        child.close();
+    }
 
+    @Override
+    public TupleSchema getSchema() {
+        return sumFunctions.isEmpty() ? child.getSchema() : schema;
+    }
 
+    /**
+     * After a sort aggregation the groups come in the order of the child: each is output as its first
+     * row, and the rows of a group follow each other.
+     */
+    @Override
+    public List<String> getSortOrder() {
+        return sortedInput ? child.getSortOrder() : Collections.<String>emptyList();
+    }
 
+    @Override
+    public String toString() {
+        return (sortedInput ? "SortAggregate[" : "HashAggregate[") + child + "]";
+    }
+}
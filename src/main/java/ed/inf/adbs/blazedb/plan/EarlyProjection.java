@@ -0,0 +1,90 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves the Project of a query on one table down to the scan, so the rows carry only the selected
+ * columns through the Filter, Aggregate and Sort above it. It applies if the SELECT clause only has
+ * columns of the table (no SUM, no *) and they include every column the nodes in between use, and there
+ * is no Join: the other tables would keep their columns.
+ */
+public class EarlyProjection implements RewriteRule {
+
+    @Override
+    public String getName() {
+        return "early projection";
+    }
+
+    @Override
+    public LogicalPlan apply(LogicalPlan node) {
+        if (!(node instanceof LogicalProject) || ((LogicalProject) node).isAllColumns()) {
+            return node;
+        }
+        LogicalProject project = (LogicalProject) node;
+
+        // the nodes between the Project and the scan, from the top
+        List<LogicalPlan> between = new ArrayList<>();
+        Set<String> usedColumns = new HashSet<>();
+        LogicalPlan plan = project.getChild();
+        while (!(plan instanceof LogicalScan)) {
+            if (plan instanceof LogicalFilter) {
+                addColumns(((LogicalFilter) plan).getCondition(), usedColumns);
+            } else if (plan instanceof LogicalSort) {
+                for (OrderByElement orderBy : ((LogicalSort) plan).getOrderByElements()) {
+                    addColumns(orderBy.getExpression(), usedColumns);
+                }
+            } else if (plan instanceof LogicalAggregate && ((LogicalAggregate) plan).getSums().isEmpty()) {
+                if (((LogicalAggregate) plan).getGroupBy() != null) {
+                    for (Object groupBy : ((LogicalAggregate) plan).getGroupBy().getGroupByExpressionList()) {
+                        addColumns((Expression) groupBy, usedColumns);
+                    }
+                }
+            } else {
+                return node;
+            }
+            between.add(plan);
+            plan = plan.getChildren().get(0);
+        }
+        if (between.isEmpty()) {
+            return node; // already on the scan
+        }
+
+        String table = plan.getTables().get(0);
+        Set<String> selectedColumns = new HashSet<>();
+        for (SelectItem<?> item : project.getSelectItems()) {
+            if (!(item.getExpression() instanceof Column) || ((Column) item.getExpression()).getTable() == null
+                    || !table.equals(((Column) item.getExpression()).getTable().getName())) {
+                return node;
+            }
+            selectedColumns.add(((Column) item.getExpression()).getFullyQualifiedName());
+        }
+        if (!selectedColumns.containsAll(usedColumns)) {
+            return node;
+        }
+
+        LogicalPlan rewritten = project.withChildren(Collections.singletonList(plan));
+        for (int i = between.size() - 1; i >= 0; i--) {
+            rewritten = between.get(i).withChildren(Collections.singletonList(rewritten));
+        }
+        return rewritten;
+    }
+
+    private static void addColumns(Expression expression, Set<String> columns) {
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                columns.add(column.getFullyQualifiedName());
+            }
+        });
+    }
+}
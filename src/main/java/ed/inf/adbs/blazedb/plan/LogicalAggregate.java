@@ -0,0 +1,48 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.statement.select.GroupByElement;
+
+import java.util.List;
+
+/**
+ * Groups the rows of its child on the GROUP BY columns and computes the SUMs of each group (of all the
+ * rows as one group if there is no GROUP BY).
+ */
+public class LogicalAggregate extends LogicalPlan {
+
+    private final GroupByElement groupBy;
+    private final List<Function> sums;
+
+    /**
+     * @param groupBy The GROUP BY clause, or null.
+     * @param sums The SUM functions of the SELECT clause.
+     */
+    public LogicalAggregate(LogicalPlan child, GroupByElement groupBy, List<Function> sums) {
+        super(child);
+        this.groupBy = groupBy;
+        this.sums = sums;
+    }
+
+    public LogicalPlan getChild() {
+        return getChildren().get(0);
+    }
+
+    public GroupByElement getGroupBy() {
+        return groupBy;
+    }
+
+    public List<Function> getSums() {
+        return sums;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalAggregate(newChildren.get(0), groupBy, sums);
+    }
+
+    @Override
+    public String describe() {
+        return "Aggregate(" + (groupBy == null ? "" : groupBy + (sums.isEmpty() ? "" : ", ")) + (sums.isEmpty() ? "" : sums) + ")";
+    }
+}
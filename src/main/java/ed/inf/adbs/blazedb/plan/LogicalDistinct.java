@@ -0,0 +1,36 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.List;
+
+/**
+ * Removes the duplicate rows of its child (SELECT DISTINCT).
+ */
+public class LogicalDistinct extends LogicalPlan {
+
+    private final List<SelectItem<?>> selectItems;
+
+    public LogicalDistinct(LogicalPlan child, List<SelectItem<?>> selectItems) {
+        super(child);
+        this.selectItems = selectItems;
+    }
+
+    public LogicalPlan getChild() {
+        return getChildren().get(0);
+    }
+
+    public List<SelectItem<?>> getSelectItems() {
+        return selectItems;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalDistinct(newChildren.get(0), selectItems);
+    }
+
+    @Override
+    public String describe() {
+        return "Distinct";
+    }
+}
@@ -0,0 +1,36 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.List;
+
+/**
+ * Keeps the rows of its child that satisfy a condition (a conjunction of the WHERE clause).
+ */
+public class LogicalFilter extends LogicalPlan {
+
+    private final Expression condition;
+
+    public LogicalFilter(LogicalPlan child, Expression condition) {
+        super(child);
+        this.condition = condition;
+    }
+
+    public LogicalPlan getChild() {
+        return getChildren().get(0);
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalFilter(newChildren.get(0), condition);
+    }
+
+    @Override
+    public String describe() {
+        return "Filter(" + condition + ")";
+    }
+}
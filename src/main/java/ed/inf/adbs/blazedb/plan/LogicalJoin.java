@@ -0,0 +1,52 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.List;
+
+/**
+ * Joins the rows of its two children, keeping the pairs that satisfy its condition (all the pairs if it
+ * has none). The plans are left-deep: the right child is a single table.
+ */
+public class LogicalJoin extends LogicalPlan {
+
+    private final Expression condition;
+    private final boolean reorderable;
+
+    /**
+     * @param condition The join condition, or null for a cross product.
+     * @param reorderable True if the join is in the order of the FROM clause and that order may still
+     *                    be changed (see ReorderJoins).
+     */
+    public LogicalJoin(LogicalPlan left, LogicalPlan right, Expression condition, boolean reorderable) {
+        super(left, right);
+        this.condition = condition;
+        this.reorderable = reorderable;
+    }
+
+    public LogicalPlan getLeft() {
+        return getChildren().get(0);
+    }
+
+    public LogicalPlan getRight() {
+        return getChildren().get(1);
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public boolean isReorderable() {
+        return reorderable;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalJoin(newChildren.get(0), newChildren.get(1), condition, reorderable);
+    }
+
+    @Override
+    public String describe() {
+        return "Join(" + (condition == null ? "" : condition) + ")" + (reorderable ? " reorderable" : "");
+    }
+}
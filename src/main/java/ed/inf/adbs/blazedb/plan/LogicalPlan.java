@@ -0,0 +1,82 @@
+package ed.inf.adbs.blazedb.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node of the logical plan of a query: what is computed (scan, filter, join, aggregate, sort,
+ * project, distinct) without how. LogicalPlanBuilder builds the plan from the parsed query, the
+ * RewriteRules of a RuleEngine rewrite it, and PlanLowering turns it into Operators, choosing the
+ * physical operator of each node.
+ *
+ * Nodes are immutable: a rule builds a new node with withChildren() instead of changing one, so a rule
+ * that does not apply returns the same instance and the RuleEngine knows nothing changed.
+ */
+public abstract class LogicalPlan {
+
+    private final List<LogicalPlan> children;
+
+    protected LogicalPlan(LogicalPlan... children) {
+        this.children = Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    public List<LogicalPlan> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return The node with the given children, this node itself if they are the ones it has.
+     */
+    public LogicalPlan withChildren(List<LogicalPlan> newChildren) {
+        for (int i = 0; i < children.size(); i++) {
+            if (newChildren.get(i) != children.get(i)) {
+                return copy(newChildren);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return A node like this one over other children.
+     */
+    protected abstract LogicalPlan copy(List<LogicalPlan> newChildren);
+
+    /**
+     * @return The tables whose columns the node outputs, as named in the FROM clause, in the order of
+     *         their columns.
+     */
+    public List<String> getTables() {
+        List<String> tables = new ArrayList<>();
+        for (LogicalPlan child : children) {
+            tables.addAll(child.getTables());
+        }
+        return tables;
+    }
+
+    /**
+     * @return The node alone, without its children, e.g. Filter(Student.A = 1).
+     */
+    public abstract String describe();
+
+    /**
+     * @return The tree of the plan, a node per line, the children indented below their parent.
+     */
+    @Override
+    public String toString() {
+        StringBuilder tree = new StringBuilder();
+        appendTree(tree, 0);
+        return tree.toString();
+    }
+
+    private void appendTree(StringBuilder tree, int depth) {
+        for (int i = 0; i < depth; i++) {
+            tree.append("  ");
+        }
+        tree.append(describe()).append('\n');
+        for (LogicalPlan child : children) {
+            child.appendTree(tree, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ed.inf.adbs.blazedb.plan;
+
+import ed.inf.adbs.blazedb.query.QueryOptimizer;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LogicalPlanBuilder builds the logical plan of a query as written, before any rewrite:
+ * <pre>
+ *   Distinct (SELECT DISTINCT)
+ *     Project (SELECT)
+ *       Sort (ORDER BY)
+ *         Aggregate (GROUP BY or SUM)
+ *           Filter (WHERE)
+ *             Join ... Join (FROM, in its order, with the ON conditions)
+ *               Scan ...
+ * </pre>
+ */
+public final class LogicalPlanBuilder {
+
+    private LogicalPlanBuilder() {
+    }
+
+    public static LogicalPlan build(PlainSelect plainSelect) {
+        // the joins of FROM A, B, C may be reordered (see ReorderJoins), not those with an alias or ON
+        List<String> reorderableTables = QueryOptimizer.getFromTables(plainSelect);
+        boolean reorderable = reorderableTables != null && reorderableTables.size() > 1;
+
+        List<String> fromTables = new ArrayList<>();
+        fromTables.add(plainSelect.getFromItem().toString());
+        LogicalPlan plan = new LogicalScan(plainSelect.getFromItem());
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                FromItem rightItem = join.getRightItem();
+                List<Expression> onConditions = new ArrayList<>(join.getOnExpressions());
+                plan = new LogicalJoin(plan, new LogicalScan(rightItem), QueryOptimizer.mergeConditions(onConditions), reorderable);
+                fromTables.add(rightItem.toString());
+            }
+        }
+
+        if (plainSelect.getWhere() != null) {
+            plan = new LogicalFilter(plan, plainSelect.getWhere());
+        }
+
+        List<Function> sums = new ArrayList<>();
+        for (SelectItem<?> selectItem : plainSelect.getSelectItems()) {
+            if (selectItem.getExpression() instanceof Function) {
+                sums.add((Function) selectItem.getExpression());
+            }
+        }
+        if (plainSelect.getGroupBy() != null || !sums.isEmpty()) {
+            plan = new LogicalAggregate(plan, plainSelect.getGroupBy(), sums);
+        }
+
+        if (plainSelect.getOrderByElements() != null) {
+            plan = new LogicalSort(plan, plainSelect.getOrderByElements());
+        }
+
+        plan = new LogicalProject(plan, plainSelect.getSelectItems(), fromTables);
+
+        if (plainSelect.getDistinct() != null) {
+            plan = new LogicalDistinct(plan, plainSelect.getSelectItems());
+        }
+        return plan;
+    }
+}
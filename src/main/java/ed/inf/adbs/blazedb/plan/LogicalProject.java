@@ -0,0 +1,53 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.List;
+
+/**
+ * Keeps the columns of the SELECT clause. SELECT * keeps all the columns, in the order of the tables of
+ * the FROM clause as written even if the joins were reordered.
+ */
+public class LogicalProject extends LogicalPlan {
+
+    private final List<SelectItem<?>> selectItems;
+    private final List<String> fromTables;
+
+    /**
+     * @param fromTables The tables of the FROM clause as written, the column order of SELECT *.
+     */
+    public LogicalProject(LogicalPlan child, List<SelectItem<?>> selectItems, List<String> fromTables) {
+        super(child);
+        this.selectItems = selectItems;
+        this.fromTables = fromTables;
+    }
+
+    public LogicalPlan getChild() {
+        return getChildren().get(0);
+    }
+
+    public List<SelectItem<?>> getSelectItems() {
+        return selectItems;
+    }
+
+    public List<String> getFromTables() {
+        return fromTables;
+    }
+
+    /**
+     * @return True for SELECT *.
+     */
+    public boolean isAllColumns() {
+        return selectItems.get(0).toString().equals("*");
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalProject(newChildren.get(0), selectItems, fromTables);
+    }
+
+    @Override
+    public String describe() {
+        return "Project(" + (isAllColumns() ? "* of " + fromTables : selectItems) + ")";
+    }
+}
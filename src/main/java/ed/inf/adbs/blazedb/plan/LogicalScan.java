@@ -0,0 +1,37 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.statement.select.FromItem;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads all the rows of a table of the FROM clause.
+ */
+public class LogicalScan extends LogicalPlan {
+
+    private final FromItem table;
+
+    public LogicalScan(FromItem table) {
+        this.table = table;
+    }
+
+    public FromItem getTable() {
+        return table;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return this;
+    }
+
+    @Override
+    public List<String> getTables() {
+        return Collections.singletonList(table.toString());
+    }
+
+    @Override
+    public String describe() {
+        return "Scan(" + table + ")";
+    }
+}
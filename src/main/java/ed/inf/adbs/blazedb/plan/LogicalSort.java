@@ -0,0 +1,36 @@
+package ed.inf.adbs.blazedb.plan;
+
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+import java.util.List;
+
+/**
+ * Sorts the rows of its child on the ORDER BY elements.
+ */
+public class LogicalSort extends LogicalPlan {
+
+    private final List<OrderByElement> orderByElements;
+
+    public LogicalSort(LogicalPlan child, List<OrderByElement> orderByElements) {
+        super(child);
+        this.orderByElements = orderByElements;
+    }
+
+    public LogicalPlan getChild() {
+        return getChildren().get(0);
+    }
+
+    public List<OrderByElement> getOrderByElements() {
+        return orderByElements;
+    }
+
+    @Override
+    protected LogicalPlan copy(List<LogicalPlan> newChildren) {
+        return new LogicalSort(newChildren.get(0), orderByElements);
+    }
+
+    @Override
+    public String describe() {
+        return "Sort(" + orderByElements + ")";
+    }
+}
@@ -0,0 +1,135 @@
+package ed.inf.adbs.blazedb.plan;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Puts a Project right above the scan of every table, keeping only the columns of that table the query
+ * uses: in the SELECT clause (SUM arguments included), the selections and join conditions, the GROUP BY
+ * and the ORDER BY. The rows of each table then carry only those columns through the joins, and a
+ * columnar or compiled scan only reads or parses them.
+ *
+ * It applies from the Project of the SELECT clause, and not to SELECT *, to a table all of whose
+ * columns are used, or to a query with a column without its table, which cannot be told apart.
+ * A table none of whose columns are used (a cross join) keeps its first column.
+ */
+public class PruneColumns implements RewriteRule {
+
+    private final DBCatalogue dbCatalogue;
+
+    public PruneColumns(DBCatalogue dbCatalogue) {
+        this.dbCatalogue = dbCatalogue;
+    }
+
+    @Override
+    public String getName() {
+        return "prune columns";
+    }
+
+    @Override
+    public LogicalPlan apply(LogicalPlan node) {
+        if (!(node instanceof LogicalProject) || ((LogicalProject) node).isAllColumns()
+                || ((LogicalProject) node).getChild() instanceof LogicalScan) {
+            return node;
+        }
+        LogicalProject project = (LogicalProject) node;
+        Set<String> usedColumns = new HashSet<>();
+        boolean[] unqualified = {false};
+        ExpressionVisitorAdapter collector = new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                if (column.getTable() == null || column.getTable().getName() == null) {
+                    unqualified[0] = true;
+                } else {
+                    usedColumns.add(column.getFullyQualifiedName());
+                }
+            }
+        };
+        for (SelectItem<?> item : project.getSelectItems()) {
+            item.getExpression().accept(collector);
+        }
+        addUsedColumns(project.getChild(), collector);
+        if (unqualified[0]) {
+            return node;
+        }
+        return project.withChildren(Collections.singletonList(prune(project.getChild(), usedColumns)));
+    }
+
+    /**
+     * Visits the columns used by the nodes of a plan.
+     */
+    private static void addUsedColumns(LogicalPlan plan, ExpressionVisitorAdapter collector) {
+        if (plan instanceof LogicalFilter) {
+            ((LogicalFilter) plan).getCondition().accept(collector);
+        } else if (plan instanceof LogicalJoin && ((LogicalJoin) plan).getCondition() != null) {
+            ((LogicalJoin) plan).getCondition().accept(collector);
+        } else if (plan instanceof LogicalAggregate) {
+            LogicalAggregate aggregate = (LogicalAggregate) plan;
+            if (aggregate.getGroupBy() != null) {
+                for (Object groupBy : aggregate.getGroupBy().getGroupByExpressionList()) {
+                    ((Expression) groupBy).accept(collector);
+                }
+            }
+            for (Expression sum : aggregate.getSums()) {
+                sum.accept(collector);
+            }
+        } else if (plan instanceof LogicalSort) {
+            for (OrderByElement orderBy : ((LogicalSort) plan).getOrderByElements()) {
+                orderBy.getExpression().accept(collector);
+            }
+        } else if (plan instanceof LogicalProject) {
+            for (SelectItem<?> item : ((LogicalProject) plan).getSelectItems()) {
+                item.getExpression().accept(collector);
+            }
+        }
+        for (LogicalPlan child : plan.getChildren()) {
+            addUsedColumns(child, collector);
+        }
+    }
+
+    /**
+     * @return The plan with a Project on each scan that does not have one yet.
+     */
+    private LogicalPlan prune(LogicalPlan plan, Set<String> usedColumns) {
+        if (plan instanceof LogicalProject && ((LogicalProject) plan).getChild() instanceof LogicalScan) {
+            return plan;
+        }
+        if (plan instanceof LogicalScan) {
+            LogicalScan scan = (LogicalScan) plan;
+            if (!(scan.getTable() instanceof Table) || scan.getTable().getAlias() != null) {
+                return plan;
+            }
+            String table = ((Table) scan.getTable()).getName();
+            List<String> tableColumns = dbCatalogue.getTableColumns(table);
+            List<SelectItem<?>> items = new ArrayList<>();
+            for (String column : tableColumns) {
+                if (usedColumns.contains(table + "." + column)) {
+                    items.add(new SelectItem<>(new Column(new Table(table), column)));
+                }
+            }
+            if (items.size() == tableColumns.size()) {
+                return plan;
+            }
+            if (items.isEmpty()) {
+                items.add(new SelectItem<>(new Column(new Table(table), tableColumns.get(0))));
+            }
+            return new LogicalProject(scan, items, scan.getTables());
+        }
+        List<LogicalPlan> children = new ArrayList<>();
+        for (LogicalPlan child : plan.getChildren()) {
+            children.add(prune(child, usedColumns));
+        }
+        return plan.withChildren(children);
+    }
+}
@@ -0,0 +1,83 @@
+package ed.inf.adbs.blazedb.plan;
+
+import ed.inf.adbs.blazedb.query.QueryOptimizer;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pushes the conditions of a Filter down a Join, as close to the scans as they can go: a condition on
+ * the tables of one side becomes a Filter of that side (a selection on one table ends above its scan,
+ * where an index can be used), and a condition on both sides becomes the condition of the join, which
+ * can then use its equalities as keys. Two Filters on top of each other are merged.
+ *
+ * A condition without columns (WHERE 1 = 2) goes to the left, down to the first table scanned.
+ */
+public class PushDownSelections implements RewriteRule {
+
+    @Override
+    public String getName() {
+        return "push down selections";
+    }
+
+    @Override
+    public LogicalPlan apply(LogicalPlan node) {
+        if (!(node instanceof LogicalFilter)) {
+            return node;
+        }
+        LogicalFilter filter = (LogicalFilter) node;
+        if (filter.getChild() instanceof LogicalFilter) {
+            LogicalFilter below = (LogicalFilter) filter.getChild();
+            List<Expression> conditions = QueryOptimizer.extractConditions(below.getCondition());
+            conditions.addAll(QueryOptimizer.extractConditions(filter.getCondition()));
+            return withFilter(below.getChild(), conditions);
+        }
+        if (!(filter.getChild() instanceof LogicalJoin)) {
+            return node;
+        }
+
+        LogicalJoin join = (LogicalJoin) filter.getChild();
+        List<String> leftTables = join.getLeft().getTables();
+        List<String> rightTables = join.getRight().getTables();
+        List<Expression> leftConditions = new ArrayList<>();
+        List<Expression> rightConditions = new ArrayList<>();
+        List<Expression> joinConditions = QueryOptimizer.extractConditions(join.getCondition());
+        for (Expression condition : QueryOptimizer.extractConditions(filter.getCondition())) {
+            Set<String> tables = getReferencedTables(condition);
+            if (leftTables.containsAll(tables)) {
+                leftConditions.add(condition);
+            } else if (rightTables.containsAll(tables)) {
+                rightConditions.add(condition);
+            } else {
+                joinConditions.add(condition);
+            }
+        }
+        return new LogicalJoin(withFilter(join.getLeft(), leftConditions), withFilter(join.getRight(), rightConditions),
+                QueryOptimizer.mergeConditions(joinConditions), join.isReorderable());
+    }
+
+    private static LogicalPlan withFilter(LogicalPlan plan, List<Expression> conditions) {
+        return conditions.isEmpty() ? plan : new LogicalFilter(plan, QueryOptimizer.mergeConditions(conditions));
+    }
+
+    /**
+     * @return The tables of the columns of a condition, wherever they are in it.
+     */
+    static Set<String> getReferencedTables(Expression condition) {
+        Set<String> tables = new HashSet<>();
+        condition.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                if (column.getTable() != null && column.getTable().getName() != null) {
+                    tables.add(column.getTable().getName());
+                }
+            }
+        });
+        return tables;
+    }
+}
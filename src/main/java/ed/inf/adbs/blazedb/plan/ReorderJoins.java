@@ -0,0 +1,80 @@
+package ed.inf.adbs.blazedb.plan;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.query.JoinEnumerator;
+import ed.inf.adbs.blazedb.query.QueryOptimizer;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reorders the joins of FROM A, B, C (the reorderable joins built by LogicalPlanBuilder) in the order
+ * chosen by the JoinEnumerator, from the conditions of the WHERE clause above them. The joins are
+ * rebuilt left-deep, in the new order and no longer reorderable, with all the conditions in a Filter
+ * above them for PushDownSelections to place.
+ */
+public class ReorderJoins implements RewriteRule {
+
+    private final DBStatistics dbStatistics;
+
+    public ReorderJoins(DBStatistics dbStatistics) {
+        this.dbStatistics = dbStatistics;
+    }
+
+    @Override
+    public String getName() {
+        return "reorder joins";
+    }
+
+    @Override
+    public LogicalPlan apply(LogicalPlan node) {
+        List<Expression> conditions = new ArrayList<>();
+        LogicalPlan joins = node;
+        if (node instanceof LogicalFilter) {
+            conditions.addAll(QueryOptimizer.extractConditions(((LogicalFilter) node).getCondition()));
+            joins = ((LogicalFilter) node).getChild();
+        }
+        if (!(joins instanceof LogicalJoin) || !((LogicalJoin) joins).isReorderable()) {
+            return node;
+        }
+
+        // the tables joined (with the Filters already on them, kept with their table) and the conditions
+        // of the joins
+        Map<String, LogicalPlan> inputs = new HashMap<>();
+        List<String> tables = new ArrayList<>();
+        List<Expression> estimated = new ArrayList<>(conditions);
+        collectInputs(joins, inputs, tables, conditions, estimated);
+
+        List<String> order = new JoinEnumerator(tables, estimated, dbStatistics).order();
+        LogicalPlan plan = inputs.get(order.get(0));
+        for (int i = 1; i < order.size(); i++) {
+            plan = new LogicalJoin(plan, inputs.get(order.get(i)), null, false);
+        }
+        return conditions.isEmpty() ? plan : new LogicalFilter(plan, QueryOptimizer.mergeConditions(conditions));
+    }
+
+    /**
+     * @param conditions Gets the conditions of the joins.
+     * @param estimated Gets all the conditions, for the JoinEnumerator to estimate the rows.
+     */
+    private static void collectInputs(LogicalPlan plan, Map<String, LogicalPlan> inputs, List<String> tables,
+                                      List<Expression> conditions, List<Expression> estimated) {
+        if (plan instanceof LogicalJoin) {
+            LogicalJoin join = (LogicalJoin) plan;
+            collectInputs(join.getLeft(), inputs, tables, conditions, estimated);
+            collectInputs(join.getRight(), inputs, tables, conditions, estimated);
+            conditions.addAll(QueryOptimizer.extractConditions(join.getCondition()));
+            estimated.addAll(QueryOptimizer.extractConditions(join.getCondition()));
+            return;
+        }
+        if (plan instanceof LogicalFilter) {
+            estimated.addAll(QueryOptimizer.extractConditions(((LogicalFilter) plan).getCondition()));
+        }
+        String table = plan.getTables().get(0);
+        inputs.put(table, plan);
+        tables.add(table);
+    }
+}
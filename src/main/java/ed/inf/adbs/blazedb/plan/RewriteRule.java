@@ -0,0 +1,18 @@
+package ed.inf.adbs.blazedb.plan;
+
+/**
+ * A rewrite of the logical plan into an equivalent one, applied by a RuleEngine to every node.
+ */
+public interface RewriteRule {
+
+    /**
+     * @return The name of the rule, as printed when it rewrites the plan.
+     */
+    String getName();
+
+    /**
+     * Rewrites a node (and possibly the nodes below it).
+     * @return The rewritten node, or the node itself if the rule does not apply to it.
+     */
+    LogicalPlan apply(LogicalPlan node);
+}
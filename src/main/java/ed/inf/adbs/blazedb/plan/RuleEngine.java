@@ -0,0 +1,50 @@
+package ed.inf.adbs.blazedb.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RuleEngine rewrites a logical plan with its rules until none of them changes it (a fixpoint). A pass
+ * applies each rule in turn, in the order given, to every node of the plan from the root down: a node
+ * is rewritten first, then the children of the result, so a rule that pushes a node down sees it again
+ * at its new place in the same pass.
+ *
+ * The passes stop after MAX_PASSES in case rules undo each other, which they should not.
+ */
+public final class RuleEngine {
+
+    static final int MAX_PASSES = 100;
+
+    private final List<RewriteRule> rules;
+
+    public RuleEngine(RewriteRule... rules) {
+        this.rules = Arrays.asList(rules);
+    }
+
+    public LogicalPlan rewrite(LogicalPlan plan) {
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            LogicalPlan before = plan;
+            for (RewriteRule rule : rules) {
+                plan = applyEverywhere(rule, plan);
+            }
+            if (plan == before) {
+                return plan;
+            }
+        }
+        System.out.println("[REWRITE] no fixpoint after " + MAX_PASSES + " passes");
+        return plan;
+    }
+
+    private static LogicalPlan applyEverywhere(RewriteRule rule, LogicalPlan node) {
+        LogicalPlan rewritten = rule.apply(node);
+        if (rewritten != node) {
+            System.out.println("[REWRITE] " + rule.getName() + ": " + node.describe() + " -> " + rewritten.describe());
+        }
+        List<LogicalPlan> children = new ArrayList<>();
+        for (LogicalPlan child : rewritten.getChildren()) {
+            children.add(applyEverywhere(rule, child));
+        }
+        return rewritten.withChildren(children);
+    }
+}
@@ -0,0 +1,250 @@
+package ed.inf.adbs.blazedb.query;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JoinEnumerator chooses the order in which the tables of a query are joined, including which one is
+ * scanned first (the base table), with the dynamic programming of System R (Selinger): the cheapest
+ * plan joining each set of tables is built from the cheapest plans of its subsets, adding one table
+ * at a time. The plans are left-deep, the shape the interpreter builds (one table joined to the
+ * result so far at each step).
+ *
+ * The cost of a plan counts rows, as the scans and joins handle them:
+ * <ul>
+ *   <li>a table costs the rows of its file, read by its scan, and gives the rows left by its own
+ *   selection (see SelectivityEstimator, with the row counts of DBStatistics);</li>
+ *   <li>a join on equalities is costed as a hash join, the table being put in the hash table and the
+ *   left side probing it, and a join without equalities as a block nested loop join comparing every
+ *   pair (see PhysicalPlanner, which then chooses the method of each join of the order);</li>
+ *   <li>every join also costs the rows it outputs, its intermediate result: the product of the rows
+ *   of the inputs by the selectivity of the join conditions between them.</li>
+ * </ul>
+ * The table sets are enumerated up to MAX_DP_TABLES tables (-Dblazedb.join.dpLimit, 2^n subsets);
+ * above that the order is built greedily, adding at each step the table that makes the next join
+ * cheapest.
+ */
+public final class JoinEnumerator {
+
+    static final int MAX_DP_TABLES = Integer.getInteger("blazedb.join.dpLimit", 10);
+
+    private final List<String> tables;
+    private final double[] scanRows;    // rows read by the scan of each table
+    private final double[] rows;        // rows left by the selection of each table
+    private final int[] conditionTables; // the tables of each join condition, as a bit set
+    private final boolean[] equalities;  // whether each join condition is an equality of two columns
+    private final double[] joinSelectivities;
+
+    /**
+     * @param tables The tables of the query, in the order of the FROM clause.
+     * @param conditions The conjuncts of the WHERE clause.
+     */
+    public JoinEnumerator(List<String> tables, List<Expression> conditions, DBStatistics dbStatistics) {
+        this.tables = tables;
+        this.scanRows = new double[tables.size()];
+        this.rows = new double[tables.size()];
+
+        List<List<Expression>> selections = new ArrayList<>();
+        for (int t = 0; t < tables.size(); t++) {
+            selections.add(new ArrayList<>());
+        }
+        List<Expression> joinConditions = new ArrayList<>();
+        List<Integer> masks = new ArrayList<>();
+        for (Expression condition : conditions) {
+            int mask = maskOf(QueryOptimizer.getReferencedTables(condition));
+            if (Integer.bitCount(mask) == 1) {
+                selections.get(Integer.numberOfTrailingZeros(mask)).add(condition);
+            } else if (mask != 0) {
+                joinConditions.add(condition);
+                masks.add(mask);
+            }
+        }
+        this.conditionTables = new int[masks.size()];
+        this.equalities = new boolean[masks.size()];
+        this.joinSelectivities = new double[masks.size()];
+        for (int c = 0; c < conditionTables.length; c++) {
+            conditionTables[c] = masks.get(c);
+            Expression condition = joinConditions.get(c);
+            equalities[c] = condition instanceof EqualsTo && Integer.bitCount(masks.get(c)) == 2
+                    && ((EqualsTo) condition).getLeftExpression() instanceof Column
+                    && ((EqualsTo) condition).getRightExpression() instanceof Column;
+            joinSelectivities[c] = SelectivityEstimator.estimateJoin(condition, dbStatistics);
+        }
+        for (int t = 0; t < tables.size(); t++) {
+            scanRows[t] = Math.max(1, dbStatistics.getRowCount(tables.get(t)));
+            double selectivity = selections.get(t).isEmpty() ? 1.0
+                    : SelectivityEstimator.estimate(QueryOptimizer.mergeConditions(selections.get(t)), dbStatistics);
+            rows[t] = Math.max(1, scanRows[t] * selectivity);
+        }
+    }
+
+    /**
+     * @return The tables in the order to join them, the first one being the base table.
+     */
+    public List<String> order() {
+        int[] order = tables.size() <= MAX_DP_TABLES ? dynamicProgramming() : greedy();
+        List<String> ordered = new ArrayList<>();
+        for (int t : order) {
+            ordered.add(tables.get(t));
+        }
+        System.out.println("[JOIN ORDER] " + ordered + " estimated cost " + String.format("%.0f", cost(order))
+                + (tables.size() <= MAX_DP_TABLES ? "" : " (greedy)"));
+        return ordered;
+    }
+
+    /**
+     * Finds the cheapest left-deep order: best[set] is the cheapest plan joining the tables of the set,
+     * the cheapest of best[set without t] joined with t for every t of the set.
+     */
+    private int[] dynamicProgramming() {
+        int n = tables.size();
+        int sets = 1 << n;
+        double[] bestCost = new double[sets];
+        double[] setRows = new double[sets];
+        int[] lastTable = new int[sets];   // the table joined last in the best plan of each set
+        Arrays.fill(bestCost, Double.MAX_VALUE);
+        for (int t = 0; t < n; t++) {
+            bestCost[1 << t] = scanRows[t];
+            setRows[1 << t] = rows[t];
+            lastTable[1 << t] = t;
+        }
+        for (int set = 1; set < sets; set++) {
+            if (Integer.bitCount(set) < 2) {
+                continue;
+            }
+            int first = Integer.numberOfTrailingZeros(set);
+            setRows[set] = joinRows(setRows[set & ~(1 << first)], set & ~(1 << first), first);
+            for (int t = 0; t < n; t++) {
+                int rest = set & ~(1 << t);
+                if ((set & (1 << t)) == 0 || bestCost[rest] == Double.MAX_VALUE) {
+                    continue;
+                }
+                double cost = bestCost[rest] + joinCost(setRows[rest], rest, t) + setRows[set];
+                // on a tie the table that comes later in the FROM clause is joined last, keeping its order
+                if (cost <= bestCost[set]) {
+                    bestCost[set] = cost;
+                    lastTable[set] = t;
+                }
+            }
+        }
+        int[] order = new int[n];
+        int set = sets - 1;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = lastTable[set];
+            set &= ~(1 << order[i]);
+        }
+        return order;
+    }
+
+    /**
+     * Builds the order one table at a time: the table with the fewest rows first, then the table that
+     * makes the next join (and its result) cheapest.
+     */
+    private int[] greedy() {
+        int n = tables.size();
+        int[] order = new int[n];
+        int first = 0;
+        for (int t = 1; t < n; t++) {
+            if (rows[t] < rows[first]) {
+                first = t;
+            }
+        }
+        order[0] = first;
+        int set = 1 << first;
+        double setRows = rows[first];
+        for (int i = 1; i < n; i++) {
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            double bestRows = 0;
+            for (int t = 0; t < n; t++) {
+                if ((set & (1 << t)) != 0) {
+                    continue;
+                }
+                double joined = joinRows(setRows, set, t);
+                double cost = joinCost(setRows, set, t) + joined;
+                if (cost < bestCost) {
+                    best = t;
+                    bestCost = cost;
+                    bestRows = joined;
+                }
+            }
+            order[i] = best;
+            set |= 1 << best;
+            setRows = bestRows;
+        }
+        return order;
+    }
+
+    /**
+     * @return The cost of a left-deep order, as counted by dynamicProgramming().
+     */
+    private double cost(int[] order) {
+        int set = 1 << order[0];
+        double setRows = rows[order[0]];
+        double cost = scanRows[order[0]];
+        for (int i = 1; i < order.length; i++) {
+            cost += joinCost(setRows, set, order[i]);
+            setRows = joinRows(setRows, set, order[i]);
+            set |= 1 << order[i];
+            cost += setRows;
+        }
+        return cost;
+    }
+
+    /**
+     * @return The cost of scanning table t and joining it with the leftRows rows of the tables of left,
+     *         without its output.
+     */
+    private double joinCost(double leftRows, int left, int t) {
+        boolean equality = false;
+        for (int c = 0; c < conditionTables.length; c++) {
+            if (equalities[c] && isApplicable(c, left, t)) {
+                equality = true;
+                break;
+            }
+        }
+        double join = equality ? PhysicalPlanner.hashJoinCost(leftRows, rows[t])
+                : PhysicalPlanner.nestedLoopJoinCost(leftRows, rows[t]);
+        return scanRows[t] + join;
+    }
+
+    /**
+     * @return The rows of the join of the leftRows rows of the tables of left with table t.
+     */
+    private double joinRows(double leftRows, int left, int t) {
+        double joined = leftRows * rows[t];
+        for (int c = 0; c < conditionTables.length; c++) {
+            if (isApplicable(c, left, t)) {
+                joined *= joinSelectivities[c];
+            }
+        }
+        return Math.max(1, joined);
+    }
+
+    /**
+     * @return True if join condition c is checked by the join of table t with the tables of left: it
+     *         refers to t and otherwise only to tables of left.
+     */
+    private boolean isApplicable(int c, int left, int t) {
+        int tables = conditionTables[c];
+        return (tables & (1 << t)) != 0 && (tables & ~(left | (1 << t))) == 0;
+    }
+
+    private int maskOf(Set<String> referenced) {
+        int mask = 0;
+        for (String table : referenced) {
+            int t = tables.indexOf(table);
+            if (t >= 0) {
+                mask |= 1 << t;
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,249 @@
+package ed.inf.adbs.blazedb.query;
+
+import ed.inf.adbs.blazedb.dbcatalogue.ColumnStatistics;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.FromItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PhysicalPlanner chooses the operator of each step of a query plan by cost: the join method of each
+ * join and the aggregation method of a GROUP BY. It follows the plan as the interpreter builds it,
+ * estimating the rows of every step (with SelectivityEstimator and the statistics of DBStatistics),
+ * and keeps the steps so the chosen plan can be printed.
+ *
+ * Costs are counted in rows read from a table file: a hash table insert costs HASH_BUILD_COST,
+ * a lookup HASH_PROBE_COST, a comparison of an in-memory sort SORT_COMPARE_COST (n log2 n of them),
+ * a pair of a nested loop join NESTED_LOOP_PAIR_COST, and a row merged or grouped from sorted input
+ * STREAM_COST. The order an operator produces counts too: a sort-merge join on the ORDER BY or GROUP BY
+ * columns saves the sort that the other joins leave to be done after them.
+ */
+public final class PhysicalPlanner {
+
+    static final double HASH_BUILD_COST = 2;
+    static final double HASH_PROBE_COST = 1;
+    static final double SORT_COMPARE_COST = 0.2;
+    static final double NESTED_LOOP_PAIR_COST = 0.1;
+    static final double STREAM_COST = 1;
+    static final double DEFAULT_GROUP_VALUES = 1 / SelectivityEstimator.DEFAULT_EQUAL; // values of a column without statistics
+
+    /**
+     * The join methods, as named in the plan.
+     */
+    public enum JoinMethod {
+        HASH("hash join"),
+        SORT_MERGE("sort-merge join"),
+        NESTED_LOOP("nested loop join"),
+        INDEX_NESTED_LOOP("index nested loop join");
+
+        private final String name;
+
+        JoinMethod(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final DBStatistics dbStatistics;
+    private final List<String> steps = new ArrayList<>();
+
+    public PhysicalPlanner(DBStatistics dbStatistics) {
+        this.dbStatistics = dbStatistics;
+    }
+
+    /**
+     * @param selection The selection pushed down on the table, or null.
+     * @return The estimated rows of a table after its selection.
+     */
+    public double estimateRows(FromItem table, Expression selection) {
+        double rows = tableRows(table);
+        return Math.max(1, selection == null ? rows : rows * SelectivityEstimator.estimate(selection, dbStatistics));
+    }
+
+    /**
+     * @return The rows of the file of a table, read by a full scan.
+     */
+    public double tableRows(FromItem table) {
+        return table instanceof Table ? Math.max(1, dbStatistics.getRowCount(((Table) table).getName())) : 1;
+    }
+
+    /**
+     * @param conditions The join conditions checked by the join.
+     * @return The estimated rows of the join of two inputs.
+     */
+    public double estimateJoinRows(double leftRows, double rightRows, List<Expression> conditions) {
+        double rows = leftRows * rightRows;
+        if (!conditions.isEmpty()) {
+            rows *= SelectivityEstimator.estimateJoin(QueryOptimizer.mergeConditions(conditions), dbStatistics);
+        }
+        return Math.max(1, rows);
+    }
+
+    /**
+     * @param groupColumns The GROUP BY columns, as Table.Column.
+     * @return The estimated number of groups of the rows: the product of the distinct counts of the
+     *         columns, at most the rows.
+     */
+    public double estimateGroups(List<String> groupColumns, double rows) {
+        double groups = 1;
+        for (String column : groupColumns) {
+            int dot = column.indexOf('.');
+            ColumnStatistics statistics = dbStatistics.getStatistics(column.substring(0, dot), column.substring(dot + 1));
+            groups *= statistics == null ? DEFAULT_GROUP_VALUES : statistics.getDistinctCount();
+        }
+        return Math.max(1, Math.min(rows, groups));
+    }
+
+    public static double sortCost(double rows) {
+        return rows <= 1 ? 0 : rows * (Math.log(rows) / Math.log(2)) * SORT_COMPARE_COST;
+    }
+
+    /**
+     * @return The cost of a hash join: the right input is put in the hash table, the left one probes it.
+     */
+    public static double hashJoinCost(double leftRows, double rightRows) {
+        return rightRows * HASH_BUILD_COST + leftRows * HASH_PROBE_COST;
+    }
+
+    /**
+     * @return The cost of a block nested loop join, comparing every pair.
+     */
+    public static double nestedLoopJoinCost(double leftRows, double rightRows) {
+        return leftRows * rightRows * NESTED_LOOP_PAIR_COST;
+    }
+
+    /**
+     * @return The cost of a sort-merge join: the inputs not already sorted on their keys are sorted,
+     *         then both are merged.
+     */
+    public static double sortMergeJoinCost(double leftRows, double rightRows, boolean leftSorted, boolean rightSorted) {
+        return (leftSorted ? 0 : sortCost(leftRows)) + (rightSorted ? 0 : sortCost(rightRows))
+                + (leftRows + rightRows) * STREAM_COST;
+    }
+
+    /**
+     * @return The cost of grouping rows, by hash or by sort (the sort is free if the rows are already
+     *         sorted on the GROUP BY columns), the cheaper of the two.
+     * @param orderedOutput True if the output is wanted in the order of the groups (ORDER BY on them):
+     *                      the groups of a hash aggregation then have to be sorted.
+     */
+    public static double aggregateCost(double rows, double groups, boolean sorted, boolean orderedOutput) {
+        return Math.min(hashAggregateCost(rows, groups, orderedOutput), sortAggregateCost(rows, sorted));
+    }
+
+    private static double hashAggregateCost(double rows, double groups, boolean orderedOutput) {
+        return rows * HASH_BUILD_COST + (orderedOutput ? sortCost(groups) : 0);
+    }
+
+    private static double sortAggregateCost(double rows, boolean sorted) {
+        return (sorted ? 0 : sortCost(rows)) + rows * STREAM_COST;
+    }
+
+    /**
+     * Chooses the join method of the join of the left input (the tables joined so far) with a table.
+     * @param rightAccess The scan of the table and its selection, as a step of the plan.
+     * @param rightRows The rows of the table after its selection.
+     * @param rightScanRows The rows read by the scan of the table.
+     * @param outputRows The estimated rows of the join.
+     * @param equiJoin True if the join has equality keys (needed by the hash, sort-merge and index joins).
+     * @param leftSorted True if the left input is already sorted on its keys.
+     * @param rightSorted True if the table is already sorted on its keys.
+     * @param orderSaving The cost saved after the join if its output is sorted on the keys (see
+     *                    sortOrderSaving()), added to the other joins; 0 if that order is of no use.
+     * @param indexProbeCost The cost of a probe of an index of the table on a key, or a negative number
+     *                       if there is no index to probe.
+     * @return The cheapest method.
+     */
+    public JoinMethod chooseJoin(String table, String rightAccess, double leftRows, double rightRows, double rightScanRows, double outputRows,
+                                 boolean equiJoin, boolean leftSorted, boolean rightSorted, double orderSaving,
+                                 double indexProbeCost) {
+        Map<JoinMethod, Double> costs = new LinkedHashMap<>();
+        // the joins other than the sort-merge join leave the sort of their output to be done after them
+        if (equiJoin) {
+            costs.put(JoinMethod.HASH, rightScanRows + hashJoinCost(leftRows, rightRows) + orderSaving);
+            costs.put(JoinMethod.SORT_MERGE, rightScanRows + sortMergeJoinCost(leftRows, rightRows, leftSorted, rightSorted));
+            if (indexProbeCost >= 0) {
+                // the table is not scanned, its rows are found by the probes
+                costs.put(JoinMethod.INDEX_NESTED_LOOP, leftRows * indexProbeCost + orderSaving);
+            }
+        }
+        costs.put(JoinMethod.NESTED_LOOP, rightScanRows + nestedLoopJoinCost(leftRows, rightRows) + orderSaving);
+
+        JoinMethod best = null;
+        StringBuilder alternatives = new StringBuilder();
+        for (Map.Entry<JoinMethod, Double> cost : costs.entrySet()) {
+            if (best == null || cost.getValue() < costs.get(best)) {
+                best = cost.getKey();
+            }
+            alternatives.append(alternatives.length() == 0 ? "" : ", ").append(cost.getKey()).append(' ')
+                    .append(String.format("%.0f", cost.getValue()));
+        }
+        System.out.println("[PHYSICAL] join with " + table + ": " + alternatives + " -> " + best);
+        if (best != JoinMethod.INDEX_NESTED_LOOP) {
+            record(rightAccess, rightRows, rightScanRows);
+        }
+        record(best + " with " + table, outputRows, costs.get(best));
+        return best;
+    }
+
+    /**
+     * @return The cost saved after a join whose output is sorted on the columns the query needs sorted:
+     *         the sort of an ORDER BY, or the grouping of a GROUP BY on sorted rows.
+     * @param aggregation True if the columns are those of a GROUP BY, false for an ORDER BY.
+     */
+    public static double sortOrderSaving(double rows, double groups, boolean aggregation, boolean orderedOutput) {
+        if (!aggregation) {
+            return sortCost(rows);
+        }
+        return aggregateCost(rows, groups, false, orderedOutput) - aggregateCost(rows, groups, true, orderedOutput);
+    }
+
+    /**
+     * Chooses between grouping by hash (SumOperator) and by sort (SumOperator on sorted rows).
+     * @param sorted True if the rows are already sorted on the GROUP BY columns.
+     * @param orderedOutput True if the query is ordered by the GROUP BY columns.
+     * @return True to group by sort.
+     */
+    public boolean chooseSortAggregate(double rows, double groups, boolean sorted, boolean orderedOutput) {
+        double hash = hashAggregateCost(rows, groups, orderedOutput);
+        double sort = sortAggregateCost(rows, sorted);
+        boolean sortAggregate = sort < hash;
+        System.out.println(String.format("[PHYSICAL] aggregation of about %s rows in about %s groups: hash %.0f, %s %.0f -> %s",
+                rows(rows), rows(groups), hash, sorted ? "sorted input" : "sort", sort, sortAggregate ? "sort" : "hash"));
+        record((sortAggregate ? sorted ? "sort aggregation (input already sorted)" : "sort aggregation" : "hash aggregation"),
+                groups, Math.min(hash, sort));
+        return sortAggregate;
+    }
+
+    /**
+     * Adds a step to the plan.
+     * @param rows The estimated rows of the step, or a negative number if not estimated.
+     * @param cost The estimated cost of the step, or a negative number if not estimated.
+     */
+    public void record(String step, double rows, double cost) {
+        steps.add(step + (rows < 0 ? "" : ", about " + rows(rows) + " rows")
+                + (cost < 0 ? "" : String.format(", cost %.0f", cost)));
+    }
+
+    /**
+     * Prints the steps of the plan, from the first table scanned to the output.
+     */
+    public void printPlan() {
+        for (int i = 0; i < steps.size(); i++) {
+            System.out.println("[PLAN] " + (i + 1) + ". " + steps.get(i));
+        }
+    }
+
+    private static String rows(double rows) {
+        return String.format("%.0f", rows);
+    }
+}
@@ -0,0 +1,364 @@
+package ed.inf.adbs.blazedb.query;
+
+import ed.inf.adbs.blazedb.codegen.PipelineCompiler;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.operator.*;
+import ed.inf.adbs.blazedb.plan.*;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.*;
+
+/**
+ * PlanLowering turns a rewritten logical plan into the Operators that run it, choosing the physical
+ * operator of each node as it goes, bottom up:
+ * <ul>
+ *   <li>a Scan, with the Filter and Project right above it, becomes the access path of its table:
+ *   a columnar scan checking the selection on the encoded columns, or an index, bitmap or cracker scan
+ *   (see QueryOptimizer) or a full scan skipping blocks with its zone map, then a SelectOperator;</li>
+ *   <li>a Join becomes a hash, sort-merge, index nested loop or nested loop join, the cheapest for the
+ *   PhysicalPlanner, which follows the estimated rows of each step;</li>
+ *   <li>an Aggregate groups by hash or by sort, and a Sort is left out if the rows already come in
+ *   its order (sort-merge join, sort aggregation).</li>
+ * </ul>
+ * A PlanLowering lowers the plan of one query.
+ */
+public class PlanLowering {
+
+    private final DBCatalogue dbCatalogue;
+    private final PhysicalPlanner planner;
+
+    // What the query is grouped and ordered by, found before lowering so that the last join can produce
+    // the order the rest of the plan needs with a sort-merge join: the GROUP BY columns for a sort
+    // aggregation, or else the ORDER BY columns.
+    private boolean aggregation;
+    private List<String> orderByColumns = Collections.emptyList();
+    private List<String> groupByColumns = Collections.emptyList();
+    private List<String> interestingOrder;
+    private boolean orderedGroups; // true if the groups are wanted in their order, which a sort aggregation gives
+    // columns that are equal after a sort-merge join (right key -> left key), used to check the final order
+    private final Map<String, String> sortEquivalences = new HashMap<>();
+    private double rows; // the estimated rows of the operator lowered last
+
+    public PlanLowering(DBCatalogue dbCatalogue, PhysicalPlanner planner) {
+        this.dbCatalogue = dbCatalogue;
+        this.planner = planner;
+    }
+
+    /**
+     * @return The root of the operators of the plan.
+     */
+    public Operator lower(LogicalPlan plan) {
+        findOrders(plan);
+        interestingOrder = aggregation ? groupByColumns : orderByColumns;
+        orderedGroups = !groupByColumns.isEmpty() && !orderByColumns.isEmpty()
+                && QueryOptimizer.isOrderSatisfied(orderByColumns, groupByColumns, Collections.<String, String>emptyMap());
+        return lowerNode(plan);
+    }
+
+    private void findOrders(LogicalPlan plan) {
+        if (plan instanceof LogicalSort) {
+            orderByColumns = QueryOptimizer.getOrderByColumns(((LogicalSort) plan).getOrderByElements());
+        } else if (plan instanceof LogicalAggregate) {
+            aggregation = true;
+            groupByColumns = QueryOptimizer.getGroupByColumns(((LogicalAggregate) plan).getGroupBy());
+        }
+        for (LogicalPlan child : plan.getChildren()) {
+            findOrders(child);
+        }
+    }
+
+    private Operator lowerNode(LogicalPlan node) {
+        if (isAccessPath(node)) {
+            AccessPath path = lowerAccessPath(node);
+            rows = path.rows;
+            planner.record(describeScan(path.access, path.table, path.condition), rows, path.scanRows);
+            return path.operator;
+        } else if (node instanceof LogicalJoin) {
+            return lowerJoin((LogicalJoin) node, true);
+        } else if (node instanceof LogicalFilter) {
+            Expression condition = ((LogicalFilter) node).getCondition();
+            Operator child = lowerNode(((LogicalFilter) node).getChild());
+            planner.record("selection " + condition, -1, -1);
+            return new SelectOperator(child, condition);
+        } else if (node instanceof LogicalAggregate) {
+            return lowerAggregate((LogicalAggregate) node);
+        } else if (node instanceof LogicalSort) {
+            return lowerSort((LogicalSort) node);
+        } else if (node instanceof LogicalProject) {
+            return lowerProject((LogicalProject) node);
+        } else if (node instanceof LogicalDistinct) {
+            return lowerDistinct((LogicalDistinct) node);
+        }
+        throw new IllegalArgumentException("Unknown logical plan node " + node.describe());
+    }
+
+    /**
+     * @return True for a Scan, with possibly a Project then a Filter above it (see EarlyProjection,
+     *         PruneColumns and PushDownSelections), lowered together as the access path of the table.
+     */
+    private static boolean isAccessPath(LogicalPlan node) {
+        if (node instanceof LogicalFilter) {
+            node = ((LogicalFilter) node).getChild();
+        }
+        if (node instanceof LogicalProject && !((LogicalProject) node).isAllColumns()) {
+            node = ((LogicalProject) node).getChild();
+        }
+        return node instanceof LogicalScan;
+    }
+
+    /**
+     * The operators reading a table, and what they read.
+     */
+    private static final class AccessPath {
+        Operator operator;  // the top operator
+        Operator access;    // the scan reading the table
+        FromItem table;
+        Expression condition; // the selection on the table, or null
+        double rows;        // the estimated rows after the selection
+        double scanRows;    // the rows read by the scan
+    }
+
+    private AccessPath lowerAccessPath(LogicalPlan node) {
+        AccessPath path = new AccessPath();
+        if (node instanceof LogicalFilter) {
+            path.condition = ((LogicalFilter) node).getCondition();
+            node = ((LogicalFilter) node).getChild();
+        }
+        List<SelectItem<?>> projection = null;
+        if (node instanceof LogicalProject) {
+            projection = ((LogicalProject) node).getSelectItems();
+            node = ((LogicalProject) node).getChild();
+        }
+        path.table = ((LogicalScan) node).getTable();
+
+        Operator scan = newScan(path.table, projection);
+        path.access = scan;
+        path.operator = projection == null ? scan : new ProjectOperator(scan, projection);
+        Expression condition = path.condition;
+        if (condition != null) {
+            System.out.println("[PUSH DOWN] on " + path.table + " with statement " + condition);
+            if (scan instanceof ColumnarScanOperator) {
+                // checked on the encoded columns, below the projection if there is one
+                ((ColumnarScanOperator) scan).pushCondition(condition);
+            } else {
+                IndexScanOperator indexScan = null;
+                BitmapScanOperator bitmapScan = null;
+                if (scan instanceof ScanOperator) {
+                    ((ScanOperator) scan).pruneBlocks(condition);
+                    indexScan = QueryOptimizer.chooseIndexScan(((ScanOperator) scan).getTableName(), condition, dbCatalogue);
+                    bitmapScan = QueryOptimizer.chooseBitmapScan((ScanOperator) scan, condition, indexScan, dbCatalogue);
+                    if (bitmapScan == null) {
+                        bitmapScan = QueryOptimizer.chooseCrackerScan((ScanOperator) scan, condition, indexScan, dbCatalogue);
+                    }
+                }
+                if (bitmapScan != null) {
+                    // only the rows of the AND of the bitmaps (or of the cracked range) are read, the selection still checks the rest
+                    System.out.println("[BITMAP] using " + bitmapScan);
+                    path.access = bitmapScan;
+                } else if (indexScan != null) {
+                    // only the rows in the key range are read, the selection still checks the rest
+                    System.out.println("[INDEX] using " + indexScan);
+                    path.access = indexScan;
+                }
+                path.operator = projection == null ? path.access : new ProjectOperator(path.access, projection);
+                path.operator = new SelectOperator(path.operator, condition);
+            }
+        }
+
+        // Optionally fuse the scan, selection and projection of the table into one generated class. Without
+        // a selection there is nothing to fuse: the projection of a batch only picks its columns
+        if (PipelineCompiler.ENABLED && condition != null) {
+            path.operator = PipelineCompiler.tryCompile(path.operator);
+        }
+        path.rows = planner.estimateRows(path.table, condition);
+        path.scanRows = path.access instanceof ScanOperator ? planner.tableRows(path.table) : path.rows;
+        return path;
+    }
+
+    /**
+     * Lowers a join of the left-deep plan, its left input first.
+     * @param lastJoin True for the top join, whose output order the rest of the plan may use.
+     */
+    private Operator lowerJoin(LogicalJoin join, boolean lastJoin) {
+        Operator left = join.getLeft() instanceof LogicalJoin ? lowerJoin((LogicalJoin) join.getLeft(), false)
+                : lowerNode(join.getLeft());
+        if (!isAccessPath(join.getRight())) {
+            throw new IllegalStateException("The right input of a join must be a table: " + join.getRight().describe());
+        }
+        AccessPath right = lowerAccessPath(join.getRight());
+        Set<String> joinedTables = new HashSet<>(join.getLeft().getTables());
+        String rightTableName = right.table.toString();
+        List<Expression> joinConditions = QueryOptimizer.extractConditions(join.getCondition());
+        System.out.println("Processing with join table " + rightTableName + ", join conditions: " + joinConditions);
+
+        // Equality conditions between the joined tables and the new table (e.g. Student.A = Enrolled.A)
+        // are used as hash join keys. The nested loop is only kept for theta and cross joins.
+        List<Column> leftKeys = new ArrayList<>();
+        List<Column> rightKeys = new ArrayList<>();
+        List<Expression> keyConditions = new ArrayList<>();
+        List<Expression> residualConditions = new ArrayList<>();
+        for (Expression condition : joinConditions) {
+            if (QueryOptimizer.isEquiJoinCondition(condition, joinedTables, rightTableName)) {
+                rightKeys.add(QueryOptimizer.getJoinColumn(condition, rightTableName));
+                leftKeys.add(QueryOptimizer.getOtherJoinColumn(condition, rightTableName));
+                keyConditions.add(condition);
+            } else {
+                residualConditions.add(condition);
+            }
+        }
+
+        // Cost the join methods. If the rest of the plan needs the output sorted on the join keys
+        // (ORDER BY or GROUP BY), a sort-merge join on the last join saves that sort.
+        double outputRows = planner.estimateJoinRows(rows, right.rows, joinConditions);
+        double orderSaving = 0;
+        if (!leftKeys.isEmpty() && lastJoin && !interestingOrder.isEmpty()
+                && QueryOptimizer.alignKeysWithOrder(interestingOrder, leftKeys, rightKeys)) {
+            orderSaving = PhysicalPlanner.sortOrderSaving(outputRows,
+                    planner.estimateGroups(groupByColumns, outputRows), aggregation, orderedGroups);
+        }
+        IndexScanOperator indexJoin = right.access instanceof ScanOperator && !rightKeys.isEmpty()
+                ? QueryOptimizer.chooseIndexJoin(rightTableName, rightKeys, dbCatalogue) : null;
+        PhysicalPlanner.JoinMethod joinMethod = planner.chooseJoin(rightTableName,
+                describeScan(right.access, right.table, right.condition), rows, right.rows, right.scanRows,
+                outputRows, !leftKeys.isEmpty(),
+                QueryOptimizer.isSortedOn(left.getSortOrder(), leftKeys),
+                QueryOptimizer.isSortedOn(right.operator.getSortOrder(), rightKeys),
+                orderSaving, indexJoin == null ? -1 : QueryOptimizer.indexProbeCost(indexJoin));
+        rows = outputRows;
+
+        if (joinMethod == PhysicalPlanner.JoinMethod.SORT_MERGE) {
+            Expression residualExpr = QueryOptimizer.mergeConditions(residualConditions);
+            System.out.println("Sort merge join keys used now: " + leftKeys + " = " + rightKeys + ", residual: " + residualExpr);
+            for (int k = 0; k < leftKeys.size(); k++) {
+                sortEquivalences.put(rightKeys.get(k).getFullyQualifiedName(), leftKeys.get(k).getFullyQualifiedName());
+            }
+            return new SortMergeJoinOperator(left, right.operator, leftKeys, rightKeys, residualExpr);
+        } else if (joinMethod == PhysicalPlanner.JoinMethod.INDEX_NESTED_LOOP) {
+            // probe the index of the right table for each (few) tuple of the left input
+            int k = 0;
+            while (!rightKeys.get(k).getColumnName().equals(indexJoin.getIndex().getColumn())) {
+                k++;
+            }
+            List<Expression> otherConditions = new ArrayList<>(joinConditions);
+            for (Expression keyCondition : keyConditions) {
+                if (QueryOptimizer.getJoinColumn(keyCondition, rightTableName).getFullyQualifiedName()
+                        .equals(rightKeys.get(k).getFullyQualifiedName())) {
+                    otherConditions.remove(keyCondition);
+                    break;
+                }
+            }
+            Operator indexNestedLoopJoin = new IndexNestedLoopJoinOperator(left, indexJoin,
+                    leftKeys.get(k), right.condition, QueryOptimizer.mergeConditions(otherConditions));
+            System.out.println("[INDEX JOIN] " + indexNestedLoopJoin);
+            return indexNestedLoopJoin;
+        } else if (joinMethod == PhysicalPlanner.JoinMethod.HASH) {
+            Expression residualExpr = QueryOptimizer.mergeConditions(residualConditions);
+            System.out.println("Hash join keys used now: " + leftKeys + " = " + rightKeys + ", residual: " + residualExpr);
+            return new HashJoinOperator(left, right.operator, leftKeys, rightKeys, residualExpr);
+        }
+        Expression joinConditionExpr = QueryOptimizer.mergeConditions(joinConditions);
+        System.out.println("Join condition used now: " + joinConditionExpr);
+        return new JoinOperator(left, right.operator, joinConditionExpr);
+    }
+
+    /**
+     * Lowers a GROUP BY or SUM: the groups are found by hash, or by sort if that is cheaper (e.g. the
+     * rows are already sorted on the GROUP BY columns).
+     */
+    private Operator lowerAggregate(LogicalAggregate aggregate) {
+        Operator child = lowerNode(aggregate.getChild());
+        boolean sortAggregate = false;
+        if (!groupByColumns.isEmpty()) {
+            boolean sorted = QueryOptimizer.isOrderSatisfied(groupByColumns, child.getSortOrder(), sortEquivalences);
+            double groups = planner.estimateGroups(groupByColumns, rows);
+            sortAggregate = planner.chooseSortAggregate(rows, groups, sorted, orderedGroups);
+            if (sortAggregate && !sorted) {
+                child = new SortOperator(child, QueryOptimizer.toOrderByElements(groupByColumns));
+            }
+            rows = groups;
+        } else {
+            rows = aggregate.getGroupBy() == null ? 1 : rows;
+            planner.record(aggregate.getGroupBy() == null ? "aggregation into one group" : "hash aggregation", rows, -1);
+        }
+        return new SumOperator(child, aggregate.getGroupBy(), aggregate.getSums(), sortAggregate);
+    }
+
+    /**
+     * Lowers an ORDER BY, unless the plan already produces the tuples in that order (sort-merge join,
+     * sort aggregation).
+     */
+    private Operator lowerSort(LogicalSort sort) {
+        Operator child = lowerNode(sort.getChild());
+        if (!orderByColumns.isEmpty()
+                && QueryOptimizer.isOrderSatisfied(orderByColumns, child.getSortOrder(), sortEquivalences)) {
+            System.out.println("[ORDER BY] already satisfied by " + child.getSortOrder());
+            planner.record("order " + orderByColumns + " already satisfied", -1, -1);
+            return child;
+        }
+        System.out.println("[ORDER BY] with statement " + sort.getOrderByElements());
+        planner.record("sort on " + sort.getOrderByElements(), rows, PhysicalPlanner.sortCost(rows));
+        return new SortOperator(child, sort.getOrderByElements());
+    }
+
+    private Operator lowerProject(LogicalProject project) {
+        Operator child = lowerNode(project.getChild());
+        if (!project.isAllColumns()) {
+            return new ProjectOperator(child, project.getSelectItems());
+        }
+        if (!project.getFromTables().equals(project.getChild().getTables())) {
+            // SELECT * keeps the columns in the order of the tables in the FROM clause as written
+            return new ProjectOperator(child, QueryOptimizer.getAllColumns(project.getFromTables(), dbCatalogue));
+        }
+        return child;
+    }
+
+    private Operator lowerDistinct(LogicalDistinct distinct) {
+        Operator child = lowerNode(distinct.getChild());
+        if (distinct.getSelectItems().isEmpty()) {
+            System.out.println("Distinct column: " + "No column specified");
+            return child;
+        }
+        String distinctColumn = distinct.getSelectItems().get(0).toString();
+        System.out.println("Distinct column: " + distinctColumn);
+        planner.record("duplicate elimination", -1, -1);
+        return new DuplicateEliminationOperator(child, distinctColumn);
+    }
+
+    /**
+     * @return The access path of a table and its selection, as a step of the plan.
+     */
+    private static String describeScan(Operator scan, FromItem table, Expression selection) {
+        String access = scan instanceof ScanOperator ? "full scan of " + table
+                : scan instanceof ColumnarScanOperator ? "columnar scan of " + table : scan.toString();
+        return access + (selection == null ? "" : " where " + selection);
+    }
+
+    /**
+     * Scans a table from its columnar file if it has an up to date one, reading only the columns
+     * of the projection on the table, and from its CSV file otherwise.
+     * @param projection The columns of the table the query uses, or null if it uses all of them.
+     */
+    private Operator newScan(FromItem fromItem, List<SelectItem<?>> projection) {
+        if (fromItem instanceof Table && dbCatalogue.getColumnarFile(((Table) fromItem).getName()) != null) {
+            String tableName = ((Table) fromItem).getName();
+            Set<String> columns = null;
+            if (projection != null) {
+                columns = new HashSet<>();
+                for (SelectItem<?> item : projection) {
+                    if (!(item.getExpression() instanceof Column)) {
+                        columns = null; // e.g. Table.*
+                        break;
+                    }
+                    columns.add(((Column) item.getExpression()).getColumnName());
+                }
+            }
+            System.out.println("[COLUMNAR] scan of " + tableName + " reading " + (columns == null ? "all columns" : columns));
+            return new ColumnarScanOperator(fromItem, dbCatalogue, columns);
+        }
+        return new ScanOperator(fromItem, dbCatalogue);
+    }
+}
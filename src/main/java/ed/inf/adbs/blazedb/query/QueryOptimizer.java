@@ -4,76 +4,36 @@ import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.util.*;
-import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.IndexDefinition;
+import ed.inf.adbs.blazedb.operator.BitmapScanOperator;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
 
 public class QueryOptimizer {
 
-    public static boolean canApplyEarlyProjection(PlainSelect plainSelect) {
-        // Check if SELECT * is used -> early projection is NOT possible
-        List<SelectItem<?>> selectItems = plainSelect.getSelectItems();
-        if (selectItems.get(0).toString().equals("*")) {
-            return false;
-        }
-
-        // Check if there are any aggregate functions in SELECT clause, if there are
-        // early projection is NOT possible since they are computed at the end.
-
-        Set<String> tables = new HashSet<>();
-        for (SelectItem<?> item : selectItems) {
-            if (item.toString().toUpperCase().startsWith("SUM(")) {
-                return false;
-            }else{
-                tables.add(item.toString().split("\\.")[0]);
-            }
-        }
-
-        // also if they concern more than one table, this becomes more hectic to keep track of
-        // as we need to keep a per-table list of columns to project.
-        // this was only done in the selection case, but here it doesn't seem to add too much value.
-        if (tables.size() > 1) {
-            return false;
-        }
-
-        // Extract the projected columns from SELECT clause to compare with required columns
-        Set<String> selectColumns = new HashSet<>();
-        for (SelectItem<?> item : selectItems) {
-            selectColumns.add(item.toString());  // Convert each SelectItem to column name
-        }
-
-        // Step 3: Extract columns from WHERE, ORDER BY, GROUP BY
-        Set<String> requiredColumns = new HashSet<>();
-
-        // Extract from WHERE clause
-        if (plainSelect.getWhere() != null) {
-            requiredColumns.addAll(extractColumnsFromExpression(plainSelect.getWhere()));
-        }
-
-        // Extract from GROUP BY clause
-        if (plainSelect.getGroupBy() != null) {
-            GroupByElement groupByElement = plainSelect.getGroupBy();
-            List<Column> groupByColumns = groupByElement.getGroupByExpressionList();
-
-            // Convert each Column to String before adding to requiredColumns
-            for (Column groupBy : groupByColumns) {
-                requiredColumns.add(groupBy.toString());  // Convert Column to String
-            }
-        }
-
-        // Extract from ORDER BY clause
-        if (plainSelect.getOrderByElements() != null) {
-            for (OrderByElement orderBy : plainSelect.getOrderByElements()) {
-                requiredColumns.addAll(extractColumnsFromExpression(orderBy.getExpression()));
-            }
-        }
-
-        System.out.println("Select columns: " + selectColumns);
-        System.out.println("Required columns: " + requiredColumns);
-        // Step 4: Early projection is possible only if selected columns cover required columns**
-        return selectColumns.containsAll(requiredColumns);
-    }
+    // An index is only used if the selection keeps at most this fraction of the table: an unclustered
+    // index reads each row on its own, a clustered one reads the range sequentially.
+    static final boolean INDEXES = Boolean.parseBoolean(System.getProperty("blazedb.index", "true"));
+    static final double UNCLUSTERED_MAX_SELECTIVITY = Double.parseDouble(System.getProperty("blazedb.index.unclusteredSelectivity", "0.1"));
+    // An index nested loop join is used when probing the index of the inner table once per outer
+    // tuple is cheaper than scanning the inner table for another join (see PhysicalPlanner). The
+    // costs are counted in rows read by a scan: a probe of the tree costs INDEX_PROBE_COST, and each
+    // row found UNCLUSTERED_FETCH_COST if it is read on its own (unclustered index) or 1 if the rows
+    // of a key follow each other (clustered).
+    static final boolean INDEX_JOINS = Boolean.parseBoolean(System.getProperty("blazedb.join.indexNestedLoop", "true"));
+    static final int INDEX_PROBE_COST = Integer.getInteger("blazedb.join.indexProbeCost", 10);
+    static final int UNCLUSTERED_FETCH_COST = 4;
+    static final double CLUSTERED_MAX_SELECTIVITY = Double.parseDouble(System.getProperty("blazedb.index.clusteredSelectivity", "0.5"));
+    // A bitmap scan is used if the bitmaps keep at most BITMAP_MAX_SELECTIVITY of the rows, and either
+    // reads them one by one or, reading them by page, skips enough pages: rows spread over the table
+    // soon hold a row in every page, and the pages are then parsed as by a full scan.
+    static final double BITMAP_MAX_SELECTIVITY = Double.parseDouble(System.getProperty("blazedb.bitmap.selectivity", "0.25"));
+    static final double BITMAP_MAX_PAGE_FRACTION = 0.5;
 
     public static List<Expression> extractConditions(Expression whereExpression) {
         List<Expression> conditions = new ArrayList<>();
@@ -103,48 +63,129 @@ public class QueryOptimizer {
         return result;
     }
 
-    // Extract only the conditions that belong to a specific table
-    public static Expression extractTableCondition(FromItem table, List<Expression> conditions) {
-        List<Expression> tableConditions = new ArrayList<>();
-        for (Expression condition : conditions) {
-            if (belongsToTable(condition, table)) {
-                tableConditions.add(condition);
+    /**
+     * Chooses the index of a table to scan for the selection pushed down on it: the one whose key range
+     * keeps the fewest rows, if that is few enough for its kind (see the thresholds above).
+     * @return The index scan, or null if the table should be scanned in full.
+     */
+    public static IndexScanOperator chooseIndexScan(String table, Expression condition, DBCatalogue dbCatalogue) {
+        if (!INDEXES) {
+            return null;
+        }
+        IndexScanOperator best = null;
+        double bestSelectivity = 1.0;
+        for (IndexDefinition index : dbCatalogue.getIndexes(table)) {
+            IndexScanOperator scan = IndexScanOperator.forCondition(dbCatalogue, index, condition);
+            if (scan == null) {
+                continue;
+            }
+            double selectivity = scan.getSelectivity();
+            double maxSelectivity = scan.isClustered() ? CLUSTERED_MAX_SELECTIVITY : UNCLUSTERED_MAX_SELECTIVITY;
+            System.out.println("[INDEX] " + scan + " selectivity " + selectivity);
+            if (selectivity <= maxSelectivity && (best == null || selectivity < bestSelectivity)) {
+                best = scan;
+                bestSelectivity = selectivity;
             }
         }
-        return mergeConditions(tableConditions);
+        return best;
     }
 
-    // Extract columns from an expression
-    private static Set<String> extractColumnsFromExpression(Expression expr) {
-        Set<String> columns = new HashSet<>();
-
-        if (expr instanceof BinaryExpression) {
-            BinaryExpression binaryExp = (BinaryExpression) expr;
-            columns.addAll(extractColumnsFromExpression(binaryExp.getLeftExpression()));
-            columns.addAll(extractColumnsFromExpression(binaryExp.getRightExpression()));
-        } else if (expr instanceof Column) {
-            columns.add(((Column) expr).getFullyQualifiedName());
-        } else if (expr instanceof Parenthesis) {
-            columns.addAll(extractColumnsFromExpression(((Parenthesis) expr).getExpression()));
-        } else if (expr instanceof InExpression) {
-            columns.add(((InExpression) expr).getLeftExpression().toString());
-        }
+    /**
+     * Evaluates the selection pushed down on a table with its bitmap indexes, and keeps the bitmap scan
+     * if it reads few enough rows (and pages, see above), fewer pages than the scan with its zone map,
+     * and fewer rows than the index scan chosen by chooseIndexScan (if any).
+     * @param scan The scan of the table, with the selection already given to pruneBlocks().
+     * @return The bitmap scan, or null to use the index scan or the scan.
+     */
+    public static BitmapScanOperator chooseBitmapScan(ScanOperator scan, Expression condition, IndexScanOperator indexScan,
+                                                      DBCatalogue dbCatalogue) {
+        BitmapScanOperator bitmapScan = BitmapScanOperator.forCondition(dbCatalogue, scan.getTableName(), condition);
+        return isCheaper("[BITMAP]", bitmapScan, scan, indexScan) ? bitmapScan : null;
+    }
 
-        return columns;
+    /**
+     * Cracks a column of the table restricted by the selection pushed down on it (see CrackerColumn),
+     * if -Dblazedb.cracking=true, and keeps the scan of the rows found on the same terms as
+     * chooseBitmapScan. The column is cracked even if the scan is not kept, for the next queries.
+     * @param scan The scan of the table, with the selection already given to pruneBlocks().
+     * @return The scan of the rows of the cracked range, or null to use the index scan or the scan.
+     */
+    public static BitmapScanOperator chooseCrackerScan(ScanOperator scan, Expression condition, IndexScanOperator indexScan,
+                                                       DBCatalogue dbCatalogue) {
+        BitmapScanOperator crackerScan = BitmapScanOperator.forCrackedColumn(dbCatalogue, scan.getTableName(), condition);
+        return isCheaper("[CRACKING]", crackerScan, scan, indexScan) ? crackerScan : null;
     }
 
-    public static boolean belongsToTable(Expression condition, FromItem table) {
-        // Convert table to string (handles aliases)
-        String tableName = table.toString();
+    /**
+     * @return True if the rows of a BitmapScanOperator are few enough, and their pages too if it reads
+     *         them by page, to read them instead of the scan or the index scan.
+     */
+    private static boolean isCheaper(String label, BitmapScanOperator rowsScan, ScanOperator scan, IndexScanOperator indexScan) {
+        if (rowsScan == null) {
+            return false;
+        }
+        double selectivity = rowsScan.getSelectivity();
+        System.out.println(label + " " + rowsScan + " selectivity " + selectivity);
+        if (selectivity > BITMAP_MAX_SELECTIVITY || (indexScan != null && selectivity >= indexScan.getSelectivity())) {
+            return false;
+        }
+        if (!rowsScan.isSparse()) {
+            double pageFraction = rowsScan.getPageFraction();
+            double scanPageFraction = scan.getPageFraction();
+            System.out.println(String.format(label + " reads %.0f%% of the pages, the scan %.0f%%", 100 * pageFraction, 100 * scanPageFraction));
+            if (pageFraction > BITMAP_MAX_PAGE_FRACTION || pageFraction >= scanPageFraction) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        // Convert condition to string and check if it mentions only this table
-        return condition.toString().matches(".*\\b" + tableName + "\\.[a-zA-Z0-9_]+\\b.*");
+    /**
+     * Finds an index of the inner table of an equi-join on one of its join columns, to probe for each
+     * row of the outer input in an index nested loop join (the planner decides whether it is cheaper
+     * than the other joins, see indexProbeCost()).
+     * @param innerTable The inner table.
+     * @param innerKeys The join columns of the inner table.
+     * @return The index scan to probe, on one of innerKeys, or null if there is none.
+     */
+    public static IndexScanOperator chooseIndexJoin(String innerTable, List<Column> innerKeys, DBCatalogue dbCatalogue) {
+        if (!INDEXES || !INDEX_JOINS) {
+            return null;
+        }
+        for (Column innerKey : innerKeys) {
+            for (IndexDefinition index : dbCatalogue.getIndexes(innerTable)) {
+                if (index.getColumn().equals(innerKey.getColumnName())) {
+                    IndexScanOperator probe = new IndexScanOperator(dbCatalogue, index, 0, -1);
+                    System.out.println("[INDEX JOIN] " + String.format("%.1f", probe.getRowsPerKey()) + " of the "
+                            + probe.getTableRows() + " rows of " + innerTable + " per key");
+                    return probe;
+                }
+            }
+        }
+        return null;
     }
 
+    /**
+     * @return The cost of one probe of an index, in rows read: INDEX_PROBE_COST for the lookup, plus the
+     *         rows per key, times UNCLUSTERED_FETCH_COST unless the index is clustered on a sorted file.
+     */
+    public static double indexProbeCost(IndexScanOperator probe) {
+        return INDEX_PROBE_COST + probe.getRowsPerKey() * (probe.isClustered() ? 1 : UNCLUSTERED_FETCH_COST);
+    }
 
-    public static boolean isSingleTableCondition(Expression condition, FromItem table) {
-        Set<String> referencedTables = getReferencedTables(condition);
-        return referencedTables.size() == 1 && referencedTables.contains(table.toString());
+    /**
+     * @return True if a sort order starts with the given columns.
+     */
+    public static boolean isSortedOn(List<String> sortOrder, List<Column> columns) {
+        if (sortOrder.size() < columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!sortOrder.get(i).equals(columns.get(i).getFullyQualifiedName())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // Extract tables referenced in an expression
@@ -164,108 +205,214 @@ public class QueryOptimizer {
 
         return tables;
     }
-    // this will get join condition and return the cardinality of the join
-    // different cases of =, > , < based on the statistics : ntuples, distinct values, min, max
 
+    /**
+     * Checks if a condition is an equality between a column of the already joined tables
+     * and a column of the table being joined, e.g. Student.A = Enrolled.A.
+     * These are the conditions a hash join can use as keys.
+     */
+    public static boolean isEquiJoinCondition(Expression condition, Set<String> leftTables, String rightTable) {
+        if (!(condition instanceof EqualsTo)) {
+            return false;
+        }
+        EqualsTo equalsTo = (EqualsTo) condition;
+        if (!(equalsTo.getLeftExpression() instanceof Column) || !(equalsTo.getRightExpression() instanceof Column)) {
+            return false;
+        }
+        Set<String> referencedTables = getReferencedTables(condition);
+        if (referencedTables.size() != 2 || !referencedTables.contains(rightTable)) {
+            return false;
+        }
+        referencedTables.remove(rightTable);
+        return leftTables.containsAll(referencedTables);
+    }
 
+    /**
+     * Returns the column of an equi-join condition that belongs to the given table.
+     * The condition is assumed to have passed isEquiJoinCondition.
+     */
+    public static Column getJoinColumn(Expression condition, String table) {
+        EqualsTo equalsTo = (EqualsTo) condition;
+        Column left = (Column) equalsTo.getLeftExpression();
+        Column right = (Column) equalsTo.getRightExpression();
+        return left.getTable().getName().equals(table) ? left : right;
+    }
 
-    public static List<Join> reorderJoins(List<Join> joins, FromItem baseTable, DBStatistics dbStatistics, List<Expression> joinConditions) {
-        List<Join> orderedJoins = new ArrayList<>();
-        Set<String> scannedTables = new HashSet<>();
-        scannedTables.add(baseTable.toString());
+    /**
+     * Returns the other column of an equi-join condition, i.e. not the one from the given table.
+     */
+    public static Column getOtherJoinColumn(Expression condition, String table) {
+        EqualsTo equalsTo = (EqualsTo) condition;
+        Column left = (Column) equalsTo.getLeftExpression();
+        Column right = (Column) equalsTo.getRightExpression();
+        return left.getTable().getName().equals(table) ? right : left;
+    }
 
-        List<Join> remainingJoins = new ArrayList<>(joins);
+    /**
+     * Returns the ORDER BY columns of the query as Table.Column, in priority order.
+     * An empty list is returned if there is no ORDER BY or it is not only on columns.
+     */
+    public static List<String> getOrderByColumns(PlainSelect plainSelect) {
+        return getOrderByColumns(plainSelect.getOrderByElements());
+    }
 
-        while (!remainingJoins.isEmpty()) {
-            List<Join> candidateJoins = new ArrayList<>();
+    /**
+     * Returns the columns of ORDER BY elements as Table.Column, as getOrderByColumns(PlainSelect).
+     */
+    public static List<String> getOrderByColumns(List<OrderByElement> orderByElements) {
+        List<String> columns = new ArrayList<>();
+        if (orderByElements == null) {
+            return columns;
+        }
+        for (OrderByElement orderBy : orderByElements) {
+            if (!(orderBy.getExpression() instanceof Column) || ((Column) orderBy.getExpression()).getTable() == null) {
+                return Collections.emptyList();
+            }
+            columns.add(((Column) orderBy.getExpression()).getFullyQualifiedName());
+        }
+        return columns;
+    }
 
-            // First: filter joins that are connected to any already scanned table
-            for (Join join : remainingJoins) {
-                String rightTable = join.getRightItem().toString();
+    /**
+     * Returns the GROUP BY columns of the query as Table.Column, in their order.
+     * An empty list is returned if there is no GROUP BY or it is not only on columns of a table.
+     */
+    public static List<String> getGroupByColumns(PlainSelect plainSelect) {
+        return getGroupByColumns(plainSelect.getGroupBy());
+    }
 
-                for (Expression condition : joinConditions) {
-                    Set<String> tablesInCond = getReferencedTables(condition);
-                    if (tablesInCond.contains(rightTable) && intersects(scannedTables, tablesInCond)) {
-                        candidateJoins.add(join);
-                        break;
-                    }
-                }
+    /**
+     * Returns the columns of a GROUP BY clause as Table.Column, as getGroupByColumns(PlainSelect).
+     */
+    public static List<String> getGroupByColumns(GroupByElement groupBy) {
+        List<String> columns = new ArrayList<>();
+        if (groupBy == null) {
+            return columns;
+        }
+        for (Object expression : groupBy.getGroupByExpressionList()) {
+            if (!(expression instanceof Column) || ((Column) expression).getTable() == null) {
+                return Collections.emptyList();
             }
+            columns.add(((Column) expression).getFullyQualifiedName());
+        }
+        return columns;
+    }
+
+    /**
+     * @param columns Columns as Table.Column.
+     * @return The ORDER BY elements to sort on the columns, in ascending order.
+     */
+    public static List<OrderByElement> toOrderByElements(List<String> columns) {
+        List<OrderByElement> orderByElements = new ArrayList<>();
+        for (String column : columns) {
+            int dot = column.indexOf('.');
+            OrderByElement orderByElement = new OrderByElement();
+            orderByElement.setExpression(new Column(new Table(column.substring(0, dot)), column.substring(dot + 1)));
+            orderByElements.add(orderByElement);
+        }
+        return orderByElements;
+    }
 
-            Join bestJoin = null;
-
-            if (candidateJoins.size() == 1) {
-                bestJoin = candidateJoins.get(0);
-            } else if (candidateJoins.size() > 1) {
-                // Multiple join options connected to scanned tables — choose lowest selectivity
-                double bestSelectivity = Double.MAX_VALUE;
-
-                for (Join join : candidateJoins) {
-                    String rightTable = join.getRightItem().toString();
-                    for (Expression condition : joinConditions) {
-                        Set<String> tablesInCond = getReferencedTables(condition);
-                        if (tablesInCond.contains(rightTable) && scannedTables.containsAll(tablesInCond)) {
-                            double sel = estimateSelectivity(condition, dbStatistics);
-                            if (sel < bestSelectivity) {
-                                bestSelectivity = sel;
-                                bestJoin = join;
-                            }
-                        }
-                    }
+    /**
+     * Checks if every ORDER BY column is one of the join keys (on either side) and if so
+     * moves those keys to the front, in the ORDER BY order. A sort-merge join on the reordered
+     * keys then produces its output in the ORDER BY order.
+     * @return True if the keys could be aligned with the order, false otherwise (keys are left unchanged).
+     */
+    public static boolean alignKeysWithOrder(List<String> orderByColumns, List<Column> leftKeys, List<Column> rightKeys) {
+        List<Integer> positions = new ArrayList<>();
+        for (String orderByColumn : orderByColumns) {
+            int position = -1;
+            for (int i = 0; i < leftKeys.size(); i++) {
+                if (!positions.contains(i) && (leftKeys.get(i).getFullyQualifiedName().equals(orderByColumn)
+                        || rightKeys.get(i).getFullyQualifiedName().equals(orderByColumn))) {
+                    position = i;
+                    break;
                 }
             }
-
-            if (bestJoin != null) {
-                orderedJoins.add(bestJoin);
-                scannedTables.add(bestJoin.getRightItem().toString());
-                remainingJoins.remove(bestJoin);
-            } else {
-                // Fallback (no connected join — Cartesian join case)
-                orderedJoins.add(remainingJoins.remove(0));
+            if (position == -1) {
+                return false;
             }
+            positions.add(position);
         }
 
-        System.out.println("Ordered joins: " + orderedJoins);
-        return orderedJoins;
+        // the ORDER BY keys first, followed by the remaining keys
+        for (int i = 0; i < leftKeys.size(); i++) {
+            if (!positions.contains(i)) {
+                positions.add(i);
+            }
+        }
+        List<Column> newLeftKeys = new ArrayList<>();
+        List<Column> newRightKeys = new ArrayList<>();
+        for (int position : positions) {
+            newLeftKeys.add(leftKeys.get(position));
+            newRightKeys.add(rightKeys.get(position));
+        }
+        leftKeys.clear();
+        leftKeys.addAll(newLeftKeys);
+        rightKeys.clear();
+        rightKeys.addAll(newRightKeys);
+        return true;
     }
 
-
-    // helper to check if two sets intersect
-    private static boolean intersects(Set<String> scanned, Set<String> condTables) {
-        for (String t : condTables) {
-            if (scanned.contains(t)) return true;
+    /**
+     * Checks if the ORDER BY columns are a prefix of the order the plan already produces.
+     * @param equivalences Columns known to be equal to another column (e.g. the right keys of a sort-merge join).
+     */
+    public static boolean isOrderSatisfied(List<String> orderByColumns, List<String> sortOrder, Map<String, String> equivalences) {
+        if (orderByColumns.size() > sortOrder.size()) {
+            return false;
         }
-        return false;
+        for (int i = 0; i < orderByColumns.size(); i++) {
+            String column = equivalences.getOrDefault(orderByColumns.get(i), orderByColumns.get(i));
+            if (!column.equals(sortOrder.get(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Returns the tables of the FROM clause in their order, if the query only joins tables without an
+     * alias and with the conditions in the WHERE clause (FROM A, B, C), so their order can be changed.
+     * @return The names of the tables, or null if the order must be kept.
+     */
+    public static List<String> getFromTables(PlainSelect plainSelect) {
+        List<String> tables = new ArrayList<>();
+        List<FromItem> items = new ArrayList<>();
+        items.add(plainSelect.getFromItem());
+        if (plainSelect.getJoins() != null) {
+            for (Join join : plainSelect.getJoins()) {
+                if (!join.isSimple() || !join.getOnExpressions().isEmpty()) {
+                    return null;
+                }
+                items.add(join.getRightItem());
+            }
+        }
+        for (FromItem item : items) {
+            if (!(item instanceof Table) || item.getAlias() != null || tables.contains(((Table) item).getName())) {
+                return null;
+            }
+            tables.add(((Table) item).getName());
+        }
+        return tables;
+    }
 
-    private static double estimateSelectivity(Expression joinCondition, DBStatistics dbStatistics) {
-        String[] parts = joinCondition.toString().split("=");
-        if (parts.length != 2) return 1.0;
-
-        String leftPart = parts[0].trim();
-        String rightPart = parts[1].trim();
-
-        String[] leftParts = leftPart.split("\\.");
-        String[] rightParts = rightPart.split("\\.");
-
-        if (leftParts.length != 2 || rightParts.length != 2) return 1.0;
-
-        String leftTable = leftParts[0];
-        String leftColumn = leftParts[1];
-        String rightTable = rightParts[0];
-        String rightColumn = rightParts[1];
-
-        List<Integer> leftStats = dbStatistics.getColumnStatistics(leftTable, leftColumn);
-        List<Integer> rightStats = dbStatistics.getColumnStatistics(rightTable, rightColumn);
-
-        if (leftStats == null || rightStats == null) return 1.0;
+    /**
+     * Returns the columns of the given tables as select items, table by table in the given order:
+     * the columns of SELECT * over these tables.
+     */
+    public static List<SelectItem<?>> getAllColumns(List<String> tables, DBCatalogue dbCatalogue) {
+        List<SelectItem<?>> items = new ArrayList<>();
+        for (String table : tables) {
+            for (String column : dbCatalogue.getTableColumns(table)) {
+                items.add(new SelectItem<>(new Column(new Table(table), column)));
+            }
+        }
+        return items;
+    }
 
-        int leftDistinct = leftStats.get(2);
-        int rightDistinct = rightStats.get(2);
 
-        return 1.0 / Math.max(leftDistinct, rightDistinct);
-    }
 
 
 }
@@ -24,5 +24,6 @@ public class QueryPlan {
         while ((tuple = rootOperator.getNextTuple()) != null) {
             printStream.println(tuple.toString());
         }
+        rootOperator.close();
     }
 }
@@ -0,0 +1,208 @@
+package ed.inf.adbs.blazedb.query;
+
+import ed.inf.adbs.blazedb.dbcatalogue.ColumnStatistics;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.kernel.Comparison;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SelectivityEstimator estimates the fraction of the rows that satisfy a condition, from the
+ * statistics of the columns it compares (see ColumnStatistics), walking the expression tree.
+ *
+ * The comparisons of a column with constants in a conjunction are combined into one range of the
+ * column first (A > 3 AND A <= 10 is 4 <= A <= 10, an equality is a range of one value), estimated
+ * with the histogram and the most common values of the column; the values excluded with != are then
+ * taken out of it. The columns of a conjunction are assumed independent, so their fractions are
+ * multiplied, and so are those of the other conjuncts. For a column without statistics, or another
+ * kind of condition, the usual default selectivities are used: 1/10 for an equality, 1/3 for a range
+ * comparison, 9/10 for !=.
+ */
+public final class SelectivityEstimator {
+
+    static final double DEFAULT_EQUAL = 0.1;
+    static final double DEFAULT_RANGE = 1.0 / 3;
+    static final double DEFAULT_NOT_EQUAL = 0.9;
+    static final double DEFAULT_OTHER = 0.5;
+
+    private SelectivityEstimator() {
+    }
+
+    /**
+     * The comparisons of a column with constants in a conjunction, as a range and excluded values.
+     */
+    private static final class ColumnRange {
+        final Column column;
+        long low = Long.MIN_VALUE;
+        long high = Long.MAX_VALUE;
+        int comparisons;   // the range comparisons, for the default selectivity
+        boolean equality;
+        final List<Long> excluded = new ArrayList<>();
+
+        ColumnRange(Column column) {
+            this.column = column;
+        }
+    }
+
+    /**
+     * Estimates the selectivity of a condition on the rows of one table (or of the already joined
+     * tables, for a join condition).
+     * @param dbStatistics The statistics of the tables, or null to use the default selectivities.
+     */
+    public static double estimate(Expression condition, DBStatistics dbStatistics) {
+        Map<String, ColumnRange> ranges = new LinkedHashMap<>();
+        double selectivity = 1.0;
+        for (Expression conjunct : QueryOptimizer.extractConditions(condition)) {
+            if (!addComparison(conjunct, ranges)) {
+                selectivity *= estimateConjunct(conjunct, dbStatistics);
+            }
+        }
+        for (ColumnRange range : ranges.values()) {
+            selectivity *= estimateRange(range, dbStatistics);
+        }
+        return selectivity;
+    }
+
+    /**
+     * Estimates the fraction of the pairs of rows of a join that satisfy a join condition: for
+     * A.x = B.y, 1 / max(distinct(A.x), distinct(B.y)), each value of the column with fewer values
+     * matching the rows of one value of the other column.
+     * @return The selectivity, 1.0 for a condition without statistics.
+     */
+    public static double estimateJoin(Expression condition, DBStatistics dbStatistics) {
+        double selectivity = 1.0;
+        for (Expression conjunct : QueryOptimizer.extractConditions(condition)) {
+            if (conjunct instanceof Parenthesis) {
+                selectivity *= estimateJoin(((Parenthesis) conjunct).getExpression(), dbStatistics);
+            } else if (conjunct instanceof EqualsTo && isColumnPair((BinaryExpression) conjunct)) {
+                selectivity *= equalColumns((BinaryExpression) conjunct, dbStatistics, 1.0);
+            } else if (conjunct instanceof BinaryExpression && isColumnPair((BinaryExpression) conjunct)) {
+                selectivity *= comparisonOf(conjunct) == Comparison.NE
+                        ? 1 - equalColumns((BinaryExpression) conjunct, dbStatistics, 0.0) : DEFAULT_RANGE;
+            }
+        }
+        return selectivity;
+    }
+
+    /**
+     * Adds a comparison of a column with a constant to the range of the column.
+     * @return False if the conjunct is not such a comparison.
+     */
+    private static boolean addComparison(Expression conjunct, Map<String, ColumnRange> ranges) {
+        Comparison op = comparisonOf(conjunct);
+        if (op == null) {
+            return false;
+        }
+        Expression left = ((BinaryExpression) conjunct).getLeftExpression();
+        Expression right = ((BinaryExpression) conjunct).getRightExpression();
+        if (left instanceof LongValue && right instanceof Column) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            op = op.flip();
+        }
+        if (!(left instanceof Column) || !(right instanceof LongValue) || ((Column) left).getTable() == null) {
+            return false;
+        }
+        Column column = (Column) left;
+        long value = ((LongValue) right).getValue();
+        ColumnRange range = ranges.computeIfAbsent(column.getFullyQualifiedName(), name -> new ColumnRange(column));
+        switch (op) {
+            case EQ: range.low = Math.max(range.low, value); range.high = Math.min(range.high, value); range.equality = true; break;
+            case NE: range.excluded.add(value); break;
+            case GT: range.low = Math.max(range.low, value + 1); range.comparisons++; break;
+            case GE: range.low = Math.max(range.low, value); range.comparisons++; break;
+            case LT: range.high = Math.min(range.high, value - 1); range.comparisons++; break;
+            default: range.high = Math.min(range.high, value); range.comparisons++; break;
+        }
+        return true;
+    }
+
+    private static double estimateRange(ColumnRange range, DBStatistics dbStatistics) {
+        ColumnStatistics statistics = statisticsOf(range.column, dbStatistics);
+        if (statistics == null) {
+            double selectivity = range.low > range.high ? 0
+                    : range.equality ? DEFAULT_EQUAL : Math.pow(DEFAULT_RANGE, range.comparisons);
+            return selectivity * Math.pow(DEFAULT_NOT_EQUAL, range.excluded.size());
+        }
+        double selectivity = statistics.rangeFraction(range.low, range.high);
+        for (long value : range.excluded) {
+            if (value >= range.low && value <= range.high) {
+                selectivity -= statistics.equalFraction(value);
+            }
+        }
+        return Math.max(0, selectivity);
+    }
+
+    /**
+     * Estimates a conjunct that is not a comparison of a column with a constant.
+     */
+    private static double estimateConjunct(Expression conjunct, DBStatistics dbStatistics) {
+        if (conjunct instanceof Parenthesis) {
+            return estimate(((Parenthesis) conjunct).getExpression(), dbStatistics);
+        }
+        if (conjunct instanceof AndExpression) {
+            return estimate(conjunct, dbStatistics);
+        }
+        Comparison op = comparisonOf(conjunct);
+        if (op != null && isColumnPair((BinaryExpression) conjunct)) {
+            // two columns of the same rows, e.g. A.x = A.y
+            double equal = equalColumns((BinaryExpression) conjunct, dbStatistics, DEFAULT_EQUAL);
+            return op == Comparison.EQ ? equal : op == Comparison.NE ? 1 - equal : DEFAULT_RANGE;
+        }
+        if (op == Comparison.EQ) {
+            return DEFAULT_EQUAL;
+        }
+        if (op == Comparison.NE) {
+            return DEFAULT_NOT_EQUAL;
+        }
+        return op != null ? DEFAULT_RANGE : DEFAULT_OTHER;
+    }
+
+    /**
+     * @return 1 / the largest distinct count of the two columns, or unknown without statistics.
+     */
+    private static double equalColumns(BinaryExpression comparison, DBStatistics dbStatistics, double unknown) {
+        ColumnStatistics left = statisticsOf((Column) comparison.getLeftExpression(), dbStatistics);
+        ColumnStatistics right = statisticsOf((Column) comparison.getRightExpression(), dbStatistics);
+        if (left == null && right == null) {
+            return unknown;
+        }
+        long distinct = Math.max(left == null ? 1 : left.getDistinctCount(), right == null ? 1 : right.getDistinctCount());
+        return 1.0 / distinct;
+    }
+
+    private static boolean isColumnPair(BinaryExpression comparison) {
+        return comparison.getLeftExpression() instanceof Column && comparison.getRightExpression() instanceof Column;
+    }
+
+    private static ColumnStatistics statisticsOf(Column column, DBStatistics dbStatistics) {
+        if (dbStatistics == null || column.getTable() == null) {
+            return null;
+        }
+        return dbStatistics.getStatistics(column.getTable().getName(), column.getColumnName());
+    }
+
+    /**
+     * @return The comparison operator of a condition, or null if it is not a comparison.
+     */
+    private static Comparison comparisonOf(Expression condition) {
+        if (condition instanceof EqualsTo) return Comparison.EQ;
+        if (condition instanceof NotEqualsTo) return Comparison.NE;
+        if (condition instanceof GreaterThan) return Comparison.GT;
+        if (condition instanceof GreaterThanEquals) return Comparison.GE;
+        if (condition instanceof MinorThan) return Comparison.LT;
+        if (condition instanceof MinorThanEquals) return Comparison.LE;
+        return null;
+    }
+}
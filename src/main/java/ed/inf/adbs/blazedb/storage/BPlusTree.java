@@ -0,0 +1,349 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * BPlusTree is a persistent B+-tree index on an int column of a CSV table file. Each entry is a key
+ * and the offset of its row in the file, and the entries are sorted by key, then by offset.
+ *
+ * The tree is bulk loaded from the whole file and stored in pages of PAGE_SIZE bytes:
+ * <pre>
+ *   page 0       header: int magic, int root page, int leaf count, int height,
+ *                long entry count, long size of the CSV file, long modification time of the CSV file,
+ *                long number of distinct keys, int 1 if the CSV file is sorted on the key
+ *   leaf pages   pages 1 to leaf count: int entry count, the keys (ints), then the offsets (longs)
+ *   inner pages  int child count, the child pages (ints), then the smallest key of every child but the first
+ * </pre>
+ * Every leaf but the last one is full, so the entries can be numbered (rank) across the leaves and an
+ * index scan just walks the ranks from the first key in its range. A tree whose size or time does not
+ * match the CSV file is out of date and is built again.
+ *
+ * For a clustered index the CSV file is sorted on the key by IndexBuilder (sortFile), so the rows of a
+ * key range are consecutive in the file. Opening or building a tree never changes the CSV file: it only
+ * records whether the file is sorted (isSorted), and a clustered index on a file that is not is read
+ * like an unclustered one.
+ */
+public class BPlusTree implements Closeable {
+
+    static final int MAGIC = 0x425A4931; // "BZI1"
+    static final int PAGE_SIZE = 4096;
+    static final int LEAF_CAPACITY = (PAGE_SIZE - 4) / 12;
+    static final int INNER_CAPACITY = PAGE_SIZE / 8; // count, children and one key less than children
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int root;
+    private final int height;
+    private final long entryCount;
+    private final long csvSize;
+    private final long csvModified;
+    private final long distinctKeys;
+    private final boolean sorted;
+
+    private BPlusTree(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Index larger than 2 GB: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Not an index file: " + path);
+        }
+        root = buffer.getInt(4);
+        height = buffer.getInt(12);
+        entryCount = buffer.getLong(16);
+        csvSize = buffer.getLong(24);
+        csvModified = buffer.getLong(32);
+        distinctKeys = buffer.getLong(40);
+        sorted = buffer.getInt(48) == 1;
+    }
+
+    /**
+     * Opens the index of a column of a CSV file, building it first if it does not exist or the CSV
+     * file changed since it was built.
+     *
+     * @param csv The table file.
+     * @param path The index file.
+     * @param columnCount The number of columns of the table.
+     * @param keyColumn The indexed column.
+     */
+    public static BPlusTree open(Path csv, Path path, int columnCount, int keyColumn) throws IOException {
+        if (Files.exists(path)) {
+            BPlusTree tree = new BPlusTree(path);
+            File file = csv.toFile();
+            if (tree.csvSize == file.length() && tree.csvModified == file.lastModified()) {
+                return tree;
+            }
+            tree.close();
+        }
+        build(csv, path, columnCount, keyColumn);
+        return new BPlusTree(path);
+    }
+
+    /**
+     * Builds the index of a column of a CSV file. The file is only read.
+     * @return The number of entries.
+     */
+    public static long build(Path csv, Path path, int columnCount, int keyColumn) throws IOException {
+        Entries keys = Entries.read(csv, columnCount, keyColumn);
+        long[] entries = keys.entries;
+        long[] offsets = keys.offsets;
+        int rows = keys.rows;
+        Arrays.sort(entries, 0, rows);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+            int leafCount = Math.max(1, (rows + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+            int[] level = new int[leafCount];    // pages of the current level
+            int[] levelMin = new int[leafCount]; // smallest key of each of them
+            long distinct = 0;
+            for (int leaf = 0; leaf < leafCount; leaf++) {
+                int from = leaf * LEAF_CAPACITY;
+                int count = Math.min(LEAF_CAPACITY, rows - from);
+                clear(page);
+                page.putInt(count);
+                for (int i = 0; i < count; i++) {
+                    int key = (int) (entries[from + i] >> 32);
+                    if (from + i == 0 || key != (int) (entries[from + i - 1] >> 32)) {
+                        distinct++;
+                    }
+                    page.putInt(key);
+                }
+                for (int i = 0; i < count; i++) {
+                    page.putLong(offsets[(int) entries[from + i]]);
+                }
+                level[leaf] = leaf + 1;
+                levelMin[leaf] = count > 0 ? (int) (entries[from] >> 32) : 0;
+                writePage(out, page, leaf + 1);
+            }
+
+            int nextPage = leafCount + 1;
+            int height = 1;
+            int levelSize = leafCount;
+            while (levelSize > 1) {
+                int parents = (levelSize + INNER_CAPACITY - 1) / INNER_CAPACITY;
+                for (int parent = 0; parent < parents; parent++) {
+                    int from = parent * INNER_CAPACITY;
+                    int count = Math.min(INNER_CAPACITY, levelSize - from);
+                    clear(page);
+                    page.putInt(count);
+                    for (int i = 0; i < count; i++) {
+                        page.putInt(level[from + i]);
+                    }
+                    for (int i = 1; i < count; i++) {
+                        page.putInt(levelMin[from + i]);
+                    }
+                    writePage(out, page, nextPage);
+                    level[parent] = nextPage++;
+                    levelMin[parent] = levelMin[from];
+                }
+                levelSize = parents;
+                height++;
+            }
+
+            File file = csv.toFile();
+            clear(page);
+            page.putInt(MAGIC).putInt(level[0]).putInt(leafCount).putInt(height)
+                    .putLong(rows).putLong(file.length()).putLong(file.lastModified()).putLong(distinct)
+                    .putInt(keys.sorted ? 1 : 0);
+            writePage(out, page, 0);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private static void clear(ByteBuffer page) {
+        ((Buffer) page).clear();
+        Arrays.fill(page.array(), (byte) 0);
+    }
+
+    private static void writePage(FileChannel out, ByteBuffer page, int pageNumber) throws IOException {
+        ((Buffer) page).clear();
+        long position = (long) pageNumber * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            position += out.write(page, position);
+        }
+    }
+
+    /**
+     * Rewrites a CSV file with its rows sorted on a column, for a clustered index. The lines are copied
+     * as they are (stable, so rows with the same key keep their order), only their keys and offsets are
+     * kept in memory. The other files built on the table (indexes, zone map, ...) are then out of date.
+     * @return True if the file was rewritten, false if it was already sorted.
+     */
+    public static boolean sortFile(Path csv, int columnCount, int keyColumn) throws IOException {
+        Entries keys = Entries.read(csv, columnCount, keyColumn);
+        if (keys.sorted) {
+            return false;
+        }
+        Arrays.sort(keys.entries, 0, keys.rows);
+
+        Path temporary = csv.resolveSibling(csv.getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(csv, StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+            byte[] line = new byte[256];
+            for (int i = 0; i < keys.rows; i++) {
+                int row = (int) keys.entries[i];
+                // from the end of the previous row (its line break) to the end of this one
+                long from = keys.offsets[row];
+                int length = (int) (keys.offsets[row + 1] - from);
+                if (length > line.length) {
+                    line = new byte[2 * length];
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(line, 0, length);
+                while (bytes.hasRemaining()) {
+                    if (in.read(bytes, from + bytes.position()) < 0) {
+                        throw new IOException("Unexpected end of " + csv);
+                    }
+                }
+                int start = 0;
+                while (start < length && (line[start] == '\n' || line[start] == '\r')) {
+                    start++;
+                }
+                out.write(line, start, length - start);
+                out.write('\n');
+            }
+        }
+        Files.move(temporary, csv, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * The (key, row number) pairs of a CSV file, as longs that sort by key then by row, and the offset of
+     * each row (plus the end of the last one).
+     */
+    private static final class Entries {
+        long[] entries = new long[1024];
+        long[] offsets = new long[1025];
+        int rows;
+        boolean sorted = true; // the keys are in order in the file
+
+        static Entries read(Path csv, int columnCount, int keyColumn) throws IOException {
+            Entries keys = new Entries();
+            try (MappedCsvFile in = new MappedCsvFile(csv)) {
+                int[] row = new int[columnCount];
+                long offset = in.position();
+                while (in.readRow(row)) {
+                    int rows = keys.rows;
+                    if (rows == keys.entries.length) {
+                        keys.entries = Arrays.copyOf(keys.entries, rows * 2);
+                        keys.offsets = Arrays.copyOf(keys.offsets, rows * 2 + 1);
+                    }
+                    keys.entries[rows] = ((long) row[keyColumn] << 32) | rows;
+                    keys.sorted &= rows == 0 || row[keyColumn] >= (int) (keys.entries[rows - 1] >> 32);
+                    keys.offsets[rows] = offset;
+                    keys.rows++;
+                    offset = in.position();
+                }
+                keys.offsets[keys.rows] = offset;
+            }
+            return keys;
+        }
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getDistinctKeys() {
+        return distinctKeys;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return True if the rows of the CSV file were sorted on the key when the tree was built, i.e. the
+     *         rows of a key range are consecutive in the file.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * @return The number of entries with a key smaller than key, i.e. the rank of the first entry with a key of at least key.
+     */
+    public long rank(int key) {
+        int page = root;
+        for (int level = 1; level < height; level++) {
+            int base = page * PAGE_SIZE;
+            int count = buffer.getInt(base);
+            int separators = base + 4 + count * 4;
+            // the last child whose smallest key is below key, earlier children only have smaller keys
+            int low = 0;
+            int high = count - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (buffer.getInt(separators + (middle - 1) * 4) < key) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            page = buffer.getInt(base + 4 + low * 4);
+        }
+        int base = page * PAGE_SIZE;
+        int low = 0;
+        int high = buffer.getInt(base);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getInt(base + 4 + middle * 4) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (long) (page - 1) * LEAF_CAPACITY + low;
+    }
+
+    /**
+     * @return The number of entries with a key in [low, high].
+     */
+    public long count(int low, int high) {
+        if (low > high) {
+            return 0;
+        }
+        long end = high == Integer.MAX_VALUE ? entryCount : rank(high + 1);
+        return end - rank(low);
+    }
+
+    /**
+     * @return The key of the entry of the given rank.
+     */
+    public int keyAt(long rank) {
+        int base = (int) (rank / LEAF_CAPACITY + 1) * PAGE_SIZE;
+        return buffer.getInt(base + 4 + (int) (rank % LEAF_CAPACITY) * 4);
+    }
+
+    /**
+     * @return The offset in the CSV file of the row of the entry of the given rank.
+     */
+    public long offsetAt(long rank) {
+        int base = (int) (rank / LEAF_CAPACITY + 1) * PAGE_SIZE;
+        int count = buffer.getInt(base);
+        return buffer.getLong(base + 4 + count * 4 + (int) (rank % LEAF_CAPACITY) * 8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,87 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stores unsigned values of a fixed number of bits back to back in longs.
+ * A value can start in one long and end in the next one.
+ */
+final class BitPacking {
+
+    private BitPacking() {
+    }
+
+    /**
+     * @return The number of bits needed for the unsigned values 0 to max (0 if max is 0).
+     */
+    static int bitWidth(long max) {
+        return 64 - Long.numberOfLeadingZeros(max);
+    }
+
+    static int wordCount(int count, int width) {
+        return (int) (((long) count * width + 63) / 64);
+    }
+
+    /**
+     * Packs the low width bits of values[0..count) and writes the words.
+     */
+    static void write(DataOutputStream out, long[] values, int count, int width) throws IOException {
+        long[] words = new long[wordCount(count, width)];
+        for (int i = 0; i < count && width > 0; i++) {
+            long bit = (long) i * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= values[i] << shift;
+            if (shift + width > 64) {
+                words[word + 1] |= values[i] >>> (64 - shift);
+            }
+        }
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Unpacks the first count values in order into out (values of 32 bits come out as negative ints).
+     */
+    static void unpack(long[] words, int count, int width, int[] out) {
+        if (width == 0) {
+            Arrays.fill(out, 0, count, 0);
+            return;
+        }
+        long mask = (1L << width) - 1;
+        int word = 0;
+        int shift = 0;
+        for (int i = 0; i < count; i++) {
+            long value = words[word] >>> shift;
+            if (shift + width > 64) {
+                value |= words[word + 1] << (64 - shift);
+            }
+            out[i] = (int) (value & mask);
+            shift += width;
+            if (shift >= 64) {
+                shift -= 64;
+                word++;
+            }
+        }
+    }
+
+    /**
+     * @return The index-th value, at most 32 bits wide, as an unsigned long.
+     */
+    static long get(long[] words, int index, int width) {
+        if (width == 0) {
+            return 0;
+        }
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + width > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return value & ((1L << width) - 1);
+    }
+}
@@ -0,0 +1,275 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.kernel.Comparison;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * BitmapIndex keeps, for every column of a CSV table file with few distinct values (at most
+ * MAX_DISTINCT, the distinct count of DBStatistics), one RoaringBitmap per value with the numbers of
+ * the rows holding it. A comparison of such a column with a constant is the OR of the bitmaps of the
+ * values that satisfy it, and a conjunction of comparisons is the AND of those, so the rows of a
+ * selection are known before any of them is read.
+ *
+ * The rows are numbered from 0 in the order of the file. To read a row without parsing the ones
+ * before it, the offset of every GROUP_ROWS-th row is kept too. The index of db/data/table_name.csv
+ * is stored next to it as table_name.bm:
+ * <pre>
+ *   header      int magic, int column count, long row count,
+ *               long size of the CSV file, long modification time of the CSV file,
+ *               int rows per group, int group count
+ *   groups      for each group of rows: long offset of its first row in the CSV file
+ *   directory   for each column: int value count, -1 if the column has too many values to be indexed,
+ *               then for each value in increasing order: int value, long position of its bitmap
+ *   bitmaps     the bitmaps (see RoaringBitmap.write())
+ * </pre>
+ * The file is memory-mapped and only the bitmaps of the values a query compares with are read.
+ * An index whose size or time does not match the CSV file is built again.
+ */
+public final class BitmapIndex implements RowGroups {
+
+    /** -Dblazedb.bitmap=false neither builds nor uses bitmap indexes. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("blazedb.bitmap", "true"));
+    /** The most distinct values a column can have to be indexed, -Dblazedb.bitmap.maxDistinct. */
+    public static final int MAX_DISTINCT = Integer.getInteger("blazedb.bitmap.maxDistinct", 64);
+
+    static final int MAGIC = 0x425A4231; // "BZB1"
+    private static final int HEADER_SIZE = 40;
+
+    private final ByteBuffer buffer;
+    private final long rowCount;
+    private final int groupCount;
+    private final int[][] values;      // [column] values in increasing order, null if not indexed
+    private final long[][] positions;  // [column][value] position of the bitmap of the value
+
+    private BitmapIndex(Path path, int columnCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Bitmap index larger than 2 GB: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        rowCount = buffer.getLong(8);
+        groupCount = buffer.getInt(36);
+        values = new int[columnCount][];
+        positions = new long[columnCount][];
+        ByteBuffer directory = buffer.duplicate();
+        ((Buffer) directory).position(HEADER_SIZE + 8 * groupCount);
+        for (int column = 0; column < columnCount; column++) {
+            int count = directory.getInt();
+            if (count < 0) {
+                continue;
+            }
+            values[column] = new int[count];
+            positions[column] = new long[count];
+            for (int i = 0; i < count; i++) {
+                values[column][i] = directory.getInt();
+                positions[column][i] = directory.getLong();
+            }
+        }
+    }
+
+    /**
+     * @return The path of the bitmap index of a CSV file.
+     */
+    public static Path pathOf(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".bm");
+    }
+
+    /**
+     * Opens the bitmap index of a CSV file, building it first if it does not exist or the CSV file
+     * changed since it was built.
+     */
+    public static BitmapIndex open(Path csv, int columnCount) throws IOException {
+        Path path = pathOf(csv);
+        if (!isCurrent(csv, path, columnCount)) {
+            build(csv, path, columnCount);
+        }
+        return new BitmapIndex(path, columnCount);
+    }
+
+    private static boolean isCurrent(Path csv, Path path, int columnCount) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+        }
+        File file = csv.toFile();
+        return header.getInt(0) == MAGIC && header.getInt(4) == columnCount && header.getInt(32) == GROUP_ROWS
+                && header.getLong(16) == file.length() && header.getLong(24) == file.lastModified();
+    }
+
+    /**
+     * Builds the bitmaps of a CSV file in one pass, giving up on a column as soon as it has more than
+     * MAX_DISTINCT values, and writes them next to it under a temporary name that is then renamed.
+     */
+    static void build(Path csv, Path path, int columnCount) throws IOException {
+        List<Map<Integer, RoaringBitmap>> columns = new ArrayList<>(columnCount);
+        for (int column = 0; column < columnCount; column++) {
+            columns.add(new HashMap<>());
+        }
+        long[] groups = new long[16];
+        int rows = 0;
+        try (MappedCsvFile in = new MappedCsvFile(csv)) {
+            int[] row = new int[columnCount];
+            long offset = in.position();
+            while (in.readRow(row)) {
+                if (rows % GROUP_ROWS == 0) {
+                    if (rows / GROUP_ROWS == groups.length) {
+                        groups = Arrays.copyOf(groups, groups.length * 2);
+                    }
+                    groups[rows / GROUP_ROWS] = offset;
+                }
+                for (int column = 0; column < columnCount; column++) {
+                    Map<Integer, RoaringBitmap> bitmaps = columns.get(column);
+                    if (bitmaps == null) {
+                        continue;
+                    }
+                    RoaringBitmap bitmap = bitmaps.get(row[column]);
+                    if (bitmap == null) {
+                        if (bitmaps.size() == MAX_DISTINCT) {
+                            columns.set(column, null); // too many values, not worth indexing
+                            continue;
+                        }
+                        bitmap = new RoaringBitmap();
+                        bitmaps.put(row[column], bitmap);
+                    }
+                    bitmap.add(rows);
+                }
+                rows++;
+                offset = in.position();
+            }
+        }
+        int groupCount = (rows + GROUP_ROWS - 1) / GROUP_ROWS;
+
+        List<TreeMap<Integer, RoaringBitmap>> sorted = new ArrayList<>(columnCount);
+        long position = HEADER_SIZE + 8L * groupCount;
+        for (int column = 0; column < columnCount; column++) {
+            position += 4;
+            sorted.add(columns.get(column) == null ? null : new TreeMap<>(columns.get(column)));
+            if (sorted.get(column) != null) {
+                position += 12L * sorted.get(column).size();
+            }
+        }
+
+        File file = csv.toFile();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(columnCount);
+            out.writeLong(rows);
+            out.writeLong(file.length());
+            out.writeLong(file.lastModified());
+            out.writeInt(GROUP_ROWS);
+            out.writeInt(groupCount);
+            for (int group = 0; group < groupCount; group++) {
+                out.writeLong(groups[group]);
+            }
+            for (int column = 0; column < columnCount; column++) {
+                if (sorted.get(column) == null) {
+                    out.writeInt(-1);
+                    continue;
+                }
+                out.writeInt(sorted.get(column).size());
+                for (Map.Entry<Integer, RoaringBitmap> entry : sorted.get(column).entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeLong(position);
+                    position += entry.getValue().serializedSize();
+                }
+            }
+            for (int column = 0; column < columnCount; column++) {
+                if (sorted.get(column) != null) {
+                    for (RoaringBitmap bitmap : sorted.get(column).values()) {
+                        bitmap.write(out);
+                    }
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getGroupOffset(int group) {
+        return buffer.getLong(HEADER_SIZE + 8 * group);
+    }
+
+    /**
+     * @return True if the column has few enough values to have bitmaps.
+     */
+    public boolean isIndexed(int column) {
+        return values[column] != null;
+    }
+
+    /**
+     * @return The number of distinct values of an indexed column.
+     */
+    public int getDistinctCount(int column) {
+        return values[column].length;
+    }
+
+    /**
+     * @return The number of values of an indexed column that satisfy column OP constant, i.e. the
+     *         number of bitmaps rows() reads.
+     */
+    public int countValues(int column, Comparison op, int constant) {
+        int count = 0;
+        for (int value : values[column]) {
+            count += op.test(value, constant) ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * @return The rows where column OP constant holds (the OR of the bitmaps of the values that satisfy
+     *         it), or null if the column is not indexed.
+     */
+    public RoaringBitmap rows(int column, Comparison op, int constant) {
+        return rows(column, op, constant, null);
+    }
+
+    /**
+     * Like rows(column, op, constant), but for a comparison ANDed with other ones whose rows are known:
+     * only the chunks of rows that have rows in within are read.
+     */
+    public RoaringBitmap rows(int column, Comparison op, int constant, RoaringBitmap within) {
+        if (values[column] == null) {
+            return null;
+        }
+        List<RoaringBitmap> matching = new ArrayList<>();
+        for (int i = 0; i < values[column].length; i++) {
+            if (op.test(values[column][i], constant)) {
+                ByteBuffer bitmap = buffer.duplicate();
+                ((Buffer) bitmap).position((int) positions[column][i]);
+                matching.add(RoaringBitmap.read(bitmap, within));
+            }
+        }
+        return matching.isEmpty() ? new RoaringBitmap() : RoaringBitmap.orAll(matching);
+    }
+}
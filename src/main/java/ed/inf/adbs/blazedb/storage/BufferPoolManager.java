@@ -0,0 +1,173 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BufferPoolManager keeps the pages of the table files that were read last in a fixed number of frames,
+ * shared by all the scans of the process.
+ *
+ * A scan fetches the pages of its table one after the other. The page is pinned until the scan
+ * unpins it, and a page that is still in a frame (e.g. when the scan is reset by a nested loop join,
+ * or the same table is read again by another query) is returned without reading the file. When
+ * every frame is used, the replacement policy (CLOCK or LRU-K) chooses an unpinned page to evict, so
+ * the memory used for table data is capped by the number of frames.
+ *
+ * Settings: -Dblazedb.bufferPool=false to read the files directly, -Dblazedb.bufferPool.frames (1024),
+ * -Dblazedb.bufferPool.pageRows (1024 rows per page) and -Dblazedb.bufferPool.policy (clock or lru-k).
+ */
+public class BufferPoolManager {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("blazedb.bufferPool", "true"));
+
+    private static BufferPoolManager instance;
+
+    private final Page[] frames;
+    private int usedFrames;
+    private final Map<Long, Integer> pageTable = new HashMap<>(); // page key -> frame
+    private final ReplacementPolicy policy;
+    private final int rowsPerPage;
+    private final Map<Path, PagedCsvFile> files = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Returns the buffer pool shared by all the scans, created with the settings of the system properties.
+     */
+    public static synchronized BufferPoolManager getInstance() {
+        if (instance == null) {
+            instance = new BufferPoolManager(Integer.getInteger("blazedb.bufferPool.frames", 1024),
+                    Integer.getInteger("blazedb.bufferPool.pageRows", 1024),
+                    System.getProperty("blazedb.bufferPool.policy", "clock"));
+        }
+        return instance;
+    }
+
+    /**
+     * @param frameCount The number of pages kept in memory.
+     * @param rowsPerPage The number of rows of a page.
+     * @param policy The replacement policy, "clock" or "lru-k".
+     */
+    public BufferPoolManager(int frameCount, int rowsPerPage, String policy) {
+        if (frameCount < 1 || rowsPerPage < 1) {
+            throw new IllegalArgumentException("The buffer pool needs at least one frame of at least one row");
+        }
+        this.frames = new Page[frameCount];
+        this.rowsPerPage = rowsPerPage;
+        this.policy = ReplacementPolicy.create(policy, frameCount);
+    }
+
+    /**
+     * Returns the paged view of a CSV table file. The same object is returned for the same file until
+     * the file is modified; the old one is then closed, and the pages of the old version are no longer
+     * found and get evicted.
+     */
+    public PagedCsvFile openCsv(Path path, int columnCount) {
+        Path key = path.toAbsolutePath().normalize();
+        PagedCsvFile file = files.get(key);
+        if (file == null || file.isStale() || file.getColumnCount() != columnCount) {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close " + key + ": " + e.getMessage());
+                }
+            }
+            file = new PagedCsvFile(key, columnCount, rowsPerPage);
+            files.put(key, file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns a page of a file, pinned, reading it into a frame if it is not in the pool.
+     * @return The page, or null if the file has fewer pages.
+     * @throws IllegalStateException If the page has to be read and every frame holds a pinned page.
+     */
+    public Page fetchPage(PagedCsvFile file, int pageNumber) throws IOException {
+        Integer frame = pageTable.get(Page.key(file, pageNumber));
+        if (frame != null) {
+            hits++;
+            Page page = frames[frame];
+            page.pinCount++;
+            policy.accessed(frame);
+            file.pageFetched(page);
+            return page;
+        }
+
+        int free = usedFrames < frames.length ? usedFrames : policy.victim(frames);
+        if (free < 0) {
+            throw new IllegalStateException("All " + frames.length + " frames of the buffer pool are pinned");
+        }
+        Page page = file.readPage(pageNumber);
+        if (page == null) {
+            file.endFetched(pageNumber);
+            return null;
+        }
+        misses++;
+        if (free == usedFrames) {
+            usedFrames++;
+        } else {
+            pageTable.remove(frames[free].key());
+            evictions++;
+        }
+        frames[free] = page;
+        pageTable.put(page.key(), free);
+        page.pinCount = 1;
+        policy.loaded(free);
+        file.pageFetched(page);
+        return page;
+    }
+
+    /**
+     * Releases a page fetched with fetchPage(), it can be evicted once no one has it pinned.
+     */
+    public void unpinPage(Page page) {
+        if (page.pinCount <= 0) {
+            throw new IllegalStateException("Page " + page.getPageNumber() + " of " + page.getFile().getPath() + " is not pinned");
+        }
+        page.pinCount--;
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    /**
+     * @return The number of pages in the pool that are still pinned.
+     */
+    public int getPinnedCount() {
+        int pinned = 0;
+        for (int frame = 0; frame < usedFrames; frame++) {
+            if (frames[frame].isPinned()) {
+                pinned++;
+            }
+        }
+        return pinned;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return The hits, misses and evictions so far, for the query log.
+     */
+    public String getStatistics() {
+        long fetches = hits + misses;
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+                + (fetches == 0 ? "" : String.format(" hit rate=%.1f%%", 100.0 * hits / fetches));
+    }
+}
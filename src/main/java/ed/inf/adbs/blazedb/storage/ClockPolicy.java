@@ -0,0 +1,43 @@
+package ed.inf.adbs.blazedb.storage;
+
+/**
+ * CLOCK: each frame has a reference bit that is set when its page is used. The hand goes round the
+ * frames, clearing the bits it finds set, and evicts the first unpinned page whose bit is clear.
+ */
+class ClockPolicy implements ReplacementPolicy {
+
+    private final boolean[] referenced;
+    private int hand;
+
+    ClockPolicy(int frameCount) {
+        this.referenced = new boolean[frameCount];
+    }
+
+    @Override
+    public void loaded(int frame) {
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void accessed(int frame) {
+        referenced[frame] = true;
+    }
+
+    @Override
+    public int victim(Page[] frames) {
+        // two turns: the first one may only clear the reference bits
+        for (int i = 0; i < 2 * frames.length; i++) {
+            int frame = hand;
+            hand = (hand + 1) % frames.length;
+            if (frames[frame].isPinned()) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+            } else {
+                return frame;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,61 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts the CSV files of a database to the columnar format, next to them as db/data/table_name.col.
+ *
+ * Usage: ColumnarConverter database_dir [table ...]
+ * Without table names every table of schema.txt is converted. Once converted, the catalogue reads the
+ * columnar file instead of the CSV file until the CSV file is modified again.
+ */
+public class ColumnarConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ColumnarConverter database_dir [table ...]");
+            return;
+        }
+        DBCatalogue dbCatalogue = new DBCatalogue(args[0]);
+        List<String> tables = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : dbCatalogue.getAllTables();
+        for (String table : tables) {
+            if (!dbCatalogue.tableExists(table)) {
+                System.err.println("Table '" + table + "' does not exist in the database.");
+                continue;
+            }
+            long rows = convert(Paths.get(dbCatalogue.getDirectory(table)), Paths.get(dbCatalogue.getColumnarPath(table)),
+                    dbCatalogue.getTableColumns(table).size(), ColumnarFileWriter.DEFAULT_ROWS_PER_SEGMENT);
+            System.out.println("Converted " + table + ": " + rows + " rows");
+        }
+    }
+
+    /**
+     * Writes the rows of a CSV file to a columnar file. The file is written under a temporary
+     * name and then renamed, so a scan never sees a file that is only partly written.
+     * @return The number of rows.
+     */
+    public static long convert(Path csv, Path target, int columnCount, int rowsPerSegment) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long rows = 0;
+        try (MappedCsvFile in = new MappedCsvFile(csv);
+             ColumnarFileWriter out = new ColumnarFileWriter(temporary, columnCount, rowsPerSegment)) {
+            int[] row = new int[columnCount];
+            while (in.readRow(row)) {
+                out.writeRow(row);
+                rows++;
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+}
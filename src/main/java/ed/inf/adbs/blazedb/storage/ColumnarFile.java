@@ -0,0 +1,135 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ColumnarFile reads a table stored by column in the binary format written by ColumnarFileWriter.
+ *
+ * The rows are split into segments (row groups) and each segment stores every column separately:
+ * <pre>
+ *   header     int magic, int column count, int rows per segment, int unused,
+ *              long row count, long offset of the directory
+ *   data       for each segment, for each column: the values of the column, encoded (see EncodedColumn)
+ *   directory  for each segment, for each column: long offset, int length in bytes
+ * </pre>
+ * Reading a column of a segment only reads the bytes of that column, so a scan that needs two
+ * columns of a wide table does the I/O of two columns. Each column of each segment has its own
+ * encoding (dictionary, run length, frame of reference, delta or plain), chosen when writing.
+ */
+public class ColumnarFile implements Closeable {
+
+    static final int MAGIC = 0x425A4332; // "BZC2", version 1 did not encode the columns
+    static final int HEADER_SIZE = 32;
+    static final int DIRECTORY_ENTRY_SIZE = 12;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int columnCount;
+    private final int rowsPerSegment;
+    private final long rowCount;
+    private final int segmentCount;
+    private final long[] offsets;  // [segment * columnCount + column]
+    private final int[] lengths;
+    private ByteBuffer buffer = ByteBuffer.allocate(0); // reused to read a column of a segment
+
+    public ColumnarFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a columnar table file (or an older version, convert it again): " + path);
+            }
+            columnCount = header.getInt();
+            rowsPerSegment = header.getInt();
+            header.getInt();
+            rowCount = header.getLong();
+            long directoryOffset = header.getLong();
+
+            segmentCount = (int) ((rowCount + rowsPerSegment - 1) / rowsPerSegment);
+            offsets = new long[segmentCount * columnCount];
+            lengths = new int[segmentCount * columnCount];
+            ByteBuffer directory = read(directoryOffset, offsets.length * DIRECTORY_ENTRY_SIZE);
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = directory.getLong();
+                lengths[i] = directory.getInt();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        readFully(bytes, position);
+        return bytes;
+    }
+
+    private void readFully(ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IOException("Unexpected end of columnar table file: " + path);
+            }
+        }
+        ((Buffer) bytes).flip(); // Buffer methods, so the class also runs on Java 8
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getRowsPerSegment() {
+        return rowsPerSegment;
+    }
+
+    /**
+     * @return The number of rows of a segment, only the last one can have fewer than getRowsPerSegment().
+     */
+    public int getSegmentRows(int segment) {
+        return (int) Math.min(rowsPerSegment, rowCount - (long) segment * rowsPerSegment);
+    }
+
+    /**
+     * Reads one column of a segment without decoding it, so conditions can be checked on the encoded values.
+     * @param segment The segment.
+     * @param column The column, in the order of schema.txt.
+     */
+    public EncodedColumn readEncoded(int segment, int column) throws IOException {
+        int entry = segment * columnCount + column;
+        int length = lengths[entry];
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+        }
+        ((Buffer) buffer).clear().limit(length);
+        readFully(buffer, offsets[entry]);
+        return EncodedColumn.read(buffer, getSegmentRows(segment));
+    }
+
+    /**
+     * Reads and decodes one column of a segment.
+     * @param values Receives the values, it must have room for getSegmentRows(segment) ints.
+     */
+    public void readColumn(int segment, int column, int[] values) throws IOException {
+        readEncoded(segment, column).decode(values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,87 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * ColumnarFileWriter writes a table in the format read by ColumnarFile.
+ *
+ * Rows are buffered until a segment is full, then each column of the segment is encoded and written
+ * one after the other. The row count and the directory are only known at the end, so close() writes the
+ * directory after the data and fills in the header.
+ */
+public class ColumnarFileWriter implements Closeable {
+
+    public static final int DEFAULT_ROWS_PER_SEGMENT = 65536;
+
+    private final Path path;
+    private final DataOutputStream out;
+    private final int columnCount;
+    private final int rowsPerSegment;
+    private final int[][] segment;   // [column][row] of the segment being filled
+    private int segmentRows;
+    private long rowCount;
+    private long position;           // bytes written so far
+    private final ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+    private final DataOutputStream directory = new DataOutputStream(directoryBytes);
+
+    public ColumnarFileWriter(Path path, int columnCount, int rowsPerSegment) throws IOException {
+        this.path = path;
+        this.columnCount = columnCount;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segment = new int[columnCount][rowsPerSegment];
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        // the header is written again by close(), once the row count is known
+        out.write(new byte[ColumnarFile.HEADER_SIZE]);
+        position = ColumnarFile.HEADER_SIZE;
+    }
+
+    /**
+     * Appends a row, its length must be the number of columns.
+     */
+    public void writeRow(int[] values) throws IOException {
+        for (int column = 0; column < columnCount; column++) {
+            segment[column][segmentRows] = values[column];
+        }
+        segmentRows++;
+        rowCount++;
+        if (segmentRows == rowsPerSegment) {
+            flushSegment();
+        }
+    }
+
+    private void flushSegment() throws IOException {
+        for (int column = 0; column < columnCount; column++) {
+            int length = EncodedColumn.write(out, segment[column], segmentRows);
+            directory.writeLong(position);
+            directory.writeInt(length);
+            position += length;
+        }
+        segmentRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segmentRows > 0) {
+            flushSegment();
+        }
+        long directoryOffset = position;
+        directoryBytes.writeTo(out);
+        out.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.writeInt(ColumnarFile.MAGIC);
+            file.writeInt(columnCount);
+            file.writeInt(rowsPerSegment);
+            file.writeInt(0);
+            file.writeLong(rowCount);
+            file.writeLong(directoryOffset);
+        }
+    }
+}
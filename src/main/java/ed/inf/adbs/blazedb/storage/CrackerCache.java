@@ -0,0 +1,102 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CrackerCache keeps the cracked columns (see CrackerColumn) of the process, by table file and column,
+ * so the selections of all the queries run in the same process refine the same copies.
+ *
+ * The memory of the copies is capped: when a new column does not fit, the columns used least
+ * recently are dropped, and a column of a table that may be larger than the cap is not copied at all.
+ *
+ * Settings: -Dblazedb.cracking=true to crack the columns of range selections (off by default), and
+ * -Dblazedb.cracking.memory (256 MB) for the cap.
+ */
+public final class CrackerCache {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("blazedb.cracking", "false"));
+
+    private static CrackerCache instance;
+
+    private final long maxBytes;
+    private final Map<String, CrackerColumn> columns = new LinkedHashMap<>(16, 0.75f, true); // in order of use
+    private long usedBytes;
+
+    /**
+     * Returns the cache shared by all the queries, created with the settings of the system properties.
+     */
+    public static synchronized CrackerCache getInstance() {
+        if (instance == null) {
+            instance = new CrackerCache(Long.getLong("blazedb.cracking.memory", 256L << 20));
+        }
+        return instance;
+    }
+
+    /**
+     * @param maxBytes The memory the copies of the columns may use.
+     */
+    public CrackerCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    private static String key(Path csv, int column) {
+        return csv.toAbsolutePath().normalize() + "#" + column;
+    }
+
+    /**
+     * @return True if the column is cached (and not out of date), so selecting on it needs no copy.
+     */
+    public synchronized boolean contains(Path csv, int column) {
+        CrackerColumn cracked = columns.get(key(csv, column));
+        return cracked != null && !cracked.isStale();
+    }
+
+    /**
+     * Returns the cracked copy of a column, copying it the first time or when the file changed.
+     * @return The column, or null if its copy would not fit in the cache.
+     */
+    public synchronized CrackerColumn get(Path csv, int columnCount, int column) throws IOException {
+        String key = key(csv, column);
+        CrackerColumn cracked = columns.get(key);
+        if (cracked != null && !cracked.isStale()) {
+            return cracked;
+        }
+        if (cracked != null) {
+            columns.remove(key);
+            usedBytes -= cracked.getMemoryBytes();
+        }
+        // before copying, the rows are bounded by the file size: a row has at least one digit, a comma
+        // and a space per column (but the last one, which has a line break instead)
+        long maxRows = csv.toFile().length() / (3L * columnCount - 1) + 1;
+        if (CrackerColumn.memoryBytes(maxRows) > maxBytes) {
+            return null;
+        }
+        cracked = CrackerColumn.load(csv, columnCount, column);
+        if (cracked.getMemoryBytes() > maxBytes) {
+            return null;
+        }
+        evict(maxBytes - cracked.getMemoryBytes());
+        columns.put(key, cracked);
+        usedBytes += cracked.getMemoryBytes();
+        return cracked;
+    }
+
+    /**
+     * Drops the columns used least recently until at most limit bytes are used.
+     */
+    private void evict(long limit) {
+        Iterator<CrackerColumn> iterator = columns.values().iterator();
+        while (usedBytes > limit && iterator.hasNext()) {
+            usedBytes -= iterator.next().getMemoryBytes();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+}
@@ -0,0 +1,177 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CrackerColumn is an in-memory copy of a column of a CSV table file, with the number of the row of
+ * each value, that is reorganized by the range selections on the column (database cracking).
+ *
+ * A selection low <= column <= high partitions the piece of the copy that holds low around it, and the
+ * piece that holds high + 1 around that, so the values of the range end up next to each other. The
+ * position where each bound (pivot) was cracked is kept in the cracker index: every value before it
+ * is smaller than the pivot and every value from it on is at least the pivot. The next selections only
+ * partition the pieces their bounds fall in, which get smaller with every query, so repeated
+ * selections on the column get faster without building an index first. A bound that was already
+ * cracked costs a lookup.
+ *
+ * The offset of every GROUP_ROWS-th row is kept too, to read the rows found (see BitmapScanOperator).
+ */
+public final class CrackerColumn implements RowGroups {
+
+    private final Path csv;
+    private final long size;
+    private final long modified;
+    private final int rowCount;
+    private final int[] values;      // the column, reorganized by the selections
+    private final int[] rows;        // the number of the row of each value
+    private final long[] groupOffsets;
+    private final TreeMap<Integer, Integer> pivots = new TreeMap<>(); // the cracker index: pivot -> position
+
+    private CrackerColumn(Path csv, long size, long modified, int rowCount, int[] values, int[] rows, long[] groupOffsets) {
+        this.csv = csv;
+        this.size = size;
+        this.modified = modified;
+        this.rowCount = rowCount;
+        this.values = values;
+        this.rows = rows;
+        this.groupOffsets = groupOffsets;
+    }
+
+    /**
+     * Copies a column of a CSV file into memory, in the order of the file.
+     */
+    public static CrackerColumn load(Path csv, int columnCount, int column) throws IOException {
+        File file = csv.toFile();
+        long size = file.length();
+        long modified = file.lastModified();
+        int[] values = new int[1024];
+        long[] groupOffsets = new long[16];
+        int count = 0;
+        try (MappedCsvFile in = new MappedCsvFile(csv)) {
+            int[] row = new int[columnCount];
+            long offset = in.position();
+            while (in.readRow(row)) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                if (count % GROUP_ROWS == 0) {
+                    if (count / GROUP_ROWS == groupOffsets.length) {
+                        groupOffsets = Arrays.copyOf(groupOffsets, groupOffsets.length * 2);
+                    }
+                    groupOffsets[count / GROUP_ROWS] = offset;
+                }
+                values[count++] = row[column];
+                offset = in.position();
+            }
+        }
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        return new CrackerColumn(csv, size, modified, count, Arrays.copyOf(values, count), rows,
+                Arrays.copyOf(groupOffsets, (count + GROUP_ROWS - 1) / GROUP_ROWS));
+    }
+
+    /**
+     * @return True if the CSV file was modified since the column was copied.
+     */
+    boolean isStale() {
+        File file = csv.toFile();
+        return file.length() != size || file.lastModified() != modified;
+    }
+
+    /**
+     * @return The memory used by the copy, in bytes (the cracker index is small next to it).
+     */
+    long getMemoryBytes() {
+        return memoryBytes(rowCount);
+    }
+
+    /**
+     * @return The memory used by the copy of a column of a table of the given number of rows.
+     */
+    static long memoryBytes(long rowCount) {
+        return 8L * rowCount + 8L * ((rowCount + GROUP_ROWS - 1) / GROUP_ROWS);
+    }
+
+    /**
+     * @return The number of pieces the column is cracked in.
+     */
+    public synchronized int getPieceCount() {
+        return pivots.size() + 1;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getGroupOffset(int group) {
+        return groupOffsets[group];
+    }
+
+    /**
+     * Cracks the column on the bounds of a range, both included.
+     * @return The numbers of the rows whose value is in the range.
+     */
+    public synchronized RoaringBitmap select(long low, long high) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (low > high) {
+            return result;
+        }
+        int from = crack(low);
+        int to = crack(high + 1);
+        int[] found = Arrays.copyOfRange(rows, from, to);
+        Arrays.sort(found);
+        for (int row : found) {
+            result.add(row);
+        }
+        return result;
+    }
+
+    /**
+     * Partitions the piece that holds the pivot so that the values smaller than it come first.
+     * @return The position of the first value of at least pivot.
+     */
+    private int crack(long pivot) {
+        if (pivot <= Integer.MIN_VALUE) {
+            return 0;
+        }
+        if (pivot > Integer.MAX_VALUE) {
+            return rowCount;
+        }
+        int value = (int) pivot;
+        Integer known = pivots.get(value);
+        if (known != null) {
+            return known;
+        }
+        Map.Entry<Integer, Integer> below = pivots.lowerEntry(value);
+        Map.Entry<Integer, Integer> above = pivots.higherEntry(value);
+        int i = below == null ? 0 : below.getValue();
+        int j = (above == null ? rowCount : above.getValue()) - 1;
+        while (i <= j) {
+            if (values[i] < value) {
+                i++;
+            } else {
+                swap(i, j--);
+            }
+        }
+        pivots.put(value, i);
+        return i;
+    }
+
+    private void swap(int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+}
@@ -0,0 +1,466 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.kernel.Comparison;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One column of one segment of a columnar file, still encoded.
+ *
+ * The writer tries every encoding on the values of the segment and keeps the smallest:
+ * <ul>
+ *   <li>PLAIN: the ints as they are.</li>
+ *   <li>FRAME_OF_REFERENCE: the minimum, then value - minimum bit-packed.</li>
+ *   <li>DELTA: the first value, then the differences between consecutive values, as frame of reference.</li>
+ *   <li>DICTIONARY: the sorted distinct values, then the index of each value in them, bit-packed.</li>
+ *   <li>RUN_LENGTH: the value and the end row of each run of equal values.</li>
+ * </ul>
+ * filter() evaluates column OP constant on the encoded values where the encoding allows it: a frame
+ * of reference or a dictionary turns the constant into a packed value or a code once, and a run is
+ * tested once for all its rows. Constants outside the values of the segment match all or none of its rows.
+ */
+public abstract class EncodedColumn {
+
+    static final byte PLAIN = 0;
+    static final byte FRAME_OF_REFERENCE = 1;
+    static final byte DELTA = 2;
+    static final byte DICTIONARY = 3;
+    static final byte RUN_LENGTH = 4;
+
+    /** Dictionaries with more values than this are not considered. */
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    protected final int rows;
+
+    EncodedColumn(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * @return The name of the encoding, for debugging.
+     */
+    public abstract String getEncoding();
+
+    /**
+     * Decodes all the values of the segment.
+     * @param values Receives the values, it must have room for all the rows of the segment.
+     */
+    public abstract void decode(int[] values);
+
+    /**
+     * Keeps the rows whose value satisfies value OP constant.
+     * @param rows The rows to check in increasing order, the rows that are kept are written back in order.
+     * @param count The number of rows to check.
+     * @return The number of rows kept.
+     */
+    public int filter(Comparison op, int constant, int[] rows, int count) {
+        int[] values = new int[this.rows];
+        decode(values);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (op.test(values[rows[i]], constant)) {
+                rows[kept++] = rows[i];
+            }
+        }
+        return kept;
+    }
+
+    // ==================== Writing ====================
+
+    /**
+     * Writes values[0..count) with the encoding that takes the fewest bytes.
+     * @return The number of bytes written.
+     */
+    static int write(DataOutputStream out, int[] values, int count) throws IOException {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long minDelta = Long.MAX_VALUE;
+        long maxDelta = Long.MIN_VALUE;
+        int runs = count == 0 ? 0 : 1;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            if (i > 0) {
+                long delta = (long) values[i] - values[i - 1];
+                minDelta = Math.min(minDelta, delta);
+                maxDelta = Math.max(maxDelta, delta);
+                if (values[i] != values[i - 1]) {
+                    runs++;
+                }
+            }
+        }
+        int[] dictionary = distinctValues(values, count);
+
+        int forWidth = count == 0 ? 0 : BitPacking.bitWidth((long) max - min);
+        int deltaWidth = count < 2 ? 0 : BitPacking.bitWidth(maxDelta - minDelta);
+        int codeWidth = dictionary == null ? 0 : BitPacking.bitWidth(dictionary.length - 1);
+
+        long[] sizes = new long[5];
+        sizes[PLAIN] = 4L * count;
+        sizes[FRAME_OF_REFERENCE] = 5 + 8L * BitPacking.wordCount(count, forWidth);
+        sizes[DELTA] = count < 2 || deltaWidth > 32 ? Long.MAX_VALUE
+                : 9 + 8L * BitPacking.wordCount(count - 1, deltaWidth);
+        sizes[DICTIONARY] = dictionary == null ? Long.MAX_VALUE
+                : 5 + 4L * dictionary.length + 8L * BitPacking.wordCount(count, codeWidth);
+        sizes[RUN_LENGTH] = 4 + 8L * runs;
+        byte encoding = PLAIN;
+        for (byte e = 1; e < sizes.length; e++) {
+            if (sizes[e] < sizes[encoding]) {
+                encoding = e;
+            }
+        }
+
+        out.writeByte(encoding);
+        long[] packed = new long[count];
+        switch (encoding) {
+            case FRAME_OF_REFERENCE:
+                out.writeInt(min);
+                out.writeByte(forWidth);
+                for (int i = 0; i < count; i++) {
+                    packed[i] = (long) values[i] - min;
+                }
+                BitPacking.write(out, packed, count, forWidth);
+                break;
+            case DELTA:
+                out.writeInt(values[0]);
+                out.writeInt((int) minDelta);
+                out.writeByte(deltaWidth);
+                for (int i = 1; i < count; i++) {
+                    packed[i - 1] = (long) values[i] - values[i - 1] - minDelta;
+                }
+                BitPacking.write(out, packed, count - 1, deltaWidth);
+                break;
+            case DICTIONARY:
+                out.writeInt(dictionary.length);
+                for (int value : dictionary) {
+                    out.writeInt(value);
+                }
+                out.writeByte(codeWidth);
+                for (int i = 0; i < count; i++) {
+                    packed[i] = Arrays.binarySearch(dictionary, values[i]);
+                }
+                BitPacking.write(out, packed, count, codeWidth);
+                break;
+            case RUN_LENGTH:
+                out.writeInt(runs);
+                for (int i = 0; i < count; i++) {
+                    if (i == count - 1 || values[i] != values[i + 1]) {
+                        out.writeInt(values[i]);
+                        out.writeInt(i + 1); // end of the run
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(values[i]);
+                }
+        }
+        return (int) sizes[encoding] + 1; // not out.size(), which stops counting at 2 GB
+    }
+
+    /**
+     * @return The sorted distinct values, or null if there are too many for a dictionary.
+     */
+    private static int[] distinctValues(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct > MAX_DICTIONARY_SIZE ? null : Arrays.copyOf(sorted, distinct);
+    }
+
+    // ==================== Reading ====================
+
+    /**
+     * Reads a column written by write().
+     * @param bytes The bytes of the column, from its first byte.
+     * @param rows The number of rows of the segment.
+     */
+    static EncodedColumn read(ByteBuffer bytes, int rows) throws IOException {
+        byte encoding = bytes.get();
+        switch (encoding) {
+            case PLAIN: {
+                int[] values = new int[rows];
+                bytes.asIntBuffer().get(values);
+                return new Plain(values);
+            }
+            case FRAME_OF_REFERENCE: {
+                int min = bytes.getInt();
+                int width = bytes.get();
+                return new FrameOfReference(rows, min, width, readWords(bytes, rows, width));
+            }
+            case DELTA: {
+                int first = bytes.getInt();
+                int minDelta = bytes.getInt();
+                int width = bytes.get();
+                return new Delta(rows, first, minDelta, width, readWords(bytes, rows - 1, width));
+            }
+            case DICTIONARY: {
+                int[] dictionary = new int[bytes.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = bytes.getInt();
+                }
+                int width = bytes.get();
+                return new Dictionary(rows, dictionary, width, readWords(bytes, rows, width));
+            }
+            case RUN_LENGTH: {
+                int runs = bytes.getInt();
+                int[] values = new int[runs];
+                int[] ends = new int[runs];
+                for (int i = 0; i < runs; i++) {
+                    values[i] = bytes.getInt();
+                    ends[i] = bytes.getInt();
+                }
+                return new RunLength(rows, values, ends);
+            }
+            default:
+                throw new IOException("Unknown column encoding " + encoding);
+        }
+    }
+
+    private static long[] readWords(ByteBuffer bytes, int count, int width) {
+        long[] words = new long[BitPacking.wordCount(count, width)];
+        bytes.asLongBuffer().get(words);
+        return words;
+    }
+
+    /**
+     * For a constant outside [min, max], value OP constant has the same result for every value.
+     * @return 1 if all the values match, 0 if none match, -1 if it depends on the value.
+     */
+    static int allOrNone(Comparison op, long constant, long min, long max) {
+        if (constant < min) {
+            return op == Comparison.NE || op == Comparison.GT || op == Comparison.GE ? 1 : 0;
+        }
+        if (constant > max) {
+            return op == Comparison.NE || op == Comparison.LT || op == Comparison.LE ? 1 : 0;
+        }
+        return -1;
+    }
+
+    // ==================== Encodings ====================
+
+    static final class Plain extends EncodedColumn {
+        private final int[] values;
+
+        Plain(int[] values) {
+            super(values.length);
+            this.values = values;
+        }
+
+        @Override
+        public String getEncoding() {
+            return "plain";
+        }
+
+        @Override
+        public void decode(int[] out) {
+            System.arraycopy(values, 0, out, 0, rows);
+        }
+
+        @Override
+        public int filter(Comparison op, int constant, int[] rows, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (op.test(values[rows[i]], constant)) {
+                    rows[kept++] = rows[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    static final class FrameOfReference extends EncodedColumn {
+        private final int min;
+        private final int width;
+        private final long[] words;
+
+        FrameOfReference(int rows, int min, int width, long[] words) {
+            super(rows);
+            this.min = min;
+            this.width = width;
+            this.words = words;
+        }
+
+        @Override
+        public String getEncoding() {
+            return "frame of reference (" + width + " bits)";
+        }
+
+        @Override
+        public void decode(int[] out) {
+            BitPacking.unpack(words, rows, width, out);
+            for (int i = 0; i < rows; i++) {
+                out[i] += min;
+            }
+        }
+
+        /**
+         * Compares the packed values with constant - min, without adding min back to each value.
+         */
+        @Override
+        public int filter(Comparison op, int constant, int[] rows, int count) {
+            long packedConstant = (long) constant - min;
+            int all = allOrNone(op, packedConstant, 0, (1L << width) - 1);
+            if (all >= 0) {
+                return all == 1 ? count : 0;
+            }
+            if (width == 32) {
+                return super.filter(op, constant, rows, count);
+            }
+            int c = (int) packedConstant; // both sides fit in 31 bits here
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (op.test((int) BitPacking.get(words, rows[i], width), c)) {
+                    rows[kept++] = rows[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    static final class Delta extends EncodedColumn {
+        private final int first;
+        private final int minDelta;
+        private final int width;
+        private final long[] words;
+
+        Delta(int rows, int first, int minDelta, int width, long[] words) {
+            super(rows);
+            this.first = first;
+            this.minDelta = minDelta;
+            this.width = width;
+            this.words = words;
+        }
+
+        @Override
+        public String getEncoding() {
+            return "delta (" + width + " bits)";
+        }
+
+        @Override
+        public void decode(int[] out) {
+            BitPacking.unpack(words, rows - 1, width, out);
+            System.arraycopy(out, 0, out, 1, rows - 1); // the deltas start at the second row
+            int value = first;
+            out[0] = value;
+            for (int i = 1; i < rows; i++) {
+                value += minDelta + out[i];
+                out[i] = value;
+            }
+        }
+    }
+
+    static final class Dictionary extends EncodedColumn {
+        private final int[] dictionary; // sorted
+        private final int width;
+        private final long[] codes;
+
+        Dictionary(int rows, int[] dictionary, int width, long[] codes) {
+            super(rows);
+            this.dictionary = dictionary;
+            this.width = width;
+            this.codes = codes;
+        }
+
+        @Override
+        public String getEncoding() {
+            return "dictionary (" + dictionary.length + " values)";
+        }
+
+        @Override
+        public void decode(int[] out) {
+            BitPacking.unpack(codes, rows, width, out);
+            for (int i = 0; i < rows; i++) {
+                out[i] = dictionary[out[i]];
+            }
+        }
+
+        /**
+         * As the dictionary is sorted, comparing a value with the constant is comparing its code with
+         * the position of the constant in the dictionary.
+         */
+        @Override
+        public int filter(Comparison op, int constant, int[] rows, int count) {
+            int position = Arrays.binarySearch(dictionary, constant);
+            boolean found = position >= 0;
+            int lower = found ? position : -position - 1; // codes below this are values < constant
+            int upper = found ? position + 1 : lower;     // codes from this are values > constant
+            Comparison codeOp;
+            int code;
+            switch (op) {
+                case EQ: if (!found) return 0; codeOp = Comparison.EQ; code = position; break;
+                case NE: if (!found) return count; codeOp = Comparison.NE; code = position; break;
+                case LT: codeOp = Comparison.LT; code = lower; break;
+                case LE: codeOp = Comparison.LT; code = upper; break;
+                case GT: codeOp = Comparison.GE; code = upper; break;
+                default: codeOp = Comparison.GE; code = lower; break;
+            }
+            int all = allOrNone(codeOp, code, 0, dictionary.length - 1);
+            if (all >= 0) {
+                return all == 1 ? count : 0;
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (codeOp.test((int) BitPacking.get(codes, rows[i], width), code)) {
+                    rows[kept++] = rows[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    static final class RunLength extends EncodedColumn {
+        private final int[] values;
+        private final int[] ends; // the row after the last row of each run
+
+        RunLength(int rows, int[] values, int[] ends) {
+            super(rows);
+            this.values = values;
+            this.ends = ends;
+        }
+
+        @Override
+        public String getEncoding() {
+            return "run length (" + values.length + " runs)";
+        }
+
+        @Override
+        public void decode(int[] out) {
+            int start = 0;
+            for (int run = 0; run < values.length; run++) {
+                Arrays.fill(out, start, ends[run], values[run]);
+                start = ends[run];
+            }
+        }
+
+        /**
+         * Tests the value of each run once. Runs that do not match are skipped with all their rows.
+         */
+        @Override
+        public int filter(Comparison op, int constant, int[] rows, int count) {
+            int kept = 0;
+            int run = 0;
+            int i = 0;
+            while (i < count) {
+                while (ends[run] <= rows[i]) {
+                    run++;
+                }
+                boolean match = op.test(values[run], constant);
+                for (; i < count && rows[i] < ends[run]; i++) {
+                    if (match) {
+                        rows[kept++] = rows[i];
+                    }
+                }
+            }
+            return kept;
+        }
+    }
+}
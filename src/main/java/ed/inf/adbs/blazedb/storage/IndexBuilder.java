@@ -0,0 +1,44 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.IndexDefinition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Builds the B+-trees of the indexes declared in the indexes.txt file of a database, next to the
+ * table files as db/data/table_name.column_name.idx.
+ *
+ * Usage: IndexBuilder database_dir
+ * The indexes are also built by the first query that wants to use them, this only does it ahead of time.
+ * This is also the only place where a table file is sorted on the column of its clustered index, before
+ * its indexes are built: queries never change the table files, they read a clustered index on a file
+ * that is not sorted like an unclustered one.
+ */
+public class IndexBuilder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: IndexBuilder database_dir");
+            return;
+        }
+        DBCatalogue dbCatalogue = new DBCatalogue(args[0]);
+        for (String table : dbCatalogue.getAllTables()) {
+            Path csv = Paths.get(dbCatalogue.getDirectory(table));
+            List<String> columns = dbCatalogue.getTableColumns(table);
+            for (IndexDefinition index : dbCatalogue.getIndexes(table)) {
+                if (index.isClustered() && BPlusTree.sortFile(csv, columns.size(), columns.indexOf(index.getColumn()))) {
+                    System.out.println("Sorted " + csv + " on " + index.getColumn());
+                }
+            }
+            for (IndexDefinition index : dbCatalogue.getIndexes(table)) {
+                long entries = BPlusTree.build(csv, Paths.get(dbCatalogue.getIndexPath(index)),
+                        columns.size(), columns.indexOf(index.getColumn()));
+                System.out.println("Built index " + index + ": " + entries + " entries");
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.util.Arrays;
+
+/**
+ * LRU-K: evicts the unpinned page whose K-th most recent access is the oldest. Pages accessed fewer
+ * than K times come first, in LRU order, so a page read once by a scan does not push out the pages
+ * that are used again and again (e.g. the inner table of a nested loop join).
+ */
+class LruKPolicy implements ReplacementPolicy {
+
+    private final int k;
+    private final long[][] history; // [frame][i]: time of the (i+1)-th most recent access, 0 if none
+    private long time;
+
+    LruKPolicy(int frameCount, int k) {
+        this.k = k;
+        this.history = new long[frameCount][k];
+    }
+
+    @Override
+    public void loaded(int frame) {
+        Arrays.fill(history[frame], 0);
+        accessed(frame);
+    }
+
+    @Override
+    public void accessed(int frame) {
+        long[] accesses = history[frame];
+        System.arraycopy(accesses, 0, accesses, 1, k - 1);
+        accesses[0] = ++time;
+    }
+
+    @Override
+    public int victim(Page[] frames) {
+        int victim = -1;
+        for (int frame = 0; frame < frames.length; frame++) {
+            if (frames[frame].isPinned()) {
+                continue;
+            }
+            if (victim < 0 || before(history[frame], history[victim])) {
+                victim = frame;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Whether the first page should be evicted before the second one.
+     */
+    private boolean before(long[] first, long[] second) {
+        if (first[k - 1] != second[k - 1]) {
+            return first[k - 1] < second[k - 1];
+        }
+        return first[0] < second[0];
+    }
+}
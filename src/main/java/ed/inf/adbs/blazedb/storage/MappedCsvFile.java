@@ -0,0 +1,210 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedCsvFile reads the rows of comma separated ints of a table file from memory.
+ *
+ * The file is mapped read-only with FileChannel.map and the values are parsed straight from the
+ * bytes, so no String is created for a line or a field. A single mapping is limited to 2 GB, so a
+ * larger file is mapped in segments; each segment ends after the last complete line it contains and
+ * the next one starts there, so a line is never split between two segments.
+ * rewind() goes back to the first segment instead of opening the file again.
+ */
+public class MappedCsvFile implements Closeable {
+
+    /** The largest segment mapped at once, lower values are only useful to test the segmenting. */
+    static final long SEGMENT_SIZE = Long.getLong("blazedb.scan.segmentSize", Integer.MAX_VALUE);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long segmentSize;
+
+    private MappedByteBuffer segment;
+    private long segmentStart;  // offset of the segment in the file
+    private int limit;          // number of bytes of the segment that belong to complete lines
+    private int pos;            // next byte to read in the segment
+
+    public MappedCsvFile(Path path) throws IOException {
+        this(path, SEGMENT_SIZE);
+    }
+
+    MappedCsvFile(Path path, long segmentSize) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.segmentSize = Math.max(1, Math.min(segmentSize, Integer.MAX_VALUE));
+        map(0);
+    }
+
+    /**
+     * Maps the segment starting at the given offset of the file.
+     */
+    private void map(long start) throws IOException {
+        long length = Math.min(segmentSize, fileSize - start);
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        segmentStart = start;
+        pos = 0;
+        limit = (int) length;
+        if (start + length < fileSize) {
+            // the last line continues in the next segment, which maps it again from its start
+            while (limit > 0 && segment.get(limit - 1) != '\n') {
+                limit--;
+            }
+            if (limit == 0) {
+                throw new IOException("Line longer than " + segmentSize + " bytes in " + path);
+            }
+        }
+    }
+
+    /**
+     * Parses the next row into values, one int per column. Empty lines are skipped.
+     *
+     * @param values Receives the values, its length is the number of columns expected.
+     * @return false at the end of the file.
+     * @throws IOException If the next segment cannot be mapped.
+     * @throws IllegalStateException If the line does not hold values.length ints.
+     */
+    public boolean readRow(int[] values) throws IOException {
+        while (true) {
+            if (pos >= limit) {
+                if (segmentStart + limit >= fileSize) {
+                    return false;
+                }
+                map(segmentStart + limit);
+            }
+            byte b = segment.get(pos);
+            if (b == '\n' || b == '\r') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+
+        MappedByteBuffer bytes = segment;
+        int lineStart = pos;
+        int p = pos;
+        for (int slot = 0; slot < values.length; slot++) {
+            while (p < limit && bytes.get(p) == ' ') p++;
+            boolean negative = false;
+            if (p < limit && (bytes.get(p) == '-' || bytes.get(p) == '+')) {
+                negative = bytes.get(p) == '-';
+                p++;
+            }
+            long value = 0;
+            int digits = 0;
+            byte b;
+            while (p < limit && (b = bytes.get(p)) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE + 1L) {
+                    throw invalid(lineStart, "Invalid integer value at column " + slot);
+                }
+                digits++;
+                p++;
+            }
+            while (p < limit && bytes.get(p) == ' ') p++;
+            if (digits == 0 || (!negative && value > Integer.MAX_VALUE)) {
+                throw invalid(lineStart, "Invalid integer value at column " + slot);
+            }
+            values[slot] = (int) (negative ? -value : value);
+
+            boolean endOfLine = p >= limit || bytes.get(p) == '\n' || bytes.get(p) == '\r';
+            if (slot < values.length - 1) {
+                if (endOfLine || bytes.get(p) != ',') {
+                    throw invalid(lineStart, endOfLine
+                            ? "Schema mismatch: expected " + values.length + " columns but found " + (slot + 1)
+                            : "Invalid integer value at column " + slot);
+                }
+                p++; // the comma
+            } else if (!endOfLine) {
+                throw invalid(lineStart, bytes.get(p) == ','
+                        ? "Schema mismatch: expected " + values.length + " columns"
+                        : "Invalid integer value at column " + slot);
+            }
+        }
+        pos = p;
+        return true;
+    }
+
+    /**
+     * Moves past the next row without parsing it, counting rows like readRow() (empty lines are skipped).
+     * @return false at the end of the file.
+     */
+    public boolean skipRow() throws IOException {
+        boolean inLine = false;
+        while (true) {
+            if (pos >= limit) {
+                if (segmentStart + limit >= fileSize) {
+                    return inLine;
+                }
+                map(segmentStart + limit);
+            }
+            byte b = segment.get(pos);
+            if (b == '\n' || b == '\r') {
+                if (inLine) {
+                    return true;
+                }
+            } else {
+                inLine = true;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Builds the error for the line starting at lineStart. This is the only place a String is made from the bytes.
+     */
+    private IllegalStateException invalid(int lineStart, String message) {
+        int end = lineStart;
+        while (end < limit && segment.get(end) != '\n' && segment.get(end) != '\r') {
+            end++;
+        }
+        byte[] line = new byte[end - lineStart];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = segment.get(lineStart + i);
+        }
+        return new IllegalStateException(message + " in " + path.getFileName() + ": "
+                + new String(line, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return The offset in the file of the next row to read.
+     */
+    public long position() {
+        return segmentStart + pos;
+    }
+
+    /**
+     * Moves to the row starting at the given offset of the file, as returned by position().
+     */
+    public void seek(long offset) throws IOException {
+        if (offset >= segmentStart && offset <= segmentStart + limit) {
+            pos = (int) (offset - segmentStart);
+        } else {
+            map(offset);
+        }
+    }
+
+    /**
+     * Moves back to the first row of the file.
+     */
+    public void rewind() throws IOException {
+        if (segmentStart == 0) {
+            pos = 0;
+        } else {
+            map(0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,59 @@
+package ed.inf.adbs.blazedb.storage;
+
+/**
+ * A page of a table held in a frame of the BufferPoolManager: a fixed number of consecutive rows
+ * (fewer for the last page), stored by column.
+ *
+ * A page must be pinned (BufferPoolManager.fetchPage) while it is read and unpinned afterwards; only
+ * unpinned pages can be evicted. The values are never changed, a page read again after being
+ * evicted is a new Page.
+ */
+public final class Page {
+
+    private final PagedCsvFile file;
+    private final int pageNumber;
+    private final int[][] columns; // [column][row]
+    private final int rowCount;
+    int pinCount;
+
+    Page(PagedCsvFile file, int pageNumber, int[][] columns, int rowCount) {
+        this.file = file;
+        this.pageNumber = pageNumber;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    PagedCsvFile getFile() {
+        return file;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * @return The columns of the page, each one has room for a full page but only getRowCount() rows are set.
+     */
+    public int[][] getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isPinned() {
+        return pinCount > 0;
+    }
+
+    /**
+     * The key of the page in the page table of the buffer pool.
+     */
+    long key() {
+        return key(file, pageNumber);
+    }
+
+    static long key(PagedCsvFile file, int pageNumber) {
+        return ((long) file.getId() << 32) | pageNumber;
+    }
+}
@@ -0,0 +1,198 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A CSV table file seen as a sequence of pages of rowsPerPage rows, loaded by the BufferPoolManager.
+ *
+ * The offset of each page in the file is only known once the page before it has been parsed, so the
+ * offsets are recorded as the pages are read; reading a page further than the ones seen so far parses
+ * the pages in between. The size and modification time of the file are kept to notice when it changes.
+ *
+ * The first time the pages are fetched in order from the first to the last, they are summarized in a
+ * ZoneMap that is written next to the file. Once a zone map of the current file is known, the offsets
+ * of all the pages are too, so a scan can skip pages without parsing them.
+ */
+public class PagedCsvFile implements Closeable {
+
+    private static int nextId;
+
+    private final int id;
+    private final Path path;
+    private final int columnCount;
+    private final int rowsPerPage;
+    private final long size;
+    private final long modified;
+
+    private MappedCsvFile csv;                    // opened on the first page read
+    private long[] pageOffsets = new long[16];    // offset of the first row of each page
+    private int knownPages = 1;                   // pages whose offset is known, page 0 starts at 0
+    private int pageCount = -1;                   // known once the end of the file is reached
+    private int[] row;
+    private ZoneMap zoneMap;                      // null until loaded or built
+    private boolean zoneMapLoaded;
+    private ZoneMap building;                     // summaries of the pages fetched in order so far
+
+    PagedCsvFile(Path path, int columnCount, int rowsPerPage) {
+        this.id = nextId++;
+        this.path = path;
+        this.columnCount = columnCount;
+        this.rowsPerPage = rowsPerPage;
+        File file = path.toFile();
+        this.size = file.length();
+        this.modified = file.lastModified();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getRowsPerPage() {
+        return rowsPerPage;
+    }
+
+    /**
+     * @return True if the file was modified since this object was created, so its pages are out of date.
+     */
+    boolean isStale() {
+        File file = path.toFile();
+        return file.length() != size || file.lastModified() != modified;
+    }
+
+    /**
+     * Returns the zone map of the file, reading it the first time if it was stored by an earlier scan.
+     * @return The zone map, or null if it is not built yet (or zone maps are disabled).
+     */
+    public ZoneMap getZoneMap() {
+        if (!zoneMapLoaded && ZoneMap.ENABLED) {
+            zoneMapLoaded = true;
+            try {
+                ZoneMap stored = ZoneMap.load(path, columnCount, rowsPerPage);
+                if (stored != null) {
+                    useZoneMap(stored);
+                }
+            } catch (IOException e) {
+                // unreadable, it is built again
+            }
+        }
+        return zoneMap;
+    }
+
+    private void useZoneMap(ZoneMap zoneMap) {
+        this.zoneMap = zoneMap;
+        this.building = null;
+        pageCount = zoneMap.getBlockCount();
+        if (pageOffsets.length < pageCount) {
+            pageOffsets = Arrays.copyOf(pageOffsets, pageCount);
+        }
+        for (int page = 0; page < pageCount; page++) {
+            pageOffsets[page] = zoneMap.getOffset(page);
+        }
+        knownPages = Math.max(knownPages, pageCount);
+    }
+
+    /**
+     * Called by the buffer pool for every page it returns, to build the zone map from pages fetched in order.
+     */
+    void pageFetched(Page page) {
+        if (getZoneMap() != null || !ZoneMap.ENABLED) {
+            return;
+        }
+        int pageNumber = page.getPageNumber();
+        if (pageNumber == 0) {
+            building = ZoneMap.builder(columnCount, rowsPerPage);
+        }
+        if (building != null && building.getBlockCount() == pageNumber) {
+            building.addBlock(pageOffsets[pageNumber], page.getColumns(), page.getRowCount());
+        }
+    }
+
+    /**
+     * Called by the buffer pool when a page past the end of the file is fetched. If every page was
+     * summarized, the zone map is complete and is written next to the file.
+     */
+    void endFetched(int pageNumber) {
+        if (building == null || building.getBlockCount() != pageNumber || pageCount != pageNumber) {
+            return;
+        }
+        ZoneMap built = building;
+        useZoneMap(built);
+        try {
+            built.write(path, size, modified);
+        } catch (IOException e) {
+            System.err.println("Could not write the zone map of " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a page from the file.
+     * @return The page, not pinned, or null if the file has fewer pages.
+     */
+    Page readPage(int pageNumber) throws IOException {
+        while (knownPages <= pageNumber) {
+            if (pageCount >= 0) {
+                return null;
+            }
+            parse(knownPages - 1, null); // only to find where the next page starts
+        }
+        if (pageCount >= 0 && pageNumber >= pageCount) {
+            return null;
+        }
+        int[][] columns = new int[columnCount][rowsPerPage];
+        int rows = parse(pageNumber, columns);
+        return rows == 0 ? null : new Page(this, pageNumber, columns, rows);
+    }
+
+    /**
+     * Parses the rows of a page into the columns (if not null) and records where the next page starts.
+     * @return The number of rows of the page.
+     */
+    private int parse(int pageNumber, int[][] columns) throws IOException {
+        if (csv == null) {
+            csv = new MappedCsvFile(path);
+            row = new int[columnCount];
+        }
+        csv.seek(pageOffsets[pageNumber]);
+        int rows = 0;
+        while (rows < rowsPerPage && csv.readRow(row)) {
+            if (columns != null) {
+                for (int column = 0; column < columnCount; column++) {
+                    columns[column][rows] = row[column];
+                }
+            }
+            rows++;
+        }
+        if (rows < rowsPerPage) {
+            pageCount = rows == 0 ? pageNumber : pageNumber + 1;
+        } else if (pageNumber + 1 == knownPages) {
+            if (knownPages == pageOffsets.length) {
+                pageOffsets = Arrays.copyOf(pageOffsets, knownPages * 2);
+            }
+            pageOffsets[knownPages++] = csv.position();
+        }
+        return rows;
+    }
+
+    /**
+     * Closes the mapped file, if a page was read. It is opened again if another page is read.
+     */
+    @Override
+    public void close() throws IOException {
+        if (csv != null) {
+            csv.close();
+            csv = null;
+        }
+    }
+}
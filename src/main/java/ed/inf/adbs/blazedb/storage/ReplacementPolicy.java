@@ -0,0 +1,34 @@
+package ed.inf.adbs.blazedb.storage;
+
+/**
+ * Chooses the frame of the buffer pool to evict when a page is read and no frame is free.
+ */
+interface ReplacementPolicy {
+
+    /**
+     * A new page was loaded into the frame.
+     */
+    void loaded(int frame);
+
+    /**
+     * The page in the frame was fetched again.
+     */
+    void accessed(int frame);
+
+    /**
+     * @return A frame whose page is not pinned, or -1 if every page is pinned.
+     */
+    int victim(Page[] frames);
+
+    /**
+     * @param name "clock" or "lru-k" (the last two accesses).
+     */
+    static ReplacementPolicy create(String name, int frameCount) {
+        switch (name.toLowerCase()) {
+            case "clock": return new ClockPolicy(frameCount);
+            case "lru-k":
+            case "lru-2": return new LruKPolicy(frameCount, 2);
+            default: throw new IllegalArgumentException("Unknown buffer pool policy: " + name);
+        }
+    }
+}
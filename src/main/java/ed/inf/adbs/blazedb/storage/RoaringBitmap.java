@@ -0,0 +1,473 @@
+package ed.inf.adbs.blazedb.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+
+/**
+ * RoaringBitmap is a compressed set of row numbers (non-negative ints), in the layout of Roaring bitmaps.
+ *
+ * The numbers are split in chunks of 2^16 by their high 16 bits, and each chunk that has numbers is
+ * kept in a container of the low 16 bits: a sorted array of chars while it has at most ARRAY_MAX
+ * numbers, a bitmap of 2^16 bits (1024 longs, 8 KB) beyond that. So a sparse set costs about 2 bytes
+ * per number and a dense one at most 1 bit per possible number, and AND / OR work a chunk at a time,
+ * on whole words for two bitmap containers.
+ *
+ * Numbers are added in increasing order (the rows of a table are numbered as they are read), the
+ * sets made by and() and or() are new bitmaps.
+ */
+public final class RoaringBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private int size;                           // number of containers
+    private char[] keys = new char[4];          // high 16 bits of the numbers of each container, increasing
+    private Object[] containers = new Object[4]; // char[] (sorted low bits) or long[BITMAP_WORDS]
+    private int[] cardinalities = new int[4];
+
+    /**
+     * Adds a number larger than every number added so far.
+     * @throws IllegalArgumentException If the number is negative or not larger than the last one.
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        if (size == 0 || keys[size - 1] < key) {
+            append(key, new char[8], 0);
+        } else if (keys[size - 1] > key || !lastLowBelow(low)) {
+            throw new IllegalArgumentException("Values must be added in increasing order: " + value);
+        }
+        int last = size - 1;
+        Object container = containers[last];
+        int cardinality = cardinalities[last];
+        if (container instanceof char[]) {
+            char[] array = (char[]) container;
+            if (cardinality == ARRAY_MAX) {
+                long[] bitmap = toBitmap(array, cardinality);
+                bitmap[low >>> 6] |= 1L << low;
+                containers[last] = bitmap;
+            } else {
+                if (cardinality == array.length) {
+                    array = Arrays.copyOf(array, Math.min(ARRAY_MAX, cardinality * 2));
+                    containers[last] = array;
+                }
+                array[cardinality] = low;
+            }
+        } else {
+            long[] bitmap = (long[]) container;
+            bitmap[low >>> 6] |= 1L << low;
+        }
+        cardinalities[last] = cardinality + 1;
+    }
+
+    private boolean lastLowBelow(char low) {
+        int last = size - 1;
+        int cardinality = cardinalities[last];
+        if (cardinality == 0) {
+            return true;
+        }
+        Object container = containers[last];
+        if (container instanceof char[]) {
+            return ((char[]) container)[cardinality - 1] < low;
+        }
+        long[] bitmap = (long[]) container;
+        for (int word = BITMAP_WORDS - 1; word >= 0; word--) {
+            if (bitmap[word] != 0) {
+                return word * 64 + 63 - Long.numberOfLeadingZeros(bitmap[word]) < low;
+            }
+        }
+        return true;
+    }
+
+    private void append(char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+            cardinalities = Arrays.copyOf(cardinalities, size * 2);
+        }
+        keys[size] = key;
+        containers[size] = container;
+        cardinalities[size] = cardinality;
+        size++;
+    }
+
+    /**
+     * Adds a container computed by and() or or(), as the smallest kind for its cardinality.
+     */
+    private void appendResult(char key, Object container, int cardinality) {
+        if (cardinality == 0) {
+            return;
+        }
+        if (container instanceof long[] && cardinality <= ARRAY_MAX) {
+            container = toArray((long[]) container, cardinality);
+        }
+        append(key, container, cardinality);
+    }
+
+    /**
+     * @return The number of numbers in the set.
+     */
+    public long getCardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += cardinalities[i];
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (value < 0 || i < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (containers[i] instanceof char[]) {
+            return Arrays.binarySearch((char[]) containers[i], 0, cardinalities[i], low) >= 0;
+        }
+        return (((long[]) containers[i])[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * @return The numbers in both sets.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                if (a instanceof char[] && b instanceof char[]) {
+                    char[] out = new char[Math.min(cardinalities[i], other.cardinalities[j])];
+                    int n = andArrays((char[]) a, cardinalities[i], (char[]) b, other.cardinalities[j], out);
+                    result.appendResult(keys[i], out, n);
+                } else if (a instanceof char[] || b instanceof char[]) {
+                    boolean aIsArray = a instanceof char[];
+                    char[] array = (char[]) (aIsArray ? a : b);
+                    int cardinality = aIsArray ? cardinalities[i] : other.cardinalities[j];
+                    long[] bitmap = (long[]) (aIsArray ? b : a);
+                    char[] out = new char[cardinality];
+                    int n = 0;
+                    for (int k = 0; k < cardinality; k++) {
+                        char low = array[k];
+                        if ((bitmap[low >>> 6] & (1L << low)) != 0) {
+                            out[n++] = low;
+                        }
+                    }
+                    result.appendResult(keys[i], out, n);
+                } else {
+                    long[] out = new long[BITMAP_WORDS];
+                    long[] x = (long[]) a;
+                    long[] y = (long[]) b;
+                    int n = 0;
+                    for (int word = 0; word < BITMAP_WORDS; word++) {
+                        out[word] = x[word] & y[word];
+                        n += Long.bitCount(out[word]);
+                    }
+                    result.appendResult(keys[i], out, n);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The numbers in either set.
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], copy(containers[i]), cardinalities[i]);
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], copy(other.containers[j]), other.cardinalities[j]);
+                j++;
+            } else {
+                Object a = containers[i];
+                Object b = other.containers[j];
+                int ca = cardinalities[i];
+                int cb = other.cardinalities[j];
+                if (a instanceof char[] && b instanceof char[] && ca + cb <= ARRAY_MAX) {
+                    char[] out = new char[ca + cb];
+                    int n = orArrays((char[]) a, ca, (char[]) b, cb, out);
+                    result.appendResult(keys[i], out, n);
+                } else {
+                    long[] out = a instanceof long[] ? ((long[]) a).clone() : toBitmap((char[]) a, ca);
+                    if (b instanceof long[]) {
+                        long[] y = (long[]) b;
+                        for (int word = 0; word < BITMAP_WORDS; word++) {
+                            out[word] |= y[word];
+                        }
+                    } else {
+                        char[] array = (char[]) b;
+                        for (int k = 0; k < cb; k++) {
+                            out[array[k] >>> 6] |= 1L << array[k];
+                        }
+                    }
+                    int n = 0;
+                    for (long word : out) {
+                        n += Long.bitCount(word);
+                    }
+                    result.appendResult(keys[i], out, n);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The numbers in any of the sets, merged in one pass: the containers of each chunk are ORed
+     *         into one bitmap of the chunk, instead of copying the result for each set as or() would.
+     */
+    public static RoaringBitmap orAll(List<RoaringBitmap> bitmaps) {
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0);
+        }
+        TreeMap<Character, long[]> chunks = new TreeMap<>();
+        for (RoaringBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                long[] out = chunks.get(bitmap.keys[i]);
+                if (out == null) {
+                    out = new long[BITMAP_WORDS];
+                    chunks.put(bitmap.keys[i], out);
+                }
+                if (bitmap.containers[i] instanceof char[]) {
+                    char[] array = (char[]) bitmap.containers[i];
+                    for (int k = 0; k < bitmap.cardinalities[i]; k++) {
+                        out[array[k] >>> 6] |= 1L << array[k];
+                    }
+                } else {
+                    long[] words = (long[]) bitmap.containers[i];
+                    for (int word = 0; word < BITMAP_WORDS; word++) {
+                        out[word] |= words[word];
+                    }
+                }
+            }
+        }
+        RoaringBitmap result = new RoaringBitmap();
+        for (Map.Entry<Character, long[]> chunk : chunks.entrySet()) {
+            int n = 0;
+            for (long word : chunk.getValue()) {
+                n += Long.bitCount(word);
+            }
+            result.appendResult(chunk.getKey(), chunk.getValue(), n);
+        }
+        return result;
+    }
+
+    private static int andArrays(char[] a, int na, char[] b, int nb, char[] out) {
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < na && j < nb) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static int orArrays(char[] a, int na, char[] b, int nb, char[] out) {
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < na || j < nb) {
+            if (j == nb || (i < na && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i == na || a[i] > b[j]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static Object copy(Object container) {
+        return container instanceof char[] ? ((char[]) container).clone() : ((long[]) container).clone();
+    }
+
+    private static long[] toBitmap(char[] array, int cardinality) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (int k = 0; k < cardinality; k++) {
+            bitmap[array[k] >>> 6] |= 1L << array[k];
+        }
+        return bitmap;
+    }
+
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] array = new char[cardinality];
+        int n = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                array[n++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * @return The numbers of the set in increasing order.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int container;
+            private int position;          // next index in an array container
+            private int word;              // next word of a bitmap container
+            private long bits;             // bits of the word before it not returned yet
+
+            @Override
+            public boolean hasNext() {
+                while (container < size) {
+                    Object current = containers[container];
+                    if (current instanceof char[]) {
+                        if (position < cardinalities[container]) {
+                            return true;
+                        }
+                    } else {
+                        long[] bitmap = (long[]) current;
+                        while (bits == 0 && word < BITMAP_WORDS) {
+                            bits = bitmap[word++];
+                        }
+                        if (bits != 0) {
+                            return true;
+                        }
+                    }
+                    container++;
+                    position = 0;
+                    word = 0;
+                    bits = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int high = keys[container] << 16;
+                Object current = containers[container];
+                if (current instanceof char[]) {
+                    return high | ((char[]) current)[position++];
+                }
+                int low = (word - 1) * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                return high | low;
+            }
+        };
+    }
+
+    /**
+     * Writes the bitmap: int container count, then for each container char key, int cardinality and
+     * either the cardinality chars of an array or the 1024 longs of a bitmap (more than ARRAY_MAX numbers).
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            out.writeInt(cardinalities[i]);
+            if (containers[i] instanceof char[]) {
+                char[] array = (char[]) containers[i];
+                for (int k = 0; k < cardinalities[i]; k++) {
+                    out.writeChar(array[k]);
+                }
+            } else {
+                for (long word : (long[]) containers[i]) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes written by write().
+     */
+    long serializedSize() {
+        long bytes = 4;
+        for (int i = 0; i < size; i++) {
+            bytes += 6 + (containers[i] instanceof char[] ? 2L * cardinalities[i] : 8L * BITMAP_WORDS);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a bitmap written by write() from the position of the buffer, copying its containers in bulk.
+     * @param within If not null, only the containers of the chunks that have numbers in this set are
+     *               read, the others are skipped: the result is only meant to be ANDed with it.
+     */
+    static RoaringBitmap read(ByteBuffer in, RoaringBitmap within) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int count = in.getInt();
+        int next = 0; // next container of within
+        for (int i = 0; i < count; i++) {
+            char key = in.getChar();
+            int cardinality = in.getInt();
+            if (within != null) {
+                while (next < within.size && within.keys[next] < key) {
+                    next++;
+                }
+                if (next == within.size || within.keys[next] != key) {
+                    ((Buffer) in).position(in.position() + (cardinality <= ARRAY_MAX ? 2 * cardinality : 8 * BITMAP_WORDS));
+                    continue;
+                }
+            }
+            Object container;
+            if (cardinality <= ARRAY_MAX) {
+                char[] array = new char[cardinality];
+                in.asCharBuffer().get(array);
+                ((Buffer) in).position(in.position() + 2 * cardinality);
+                container = array;
+            } else {
+                long[] words = new long[BITMAP_WORDS];
+                in.asLongBuffer().get(words);
+                ((Buffer) in).position(in.position() + 8 * BITMAP_WORDS);
+                container = words;
+            }
+            bitmap.append(key, container, cardinality);
+        }
+        return bitmap;
+    }
+
+    @Override
+    public String toString() {
+        return "RoaringBitmap[" + getCardinality() + " values in " + size + " containers]";
+    }
+}
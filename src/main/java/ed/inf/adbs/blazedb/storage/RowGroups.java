@@ -0,0 +1,21 @@
+package ed.inf.adbs.blazedb.storage;
+
+/**
+ * The rows of a CSV table file numbered from 0 in the order of the file, in groups of GROUP_ROWS rows
+ * with the offset of the first row of each group, so a row can be read from its number by moving to
+ * its group and skipping the rows before it (see BitmapScanOperator).
+ */
+public interface RowGroups {
+
+    int GROUP_ROWS = 64;
+
+    /**
+     * @return The number of rows of the table.
+     */
+    long getRowCount();
+
+    /**
+     * @return The offset in the CSV file of the first row of a group, row group * GROUP_ROWS.
+     */
+    long getGroupOffset(int group);
+}
@@ -0,0 +1,188 @@
+package ed.inf.adbs.blazedb.storage;
+
+import ed.inf.adbs.blazedb.kernel.Comparison;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * ZoneMap keeps the minimum and maximum of every column for each block of a CSV table file, so a
+ * scan can skip the blocks where no row can satisfy a comparison with a constant.
+ *
+ * The blocks are the pages of the buffer pool (PagedCsvFile), and the offset of each block in the
+ * file is kept too, so a skipped block is not even parsed. The zone map of db/data/table_name.csv is
+ * stored next to it as table_name.zm:
+ * <pre>
+ *   header  int magic, int column count, int rows per block, int block count,
+ *           long size of the CSV file, long modification time of the CSV file
+ *   blocks  for each block: long offset in the CSV file, int row count,
+ *           for each column: int minimum, int maximum
+ * </pre>
+ * A zone map whose size, time or block size does not match the CSV file is ignored and built again.
+ */
+public final class ZoneMap {
+
+    /** -Dblazedb.zoneMap=false neither builds nor uses zone maps. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("blazedb.zoneMap", "true"));
+
+    static final int MAGIC = 0x425A5A31; // "BZZ1"
+
+    private final int columnCount;
+    private final int blockRows;
+    private int blockCount;
+    private long[] offsets;
+    private int[] rowCounts;
+    private int[] bounds;   // [(block * columnCount + column) * 2] minimum, then maximum
+
+    private ZoneMap(int columnCount, int blockRows, int blocks) {
+        this.columnCount = columnCount;
+        this.blockRows = blockRows;
+        this.offsets = new long[blocks];
+        this.rowCounts = new int[blocks];
+        this.bounds = new int[blocks * columnCount * 2];
+    }
+
+    /**
+     * @return An empty zone map, whose blocks are added in order with addBlock().
+     */
+    static ZoneMap builder(int columnCount, int blockRows) {
+        return new ZoneMap(columnCount, blockRows, 16);
+    }
+
+    /**
+     * @return The path of the zone map of a CSV file.
+     */
+    static Path pathOf(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".zm");
+    }
+
+    /**
+     * Summarizes the next block of the file.
+     * @param offset The offset in the CSV file of the first row of the block.
+     * @param columns The values of the block, [column][row].
+     */
+    void addBlock(long offset, int[][] columns, int rows) {
+        if (blockCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blockCount * 2);
+            rowCounts = Arrays.copyOf(rowCounts, blockCount * 2);
+            bounds = Arrays.copyOf(bounds, blockCount * 2 * columnCount * 2);
+        }
+        offsets[blockCount] = offset;
+        rowCounts[blockCount] = rows;
+        for (int column = 0; column < columnCount; column++) {
+            int[] values = columns[column];
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int row = 0; row < rows; row++) {
+                min = Math.min(min, values[row]);
+                max = Math.max(max, values[row]);
+            }
+            int at = (blockCount * columnCount + column) * 2;
+            bounds[at] = min;
+            bounds[at + 1] = max;
+        }
+        blockCount++;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public int getBlockRows() {
+        return blockRows;
+    }
+
+    long getOffset(int block) {
+        return offsets[block];
+    }
+
+    public int getMin(int block, int column) {
+        return bounds[(block * columnCount + column) * 2];
+    }
+
+    public int getMax(int block, int column) {
+        return bounds[(block * columnCount + column) * 2 + 1];
+    }
+
+    /**
+     * @return false if no row of the block can satisfy column OP constant.
+     */
+    public boolean mayMatch(int block, int column, Comparison op, int constant) {
+        int min = getMin(block, column);
+        int max = getMax(block, column);
+        switch (op) {
+            case EQ: return min <= constant && constant <= max;
+            case NE: return min != constant || max != constant;
+            case GT: return max > constant;
+            case GE: return max >= constant;
+            case LT: return min < constant;
+            case LE: return min <= constant;
+            default: throw new IllegalArgumentException("Unknown comparison: " + op);
+        }
+    }
+
+    /**
+     * Reads the zone map of a CSV file.
+     * @return The zone map, or null if there is none or it does not describe the current file.
+     */
+    static ZoneMap load(Path csv, int columnCount, int blockRows) throws IOException {
+        File file = csv.toFile();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pathOf(csv))))) {
+            if (in.readInt() != MAGIC || in.readInt() != columnCount || in.readInt() != blockRows) {
+                return null;
+            }
+            int blocks = in.readInt();
+            if (in.readLong() != file.length() || in.readLong() != file.lastModified()) {
+                return null;
+            }
+            ZoneMap zoneMap = new ZoneMap(columnCount, blockRows, blocks);
+            for (int block = 0; block < blocks; block++) {
+                zoneMap.offsets[block] = in.readLong();
+                zoneMap.rowCounts[block] = in.readInt();
+                for (int i = 0; i < columnCount * 2; i++) {
+                    zoneMap.bounds[block * columnCount * 2 + i] = in.readInt();
+                }
+            }
+            zoneMap.blockCount = blocks;
+            return zoneMap;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the zone map next to the CSV file it was built from, under a temporary name that is then
+     * renamed, so a scan never reads a partly written zone map.
+     */
+    void write(Path csv, long csvSize, long csvModified) throws IOException {
+        Path target = pathOf(csv);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(columnCount);
+            out.writeInt(blockRows);
+            out.writeInt(blockCount);
+            out.writeLong(csvSize);
+            out.writeLong(csvModified);
+            for (int block = 0; block < blockCount; block++) {
+                out.writeLong(offsets[block]);
+                out.writeInt(rowCounts[block]);
+                for (int i = 0; i < columnCount * 2; i++) {
+                    out.writeInt(bounds[block * columnCount * 2 + i]);
+                }
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
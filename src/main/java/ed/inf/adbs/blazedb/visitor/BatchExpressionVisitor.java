@@ -0,0 +1,351 @@
+package ed.inf.adbs.blazedb.visitor;
+
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.TupleSchema;
+import ed.inf.adbs.blazedb.kernel.Comparison;
+import ed.inf.adbs.blazedb.kernel.IntKernels;
+import ed.inf.adbs.blazedb.kernel.Kernels;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Division;
+import net.sf.jsqlparser.expression.operators.arithmetic.Multiplication;
+import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.BitSet;
+
+/**
+ * BatchExpressionVisitor compiles conditions and arithmetic expressions for batches of rows.
+ *
+ * It is the column-at-a-time counterpart of ExpressionVisitor: the expression is visited once when
+ * the plan is built, and the resulting BatchPredicate / BatchValue evaluates a whole batch with one
+ * loop per node over int arrays. The common case of a column compared with a constant
+ * (e.g. Student.A > 3) is a single loop over the column.
+ *
+ * A comparison with a constant outside the int range is folded to its result, as in ExpressionVisitor.
+ *
+ * When the rows to evaluate are all the rows of the batch (no selection yet), comparisons with a
+ * constant and multiplications go through the IntKernels, which use SIMD instructions if available.
+ */
+public class BatchExpressionVisitor extends ExpressionVisitorAdapter {
+
+    private static final IntKernels KERNELS = Kernels.get();
+
+    private final TupleSchema schema;
+    private final BitSet columns = new BitSet(); // slots read by the expression
+
+    private BatchValue value;           // the result of visiting a value expression
+    private BatchPredicate predicate;   // the result of visiting a condition
+    private Integer columnSlot;         // set when the visited value is a column
+    private Integer constant;           // set when the visited value is a constant
+
+    private BatchExpressionVisitor(TupleSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Compiles a condition evaluated on batches of the given schema.
+     */
+    public static BatchPredicate compilePredicate(Expression expression, TupleSchema schema) {
+        return new BatchExpressionVisitor(schema).predicateOf(expression);
+    }
+
+    /**
+     * Compiles an integer expression (e.g. the argument of a SUM) evaluated on batches of the given schema.
+     */
+    public static BatchValue compileValue(Expression expression, TupleSchema schema) {
+        return new BatchExpressionVisitor(schema).valueOf(expression);
+    }
+
+    /**
+     * Returns the slots of the columns used by an expression, so a join can fill them before the others.
+     */
+    public static BitSet referencedSlots(Expression expression, TupleSchema schema) {
+        BatchExpressionVisitor visitor = new BatchExpressionVisitor(schema);
+        visitor.predicateOf(expression);
+        return visitor.columns;
+    }
+
+    private BatchPredicate predicateOf(Expression expression) {
+        predicate = null;
+        expression.accept(this);
+        if (predicate == null) {
+            throw new IllegalArgumentException("Unsupported condition: " + expression);
+        }
+        return predicate;
+    }
+
+    private BatchValue valueOf(Expression expression) {
+        value = null;
+        columnSlot = null;
+        constant = null;
+        expression.accept(this);
+        if (value == null) {
+            throw new IllegalArgumentException("Unsupported expression: " + expression);
+        }
+        return value;
+    }
+
+    // ==================== Conditions ====================
+
+    @Override
+    public void visit(AndExpression andExpression) {
+        BatchPredicate left = predicateOf(andExpression.getLeftExpression());
+        BatchPredicate right = predicateOf(andExpression.getRightExpression());
+        // the right condition only checks the rows that passed the left one
+        predicate = (batch, rows, count) -> right.filter(batch, rows, left.filter(batch, rows, count));
+    }
+
+    @Override
+    public void visit(Parenthesis parenthesis) {
+        parenthesis.getExpression().accept(this);
+    }
+
+    @Override
+    public void visit(EqualsTo equalsTo) {
+        comparison(equalsTo, Comparison.EQ);
+    }
+
+    @Override
+    public void visit(NotEqualsTo notEqualsTo) {
+        comparison(notEqualsTo, Comparison.NE);
+    }
+
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        comparison(greaterThan, Comparison.GT);
+    }
+
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        comparison(greaterThanEquals, Comparison.GE);
+    }
+
+    @Override
+    public void visit(MinorThan minorThan) {
+        comparison(minorThan, Comparison.LT);
+    }
+
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        comparison(minorThanEquals, Comparison.LE);
+    }
+
+    private void comparison(BinaryExpression expression, Comparison op) {
+        Integer order = ExpressionVisitor.wideOrder(expression.getLeftExpression(), expression.getRightExpression());
+        if (order != null) {
+            // a constant outside the int range, as in ExpressionVisitor
+            boolean result = op.test(order, 0);
+            predicate = (batch, rows, count) -> result ? count : 0;
+            return;
+        }
+        BatchValue left = valueOf(expression.getLeftExpression());
+        Integer leftSlot = columnSlot;
+        Integer leftConstant = constant;
+        BatchValue right = valueOf(expression.getRightExpression());
+        Integer rightSlot = columnSlot;
+        Integer rightConstant = constant;
+
+        if (leftConstant != null && rightConstant != null) {
+            boolean result = op.test(leftConstant, rightConstant);
+            predicate = (batch, rows, count) -> result ? count : 0;
+        } else if (leftSlot != null && rightConstant != null) {
+            predicate = columnConstant(op, leftSlot, rightConstant);
+        } else if (leftConstant != null && rightSlot != null) {
+            predicate = columnConstant(op.flip(), rightSlot, leftConstant);
+        } else {
+            predicate = new ValueComparison(op, left, right);
+        }
+    }
+
+    /**
+     * Whether the rows are 0, 1, .., count - 1, i.e. a contiguous part of the columns. Since the rows
+     * are in increasing order, this is the case exactly when the last one is count - 1.
+     */
+    private static boolean isDense(int[] rows, int count) {
+        return count > 0 && rows[count - 1] == count - 1;
+    }
+
+    /**
+     * column OP constant: one loop over the column, with the comparison chosen outside the loop.
+     */
+    private static BatchPredicate columnConstant(Comparison op, int slot, int c) {
+        return (batch, rows, count) -> {
+            int[] column = batch.getColumn(slot);
+            if (isDense(rows, count)) {
+                return KERNELS.selectCompare(op, column, c, count, rows);
+            }
+            int kept = 0;
+            switch (op) {
+                case EQ: for (int i = 0; i < count; i++) if (column[rows[i]] == c) rows[kept++] = rows[i]; break;
+                case NE: for (int i = 0; i < count; i++) if (column[rows[i]] != c) rows[kept++] = rows[i]; break;
+                case GT: for (int i = 0; i < count; i++) if (column[rows[i]] > c) rows[kept++] = rows[i]; break;
+                case GE: for (int i = 0; i < count; i++) if (column[rows[i]] >= c) rows[kept++] = rows[i]; break;
+                case LT: for (int i = 0; i < count; i++) if (column[rows[i]] < c) rows[kept++] = rows[i]; break;
+                default: for (int i = 0; i < count; i++) if (column[rows[i]] <= c) rows[kept++] = rows[i]; break;
+            }
+            return kept;
+        };
+    }
+
+    /**
+     * Any other comparison: both sides are evaluated into buffers and then compared.
+     */
+    private static final class ValueComparison implements BatchPredicate {
+        private final Comparison op;
+        private final BatchValue left;
+        private final BatchValue right;
+        private int[] leftValues = new int[0];
+        private int[] rightValues = new int[0];
+
+        ValueComparison(Comparison op, BatchValue left, BatchValue right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int filter(TupleBatch batch, int[] rows, int count) {
+            if (leftValues.length < count) {
+                leftValues = new int[Math.max(count, batch.capacity())];
+                rightValues = new int[Math.max(count, batch.capacity())];
+            }
+            left.evaluate(batch, rows, count, leftValues);
+            right.evaluate(batch, rows, count, rightValues);
+            int[] a = leftValues;
+            int[] b = rightValues;
+            int kept = 0;
+            switch (op) {
+                case EQ: for (int i = 0; i < count; i++) if (a[i] == b[i]) rows[kept++] = rows[i]; break;
+                case NE: for (int i = 0; i < count; i++) if (a[i] != b[i]) rows[kept++] = rows[i]; break;
+                case GT: for (int i = 0; i < count; i++) if (a[i] > b[i]) rows[kept++] = rows[i]; break;
+                case GE: for (int i = 0; i < count; i++) if (a[i] >= b[i]) rows[kept++] = rows[i]; break;
+                case LT: for (int i = 0; i < count; i++) if (a[i] < b[i]) rows[kept++] = rows[i]; break;
+                default: for (int i = 0; i < count; i++) if (a[i] <= b[i]) rows[kept++] = rows[i]; break;
+            }
+            return kept;
+        }
+    }
+
+    // ==================== Values ====================
+
+    @Override
+    public void visit(Column column) {
+        String tableName = column.getTable() != null ? column.getTable().getName() : null;
+        int slot = schema.indexOf(tableName, column.getColumnName());
+        if (slot < 0) {
+            throw new IllegalArgumentException("Column " + column + " not found in " + schema);
+        }
+        columns.set(slot);
+        columnSlot = slot;
+        value = (batch, rows, count, out) -> {
+            int[] values = batch.getColumn(slot);
+            if (isDense(rows, count)) {
+                System.arraycopy(values, 0, out, 0, count);
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                out[i] = values[rows[i]];
+            }
+        };
+    }
+
+    @Override
+    public void visit(LongValue longValue) {
+        if (!ExpressionVisitor.fitsInt(longValue.getValue())) {
+            throw new IllegalArgumentException("Constant out of the int range: " + longValue);
+        }
+        constantValue((int) longValue.getValue());
+    }
+
+    private void constantValue(int c) {
+        constant = c;
+        value = (batch, rows, count, out) -> {
+            for (int i = 0; i < count; i++) {
+                out[i] = c;
+            }
+        };
+    }
+
+    @Override
+    public void visit(SignedExpression signedExpression) {
+        Long signed = ExpressionVisitor.constantOf(signedExpression);
+        if (signed != null && ExpressionVisitor.fitsInt(signed)) { // -2147483648 fits, its operand does not
+            constantValue((int) (long) signed);
+            return;
+        }
+        BatchValue operand = valueOf(signedExpression.getExpression());
+        if (signedExpression.getSign() == '-') {
+            value = (batch, rows, count, out) -> {
+                operand.evaluate(batch, rows, count, out);
+                for (int i = 0; i < count; i++) {
+                    out[i] = -out[i];
+                }
+            };
+        } else {
+            value = operand;
+        }
+        columnSlot = null;
+        constant = null;
+    }
+
+    @Override
+    public void visit(Multiplication multiplication) {
+        arithmetic(multiplication, '*');
+    }
+
+    @Override
+    public void visit(Addition addition) {
+        arithmetic(addition, '+');
+    }
+
+    @Override
+    public void visit(Subtraction subtraction) {
+        arithmetic(subtraction, '-');
+    }
+
+    @Override
+    public void visit(Division division) {
+        arithmetic(division, '/');
+    }
+
+    private void arithmetic(BinaryExpression expression, char operator) {
+        value = new Arithmetic(operator, valueOf(expression.getLeftExpression()), valueOf(expression.getRightExpression()));
+        columnSlot = null;
+        constant = null;
+    }
+
+    /**
+     * left OP right, the left side is evaluated directly into the output.
+     */
+    private static final class Arithmetic implements BatchValue {
+        private final char operator;
+        private final BatchValue left;
+        private final BatchValue right;
+        private int[] rightValues = new int[0];
+
+        Arithmetic(char operator, BatchValue left, BatchValue right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public void evaluate(TupleBatch batch, int[] rows, int count, int[] out) {
+            if (rightValues.length < count) {
+                rightValues = new int[Math.max(count, batch.capacity())];
+            }
+            left.evaluate(batch, rows, count, out);
+            right.evaluate(batch, rows, count, rightValues);
+            int[] b = rightValues;
+            switch (operator) {
+                case '*': KERNELS.multiply(out, b, count); break;
+                case '+': for (int i = 0; i < count; i++) out[i] += b[i]; break;
+                case '-': for (int i = 0; i < count; i++) out[i] -= b[i]; break;
+                default:  for (int i = 0; i < count; i++) out[i] /= b[i]; break;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ed.inf.adbs.blazedb.visitor;
+
+import ed.inf.adbs.blazedb.TupleBatch;
+
+/**
+ * A condition compiled for batches, see BatchExpressionVisitor.
+ */
+public interface BatchPredicate {
+
+    /**
+     * Keeps the rows that satisfy the condition.
+     * @param batch The batch.
+     * @param rows The rows to check, in order. The rows that satisfy the condition are moved to the front.
+     * @param count The number of rows to check.
+     * @return The number of rows that satisfy the condition.
+     */
+    int filter(TupleBatch batch, int[] rows, int count);
+}
@@ -0,0 +1,18 @@
+package ed.inf.adbs.blazedb.visitor;
+
+import ed.inf.adbs.blazedb.TupleBatch;
+
+/**
+ * An integer expression compiled for batches, see BatchExpressionVisitor.
+ */
+public interface BatchValue {
+
+    /**
+     * Evaluates the expression on some rows of a batch.
+     * @param batch The batch.
+     * @param rows The rows to evaluate.
+     * @param count The number of rows.
+     * @param out Receives the value for rows[i] in out[i].
+     */
+    void evaluate(TupleBatch batch, int[] rows, int count, int[] out);
+}
@@ -1,117 +1,292 @@
 package ed.inf.adbs.blazedb.visitor;
 
 import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.arithmetic.Addition;
+import net.sf.jsqlparser.expression.operators.arithmetic.Division;
+import net.sf.jsqlparser.expression.operators.arithmetic.Multiplication;
+import net.sf.jsqlparser.expression.operators.arithmetic.Subtraction;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.schema.Column;
-import ed.inf.adbs.blazedb.Tuple;
-import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import ed.inf.adbs.blazedb.TupleSchema;
+
+import java.util.function.IntPredicate;
 
 /**
- * ExpressionVisitor for evaluating conditions on a merged Tuple.
+ * ExpressionVisitor compiles conditions and arithmetic expressions into evaluators.
+ *
+ * The visitor walks the JSqlParser expression once, when the plan is built: columns are
+ * resolved to their slots and constants to ints, and the result is a tree of small evaluator
+ * objects (PredicateEvaluator, IntEvaluator) that work on primitive ints. Operators then call
+ * the evaluator for every tuple, the expression itself is never visited again.
+ *
+ * Constants that do not fit in an int cannot be compared as ints: a comparison with one has the
+ * same result for every tuple and is folded to it when compiled.
+ *
+ * Conditions can also be compiled for a join, against a left and a right schema: the columns of
+ * the right schema then read from the right tuple of the pair, so the joined tuple is not needed.
  */
-public class ExpressionVisitor extends ExpressionDeParser {
-    private Tuple mergedTuple;
-    private boolean result;
+public class ExpressionVisitor extends ExpressionVisitorAdapter {
+    private final TupleSchema schema;  // the schema the columns are resolved against
+    private final int leftSize;        // slots from here on are read from the right tuple
+
+    private IntEvaluator value;           // the result of visiting a value expression
+    private PredicateEvaluator predicate; // the result of visiting a condition
+
+    private ExpressionVisitor(TupleSchema schema, int leftSize) {
+        this.schema = schema;
+        this.leftSize = leftSize;
+    }
+
+    /**
+     * Compiles a condition evaluated on single tuples.
+     * @param expression The condition.
+     * @param schema The schema of the tuples.
+     * @return The compiled condition.
+     */
+    public static PredicateEvaluator compilePredicate(Expression expression, TupleSchema schema) {
+        return new ExpressionVisitor(schema, schema.size()).predicateOf(expression);
+    }
 
     /**
-     * Constructor for ExpressionVisitor.
+     * Compiles a join condition, evaluated on pairs of tuples with PredicateEvaluator.test(left, right).
+     * @param expression The condition.
+     * @param leftSchema The schema of the left tuples.
+     * @param rightSchema The schema of the right tuples.
+     * @return The compiled condition.
      */
-    public ExpressionVisitor(Tuple mergedTuple) {
-        this.mergedTuple = mergedTuple;
-        this.result = false;
+    public static PredicateEvaluator compilePredicate(Expression expression, TupleSchema leftSchema, TupleSchema rightSchema) {
+        return new ExpressionVisitor(leftSchema.concat(rightSchema), leftSchema.size()).predicateOf(expression);
     }
 
-    public boolean getResult() {
-        return result;
+    /**
+     * Compiles an integer expression (e.g. the argument of a SUM) evaluated on single tuples.
+     * @param expression The expression.
+     * @param schema The schema of the tuples.
+     * @return The compiled expression.
+     */
+    public static IntEvaluator compileValue(Expression expression, TupleSchema schema) {
+        return new ExpressionVisitor(schema, schema.size()).valueOf(expression);
+    }
+
+    private PredicateEvaluator predicateOf(Expression expression) {
+        predicate = null;
+        expression.accept(this);
+        if (predicate == null) {
+            throw new IllegalArgumentException("Unsupported condition: " + expression);
+        }
+        return predicate;
+    }
+
+    private IntEvaluator valueOf(Expression expression) {
+        value = null;
+        expression.accept(this);
+        if (value == null) {
+            throw new IllegalArgumentException("Unsupported expression: " + expression);
+        }
+        return value;
     }
 
+    // ==================== Conditions ====================
+
     @Override
     public void visit(AndExpression andExpression) {
-        andExpression.getLeftExpression().accept(this);
-        boolean left = result;
-        andExpression.getRightExpression().accept(this);
-        result = left && result;
+        PredicateEvaluator left = predicateOf(andExpression.getLeftExpression());
+        PredicateEvaluator right = predicateOf(andExpression.getRightExpression());
+        predicate = (l, r) -> left.test(l, r) && right.test(l, r);
+    }
+
+    @Override
+    public void visit(Parenthesis parenthesis) {
+        parenthesis.getExpression().accept(this);
     }
 
     @Override
     public void visit(EqualsTo equalsTo) {
-        Object leftValue = evaluate(equalsTo.getLeftExpression());
-        Object rightValue = evaluate(equalsTo.getRightExpression());
-        result = leftValue != null && rightValue != null && Integer.valueOf(leftValue.toString()).equals(Integer.valueOf(rightValue.toString()));
+        if (foldWideConstant(equalsTo, order -> order == 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(equalsTo.getLeftExpression());
+        IntEvaluator right = valueOf(equalsTo.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) == right.evaluate(l, r);
+    }
+
+    @Override
+    public void visit(NotEqualsTo notEqualsTo) {
+        if (foldWideConstant(notEqualsTo, order -> order != 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(notEqualsTo.getLeftExpression());
+        IntEvaluator right = valueOf(notEqualsTo.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) != right.evaluate(l, r);
     }
 
     @Override
     public void visit(GreaterThan greaterThan) {
-        Object leftValue = evaluate(greaterThan.getLeftExpression());
-        Object rightValue = evaluate(greaterThan.getRightExpression());
-        result = compareValues(leftValue, rightValue) > 0;
+        if (foldWideConstant(greaterThan, order -> order > 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(greaterThan.getLeftExpression());
+        IntEvaluator right = valueOf(greaterThan.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) > right.evaluate(l, r);
     }
 
     @Override
     public void visit(GreaterThanEquals greaterThanEquals) {
-        Object leftValue = evaluate(greaterThanEquals.getLeftExpression());
-        Object rightValue = evaluate(greaterThanEquals.getRightExpression());
-        result = compareValues(leftValue, rightValue) >= 0;
+        if (foldWideConstant(greaterThanEquals, order -> order >= 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(greaterThanEquals.getLeftExpression());
+        IntEvaluator right = valueOf(greaterThanEquals.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) >= right.evaluate(l, r);
     }
 
     @Override
     public void visit(MinorThan minorThan) {
-        Object leftValue = evaluate(minorThan.getLeftExpression());
-        Object rightValue = evaluate(minorThan.getRightExpression());
-        result = compareValues(leftValue, rightValue) < 0;
+        if (foldWideConstant(minorThan, order -> order < 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(minorThan.getLeftExpression());
+        IntEvaluator right = valueOf(minorThan.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) < right.evaluate(l, r);
     }
 
     @Override
     public void visit(MinorThanEquals minorThanEquals) {
-        Object leftValue = evaluate(minorThanEquals.getLeftExpression());
-        Object rightValue = evaluate(minorThanEquals.getRightExpression());
-        result = compareValues(leftValue, rightValue) <= 0;
+        if (foldWideConstant(minorThanEquals, order -> order <= 0)) {
+            return;
+        }
+        IntEvaluator left = valueOf(minorThanEquals.getLeftExpression());
+        IntEvaluator right = valueOf(minorThanEquals.getRightExpression());
+        predicate = (l, r) -> left.evaluate(l, r) <= right.evaluate(l, r);
     }
 
-    @Override
-    public void visit(NotEqualsTo notEqualsTo) {
-        Object leftValue = evaluate(notEqualsTo.getLeftExpression());
-        Object rightValue = evaluate(notEqualsTo.getRightExpression());
-        result = leftValue != null && rightValue != null && !leftValue.equals(rightValue);
+    /**
+     * A constant that does not fit in an int (e.g. Student.A < 3000000000) compares the same way with
+     * every int value, so the comparison is folded to its result instead of truncating the constant.
+     * @param comparison The comparison.
+     * @param test The comparison on the order of the left side with respect to the right one.
+     * @return True if the comparison had such a constant and was folded.
+     */
+    private boolean foldWideConstant(BinaryExpression comparison, IntPredicate test) {
+        Integer order = wideOrder(comparison.getLeftExpression(), comparison.getRightExpression());
+        if (order == null) {
+            return false;
+        }
+        boolean result = test.test(order);
+        predicate = (l, r) -> result;
+        return true;
     }
 
     /**
-     * Extracts the actual column value from the merged tuple.
+     * @return The order of the left side of a comparison with respect to the right one (negative, zero
+     *         or positive) if a side is a constant outside the int range, which orders the same way with
+     *         every int value, or null if neither side is such a constant.
      */
-    private Object evaluate(Expression expr) {
-        if (expr instanceof Column) {
-            Column column = (Column) expr;
-            String columnName = column.getColumnName();
-            String tableName = column.getTable() != null ? column.getTable().getName() : null;
+    public static Integer wideOrder(Expression leftExpression, Expression rightExpression) {
+        Long left = constantOf(leftExpression);
+        Long right = constantOf(rightExpression);
+        boolean leftWide = left != null && !fitsInt(left);
+        boolean rightWide = right != null && !fitsInt(right);
+        if (!leftWide && !rightWide) {
+            return null;
+        }
+        if (left != null && right != null) {
+            return Long.compare(left, right);
+        }
+        return rightWide ? (right > 0 ? -1 : 1) : (left > 0 ? 1 : -1);
+    }
 
-            return mergedTuple.returnValue(columnName, tableName);
+    /**
+     * @return The value of a constant expression (5, -5, (5)), or null if the expression is not one.
+     */
+    public static Long constantOf(Expression expression) {
+        if (expression instanceof LongValue) {
+            return ((LongValue) expression).getValue();
         }
-        if (expr instanceof LongValue) {
-            return ((LongValue) expr).getValue();
+        if (expression instanceof Parenthesis) {
+            return constantOf(((Parenthesis) expression).getExpression());
         }
-        if (expr instanceof StringValue) {
-            return ((StringValue) expr).getValue();
+        if (expression instanceof SignedExpression) {
+            Long operand = constantOf(((SignedExpression) expression).getExpression());
+            return operand == null || ((SignedExpression) expression).getSign() != '-' ? operand : -operand;
         }
         return null;
     }
 
     /**
-     * Compares two values.
+     * @return True if the value is in the int range.
+     */
+    public static boolean fitsInt(long value) {
+        return value == (int) value;
+    }
+
+    // ==================== Values ====================
+
+    /**
+     * A column is bound to its slot here, and to the side of the pair it is read from.
      */
-    private int compareValues(Object left, Object right) {
-        if (left == null || right == null) {
-            return -1; // If one of them is null, the comparison fails
+    @Override
+    public void visit(Column column) {
+        String tableName = column.getTable() != null ? column.getTable().getName() : null;
+        int slot = schema.indexOf(tableName, column.getColumnName());
+        if (slot < 0) {
+            throw new IllegalArgumentException("Column " + column + " not found in " + schema);
+        }
+        if (slot < leftSize) {
+            value = (l, r) -> l.getValue(slot);
+        } else {
+            int rightSlot = slot - leftSize;
+            value = (l, r) -> r.getValue(rightSlot);
         }
+    }
 
-        if (left instanceof Number && right instanceof Number) {
-            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+    @Override
+    public void visit(LongValue longValue) {
+        if (!fitsInt(longValue.getValue())) {
+            throw new IllegalArgumentException("Constant out of the int range: " + longValue);
         }
+        int constant = (int) longValue.getValue();
+        value = (l, r) -> constant;
+    }
 
-        if (left instanceof String && right instanceof String) {
-            return ((String) left).compareTo((String) right);
+    @Override
+    public void visit(SignedExpression signedExpression) {
+        Long signed = constantOf(signedExpression);
+        if (signed != null && fitsInt(signed)) { // -2147483648 fits, its operand does not
+            int constant = (int) (long) signed;
+            value = (l, r) -> constant;
+            return;
         }
+        IntEvaluator operand = valueOf(signedExpression.getExpression());
+        value = signedExpression.getSign() == '-' ? (l, r) -> -operand.evaluate(l, r) : operand;
+    }
+
+    @Override
+    public void visit(Multiplication multiplication) {
+        IntEvaluator left = valueOf(multiplication.getLeftExpression());
+        IntEvaluator right = valueOf(multiplication.getRightExpression());
+        value = (l, r) -> left.evaluate(l, r) * right.evaluate(l, r);
+    }
 
-        return -1; // Incompatible types
+    @Override
+    public void visit(Addition addition) {
+        IntEvaluator left = valueOf(addition.getLeftExpression());
+        IntEvaluator right = valueOf(addition.getRightExpression());
+        value = (l, r) -> left.evaluate(l, r) + right.evaluate(l, r);
+    }
+
+    @Override
+    public void visit(Subtraction subtraction) {
+        IntEvaluator left = valueOf(subtraction.getLeftExpression());
+        IntEvaluator right = valueOf(subtraction.getRightExpression());
+        value = (l, r) -> left.evaluate(l, r) - right.evaluate(l, r);
+    }
+
+    @Override
+    public void visit(Division division) {
+        IntEvaluator left = valueOf(division.getLeftExpression());
+        IntEvaluator right = valueOf(division.getRightExpression());
+        value = (l, r) -> left.evaluate(l, r) / right.evaluate(l, r);
     }
 }
@@ -0,0 +1,17 @@
+package ed.inf.adbs.blazedb.visitor;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * A compiled integer expression (a column, a constant or arithmetic on them), see ExpressionVisitor.
+ */
+public interface IntEvaluator {
+
+    /**
+     * Evaluates the expression on a tuple, or on a pair of tuples that are being joined.
+     * @param left The tuple, or the left tuple of the pair.
+     * @param right The right tuple of the pair, or null when evaluating a single tuple.
+     * @return The value of the expression.
+     */
+    int evaluate(Tuple left, Tuple right);
+}
@@ -0,0 +1,24 @@
+package ed.inf.adbs.blazedb.visitor;
+
+import ed.inf.adbs.blazedb.Tuple;
+
+/**
+ * A compiled condition (comparisons combined with AND), see ExpressionVisitor.
+ */
+public interface PredicateEvaluator {
+
+    /**
+     * Evaluates the condition on a pair of tuples as if they were joined.
+     * @param left The tuple, or the left tuple of the pair.
+     * @param right The right tuple of the pair, or null when evaluating a single tuple.
+     * @return True if the condition is satisfied.
+     */
+    boolean test(Tuple left, Tuple right);
+
+    /**
+     * Evaluates the condition on a single tuple.
+     */
+    default boolean test(Tuple tuple) {
+        return test(tuple, null);
+    }
+}
@@ -0,0 +1,90 @@
+package ed.inf.adbs.blazedb.kernel;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * IntKernels on the SIMD registers of the machine, with jdk.incubator.vector.
+ * Loaded by Kernels through reflection, so nothing else depends on the incubator module.
+ */
+public class VectorKernels implements IntKernels {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Compares a vector of the column with the constant at once. Vectors where no row matches are
+     * skipped and vectors where all of them match are copied, only the mixed ones are checked row by
+     * row (turning the mask into row numbers with toLong() is slower than that on JDK 17).
+     */
+    @Override
+    public int selectCompare(Comparison op, int[] column, int constant, int count, int[] rows) {
+        IntVector constants = IntVector.broadcast(SPECIES, constant);
+        int kept = 0;
+        int i = 0;
+        int upperBound = SPECIES.loopBound(count);
+        for (; i < upperBound; i += SPECIES.length()) {
+            VectorMask<Integer> mask = compare(op, IntVector.fromArray(SPECIES, column, i), constants);
+            if (mask.allTrue()) {
+                for (int row = i; row < i + SPECIES.length(); row++) {
+                    rows[kept++] = row;
+                }
+            } else if (mask.anyTrue()) {
+                for (int row = i; row < i + SPECIES.length(); row++) {
+                    if (op.test(column[row], constant)) {
+                        rows[kept++] = row;
+                    }
+                }
+            }
+        }
+        for (; i < count; i++) {
+            if (op.test(column[i], constant)) {
+                rows[kept++] = i;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * The operator must be a constant at each call of compare(), otherwise the JIT does not emit the
+     * vector instruction and falls back to a much slower implementation.
+     */
+    private static VectorMask<Integer> compare(Comparison op, IntVector values, IntVector constants) {
+        switch (op) {
+            case EQ: return values.compare(VectorOperators.EQ, constants);
+            case NE: return values.compare(VectorOperators.NE, constants);
+            case GT: return values.compare(VectorOperators.GT, constants);
+            case GE: return values.compare(VectorOperators.GE, constants);
+            case LT: return values.compare(VectorOperators.LT, constants);
+            default: return values.compare(VectorOperators.LE, constants);
+        }
+    }
+
+    @Override
+    public int sum(int[] values, int count) {
+        IntVector sums = IntVector.zero(SPECIES);
+        int i = 0;
+        int upperBound = SPECIES.loopBound(count);
+        for (; i < upperBound; i += SPECIES.length()) {
+            sums = sums.add(IntVector.fromArray(SPECIES, values, i));
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < count; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void multiply(int[] values, int[] other, int count) {
+        int i = 0;
+        int upperBound = SPECIES.loopBound(count);
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, values, i).mul(IntVector.fromArray(SPECIES, other, i)).intoArray(values, i);
+        }
+        for (; i < count; i++) {
+            values[i] *= other[i];
+        }
+    }
+}
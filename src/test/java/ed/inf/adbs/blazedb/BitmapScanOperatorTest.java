@@ -0,0 +1,145 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.operator.BitmapScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import ed.inf.adbs.blazedb.storage.BitmapIndex;
+import ed.inf.adbs.blazedb.storage.RoaringBitmap;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+public class BitmapScanOperatorTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running BitmapScanOperator Tests...");
+        // pages of 2 rows, so the 6 rows of Enrolled are 3 pages
+        System.setProperty("blazedb.bufferPool.pageRows", "2");
+
+        // ==================== CASE 1: AND / OR of array and bitmap containers ====================
+        RoaringBitmap even = new RoaringBitmap();   // 5000 values in the first chunk: a bitmap container
+        RoaringBitmap threes = new RoaringBitmap(); // 3334 values: an array container, and one more chunk
+        for (int i = 0; i < 10000; i++) {
+            if (i % 2 == 0) {
+                even.add(i);
+            }
+            if (i % 3 == 0) {
+                threes.add(i);
+            }
+        }
+        threes.add(100000);
+        long expectedAnd = 0;
+        long expectedOr = 0;
+        for (int i = 0; i < 10000; i++) {
+            expectedAnd += i % 6 == 0 ? 1 : 0;
+            expectedOr += i % 2 == 0 || i % 3 == 0 ? 1 : 0;
+        }
+        RoaringBitmap and = even.and(threes);
+        RoaringBitmap or = even.or(threes);
+        System.out.println("AND: " + and + (and.getCardinality() == expectedAnd && sixes(and) ? " correct" : " WRONG"));
+        System.out.println("OR: " + or + (or.getCardinality() == expectedOr + 1 && or.contains(100000) && !or.contains(9997) ? " correct" : " WRONG"));
+
+        // Copy the sample database to a temporary directory, the bitmap index is written next to the table
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Path samples = Paths.get("samples", "db");
+        Files.copy(samples.resolve("schema.txt"), database.resolve("schema.txt"));
+        Files.copy(samples.resolve("data").resolve("Enrolled.csv"), database.resolve("data").resolve("Enrolled.csv"));
+        // and a larger Course table, where a selective condition keeps few enough rows to read them one by one
+        StringBuilder courses = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            courses.append(i).append(", ").append(i % 50).append(", ").append(i % 7).append('\n');
+        }
+        Files.write(database.resolve("data").resolve("Course.csv"), courses.toString().getBytes());
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+
+        // ==================== CASE 2: Enrolled.E = 101 AND Enrolled.A < 3 ====================
+        EqualsTo course = new EqualsTo(new Column(new Table("Enrolled"), "E"), new LongValue(101));
+        MinorThan student = new MinorThan();
+        student.setLeftExpression(new Column(new Table("Enrolled"), "A"));
+        student.setRightExpression(new LongValue(3));
+        check(dbCatalogue, "Enrolled", new AndExpression(course, student));
+        System.out.println("Bitmap index written: " + Files.exists(BitmapIndex.pathOf(database.resolve("data").resolve("Enrolled.csv"))));
+
+        // ==================== CASE 3: Enrolled.E != 102, read from the stored index ====================
+        NotEqualsTo notEqualsTo = new NotEqualsTo(new Column(new Table("Enrolled"), "E"), new LongValue(102));
+        check(dbCatalogue, "Enrolled", notEqualsTo);
+
+        // ==================== CASE 4: Course.F = 3 AND Course.G = 2, read one by one ====================
+        EqualsTo f = new EqualsTo(new Column(new Table("Course"), "F"), new LongValue(3));
+        EqualsTo g = new EqualsTo(new Column(new Table("Course"), "G"), new LongValue(2));
+        check(dbCatalogue, "Course", new AndExpression(f, g));
+
+        // ==================== CASE 5: constants outside the int range ====================
+        MinorThan below = new MinorThan();
+        below.setLeftExpression(new Column(new Table("Enrolled"), "A"));
+        below.setRightExpression(new LongValue(3000000000L));
+        check(dbCatalogue, "Enrolled", below);
+        check(dbCatalogue, "Enrolled", new EqualsTo(new Column(new Table("Enrolled"), "E"), new LongValue(3000000000L)));
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        Files.delete(database.resolve("schema.txt"));
+        Files.delete(database);
+        System.out.println("BitmapScanOperator Tests completed!");
+    }
+
+    private static boolean sixes(RoaringBitmap bitmap) {
+        PrimitiveIterator.OfInt values = bitmap.iterator();
+        for (int expected = 0; expected < 10000; expected += 6) {
+            if (!values.hasNext() || values.nextInt() != expected) {
+                return false;
+            }
+        }
+        return !values.hasNext();
+    }
+
+    /**
+     * Compares the bitmap scan of a condition with a full scan and a SelectOperator, by tuple, by batch
+     * and after reset().
+     */
+    private static void check(DBCatalogue dbCatalogue, String table, Expression condition) {
+        BitmapScanOperator bitmapScan = BitmapScanOperator.forCondition(dbCatalogue, table, condition);
+        System.out.println(bitmapScan + " selectivity " + bitmapScan.getSelectivity());
+        List<String> rows = drain(bitmapScan);
+        System.out.println("Rows: " + rows);
+        bitmapScan.reset();
+        List<String> batches = new ArrayList<>();
+        TupleBatch batch;
+        while ((batch = bitmapScan.getNextBatch()) != null) {
+            for (int i = 0; i < batch.selectedCount(); i++) {
+                batches.add(batch.getTuple(batch.selectedRow(i)).toString());
+            }
+        }
+
+        List<String> expected = drain(new SelectOperator(new ScanOperator(new Table(table), dbCatalogue), condition));
+        System.out.println(rows.equals(expected) && batches.equals(rows)
+                ? "Same rows as the full scan, also by batch" : "DIFFERENT from the full scan " + expected);
+    }
+
+    private static List<String> drain(Operator operator) {
+        List<String> rows = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,59 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.storage.BufferPoolManager;
+import ed.inf.adbs.blazedb.storage.Page;
+import ed.inf.adbs.blazedb.storage.PagedCsvFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class BufferPoolManagerTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running BufferPoolManager Tests...");
+        Path student = Paths.get("samples", "db", "data", "Student.csv");
+
+        for (String policy : new String[]{"clock", "lru-k"}) {
+            // 2 frames of 2 rows, the 6 rows of Student are 3 pages
+            BufferPoolManager bufferPool = new BufferPoolManager(2, 2, policy);
+            PagedCsvFile file = bufferPool.openCsv(student, 4);
+
+            // ==================== CASE 1: read every page twice ====================
+            for (int pass = 0; pass < 2; pass++) {
+                Page page;
+                for (int pageNumber = 0; (page = bufferPool.fetchPage(file, pageNumber)) != null; pageNumber++) {
+                    int[][] columns = page.getColumns();
+                    for (int row = 0; row < page.getRowCount(); row++) {
+                        int[] values = new int[columns.length];
+                        for (int slot = 0; slot < values.length; slot++) {
+                            values[slot] = columns[slot][row];
+                        }
+                        System.out.println(policy + " page " + pageNumber + ": " + Arrays.toString(values));
+                    }
+                    bufferPool.unpinPage(page);
+                }
+            }
+            System.out.println(policy + " after two scans: " + bufferPool.getStatistics());
+
+            // ==================== CASE 2: the same page read again is a hit ====================
+            long hits = bufferPool.getHits();
+            Page page = bufferPool.fetchPage(file, 2);
+            bufferPool.unpinPage(page);
+            page = bufferPool.fetchPage(file, 2);
+            System.out.println(bufferPool.getHits() == hits + 2 ? "Page 2 found in the pool" : "Page 2 read again");
+
+            // ==================== CASE 3: no frame left when every page is pinned ====================
+            Page other = bufferPool.fetchPage(file, 1);
+            try {
+                bufferPool.fetchPage(file, 0);
+                System.out.println("ERROR: a pinned page was evicted");
+            } catch (IllegalStateException e) {
+                System.out.println("Expected error: " + e.getMessage());
+            }
+            bufferPool.unpinPage(page);
+            bufferPool.unpinPage(other);
+        }
+        System.out.println("BufferPoolManager Tests completed!");
+    }
+}
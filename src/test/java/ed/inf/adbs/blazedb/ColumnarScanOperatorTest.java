@@ -0,0 +1,94 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.operator.ColumnarScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import ed.inf.adbs.blazedb.storage.ColumnarConverter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class ColumnarScanOperatorTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running ColumnarScanOperator Tests...");
+
+        // Copy the sample database to a temporary directory and convert Student there
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Path samples = Paths.get("samples", "db");
+        Files.copy(samples.resolve("schema.txt"), database.resolve("schema.txt"));
+        Files.copy(samples.resolve("data").resolve("Student.csv"), database.resolve("data").resolve("Student.csv"));
+        // segments of 4 rows, so the 6 rows of Student are read from two segments
+        ColumnarConverter.convert(database.resolve("data").resolve("Student.csv"),
+                database.resolve("data").resolve("Student.col"), 4, 4);
+
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+        Table studentTable = new Table("Student");
+        System.out.println("Columnar file: " + dbCatalogue.getColumnarFile("Student"));
+
+        // ==================== CASE 1: all the columns ====================
+        List<String> expected = drain(new ScanOperator(studentTable, dbCatalogue));
+        ColumnarScanOperator all = new ColumnarScanOperator(studentTable, dbCatalogue, null);
+        List<String> rows = drain(all);
+        all.reset();
+        System.out.println("All columns: " + rows);
+        System.out.println(rows.equals(expected) && drain(all).equals(expected)
+                ? "Same rows as the CSV scan, also after reset" : "DIFFERENT from the CSV scan " + expected);
+
+        // ==================== CASE 2: only Student.D and Student.B ====================
+        ColumnarScanOperator some = new ColumnarScanOperator(studentTable, dbCatalogue, new HashSet<>(Arrays.asList("D", "B")));
+        System.out.println("Schema: " + some.getSchema());
+        TupleBatch batch;
+        while ((batch = some.getNextBatch()) != null) {
+            for (int i = 0; i < batch.selectedCount(); i++) {
+                System.out.println("Batch row: " + batch.printValuesOnly(batch.selectedRow(i)));
+            }
+        }
+
+        // ==================== CASE 3: Student.B = 100 AND Student.D > Student.A, pushed into the scan ====================
+        EqualsTo equalsTo = new EqualsTo(new Column(studentTable, "B"), new LongValue(100));
+        GreaterThan greaterThan = new GreaterThan();
+        greaterThan.setLeftExpression(new Column(studentTable, "D"));
+        greaterThan.setRightExpression(new Column(studentTable, "A"));
+        AndExpression condition = new AndExpression(equalsTo, greaterThan);
+        ColumnarScanOperator filtered = new ColumnarScanOperator(studentTable, dbCatalogue, null);
+        filtered.pushCondition(condition);
+        List<String> selected = drain(new SelectOperator(new ScanOperator(studentTable, dbCatalogue), condition));
+        System.out.println(filtered + ": " + drain(filtered));
+        filtered.reset();
+        System.out.println(drain(filtered).equals(selected)
+                ? "Same rows as the SelectOperator" : "DIFFERENT from the SelectOperator " + selected);
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        Files.delete(database.resolve("schema.txt"));
+        Files.delete(database);
+        System.out.println("ColumnarScanOperator Tests completed!");
+    }
+
+    private static List<String> drain(Operator operator) {
+        List<String> rows = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,90 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.codegen.PipelineCompiler;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.operator.CompiledScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ProjectOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CompiledScanOperatorTest {
+    public static void main(String[] args) {
+        System.out.println("Running CompiledScanOperator Tests...");
+
+        String schemaDirectory = "samples" + File.separator + "db";
+        DBCatalogue dbCatalogue = new DBCatalogue(schemaDirectory);
+        Table studentTable = new Table("Student");
+
+        // ==================== CASE 1: Student.C > 100 AND Student.A != 3 ====================
+        GreaterThan greaterThan = new GreaterThan();
+        greaterThan.setLeftExpression(new Column(studentTable, "C"));
+        greaterThan.setRightExpression(new LongValue(100));
+        NotEqualsTo notEqualsTo = new NotEqualsTo();
+        notEqualsTo.setLeftExpression(new Column(studentTable, "A"));
+        notEqualsTo.setRightExpression(new LongValue(3));
+        AndExpression condition = new AndExpression(greaterThan, notEqualsTo);
+
+        compare("Select(Scan)",
+                new SelectOperator(new ScanOperator(studentTable, dbCatalogue), condition),
+                new SelectOperator(new ScanOperator(studentTable, dbCatalogue), condition));
+
+        // ==================== CASE 2: projection of Student.D, Student.B ====================
+        List<SelectItem<?>> selectItems = Arrays.asList(
+                new SelectItem<>(new Column(studentTable, "D")),
+                new SelectItem<>(new Column(studentTable, "B")));
+        compare("Project(Scan)",
+                new ProjectOperator(new ScanOperator(studentTable, dbCatalogue), selectItems),
+                new ProjectOperator(new ScanOperator(studentTable, dbCatalogue), selectItems));
+
+        // ==================== CASE 3: Student.C > 3000000000 is left to the interpreted pipeline ====================
+        GreaterThan wide = new GreaterThan();
+        wide.setLeftExpression(new Column(studentTable, "C"));
+        wide.setRightExpression(new LongValue(3000000000L));
+        boolean interpreted = !(PipelineCompiler.tryCompile(
+                new SelectOperator(new ScanOperator(studentTable, dbCatalogue), wide)) instanceof CompiledScanOperator);
+        System.out.println("Constant outside the int range: " + (interpreted ? "not compiled, correct" : "compiled, WRONG"));
+
+        System.out.println("CompiledScanOperator Tests completed!");
+    }
+
+    /**
+     * Compiles the first pipeline and checks that it returns the same rows as the second one, also after a reset.
+     */
+    private static void compare(String name, Operator toCompile, Operator interpreted) {
+        Operator compiled = PipelineCompiler.tryCompile(toCompile);
+        if (!(compiled instanceof CompiledScanOperator)) {
+            System.out.println(name + ": not compiled (no JDK compiler?), skipped");
+            return;
+        }
+
+        List<String> expected = drain(interpreted);
+        List<String> first = drain(compiled);
+        compiled.reset();
+        List<String> afterReset = drain(compiled);
+        System.out.println(name + " compiled rows: " + first);
+        System.out.println(name + (expected.equals(first) && expected.equals(afterReset)
+                ? ": same rows as the interpreted pipeline" : ": DIFFERENT from the interpreted pipeline " + expected));
+    }
+
+    private static List<String> drain(Operator operator) {
+        List<String> rows = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,66 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.storage.CrackerCache;
+import ed.inf.adbs.blazedb.storage.CrackerColumn;
+import ed.inf.adbs.blazedb.storage.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+public class CrackerColumnTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running CrackerColumn Tests...");
+        // a table of 5000 rows of two columns, the second one random in 0..999
+        Random random = new Random(42);
+        int[] values = new int[5000];
+        StringBuilder table = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000);
+            table.append(i).append(", ").append(values[i]).append('\n');
+        }
+        Path csv = Files.createTempFile("blazedb", ".csv");
+        Files.write(csv, table.toString().getBytes());
+
+        // ==================== CASE 1: repeated ranges against a full scan ====================
+        CrackerCache cache = new CrackerCache(1L << 20);
+        CrackerColumn column = cache.get(csv, 2, 1);
+        long[][] ranges = {{100, 199}, {150, 500}, {0, 0}, {990, 2000}, {-5, 50}, {150, 500}, {700, 600}};
+        boolean correct = true;
+        for (long[] range : ranges) {
+            RoaringBitmap rows = column.select(range[0], range[1]);
+            boolean same = sameRows(rows, values, range[0], range[1]);
+            System.out.println(range[0] + " <= B <= " + range[1] + ": " + rows.getCardinality() + " rows, "
+                    + column.getPieceCount() + " pieces" + (same ? "" : " WRONG"));
+            correct &= same;
+        }
+        System.out.println(correct ? "Same rows as the full scan" : "DIFFERENT from the full scan");
+        System.out.println("Cracked in " + column.getPieceCount() + " pieces" + (column.getPieceCount() == 11 ? " correct" : " WRONG"));
+
+        // ==================== CASE 2: the cache keeps the cracked column, and copies it again after a change ====================
+        System.out.println("Cached: " + (cache.get(csv, 2, 1) == column ? "same column" : "WRONG"));
+        Files.write(csv, (table + "5000, 7\n").getBytes());
+        csv.toFile().setLastModified(csv.toFile().lastModified() + 1000);
+        CrackerColumn changed = cache.get(csv, 2, 1);
+        System.out.println("After a change: " + (changed != column && changed.getRowCount() == 5001
+                && changed.select(7, 7).contains(5000) ? "copied again" : "WRONG"));
+
+        // ==================== CASE 3: a column larger than the cache is not copied ====================
+        System.out.println("Too large: " + (new CrackerCache(1000).get(csv, 2, 1) == null ? "not copied" : "WRONG"));
+
+        Files.delete(csv);
+        System.out.println("CrackerColumn Tests completed!");
+    }
+
+    private static boolean sameRows(RoaringBitmap rows, int[] values, long low, long high) {
+        PrimitiveIterator.OfInt found = rows.iterator();
+        for (int row = 0; row < values.length; row++) {
+            if (values[row] >= low && values[row] <= high && (!found.hasNext() || found.nextInt() != row)) {
+                return false;
+            }
+        }
+        return !found.hasNext();
+    }
+}
@@ -1,16 +1,24 @@
 package ed.inf.adbs.blazedb;
 
+import ed.inf.adbs.blazedb.dbcatalogue.ColumnStatistics;
 import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.dbcatalogue.HyperLogLog;
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.FromItem;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class DBStatisticsTest {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
         System.out.println("Running DBStatistics Test...");
 
         // Initialize the database catalog
@@ -59,6 +67,57 @@ public class DBStatisticsTest {
                 System.out.println("No statistics computed?");
             }
         }
+
+        // The distinct counts are estimated with HyperLogLog: close to exact for few values, and within
+        // a few percent for many
+        System.out.println("\n=== HyperLogLog ===");
+        for (int distinct : new int[]{6, 1000, 1000000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < 2 * distinct; i++) {
+                sketch.add(i % distinct * 7919);
+            }
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            System.out.println(distinct + " distinct values: estimate " + sketch.estimate()
+                    + (error < 0.03 ? " correct" : " WRONG"));
+        }
+
+        // A copy of the sample database, where the statistics are stored and the table is changed
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Path samples = Paths.get("samples", "db");
+        Files.copy(samples.resolve("schema.txt"), database.resolve("schema.txt"));
+        Path csv = database.resolve("data").resolve("Enrolled.csv");
+        Files.copy(samples.resolve("data").resolve("Enrolled.csv"), csv);
+        DBCatalogue copy = new DBCatalogue(database.toString());
+
+        // With a sample size, each column keeps a sorted sample of its values
+        DBStatistics sampled = new DBStatistics(copy, 10, 4);
+        sampled.computeStatistics(new Table("Enrolled"));
+        ColumnStatistics enrolled = sampled.getStatistics("Enrolled", "E");
+        System.out.println("\nEnrolled.E with precision 10 and a sample of 4: " + enrolled
+                + " " + Arrays.toString(enrolled.getSample()));
+
+        // The statistics are stored: a new process reads them instead of scanning the table
+        ColumnStatistics stored = new DBStatistics(copy).getStatistics("Enrolled", "E");
+        System.out.println("Stored: " + stored + (stored != null && stored.getSample().length == 4 ? " correct" : " WRONG"));
+
+        // Once the table changes, the old statistics are returned at once and new ones computed in the background
+        Files.write(csv, "7, 101, 60\n".getBytes(), StandardOpenOption.APPEND);
+        csv.toFile().setLastModified(csv.toFile().lastModified() + 1000);
+        DBStatistics refreshed = new DBStatistics(copy);
+        System.out.println("After a change: " + refreshed.getStatistics("Enrolled", "E"));
+        DBStatistics.awaitRefresh();
+        ColumnStatistics recomputed = refreshed.getStatistics("Enrolled", "E");
+        System.out.println("Refreshed: " + recomputed + (recomputed.getRowCount() == 7 ? " correct" : " WRONG"));
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        for (File file : database.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database);
         System.out.println("\nDBStatistics Test completed successfully!");
     }
 }
@@ -0,0 +1,97 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.operator.HashJoinOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class HashJoinOperatorTest {
+    public static void main(String[] args) {
+        System.out.println("Running HashJoinOperator Tests...");
+
+        // Set up database catalogue
+        String schemaDirectory = "samples"+ File.separator + "db";  // Ensure correct schema directory
+        DBCatalogue dbCatalogue = new DBCatalogue(schemaDirectory);
+
+        // Define left and right tables
+        Table studentTable = new Table("Student");
+        Table enrolledTable = new Table("Enrolled");
+
+        // Ensure tables exist
+        if (!dbCatalogue.tableExists("Student") || !dbCatalogue.tableExists("Enrolled")) {
+            System.err.println("Error: One or both tables do not exist in schema!");
+            return;
+        }
+
+        // Initialize ScanOperators for both tables
+        ScanOperator studentScan = new ScanOperator(studentTable, dbCatalogue);
+        ScanOperator enrolledScan = new ScanOperator(enrolledTable, dbCatalogue);
+
+        // ==================== CASE 1: Student.A = Enrolled.A ====================
+        HashJoinOperator hashJoinOperator = new HashJoinOperator(studentScan, enrolledScan,
+                Collections.singletonList(new Column(studentTable, "A")),
+                Collections.singletonList(new Column(enrolledTable, "A")), null);
+
+        System.out.println("Testing getNextTuple() method with keys Student.A = Enrolled.A...");
+        Tuple tuple;
+        int count = 0;
+        while ((tuple = hashJoinOperator.getNextTuple()) != null) {
+            System.out.println("Joined Tuple: " + tuple);
+            count++;
+        }
+        System.out.println("Number of joined tuples (expected 6): " + count);
+
+        // Test reset functionality
+        System.out.println("Testing reset() method...");
+        hashJoinOperator.reset();
+
+        Tuple resetTuple = hashJoinOperator.getNextTuple();
+        System.out.println("First joined tuple after reset: " + resetTuple);
+
+        // ==================== CASE 2: Student.A = Enrolled.A AND Enrolled.H > Student.D ====================
+        studentScan.reset();
+        enrolledScan.reset();
+
+        GreaterThan residual = new GreaterThan();
+        residual.setLeftExpression(new Column(enrolledTable, "H")); // Enrolled.H
+        residual.setRightExpression(new Column(studentTable, "D")); // Student.D
+
+        HashJoinOperator residualJoin = new HashJoinOperator(studentScan, enrolledScan,
+                Collections.singletonList(new Column(studentTable, "A")),
+                Collections.singletonList(new Column(enrolledTable, "A")), residual);
+
+        System.out.println("Testing with residual condition 'Enrolled.H > Student.D'...");
+        while ((tuple = residualJoin.getNextTuple()) != null) {
+            System.out.println("Joined Tuple (Enrolled.H > Student.D): " + tuple);
+        }
+
+        // ==================== CASE 3: Enrolled.E = Course.E AND Enrolled.E = Course.F (two key columns) ====================
+        Table courseTable = new Table("Course");
+        HashJoinOperator compositeJoin = new HashJoinOperator(new ScanOperator(enrolledTable, dbCatalogue),
+                new ScanOperator(courseTable, dbCatalogue),
+                Arrays.asList(new Column(enrolledTable, "E"), new Column(enrolledTable, "E")),
+                Arrays.asList(new Column(courseTable, "E"), new Column(courseTable, "F")), null);
+
+        System.out.println("Testing with keys (Enrolled.E, Enrolled.E) = (Course.E, Course.F)...");
+        List<String> rows = new ArrayList<>();
+        while ((tuple = compositeJoin.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        compositeJoin.reset();
+        int again = 0;
+        while (compositeJoin.getNextTuple() != null) {
+            again++;
+        }
+        System.out.println("Joined Tuples: " + rows + (rows.size() == 1 && again == 1 ? " correct" : " WRONG"));
+
+        System.out.println("HashJoinOperator Tests completed successfully!");
+    }
+}
@@ -0,0 +1,89 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.operator.HashJoinOperator;
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class IndexNestedLoopJoinOperatorTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running IndexNestedLoopJoinOperator Tests...");
+
+        // Copy the sample database to a temporary directory with an index on Enrolled.A
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Path samples = Paths.get("samples", "db");
+        Files.copy(samples.resolve("schema.txt"), database.resolve("schema.txt"));
+        for (String table : new String[]{"Student", "Enrolled"}) {
+            Files.copy(samples.resolve("data").resolve(table + ".csv"), database.resolve("data").resolve(table + ".csv"));
+        }
+        Files.write(database.resolve("indexes.txt"), "Enrolled A unclustered\n".getBytes());
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+
+        Table student = new Table("Student");
+        Table enrolled = new Table("Enrolled");
+        // Student.B = 100 joined with Enrolled on Student.A = Enrolled.A, with Enrolled.H > 50 on the inner table
+        EqualsTo selection = new EqualsTo(new Column(student, "B"), new LongValue(100));
+        GreaterThan innerSelection = new GreaterThan();
+        innerSelection.setLeftExpression(new Column(enrolled, "H"));
+        innerSelection.setRightExpression(new LongValue(50));
+
+        IndexScanOperator probe = new IndexScanOperator(dbCatalogue, dbCatalogue.getIndexes("Enrolled").get(0), 0, -1);
+        IndexNestedLoopJoinOperator indexJoin = new IndexNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator(student, dbCatalogue), selection), probe,
+                new Column(student, "A"), innerSelection, null);
+        System.out.println(indexJoin);
+        List<String> rows = drain(indexJoin);
+        for (String row : rows) {
+            System.out.println("Joined Tuple: " + row);
+        }
+        indexJoin.reset();
+        List<String> again = drain(indexJoin);
+
+        HashJoinOperator hashJoin = new HashJoinOperator(
+                new SelectOperator(new ScanOperator(student, dbCatalogue), selection),
+                new SelectOperator(new ScanOperator(enrolled, dbCatalogue), innerSelection),
+                Collections.singletonList(new Column(student, "A")), Collections.singletonList(new Column(enrolled, "A")), null);
+        List<String> expected = drain(hashJoin);
+        List<String> sorted = new ArrayList<>(rows);
+        Collections.sort(sorted);
+        Collections.sort(expected);
+        System.out.println(sorted.equals(expected) && again.equals(rows)
+                ? "Same rows as the hash join, also after reset" : "DIFFERENT from the hash join " + expected);
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        Files.delete(database.resolve("schema.txt"));
+        Files.delete(database.resolve("indexes.txt"));
+        Files.delete(database);
+        System.out.println("IndexNestedLoopJoinOperator Tests completed!");
+    }
+
+    private static List<String> drain(Operator operator) {
+        List<String> rows = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,114 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.IndexDefinition;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import ed.inf.adbs.blazedb.storage.IndexBuilder;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IndexScanOperatorTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("Running IndexScanOperator Tests...");
+
+        // Copy the sample database to a temporary directory with an indexes.txt, since IndexBuilder
+        // sorts the table file of a clustered index
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Path samples = Paths.get("samples", "db");
+        Files.copy(samples.resolve("schema.txt"), database.resolve("schema.txt"));
+        for (String table : new String[]{"Student", "Enrolled"}) {
+            Files.copy(samples.resolve("data").resolve(table + ".csv"), database.resolve("data").resolve(table + ".csv"));
+        }
+        Files.write(database.resolve("indexes.txt"), "Enrolled H unclustered\nStudent C clustered\n".getBytes());
+
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+        System.out.println("Indexes: " + dbCatalogue.getIndexes("Enrolled") + " " + dbCatalogue.getIndexes("Student"));
+
+        // ==================== CASE 1: unclustered, Enrolled.H >= 70 AND Enrolled.H < 90 ====================
+        GreaterThanEquals from = new GreaterThanEquals();
+        from.setLeftExpression(new Column(new Table("Enrolled"), "H"));
+        from.setRightExpression(new LongValue(70));
+        MinorThan to = new MinorThan();
+        to.setLeftExpression(new Column(new Table("Enrolled"), "H"));
+        to.setRightExpression(new LongValue(90));
+        check(dbCatalogue, dbCatalogue.getIndexes("Enrolled").get(0), new Table("Enrolled"), new AndExpression(from, to));
+
+        // ==================== CASE 2: clustered on a file not sorted yet, Student.C = 50 ====================
+        // the index is read like an unclustered one and the query does not touch the table file
+        Path student = database.resolve("data").resolve("Student.csv");
+        byte[] before = Files.readAllBytes(student);
+        EqualsTo equalsTo = new EqualsTo(new Column(new Table("Student"), "C"), new LongValue(50));
+        IndexScanOperator unsorted = IndexScanOperator.forCondition(dbCatalogue, dbCatalogue.getIndexes("Student").get(0), equalsTo);
+        System.out.println("Clustered before IndexBuilder: " + unsorted.isClustered());
+        check(dbCatalogue, dbCatalogue.getIndexes("Student").get(0), new Table("Student"), equalsTo);
+        System.out.println(Arrays.equals(before, Files.readAllBytes(student))
+                ? "Student.csv unchanged by the query" : "WRONG: Student.csv changed by the query");
+
+        // ==================== CASE 3: clustered after IndexBuilder, Student.C = 50 ====================
+        IndexBuilder.main(new String[]{database.toString()});
+        List<String> lines = Files.readAllLines(student);
+        System.out.println("Student.csv sorted on C: " + lines);
+        IndexScanOperator sorted = IndexScanOperator.forCondition(dbCatalogue, dbCatalogue.getIndexes("Student").get(0), equalsTo);
+        System.out.println("Clustered after IndexBuilder: " + sorted.isClustered());
+        sorted.close();
+        unsorted.close();
+        check(dbCatalogue, dbCatalogue.getIndexes("Student").get(0), new Table("Student"), equalsTo);
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        Files.delete(database.resolve("schema.txt"));
+        Files.delete(database.resolve("indexes.txt"));
+        Files.delete(database);
+        System.out.println("IndexScanOperator Tests completed!");
+    }
+
+    /**
+     * Compares the index scan of a condition with a full scan and a SelectOperator, also after reset().
+     */
+    private static void check(DBCatalogue dbCatalogue, IndexDefinition index, Table table, Expression condition) {
+        IndexScanOperator indexScan = IndexScanOperator.forCondition(dbCatalogue, index, condition);
+        System.out.println(indexScan + " selectivity " + indexScan.getSelectivity());
+        List<String> rows = drain(indexScan);
+        System.out.println("Rows: " + rows);
+        indexScan.reset();
+        List<String> again = drain(indexScan);
+
+        List<String> expected = drain(new SelectOperator(new ScanOperator(table, dbCatalogue), condition));
+        List<String> sorted = new ArrayList<>(rows);
+        Collections.sort(sorted);
+        Collections.sort(expected);
+        System.out.println(sorted.equals(expected) && again.equals(rows)
+                ? "Same rows as the full scan, also after reset" : "DIFFERENT from the full scan " + expected);
+    }
+
+    private static List<String> drain(Operator operator) {
+        List<String> rows = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            rows.add(tuple.toString());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,93 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.query.JoinEnumerator;
+import ed.inf.adbs.blazedb.query.QueryOptimizer;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class JoinEnumeratorTest {
+    public static void main(String[] args) throws IOException, JSQLParserException, InterruptedException {
+        System.out.println("Running JoinEnumerator Tests...");
+
+        // A star: Fact (20000 rows) refers to Big (1000 rows, X in 0..49) and to Small (200 rows)
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Files.write(database.resolve("schema.txt"), "Fact A B\nBig A X\nSmall B Y\n".getBytes());
+        Random random = new Random(11);
+        StringBuilder fact = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            fact.append(random.nextInt(1000)).append(", ").append(random.nextInt(200)).append('\n');
+        }
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            big.append(i).append(", ").append(random.nextInt(50)).append('\n');
+        }
+        StringBuilder small = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            small.append(i).append(", ").append(i * 10).append('\n');
+        }
+        Files.write(database.resolve("data").resolve("Fact.csv"), fact.toString().getBytes());
+        Files.write(database.resolve("data").resolve("Big.csv"), big.toString().getBytes());
+        Files.write(database.resolve("data").resolve("Small.csv"), small.toString().getBytes());
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+        DBStatistics dbStatistics = new DBStatistics(dbCatalogue);
+        for (String table : Arrays.asList("Fact", "Big", "Small")) {
+            dbStatistics.getRowCount(table); // starts computing the statistics
+        }
+        DBStatistics.awaitRefresh();
+
+        // ==================== CASE 1: the selective join comes before the other one ====================
+        List<String> order = order(Arrays.asList("Fact", "Small", "Big"),
+                "Fact.A = Big.A AND Fact.B = Small.B AND Big.X = 7", dbStatistics);
+        System.out.println("Selective join first: " + (order.indexOf("Big") < order.indexOf("Small") ? "correct" : "WRONG"));
+
+        // ==================== CASE 2: no cross product between tables without a join condition ====================
+        order = order(Arrays.asList("Big", "Small", "Fact"), "Fact.A = Big.A AND Fact.B = Small.B", dbStatistics);
+        System.out.println("No cross product: " + (order.indexOf("Fact") <= 1 ? "correct" : "WRONG"));
+
+        // ==================== CASE 3: the smaller table is joined last, into the hash table ====================
+        order = order(Arrays.asList("Small", "Fact"), "Fact.B = Small.B", dbStatistics);
+        System.out.println("Smaller table hashed: " + (order.equals(Arrays.asList("Fact", "Small")) ? "correct" : "WRONG"));
+
+        // ==================== CASE 4: SELECT * keeps the columns in FROM order ====================
+        Path query = database.resolve("query.sql");
+        Path output = database.resolve("output.csv");
+        Files.write(query, "SELECT * FROM Fact, Small, Big WHERE Fact.A = Big.A AND Fact.B = Small.B AND Big.X = 7 ORDER BY Fact.A;".getBytes());
+        BlazeDB.main(new String[]{database.toString(), query.toString(), output.toString()});
+        List<String> lines = Files.readAllLines(output);
+        boolean fromOrder = !lines.isEmpty();
+        for (String line : lines) {
+            String[] values = line.split(", ");
+            // Fact.A = Big.A and Fact.B = Small.B, with the columns Fact A B, Small B Y, Big A X
+            fromOrder &= values.length == 6 && values[0].equals(values[4]) && values[1].equals(values[2])
+                    && values[5].equals("7");
+        }
+        System.out.println("SELECT * in FROM order: " + (fromOrder ? "correct" : "WRONG"));
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        for (File file : database.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database);
+        System.out.println("JoinEnumerator Tests completed!");
+    }
+
+    private static List<String> order(List<String> tables, String where, DBStatistics dbStatistics)
+            throws JSQLParserException {
+        return new JoinEnumerator(tables, QueryOptimizer.extractConditions(CCJSqlParserUtil.parseCondExpression(where)),
+                dbStatistics).order();
+    }
+}
@@ -56,6 +56,19 @@ public class JoinOperatorTest {
         Tuple resetTuple = joinOperator.getNextTuple();
         System.out.println("First joined tuple after reset: " + resetTuple);
 
+        // Test the block nested loop with small blocks: 2 outer tuples per block and
+        // an inner buffer that is too small for Enrolled, so the inner scan is reset after each pass
+        System.out.println("Testing block nested loop with a block of 2 tuples...");
+        studentScan.reset();
+        enrolledScan.reset();
+        JoinOperator blockJoinOperator = new JoinOperator(studentScan, enrolledScan, joinCondition, 2, 3);
+        int count = 0;
+        while ((tuple = blockJoinOperator.getNextTuple()) != null) {
+            System.out.println("Joined Tuple (block of 2): " + tuple);
+            count++;
+        }
+        System.out.println("Number of joined tuples (expected 6): " + count);
+
         System.out.println("JoinOperator Tests completed successfully!");
     }
 }
@@ -0,0 +1,144 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.plan.*;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class LogicalPlanTest {
+    public static void main(String[] args) throws IOException, JSQLParserException {
+        System.out.println("Running LogicalPlan Tests...");
+
+        String schemaDirectory = "samples" + File.separator + "db";
+        DBCatalogue dbCatalogue = new DBCatalogue(schemaDirectory);
+        DBStatistics dbStatistics = new DBStatistics(dbCatalogue);
+
+        // ==================== CASE 1: the plan as written ====================
+        LogicalPlan plan = build("SELECT Student.A FROM Student, Enrolled WHERE Student.A = Enrolled.A ORDER BY Student.A;");
+        boolean asWritten = plan instanceof LogicalProject && child(plan) instanceof LogicalSort
+                && child(child(plan)) instanceof LogicalFilter && child(child(child(plan))) instanceof LogicalJoin
+                && ((LogicalJoin) child(child(child(plan)))).isReorderable();
+        System.out.println("Plan as written:\n" + plan + (asWritten ? "correct" : "WRONG"));
+
+        // ==================== CASE 2: selections go down to their table, join conditions to the join ====================
+        plan = new RuleEngine(new PushDownSelections()).rewrite(
+                build("SELECT * FROM Student, Enrolled WHERE Student.A = Enrolled.A AND Student.B = 1 AND Enrolled.H > 50;"));
+        LogicalJoin join = (LogicalJoin) child(plan);
+        boolean pushedDown = join.getCondition().toString().equals("Student.A = Enrolled.A")
+                && join.getLeft().describe().equals("Filter(Student.B = 1)") && child(join.getLeft()) instanceof LogicalScan
+                && join.getRight().describe().equals("Filter(Enrolled.H > 50)") && child(join.getRight()) instanceof LogicalScan;
+        System.out.println("Push down:\n" + plan + (pushedDown ? "correct" : "WRONG"));
+
+        // ==================== CASE 3: a condition without columns ends on the first table ====================
+        plan = new RuleEngine(new PushDownSelections()).rewrite(build("SELECT * FROM Student, Course WHERE 1 = 2;"));
+        join = (LogicalJoin) child(plan);
+        boolean constant = join.getCondition() == null && join.getLeft() instanceof LogicalFilter
+                && join.getRight() instanceof LogicalScan;
+        System.out.println("Constant condition:\n" + plan + (constant ? "correct" : "WRONG"));
+
+        // ==================== CASE 4: the projection of a query on one table moves down to its scan ====================
+        plan = new RuleEngine(new EarlyProjection()).rewrite(
+                build("SELECT Student.A, Student.B FROM Student WHERE Student.B = 1 ORDER BY Student.A;"));
+        boolean early = plan instanceof LogicalSort && child(plan) instanceof LogicalFilter
+                && child(child(plan)) instanceof LogicalProject && child(child(child(plan))) instanceof LogicalScan;
+        System.out.println("Early projection:\n" + plan + (early ? "correct" : "WRONG"));
+
+        // ==================== CASE 5: but not if the selection needs another column, or there is a join ====================
+        plan = new RuleEngine(new EarlyProjection()).rewrite(build("SELECT Student.A FROM Student WHERE Student.B = 1;"));
+        boolean missingColumn = plan instanceof LogicalProject;
+        plan = new RuleEngine(new EarlyProjection()).rewrite(build("SELECT Student.A FROM Student, Course ORDER BY Student.A;"));
+        boolean crossJoin = plan instanceof LogicalProject;
+        System.out.println("No early projection: " + (missingColumn && crossJoin ? "correct" : "WRONG"));
+
+        // ==================== CASE 6: all the rules together reach a fixpoint ====================
+        RuleEngine engine = new RuleEngine(new ReorderJoins(dbStatistics), new PushDownSelections(), new EarlyProjection(),
+                new PruneColumns(dbCatalogue));
+        plan = engine.rewrite(build("SELECT Student.B, Course.F FROM Student, Course, Enrolled "
+                + "WHERE Student.A = Enrolled.A AND Enrolled.E = Course.E AND Course.G > 10 AND Student.C < 30;"));
+        boolean placed = isPlaced(plan);
+        boolean fixpoint = engine.rewrite(plan) == plan;
+        System.out.println("All rules:\n" + plan + (placed && fixpoint ? "correct" : "WRONG"));
+
+        // ==================== CASE 7: a cross join only outputs the selected columns ====================
+        Path query = Files.createTempFile("blazedb", ".sql");
+        Path output = Files.createTempFile("blazedb", ".csv");
+        Files.write(query, "SELECT Student.A FROM Student, Course;".getBytes());
+        BlazeDB.main(new String[]{schemaDirectory, query.toString(), output.toString()});
+        List<String> lines = Files.readAllLines(output);
+        boolean oneColumn = lines.size() == 30;
+        for (String line : lines) {
+            oneColumn &= !line.contains(",");
+        }
+        System.out.println("Cross join projection: " + lines.size() + " rows " + (oneColumn ? "correct" : "WRONG"));
+
+        // ==================== CASE 8: a false condition on one table keeps no row ====================
+        Files.write(query, "SELECT Student.A FROM Student WHERE 1 = 2;".getBytes());
+        BlazeDB.main(new String[]{schemaDirectory, query.toString(), output.toString()});
+        lines = Files.readAllLines(output);
+        System.out.println("False condition: " + lines.size() + " rows " + (lines.isEmpty() ? "correct" : "WRONG"));
+
+        // ==================== CASE 9: each table keeps only the columns the query uses ====================
+        plan = new RuleEngine(new PushDownSelections(), new PruneColumns(dbCatalogue)).rewrite(
+                build("SELECT Student.B, SUM(Enrolled.H) FROM Student, Enrolled WHERE Student.A = Enrolled.A "
+                        + "AND Student.C > 0 GROUP BY Student.B;"));
+        join = (LogicalJoin) child(child(plan));
+        boolean pruned = join.getLeft().describe().equals("Filter(Student.C > 0)")
+                && child(join.getLeft()).describe().equals("Project([Student.A, Student.B, Student.C])")
+                && join.getRight().describe().equals("Project([Enrolled.A, Enrolled.H])");
+        System.out.println("Pruned columns:\n" + plan + (pruned ? "correct" : "WRONG"));
+
+        // ==================== CASE 10: a table without used columns keeps one, SELECT * keeps them all ====================
+        plan = new RuleEngine(new PruneColumns(dbCatalogue)).rewrite(build("SELECT Student.A FROM Student, Course;"));
+        join = (LogicalJoin) child(plan);
+        boolean oneKept = join.getRight().describe().equals("Project([Course.E])");
+        plan = new RuleEngine(new PruneColumns(dbCatalogue)).rewrite(build("SELECT * FROM Student, Course WHERE Student.A = 1;"));
+        boolean allKept = child(child(plan)) instanceof LogicalJoin
+                && ((LogicalJoin) child(child(plan))).getRight() instanceof LogicalScan;
+        System.out.println("Kept columns: " + (oneKept && allKept ? "correct" : "WRONG"));
+
+        // ==================== CASE 11: the pruned join gives the same rows ====================
+        Files.write(query, "SELECT Student.B, SUM(Enrolled.H) FROM Student, Enrolled WHERE Student.A = Enrolled.A GROUP BY Student.B ORDER BY Student.B;".getBytes());
+        BlazeDB.main(new String[]{schemaDirectory, query.toString(), output.toString()});
+        lines = Files.readAllLines(output);
+        System.out.println("Pruned join: " + lines + (lines.equals(Arrays.asList("100, 79", "200, 261")) ? " correct" : " WRONG"));
+
+        Files.delete(query);
+        Files.delete(output);
+        System.out.println("LogicalPlan Tests completed!");
+    }
+
+    private static LogicalPlan build(String sql) throws JSQLParserException {
+        return LogicalPlanBuilder.build((PlainSelect) CCJSqlParserUtil.parse(sql));
+    }
+
+    private static LogicalPlan child(LogicalPlan plan) {
+        return plan.getChildren().get(0);
+    }
+
+    /**
+     * @return True if no join is left reorderable and every Filter is on a scan.
+     */
+    private static boolean isPlaced(LogicalPlan plan) {
+        if (plan instanceof LogicalJoin && ((LogicalJoin) plan).isReorderable()) {
+            return false;
+        }
+        if (plan instanceof LogicalFilter && !(child(plan) instanceof LogicalScan || child(plan) instanceof LogicalProject)) {
+            return false;
+        }
+        for (LogicalPlan child : plan.getChildren()) {
+            if (!isPlaced(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.query.PhysicalPlanner;
+import ed.inf.adbs.blazedb.query.PhysicalPlanner.JoinMethod;
+
+import java.io.File;
+
+public class PhysicalPlannerTest {
+    public static void main(String[] args) {
+        System.out.println("Running PhysicalPlanner Tests...");
+
+        String schemaDirectory = "samples" + File.separator + "db";
+        PhysicalPlanner planner = new PhysicalPlanner(new DBStatistics(new DBCatalogue(schemaDirectory)));
+
+        // ==================== CASE 1: an equi-join of unsorted inputs is a hash join ====================
+        JoinMethod method = planner.chooseJoin("Big", "full scan of Big", 100000, 50000, 50000, 100000,
+                true, false, false, 0, -1);
+        System.out.println("Unsorted inputs: " + method + (method == JoinMethod.HASH ? " correct" : " WRONG"));
+
+        // ==================== CASE 2: inputs already sorted on their keys are merged ====================
+        method = planner.chooseJoin("Big", "index scan of Big", 100000, 50000, 50000, 100000,
+                true, true, true, 0, -1);
+        System.out.println("Sorted inputs: " + method + (method == JoinMethod.SORT_MERGE ? " correct" : " WRONG"));
+
+        // ==================== CASE 3: the order saved after the join makes the sort-merge join cheaper ====================
+        double saving = PhysicalPlanner.sortOrderSaving(1000000, 1000000, false, false);
+        method = planner.chooseJoin("Big", "full scan of Big", 1000, 1000, 1000, 1000000,
+                true, false, false, saving, -1);
+        System.out.println("ORDER BY on the keys of a large output: " + method
+                + (method == JoinMethod.SORT_MERGE ? " correct" : " WRONG"));
+
+        // ==================== CASE 4: a few outer rows probe the index of a large table ====================
+        method = planner.chooseJoin("Big", "full scan of Big", 10, 1000000, 1000000, 10,
+                true, false, false, 0, 14);
+        System.out.println("Few outer rows and an index: " + method
+                + (method == JoinMethod.INDEX_NESTED_LOOP ? " correct" : " WRONG"));
+
+        // ==================== CASE 5: without equality keys only the nested loop join is possible ====================
+        method = planner.chooseJoin("Big", "full scan of Big", 100, 100, 100, 3333,
+                false, false, false, 0, 14);
+        System.out.println("No keys: " + method + (method == JoinMethod.NESTED_LOOP ? " correct" : " WRONG"));
+
+        // ==================== CASE 6: aggregation by hash, or by sort if the rows are already sorted ====================
+        boolean sortAggregate = planner.chooseSortAggregate(1000000, 10, false, true);
+        System.out.println("Unsorted rows, few groups: " + (sortAggregate ? "sort WRONG" : "hash correct"));
+        sortAggregate = planner.chooseSortAggregate(1000000, 10, true, false);
+        System.out.println("Sorted rows: " + (sortAggregate ? "sort correct" : "hash WRONG"));
+
+        planner.printPlan();
+        System.out.println("PhysicalPlanner Tests completed!");
+    }
+}
@@ -2,6 +2,10 @@ package ed.inf.adbs.blazedb;
 
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.storage.BufferPoolManager;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.FromItem;
 
@@ -43,6 +47,38 @@ public class ScanOperatorTest {
         Tuple resetTuple = scanOperator.getNextTuple();
         System.out.println("First tuple after reset: " + resetTuple);
 
+        // Test block skipping: the full scan above built the zone map of Student
+        System.out.println("Testing pruneBlocks() method...");
+        for (long constant : new long[]{5, 100}) {
+            GreaterThan condition = new GreaterThan();
+            condition.setLeftExpression(new Column(new Table("Student"), "A"));
+            condition.setRightExpression(new LongValue(constant));
+            ScanOperator pruned = new ScanOperator(fromItem, dbCatalogue);
+            pruned.pruneBlocks(condition);
+            int rows = 0;
+            while (pruned.getNextTuple() != null) {
+                rows++;
+            }
+            System.out.println(condition + ": read " + rows + " rows, skipped " + pruned.getSkippedBlocks() + " blocks");
+        }
+
+        // Test close(): the page of a scan stopped before the end is unpinned
+        if (BufferPoolManager.ENABLED) {
+            System.out.println("Testing close() method...");
+            BufferPoolManager bufferPool = BufferPoolManager.getInstance();
+            scanOperator.close();
+            ScanOperator stopped = new ScanOperator(fromItem, dbCatalogue);
+            stopped.getNextTuple();
+            int pinned = bufferPool.getPinnedCount();
+            stopped.close();
+            ScanOperator finished = new ScanOperator(fromItem, dbCatalogue);
+            while (finished.getNextTuple() != null) {
+                // read to the end of the table
+            }
+            System.out.println("Pinned pages: " + pinned + " while reading, " + bufferPool.getPinnedCount() + " after close and at the end "
+                    + (pinned == 1 && bufferPool.getPinnedCount() == 0 ? "correct" : "WRONG"));
+        }
+
         System.out.println("ScanOperator Tests completed successfully!");
     }
 }
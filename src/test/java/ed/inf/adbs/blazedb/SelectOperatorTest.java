@@ -112,6 +112,54 @@ public class SelectOperatorTest {
             System.out.println("Filtered Tuple (1=1, All Tuples Pass): " + tuple);
         }
 
+        // ==================== CASE 4: Student.C > 100, a batch at a time ====================
+        System.out.println("Testing getNextBatch() method with condition 'Student.C > 100'...");
+
+        ScanOperator batchScan = new ScanOperator(studentTable, dbCatalogue);
+        SelectOperator selectOperator4 = new SelectOperator(batchScan, greaterThanCCondition);
+        TupleBatch batch;
+        while ((batch = selectOperator4.getNextBatch()) != null) {
+            for (int i = 0; i < batch.selectedCount(); i++) {
+                System.out.println("Filtered Row (Student.C > 100): " + batch.getTuple(batch.selectedRow(i)));
+            }
+        }
+
+        // ==================== CASE 5: constants that do not fit in an int ====================
+        System.out.println("Testing with conditions 'Student.A < 3000000000' and 'Student.A = 3000000000'...");
+
+        MinorThan belowWide = new MinorThan();
+        belowWide.setLeftExpression(new Column(studentTable, "A"));
+        belowWide.setRightExpression(new LongValue(3000000000L));
+        EqualsTo equalsWide = new EqualsTo();
+        equalsWide.setLeftExpression(new Column(studentTable, "A"));
+        equalsWide.setRightExpression(new LongValue(3000000000L));
+
+        int below = 0;
+        SelectOperator selectOperator5 = new SelectOperator(new ScanOperator(studentTable, dbCatalogue), belowWide);
+        while (selectOperator5.getNextTuple() != null) {
+            below++;
+        }
+        int equal = 0;
+        SelectOperator selectOperator6 = new SelectOperator(new ScanOperator(studentTable, dbCatalogue), equalsWide);
+        while (selectOperator6.getNextTuple() != null) {
+            equal++;
+        }
+        System.out.println("Wide constants: " + below + " below, " + equal + " equal "
+                + (below == 6 && equal == 0 ? "correct" : "WRONG"));
+
+        int batchBelow = 0;
+        SelectOperator selectOperator7 = new SelectOperator(new ScanOperator(studentTable, dbCatalogue), belowWide);
+        while ((batch = selectOperator7.getNextBatch()) != null) {
+            batchBelow += batch.selectedCount();
+        }
+        int batchEqual = 0;
+        SelectOperator selectOperator8 = new SelectOperator(new ScanOperator(studentTable, dbCatalogue), equalsWide);
+        while ((batch = selectOperator8.getNextBatch()) != null) {
+            batchEqual += batch.selectedCount();
+        }
+        System.out.println("Wide constants, a batch at a time: " + batchBelow + " below, " + batchEqual + " equal "
+                + (batchBelow == 6 && batchEqual == 0 ? "correct" : "WRONG"));
+
         System.out.println("SelectOperator Tests completed successfully!");
     }
 }
@@ -0,0 +1,96 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import ed.inf.adbs.blazedb.dbcatalogue.DBStatistics;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import ed.inf.adbs.blazedb.query.SelectivityEstimator;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class SelectivityEstimatorTest {
+    public static void main(String[] args) throws IOException, JSQLParserException, InterruptedException {
+        System.out.println("Running SelectivityEstimator Tests...");
+
+        // A table of 50000 rows: A unique, B skewed (half the rows hold 0, the rest spread over 1..999)
+        // and C squared (dense near 0, sparse near 10000)
+        Path database = Files.createTempDirectory("blazedb");
+        Files.createDirectories(database.resolve("data"));
+        Files.write(database.resolve("schema.txt"), "Sales A B C\n".getBytes());
+        Random random = new Random(7);
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            int b = random.nextBoolean() ? 0 : 1 + random.nextInt(999);
+            int c = random.nextInt(100) * random.nextInt(100);
+            rows.append(i).append(", ").append(b).append(", ").append(c).append('\n');
+        }
+        Files.write(database.resolve("data").resolve("Sales.csv"), rows.toString().getBytes());
+        DBCatalogue dbCatalogue = new DBCatalogue(database.toString());
+        DBStatistics dbStatistics = new DBStatistics(dbCatalogue);
+        // the first estimate uses the defaults and starts computing the statistics in the background
+        Expression first = CCJSqlParserUtil.parseCondExpression("Sales.B = 0");
+        System.out.println("Before the statistics: " + SelectivityEstimator.estimate(first, dbStatistics));
+        DBStatistics.awaitRefresh();
+
+        // ==================== CASE 1: comparisons with constants and conjunctions ====================
+        String[] conditions = {
+                "Sales.A < 5000",
+                "Sales.A >= 1000 AND Sales.A <= 1999",
+                "Sales.B = 0",
+                "Sales.B = 500",
+                "Sales.B != 0",
+                "Sales.B > 0 AND Sales.B < 100",
+                "Sales.C <= 100",
+                "Sales.C > 5000",
+                "100 > Sales.C AND Sales.B = 0",
+                "Sales.A > 60000",
+        };
+        boolean close = true;
+        for (String text : conditions) {
+            Expression condition = CCJSqlParserUtil.parseCondExpression(text);
+            double estimate = SelectivityEstimator.estimate(condition, dbStatistics);
+            double actual = count(new SelectOperator(new ScanOperator(new Table("Sales"), dbCatalogue), condition)) / 50000.0;
+            boolean ok = Math.abs(estimate - actual) <= 0.02 + 0.2 * actual;
+            close &= ok;
+            System.out.println(String.format("%-40s estimate %.4f actual %.4f%s", text, estimate, actual, ok ? "" : " WRONG"));
+        }
+        System.out.println(close ? "All estimates close to the actual selectivities" : "Some estimates are FAR from the actual selectivities");
+
+        // ==================== CASE 2: without statistics, the default selectivities ====================
+        Expression range = CCJSqlParserUtil.parseCondExpression("Sales.A < 5000 AND Sales.B = 0");
+        System.out.println("Defaults: " + SelectivityEstimator.estimate(range, null)
+                + (Math.abs(SelectivityEstimator.estimate(range, null) - 1.0 / 30) < 1e-9 ? " correct" : " WRONG"));
+
+        // ==================== CASE 3: an equi-join uses the distinct counts ====================
+        Expression join = CCJSqlParserUtil.parseCondExpression("Sales.A = Sales.B");
+        System.out.println("Join selectivity: " + SelectivityEstimator.estimateJoin(join, dbStatistics)
+                + " (1 / about 50000 distinct values of A)");
+
+        for (File file : database.resolve("data").toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database.resolve("data"));
+        for (File file : database.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(database);
+        System.out.println("SelectivityEstimator Tests completed!");
+    }
+
+    private static int count(Operator operator) {
+        int count = 0;
+        while (operator.getNextTuple() != null) {
+            count++;
+        }
+        return count;
+    }
+}
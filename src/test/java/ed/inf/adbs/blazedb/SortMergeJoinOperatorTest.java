@@ -0,0 +1,76 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SortMergeJoinOperator;
+import ed.inf.adbs.blazedb.operator.SortOperator;
+import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+import java.io.File;
+import java.util.Collections;
+
+public class SortMergeJoinOperatorTest {
+    public static void main(String[] args) {
+        System.out.println("Running SortMergeJoinOperator Tests...");
+
+        // Set up database catalogue
+        String schemaDirectory = "samples"+ File.separator + "db";  // Ensure correct schema directory
+        DBCatalogue dbCatalogue = new DBCatalogue(schemaDirectory);
+
+        // Define left and right tables
+        Table enrolledTable = new Table("Enrolled");
+        Table courseTable = new Table("Course");
+
+        // Ensure tables exist
+        if (!dbCatalogue.tableExists("Enrolled") || !dbCatalogue.tableExists("Course")) {
+            System.err.println("Error: One or both tables do not exist in schema!");
+            return;
+        }
+
+        // ==================== CASE 1: Enrolled.E = Course.E, both inputs unsorted ====================
+        // Enrolled.E has duplicate values (101, 102) so the merge has to handle runs
+        ScanOperator enrolledScan = new ScanOperator(enrolledTable, dbCatalogue);
+        ScanOperator courseScan = new ScanOperator(courseTable, dbCatalogue);
+
+        SortMergeJoinOperator sortMergeJoinOperator = new SortMergeJoinOperator(enrolledScan, courseScan,
+                Collections.singletonList(new Column(enrolledTable, "E")),
+                Collections.singletonList(new Column(courseTable, "E")), null);
+
+        System.out.println("Testing getNextTuple() method with keys Enrolled.E = Course.E...");
+        Tuple tuple;
+        int count = 0;
+        while ((tuple = sortMergeJoinOperator.getNextTuple()) != null) {
+            System.out.println("Joined Tuple: " + tuple);
+            count++;
+        }
+        System.out.println("Number of joined tuples (expected 6): " + count);
+        System.out.println("Output sorted on: " + sortMergeJoinOperator.getSortOrder());
+
+        // Test reset functionality
+        System.out.println("Testing reset() method...");
+        sortMergeJoinOperator.reset();
+
+        Tuple resetTuple = sortMergeJoinOperator.getNextTuple();
+        System.out.println("First joined tuple after reset: " + resetTuple);
+
+        // ==================== CASE 2: left input already sorted on the key ====================
+        OrderByElement orderByElement = new OrderByElement();
+        orderByElement.setExpression(new Column(enrolledTable, "E"));
+        SortOperator sortedEnrolled = new SortOperator(new ScanOperator(enrolledTable, dbCatalogue),
+                Collections.singletonList(orderByElement));
+
+        SortMergeJoinOperator presortedJoin = new SortMergeJoinOperator(sortedEnrolled,
+                new ScanOperator(courseTable, dbCatalogue),
+                Collections.singletonList(new Column(enrolledTable, "E")),
+                Collections.singletonList(new Column(courseTable, "E")), null);
+
+        System.out.println("Testing with an input that is already sorted (no extra sort expected)...");
+        while ((tuple = presortedJoin.getNextTuple()) != null) {
+            System.out.println("Joined Tuple (presorted): " + tuple);
+        }
+
+        System.out.println("SortMergeJoinOperator Tests completed successfully!");
+    }
+}
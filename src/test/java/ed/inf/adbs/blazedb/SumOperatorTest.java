@@ -2,6 +2,7 @@ package ed.inf.adbs.blazedb;
 
 import ed.inf.adbs.blazedb.operator.SumOperator;
 import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SortOperator;
 import ed.inf.adbs.blazedb.dbcatalogue.DBCatalogue;
 import ed.inf.adbs.blazedb.Tuple;
 import net.sf.jsqlparser.expression.Function;
@@ -9,10 +10,13 @@ import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.GroupByElement;
+import net.sf.jsqlparser.statement.select.OrderByElement;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /* This test is more extensive and considers all the cases of the SumOperator. */
@@ -100,6 +104,29 @@ public class SumOperatorTest {
 
         printResults(sumOperator6, "Student.A GROUP BY Student.A");
 
+        // ==================== CASE 7: sort aggregation, on the rows sorted on the GROUP BY column ====================
+        System.out.println("\nTesting SUM(Student.B) with GROUP BY Student.D on sorted rows...");
+        List<Function> sumFunctions7 = Collections.singletonList(createSumFunction(studentTable, "B"));
+        GroupByElement groupByElement7 = createGroupByElement(studentTable, "D");
+        OrderByElement orderByD = new OrderByElement();
+        orderByD.setExpression(new Column(studentTable, "D"));
+        SumOperator sortAggregate = new SumOperator(new SortOperator(new ScanOperator(studentTable, dbCatalogue),
+                Collections.singletonList(orderByD)), groupByElement7, sumFunctions7, true);
+        SumOperator hashAggregate = new SumOperator(new ScanOperator(studentTable, dbCatalogue), groupByElement7, sumFunctions7);
+        List<String> sortGroups = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = sortAggregate.getNextTuple()) != null) {
+            sortGroups.add(tuple.getValue(3) + " " + tuple.getValue(4));
+        }
+        List<String> hashGroups = new ArrayList<>();
+        while ((tuple = hashAggregate.getNextTuple()) != null) {
+            hashGroups.add(tuple.getValue(3) + " " + tuple.getValue(4));
+        }
+        List<String> sortedHashGroups = new ArrayList<>(hashGroups);
+        sortedHashGroups.sort(Comparator.comparingInt(group -> Integer.parseInt(group.split(" ")[0])));
+        System.out.println("Sort aggregation groups: " + sortGroups);
+        System.out.println("Same groups as the hash aggregation, in order: " + (sortGroups.equals(sortedHashGroups) ? "correct" : "WRONG")
+                + ", sort order " + sortAggregate.getSortOrder());
     }
 
     /**